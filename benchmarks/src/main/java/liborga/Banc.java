@@ -0,0 +1,43 @@
+package liborga;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lance les bancs d'essai avec les options JMH de la ligne de commande, en
+ * ajoutant toujours le profileur du ramasse-miettes (allocations par
+ * opération).
+ * <p>
+ * 
+ * Exemples :
+ * 
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar
+ * java -jar benchmarks/target/benchmarks.jar BancConsultation.livreSelect -p taille=1000,1000000
+ * java -jar benchmarks/target/benchmarks.jar -jvmArgsAppend -Xmx16g -p taille=10000000
+ * </pre>
+ * 
+ * Les catalogues de dix millions de livres demandent un tas de plusieurs
+ * gigaoctets.
+ */
+public final class Banc {
+
+	private Banc() {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		CommandLineOptions ligne;
+		try {
+			ligne = new CommandLineOptions(args);
+		} catch (CommandLineOptionException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+		new Runner(new OptionsBuilder().parent(ligne).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,136 @@
+package liborga;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recherches dans un catalogue déjà rempli : récupération d'un livre, d'un
+ * auteur ou d'un mot clé existant, et sélections par morceau de texte.
+ * <p>
+ * 
+ * Les valeurs cherchées sont tirées à l'avance parmi les données du catalogue
+ * et parcourues en boucle ; les noms d'auteur sont cherchés en majuscules pour
+ * passer par le repliement de la casse. Le cache des requêtes n'est pas activé
+ * : chaque sélection est réellement calculée.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BancConsultation {
+
+	/**
+	 * Nombre de valeurs cherchées tirées à l'avance.
+	 */
+	private static final int NB_VALEURS = 1 << 12;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int taille;
+
+	private Catalogue catalogue;
+
+	private String[] titres, noms, prenoms, mots;
+
+	private String[] morceauxTitres, morceauxNoms, morceauxMots;
+
+	private int suivant;
+
+	@Setup(Level.Trial)
+	public void remplir() {
+		Donnees donnees = new Donnees(taille);
+		catalogue = Catalogue.creer();
+		donnees.remplir(catalogue, taille);
+
+		SplittableRandom hasard = new SplittableRandom(7);
+		titres = new String[NB_VALEURS];
+		noms = new String[NB_VALEURS];
+		prenoms = new String[NB_VALEURS];
+		mots = new String[NB_VALEURS];
+		morceauxTitres = new String[NB_VALEURS];
+		morceauxNoms = new String[NB_VALEURS];
+		morceauxMots = new String[NB_VALEURS];
+		for (int i = 0; i < NB_VALEURS; i++) {
+			int livre = hasard.nextInt(taille);
+			int auteur = donnees.auteur(livre);
+			titres[i] = donnees.titre(livre);
+			noms[i] = donnees.nom(auteur).toUpperCase();
+			prenoms[i] = donnees.prenom(auteur);
+			mots[i] = donnees.mot(donnees.motAuHasard(hasard));
+			morceauxTitres[i] = Donnees.morceau(titres[i], hasard);
+			morceauxNoms[i] = Donnees.morceau(noms[i], hasard);
+			morceauxMots[i] = Donnees.morceau(mots[i], hasard);
+		}
+	}
+
+	private int suivant() {
+		return suivant = (suivant + 1) & (NB_VALEURS - 1);
+	}
+
+	// Récupération --------------------------------------------------------
+
+	@Benchmark
+	public Livre livreGet() {
+		int i = suivant();
+		return catalogue.getLivre(titres[i], noms[i], prenoms[i]);
+	}
+
+	@Benchmark
+	public Livre livreGetOrCreate() {
+		int i = suivant();
+		return catalogue.getOrCreateLivre(titres[i], noms[i], prenoms[i]);
+	}
+
+	@Benchmark
+	public Auteur auteurGetOrCreate() {
+		int i = suivant();
+		return catalogue.getOrCreateAuteur(noms[i], prenoms[i]);
+	}
+
+	@Benchmark
+	public MotCle motCleGetOrCreate() {
+		return catalogue.getOrCreateMotCle(mots[suivant()]);
+	}
+
+	// Sélection -----------------------------------------------------------
+
+	@Benchmark
+	public Set<Livre> livreSelect() {
+		return catalogue.selectLivres(morceauxTitres[suivant()], ModeRecherche.STRICT);
+	}
+
+	@Benchmark
+	public Set<Auteur> auteurSelect() {
+		return catalogue.selectAuteurs(morceauxNoms[suivant()], "", ModeRecherche.STRICT);
+	}
+
+	@Benchmark
+	public Set<MotCle> motCleSelect() {
+		return catalogue.selectMotsCles(morceauxMots[suivant()], ModeRecherche.STRICT);
+	}
+
+	@Benchmark
+	public Set<Livre> livreSelectParAuteur() {
+		return catalogue.selectLivresParAuteur(morceauxNoms[suivant()], "", ModeRecherche.STRICT);
+	}
+
+	@Benchmark
+	public Set<Livre> livreSelectParMotCle() {
+		return catalogue.selectLivresParMotCle(morceauxMots[suivant()], ModeRecherche.STRICT);
+	}
+}
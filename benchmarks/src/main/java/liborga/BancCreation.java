@@ -0,0 +1,153 @@
+package liborga;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Créations dans un catalogue déjà rempli : nouveaux livres (d'un auteur
+ * existant ou nouveau) et ajout de mots clés (existant ou nouveau).
+ * <p>
+ * 
+ * Chaque appel fait {@value #LOT} créations, défaites ensuite hors mesure
+ * (suppression des livres ou retrait des mots clés) : le catalogue garde sa
+ * taille d'un appel à l'autre. Les textes sont préparés à l'avance pour que
+ * les allocations mesurées soient celles du catalogue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BancCreation {
+
+	/**
+	 * Nombre de créations par appel (au plus la plus petite taille de
+	 * catalogue : chaque création de mot clé porte sur un livre différent).
+	 */
+	static final int LOT = 1 << 9;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int taille;
+
+	private Catalogue catalogue;
+
+	/**
+	 * Livres existants, auxquels les mots clés sont ajoutés.
+	 */
+	private Livre[] livres;
+
+	private String[] titres, noms, prenoms, nouveauxNoms, nouveauxPrenoms, motsExistants, nouveauxMots;
+
+	/**
+	 * Livres créés par le dernier appel, à supprimer.
+	 */
+	private final Livre[] CREES = new Livre[LOT];
+
+	/**
+	 * Mots clés ajoutés par le dernier appel, à retirer de {@link #livres}.
+	 */
+	private String[] ajoutes;
+
+	@Setup(Level.Trial)
+	public void remplir() {
+		Donnees donnees = new Donnees(taille);
+		catalogue = Catalogue.creer();
+		donnees.remplir(catalogue, taille);
+
+		livres = new Livre[LOT];
+		titres = new String[LOT];
+		noms = new String[LOT];
+		prenoms = new String[LOT];
+		nouveauxNoms = new String[LOT];
+		nouveauxPrenoms = new String[LOT];
+		motsExistants = new String[LOT];
+		nouveauxMots = new String[LOT];
+		for (int i = 0; i < LOT; i++) {
+			int existant = i * (taille / LOT);
+			int auteur = donnees.auteur(existant);
+			livres[i] = catalogue.getLivre(donnees.titre(existant), donnees.nom(auteur), donnees.prenom(auteur));
+			titres[i] = donnees.titre(taille + i);
+			noms[i] = donnees.nom(auteur);
+			prenoms[i] = donnees.prenom(auteur);
+			nouveauxNoms[i] = donnees.nom(donnees.nombreAuteurs() + i);
+			nouveauxPrenoms[i] = donnees.prenom(donnees.nombreAuteurs() + i);
+			for (int j = i;; j++) { // mot clé existant, mais pas sur ce livre
+				MotCle m = catalogue.getMotCle(donnees.mot(j % donnees.nombreMots()));
+				if (m != null && !livres[i].getMotsCles().contains(m)) {
+					motsExistants[i] = m.getMot();
+					break;
+				}
+			}
+			nouveauxMots[i] = donnees.mot(donnees.nombreMots() + i);
+		}
+	}
+
+	// Livres --------------------------------------------------------------
+
+	@Benchmark
+	@OperationsPerInvocation(LOT)
+	public void livreGetOrCreate(Blackhole trou) {
+		for (int i = 0; i < LOT; i++)
+			trou.consume(CREES[i] = catalogue.getOrCreateLivre(titres[i], noms[i], prenoms[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOT)
+	public void livreGetOrCreateNouvelAuteur(Blackhole trou) {
+		for (int i = 0; i < LOT; i++)
+			trou.consume(CREES[i] = catalogue.getOrCreateLivre(titres[i], nouveauxNoms[i], nouveauxPrenoms[i]));
+	}
+
+	@TearDown(Level.Invocation)
+	public void supprimerLivres() {
+		for (int i = 0; i < LOT; i++) {
+			if (CREES[i] != null) {
+				CREES[i].remove();
+				CREES[i] = null;
+			}
+		}
+	}
+
+	// Mots clés -----------------------------------------------------------
+
+	@Benchmark
+	@OperationsPerInvocation(LOT)
+	public void livreAddMotCle(Blackhole trou) {
+		ajoutes = motsExistants;
+		for (int i = 0; i < LOT; i++)
+			trou.consume(livres[i].addMotCle(motsExistants[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOT)
+	public void livreAddNouveauMotCle(Blackhole trou) {
+		ajoutes = nouveauxMots;
+		for (int i = 0; i < LOT; i++)
+			trou.consume(livres[i].addMotCle(nouveauxMots[i]));
+	}
+
+	@TearDown(Level.Invocation)
+	public void retirerMotsCles() {
+		if (ajoutes != null) {
+			for (int i = 0; i < LOT; i++)
+				livres[i].removeMotCle(ajoutes[i]);
+			ajoutes = null;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package liborga;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Modifications enregistrées dans un journal, selon son mode d'écriture : un
+ * thread seul, puis plusieurs threads dont les synchronisations sur disque
+ * peuvent être regroupées (mode {@link Journal.Mode#GROUPE}).
+ * <p>
+ * 
+ * Chaque appel ajoute puis retire un mot clé propre au thread à son livre, soit
+ * deux enregistrements. Le journal est écrit dans un répertoire temporaire,
+ * supprimé à la fin ; les résultats dépendent surtout du disque qui l'héberge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BancJournal {
+
+	@Param({ "SYNCHRONE", "GROUPE", "ASYNCHRONE" })
+	public Journal.Mode mode;
+
+	private Path repertoire;
+
+	private Catalogue catalogue;
+
+	private Journal journal;
+
+	private final AtomicInteger FILS = new AtomicInteger();
+
+	/**
+	 * Livre et mot clé modifiés par un thread, pour que les threads ne se
+	 * disputent que le journal.
+	 */
+	@State(Scope.Thread)
+	public static class Fil {
+
+		private Livre livre;
+
+		private String mot;
+
+		@Setup(Level.Trial)
+		public void choisir(BancJournal b) {
+			int i = b.FILS.getAndIncrement();
+			livre = b.catalogue.getOrCreateLivre("Livre " + i, "Auteur " + i, "A");
+			mot = "mot " + i;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void ouvrir() throws IOException {
+		repertoire = Files.createTempDirectory("banc-journal");
+		catalogue = Catalogue.creer();
+		journal = Journal.ouvrir(catalogue, repertoire.resolve("journal"), mode);
+	}
+
+	@TearDown(Level.Trial)
+	public void fermer() throws IOException {
+		journal.close();
+		Files.deleteIfExists(repertoire.resolve("journal"));
+		Files.delete(repertoire);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	@Threads(1)
+	public void modifier(Fil f) {
+		f.livre.addMotCle(f.mot);
+		f.livre.removeMotCle(f.mot);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	@Threads(8)
+	public void modifier8Threads(Fil f) {
+		f.livre.addMotCle(f.mot);
+		f.livre.removeMotCle(f.mot);
+	}
+}
@@ -0,0 +1,174 @@
+package liborga;
+
+import java.util.SplittableRandom;
+
+/**
+ * Générateur de données synthétiques pour les bancs d'essai : titres, noms,
+ * prénoms et mots clés accentués, dans le style de ceux de {@link Test}.
+ * <p>
+ * 
+ * Les données sont déterministes : le livre numéro i est toujours le même, et
+ * deux livres de numéros différents ont des titres différents. Les auteurs
+ * sont environ vingt fois moins nombreux que les livres et les mots clés
+ * suivent une distribution très inégale (quelques mots clés très courants,
+ * beaucoup de rares).
+ */
+final class Donnees {
+
+	private static final String[] ARTICLES = { "Le", "La", "Les", "Un", "Une", "L'", "Du", "Des" };
+
+	private static final String[] NOMS_COMMUNS = { "Misérables", "Roman", "Bourgeois", "Théâtre", "Forêt", "Château",
+			"Mémoires", "Rêverie", "Éducation", "Âme", "Soirée", "Écume", "Fenêtre", "Cœur", "Été", "Légende", "Père",
+			"Frère", "Île", "Conquête", "Curée", "Bête", "Comédie", "Tempête", "Épreuve", "Rivière", "Lumière", "Poète",
+			"Cité", "Génération", "Élégie", "Chrysanthème", "Fièvre", "Odyssée", "Prière", "Héritière", "Médecin",
+			"Misère", "Vérité", "Siècle" };
+
+	private static final String[] QUALIFICATIFS = { "bourgeois", "gentilhomme", "sentimentale", "perdu", "éternel",
+			"oublié", "inachevée", "lointaine", "fidèle", "étrangère", "bien-aimé", "déchu", "mélancolique",
+			"ténébreux", "légère", "héroïque", "populaire", "secrète", "écarlate", "fébrile" };
+
+	private static final String[] NOMS = { "Hugo", "Zola", "Furetière", "Molière", "Balzac", "Flaubert", "Maupassant",
+			"Stendhal", "Verlaine", "Rimbaud", "Baudelaire", "Musset", "Nerval", "Mérimée", "Daudet", "Sévigné",
+			"Lamartine", "Vigny", "Chateaubriand", "Sand", "Colette", "Proust", "Céline", "Éluard", "Apollinaire",
+			"Loti", "Huysmans", "Fénelon", "Pérec", "Ionesco", "Sarraute", "Lefèvre", "Gréville", "Ségur", "Brontë",
+			"Cocteau", "Aragon", "Prévert", "Racine", "Corneille" };
+
+	private static final String[] PRENOMS = { "Victor", "Émile", "Antoine", "Honoré", "Gustave", "Guy", "Paul",
+			"Arthur", "Charles", "Alfred", "Gérard", "Prosper", "Alphonse", "Marie", "Hélène", "Léon", "Joséphine",
+			"Agnès", "Cécile", "François", "Zoé", "Jérôme", "Éloïse", "Noémie", "Anaïs", "Thérèse", "Ève", "Benoît",
+			"Loïc", "Mathéo", "" };
+
+	private static final String[] MOTS = { "roman", "social", "comédie", "théâtre", "historique", "poésie", "réalisme",
+			"naturalisme", "symbolisme", "épistolaire", "tragédie", "fantastique", "mémoires", "essai", "aventure",
+			"policier", "éducation", "société", "révolution", "amour" };
+
+	private static final String[] PRECISIONS = { "", " du XIXe siècle", " en vers", " médiéval", " pour la jeunesse",
+			" à l'étranger", " féminin", " épique", " lyrique", " régional" };
+
+	private final int NB_AUTEURS;
+
+	private final int NB_MOTS;
+
+	Donnees(int nbLivres) {
+		this.NB_AUTEURS = Math.max(1, nbLivres / 20);
+		this.NB_MOTS = Math.max(MOTS.length, Math.min(nbLivres / 50, 100_000));
+	}
+
+	/**
+	 * @return nombre d'auteurs des livres : les numéros d'auteur suivants
+	 *         désignent des auteurs absents du catalogue.
+	 */
+	int nombreAuteurs() {
+		return NB_AUTEURS;
+	}
+
+	/**
+	 * @return nombre de mots clés tirés au hasard : les numéros de mot clé
+	 *         suivants désignent des mots clés absents du catalogue.
+	 */
+	int nombreMots() {
+		return NB_MOTS;
+	}
+
+	/**
+	 * @param livre Numéro du livre.
+	 * @return titre du livre, distinct pour chaque numéro.
+	 */
+	String titre(int livre) {
+		int n = livre;
+		String article = ARTICLES[n % ARTICLES.length];
+		n /= ARTICLES.length;
+		String nom = NOMS_COMMUNS[n % NOMS_COMMUNS.length];
+		n /= NOMS_COMMUNS.length;
+		String qualificatif = QUALIFICATIFS[n % QUALIFICATIFS.length];
+		n /= QUALIFICATIFS.length;
+		String titre = article + (article.endsWith("'") ? "" : " ") + nom + " " + qualificatif;
+		return n == 0 ? titre : titre + ", tome " + n;
+	}
+
+	/**
+	 * @param livre Numéro du livre.
+	 * @return numéro de l'auteur du livre.
+	 */
+	int auteur(int livre) {
+		return (int) ((livre * 0x9E3779B1L & 0xFFFFFFFFL) % NB_AUTEURS);
+	}
+
+	/**
+	 * @param auteur Numéro d'auteur.
+	 * @return nom de l'auteur, distinct (avec le prénom) pour chaque numéro.
+	 */
+	String nom(int auteur) {
+		int n = auteur / PRENOMS.length;
+		String nom = NOMS[n % NOMS.length];
+		n /= NOMS.length;
+		if (n > 0) {
+			nom += "-" + NOMS[n % NOMS.length];
+			n /= NOMS.length;
+		}
+		return n == 0 ? nom : nom + " " + n;
+	}
+
+	/**
+	 * @param auteur Numéro d'auteur.
+	 * @return prénom de l'auteur.
+	 */
+	String prenom(int auteur) {
+		return PRENOMS[auteur % PRENOMS.length];
+	}
+
+	/**
+	 * @param mot Numéro de mot clé.
+	 * @return mot clé, distinct pour chaque numéro.
+	 */
+	String mot(int mot) {
+		int n = mot;
+		String m = MOTS[n % MOTS.length] + PRECISIONS[n / MOTS.length % PRECISIONS.length];
+		n /= MOTS.length * PRECISIONS.length;
+		return n == 0 ? m : m + " " + n;
+	}
+
+	/**
+	 * Tire un numéro de mot clé : les petits numéros sont beaucoup plus
+	 * fréquents que les grands.
+	 * 
+	 * @param hasard Générateur aléatoire.
+	 * @return numéro de mot clé.
+	 */
+	int motAuHasard(SplittableRandom hasard) {
+		double x = hasard.nextDouble();
+		return (int) (x * x * x * NB_MOTS);
+	}
+
+	/**
+	 * Remplit un catalogue de livres, chacun avec un à quatre mots clés.
+	 * 
+	 * @param c        Catalogue à remplir.
+	 * @param nbLivres Nombre de livres.
+	 */
+	void remplir(Catalogue c, int nbLivres) {
+		SplittableRandom hasard = new SplittableRandom(42);
+		for (int i = 0; i < nbLivres; i++) {
+			int a = auteur(i);
+			Livre l = c.getOrCreateLivre(titre(i), nom(a), prenom(a));
+			for (int k = 1 + hasard.nextInt(4); k > 0; k--)
+				l.addMotCle(mot(motAuHasard(hasard)));
+		}
+	}
+
+	/**
+	 * Extrait un morceau de texte à rechercher (trois à six caractères, ou le
+	 * texte entier s'il est plus court).
+	 * 
+	 * @param texte  Texte existant.
+	 * @param hasard Générateur aléatoire.
+	 * @return morceau du texte.
+	 */
+	static String morceau(String texte, SplittableRandom hasard) {
+		if (texte.length() <= 3)
+			return texte;
+		int longueur = Math.min(texte.length(), 3 + hasard.nextInt(4));
+		int debut = hasard.nextInt(texte.length() - longueur + 1);
+		return texte.substring(debut, debut + longueur);
+	}
+}
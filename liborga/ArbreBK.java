@@ -0,0 +1,402 @@
+package liborga;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Arbre de Burkhard-Keller des clés associées à des éléments numérotés, pour
+ * retrouver les clés proches d'une requête au sens de la distance d'édition
+ * (Levenshtein : insertions, suppressions et substitutions de caractères).
+ * <p>
+ * 
+ * Chaque nœud porte une clé distincte ; ses enfants sont rangés selon leur
+ * distance à cette clé. Par l'inégalité triangulaire, une recherche à distance
+ * au plus k d'une requête à distance d d'un nœud ne visite que les enfants
+ * rangés entre d - k et d + k. La distance à un nœud est abandonnée dès
+ * qu'elle dépasse la plus grande distance encore utile en ce nœud. Elle est
+ * calculée 64 cases à la fois (algorithme de Myers) quand la requête tient
+ * dans un long, dans une bande diagonale sinon.
+ * <p>
+ * 
+ * Un nœud dont la clé n'a plus d'élément reste dans l'arbre pour guider les
+ * recherches ; l'arbre est reconstruit quand ces nœuds vides deviennent plus
+ * nombreux que les autres.
+ * <p>
+ * 
+ * Cette classe n'est pas synchronisée : {@link #chercher} ne modifie rien
+ * (ses lignes de calcul lui sont propres) et peut être appelée par plusieurs
+ * threads à la fois, mais pas pendant une modification (voir
+ * {@link RechercheApprochee}).
+ * 
+ * @param <T> Type des éléments.
+ */
+final class ArbreBK<T> {
+
+	/**
+	 * Nombre minimal de nœuds vides avant une reconstruction.
+	 */
+	private static final int VIDES_MIN = 1024;
+
+	private static final int[] AUCUN = new int[0];
+
+	/**
+	 * Nœud de l'arbre.
+	 */
+	private static final class Noeud {
+
+		final String cle;
+
+		/**
+		 * Enfants rangés par distance à la clé : enfants[d - 1] est à distance d
+		 * (null s'il n'y en a pas).
+		 */
+		Noeud[] enfants = AUCUN_ENFANT;
+
+		/**
+		 * Numéros des éléments associés à la clé.
+		 */
+		int[] ids = AUCUN;
+
+		Noeud(String cle) {
+			this.cle = cle;
+		}
+	}
+
+	private static final Noeud[] AUCUN_ENFANT = new Noeud[0];
+
+	/**
+	 * Requête d'au plus 64 caractères préparée pour le calcul des distances :
+	 * pour chaque caractère, masque de ses positions dans la requête.
+	 */
+	private static final class Masques {
+
+		final int longueur;
+
+		/**
+		 * Masques des caractères ASCII, par caractère.
+		 */
+		final long[] ascii = new long[128];
+
+		/**
+		 * Autres caractères de la requête et leurs masques.
+		 */
+		char[] autres = new char[0];
+
+		long[] masquesAutres = new long[0];
+
+		Masques(char[] requete) {
+			this.longueur = requete.length;
+			for (int i = 0; i < requete.length; i++) {
+				char c = requete[i];
+				if (c < 128) {
+					ascii[c] |= 1L << i;
+					continue;
+				}
+				int k = 0;
+				while (k < autres.length && autres[k] != c)
+					k++;
+				if (k == autres.length) {
+					autres = Arrays.copyOf(autres, k + 1);
+					masquesAutres = Arrays.copyOf(masquesAutres, k + 1);
+					autres[k] = c;
+				}
+				masquesAutres[k] |= 1L << i;
+			}
+		}
+
+		long masque(char c) {
+			if (c < 128)
+				return ascii[c];
+			for (int k = 0; k < autres.length; k++)
+				if (autres[k] == c)
+					return masquesAutres[k];
+			return 0;
+		}
+	}
+
+	/**
+	 * Lignes de calcul des distances d'une requête de plus de 64 caractères,
+	 * réutilisées d'un nœud à l'autre.
+	 */
+	private static final class Lignes {
+
+		int[] ligne = new int[64], precedente = new int[64];
+	}
+
+	private final IntFunction<T> ELEMENTS;
+
+	/**
+	 * Nœuds de l'arbre par clé, pour les ajouts et les retraits.
+	 */
+	private final Map<String, Noeud> NOEUDS = new HashMap<>();
+
+	private Noeud racine;
+
+	/**
+	 * Nombre de nœuds sans élément.
+	 */
+	private int vides;
+
+	/**
+	 * @param elements Accès à un élément par son numéro.
+	 */
+	ArbreBK(IntFunction<T> elements) {
+		this.ELEMENTS = elements;
+	}
+
+	// Modification --------------------------------------------------------
+
+	/**
+	 * Associe une clé à un élément (sans effet si c'est déjà le cas).
+	 * 
+	 * @param cle    Clé normalisée.
+	 * @param numero Numéro de l'élément.
+	 */
+	void ajouter(String cle, int numero) {
+		Noeud n = NOEUDS.get(cle);
+		if (n == null) {
+			n = new Noeud(cle);
+			NOEUDS.put(cle, n);
+			placer(n);
+		} else if (n.ids.length == 0) {
+			vides--;
+		} else {
+			for (int id : n.ids)
+				if (id == numero)
+					return;
+		}
+		int[] ids = Arrays.copyOf(n.ids, n.ids.length + 1);
+		ids[n.ids.length] = numero;
+		n.ids = ids;
+	}
+
+	/**
+	 * Dissocie une clé d'un élément (sans effet si elle ne lui est pas associée).
+	 * 
+	 * @param cle    Clé normalisée.
+	 * @param numero Numéro de l'élément.
+	 */
+	void retirer(String cle, int numero) {
+		Noeud n = NOEUDS.get(cle);
+		if (n == null)
+			return;
+		int p = 0;
+		while (p < n.ids.length && n.ids[p] != numero)
+			p++;
+		if (p == n.ids.length)
+			return;
+		if (n.ids.length > 1) {
+			int[] ids = new int[n.ids.length - 1];
+			System.arraycopy(n.ids, 0, ids, 0, p);
+			System.arraycopy(n.ids, p + 1, ids, p, ids.length - p);
+			n.ids = ids;
+			return;
+		}
+		n.ids = AUCUN;
+		if (++vides >= VIDES_MIN && 2 * vides > NOEUDS.size())
+			reconstruire();
+	}
+
+	/**
+	 * Range un nouveau nœud dans l'arbre.
+	 */
+	private void placer(Noeud nouveau) {
+		if (racine == null) {
+			racine = nouveau;
+			return;
+		}
+		char[] cle = nouveau.cle.toCharArray();
+		Masques m = masques(cle);
+		Lignes l = m == null ? new Lignes() : null;
+		Noeud n = racine;
+		while (true) {
+			int d = distance(m, l, cle, n.cle, Math.max(cle.length, n.cle.length()));
+			if (d > n.enfants.length)
+				n.enfants = Arrays.copyOf(n.enfants, d);
+			if (n.enfants[d - 1] == null) {
+				n.enfants[d - 1] = nouveau;
+				return;
+			}
+			n = n.enfants[d - 1];
+		}
+	}
+
+	/**
+	 * Reconstruit l'arbre avec les seuls nœuds qui ont des éléments.
+	 */
+	private void reconstruire() {
+		List<Noeud> pleins = new ArrayList<>(NOEUDS.size() - vides);
+		for (Noeud n : NOEUDS.values())
+			if (n.ids.length > 0)
+				pleins.add(n);
+		NOEUDS.clear();
+		racine = null;
+		vides = 0;
+		for (Noeud n : pleins) {
+			n.enfants = AUCUN_ENFANT;
+			NOEUDS.put(n.cle, n);
+			placer(n);
+		}
+	}
+
+	// Recherche -----------------------------------------------------------
+
+	/**
+	 * Renvoie les éléments dont une clé est à distance d'édition au plus
+	 * distanceMax d'une requête.
+	 * 
+	 * @param requete     Requête normalisée.
+	 * @param distanceMax Distance d'édition maximale.
+	 * @param nombre      Nombre maximal d'éléments renvoyés.
+	 * @return éléments trouvés, les plus proches d'abord (puis par numéro) ; un
+	 *         élément à plusieurs clés compte pour la plus proche.
+	 */
+	List<T> chercher(String requete, int distanceMax, int nombre) {
+		if (racine == null || nombre <= 0)
+			return Collections.emptyList();
+		char[] q = requete.toCharArray();
+		Masques m = masques(q);
+		Lignes l = m == null ? new Lignes() : null;
+		Map<Integer, Integer> distances = new HashMap<>();
+		Deque<Noeud> aVisiter = new ArrayDeque<>();
+		aVisiter.push(racine);
+		while (!aVisiter.isEmpty()) {
+			Noeud n = aVisiter.pop();
+			int borne = n.enfants.length + distanceMax; // au-delà, ni le nœud ni ses enfants ne conviennent
+			int d = distance(m, l, q, n.cle, borne);
+			if (d > borne)
+				continue;
+			if (d <= distanceMax)
+				for (int id : n.ids)
+					distances.merge(id, d, Math::min);
+			for (int e = Math.max(1, d - distanceMax); e <= Math.min(n.enfants.length, d + distanceMax); e++)
+				if (n.enfants[e - 1] != null)
+					aVisiter.push(n.enfants[e - 1]);
+		}
+		List<Map.Entry<Integer, Integer>> trouves = new ArrayList<>(distances.entrySet());
+		trouves.sort(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+		List<T> r = new ArrayList<>(Math.min(nombre, trouves.size()));
+		for (Map.Entry<Integer, Integer> e : trouves) {
+			T x = ELEMENTS.apply(e.getKey());
+			if (x != null)
+				r.add(x);
+			if (r.size() == nombre)
+				break;
+		}
+		return r;
+	}
+
+	/**
+	 * @return masques de la requête, ou null si elle dépasse 64 caractères.
+	 */
+	private static Masques masques(char[] requete) {
+		return requete.length <= 64 ? new Masques(requete) : null;
+	}
+
+	/**
+	 * Distance d'édition bornée.
+	 * 
+	 * @param masques Masques de la première chaîne, ou null.
+	 * @param lignes  Lignes de calcul, utilisées si les masques sont null.
+	 * @param a       Première chaîne.
+	 * @param b       Seconde chaîne.
+	 * @param borne   Borne de la distance.
+	 * @return distance d'édition entre les deux chaînes si elle est au plus
+	 *         borne, borne + 1 sinon.
+	 */
+	private static int distance(Masques masques, Lignes lignes, char[] a, String b, int borne) {
+		int n = a.length, m = b.length();
+		if (Math.abs(n - m) > borne)
+			return borne + 1;
+		if (n == 0)
+			return m;
+		return masques != null ? distance(masques, b, borne) : distance(lignes, a, b, borne);
+	}
+
+	/**
+	 * Distance d'édition bornée, calculée colonne par colonne avec une case de
+	 * la requête par bit (Myers, Hyyrö).
+	 * 
+	 * @param requete Masques de la requête (non vide).
+	 * @param b       Seconde chaîne.
+	 * @param borne   Borne de la distance.
+	 * @return distance d'édition si elle est au plus borne, borne + 1 sinon.
+	 */
+	private static int distance(Masques requete, String b, int borne) {
+		long dernier = 1L << (requete.longueur - 1);
+		long pv = -1L, mv = 0;
+		int score = requete.longueur, reste = b.length();
+		for (int j = 0; j < b.length(); j++) {
+			long eq = requete.masque(b.charAt(j));
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & dernier) != 0)
+				score++;
+			else if ((mh & dernier) != 0)
+				score--;
+			if (score - --reste > borne)
+				return borne + 1; // chaque colonne restante la fait baisser d'au plus 1
+			ph = (ph << 1) | 1;
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+		}
+		return Math.min(score, borne + 1);
+	}
+
+	/**
+	 * Distance d'édition bornée, calculée dans la bande des cases où elle peut
+	 * ne pas dépasser la borne.
+	 * 
+	 * @param lignes Lignes de calcul, agrandies si besoin.
+	 * @param a      Première chaîne (non vide).
+	 * @param b      Seconde chaîne.
+	 * @param borne  Borne de la distance.
+	 * @return distance d'édition entre les deux chaînes si elle est au plus
+	 *         borne, borne + 1 sinon.
+	 */
+	private static int distance(Lignes lignes, char[] a, String b, int borne) {
+		int n = a.length, m = b.length();
+		if (lignes.precedente.length <= m) {
+			lignes.precedente = new int[2 * m + 1];
+			lignes.ligne = new int[2 * m + 1];
+		}
+		int[] prec = lignes.precedente, cour = lignes.ligne;
+		for (int j = 0; j <= m; j++)
+			prec[j] = j;
+		for (int i = 1; i <= n; i++) {
+			int debut = Math.max(1, i - borne), fin = Math.min(m, i + borne), min = borne + 1;
+			cour[debut - 1] = debut == 1 ? i : borne + 1;
+			if (debut == 1)
+				min = i;
+			char c = a[i - 1];
+			for (int j = debut; j <= fin; j++) {
+				int v = prec[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+				if (prec[j] + 1 < v)
+					v = prec[j] + 1;
+				if (cour[j - 1] + 1 < v)
+					v = cour[j - 1] + 1;
+				cour[j] = v;
+				if (v < min)
+					min = v;
+			}
+			if (fin < m)
+				cour[fin + 1] = borne + 1; // hors de la bande à la ligne suivante
+			if (min > borne)
+				return borne + 1;
+			int[] t = prec;
+			prec = cour;
+			cour = t;
+		}
+		return Math.min(prec[m], borne + 1);
+	}
+}
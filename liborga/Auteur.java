@@ -2,6 +2,11 @@ package liborga;
 
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
 /**
  * Représente un auteur caractérisé par un nom et un prénom.
@@ -11,38 +16,214 @@ public class Auteur {
 	// Attributs statiques -------------------------------------------------
 
 	/**
-	 * Ensemble de tous les auteurs existants.
+	 * Ordre de tri des auteurs : par nom puis par prénom, indépendamment de la
+	 * casse. Cet ordre est compatible avec equals.
 	 */
-	@SuppressWarnings("unused")
-	private static final Set<Auteur> AUTEURS = new HashSet<>();
+	public static final Comparator<Auteur> ORDRE = Comparator.comparing(a -> a.CLE);
+
+	/**
+	 * Registre des auteurs d'un catalogue (voir {@link Catalogue}).
+	 */
+	static final class Registre {
+
+		/**
+		 * Ensemble de tous les auteurs existants, indexés par leur clé (nom et
+		 * prénom repliés, voir {@link Casse#replier(String)}).
+		 * <p>
+		 * 
+		 * Table concurrente, par segments : plusieurs threads peuvent créer ou
+		 * rechercher des auteurs en même temps.
+		 */
+		final Segments<Auteur> PAR_CLE = new Segments<>();
+
+		/**
+		 * Tous les auteurs existants, triés selon {@link Auteur#ORDRE} (puis par
+		 * numéro, pour qu'un auteur supprimé et celui qui le remplace restent
+		 * distincts).
+		 */
+		final ConcurrentSkipListSet<Auteur> TRIES = new ConcurrentSkipListSet<>(ORDRE.thenComparingInt(a -> a.ID));
+
+		/**
+		 * Tous les auteurs existants, rangés par numéro (voir {@link Auteur#ID}).
+		 */
+		final Table<Auteur> NUMEROS = new Table<>();
+
+		/**
+		 * Index des noms (en minuscules) de tous les auteurs existants.
+		 */
+		final IndexTrigrammes<Auteur> INDEX_NOMS = new IndexTrigrammes<>(NUMEROS);
+
+		/**
+		 * Index des prénoms (en minuscules) de tous les auteurs existants.
+		 */
+		final IndexTrigrammes<Auteur> INDEX_PRENOMS = new IndexTrigrammes<>(NUMEROS);
+
+		/**
+		 * Index des noms sans accents qui diffèrent de leur forme en minuscules.
+		 */
+		final IndexTrigrammes<Auteur> INDEX_NOMS_SANS_ACCENTS = new IndexTrigrammes<>(NUMEROS, INDEX_NOMS);
+
+		/**
+		 * Index des prénoms sans accents qui diffèrent de leur forme en minuscules.
+		 */
+		final IndexTrigrammes<Auteur> INDEX_PRENOMS_SANS_ACCENTS = new IndexTrigrammes<>(NUMEROS, INDEX_PRENOMS);
+
+		/**
+		 * Retire un auteur supprimé de {@link #PAR_CLE} s'il y est encore. Seule
+		 * cette instance est retirée : l'auteur qui l'a remplacé sous la même clé
+		 * (égal au sens de equals) reste dans le registre.
+		 * 
+		 * @param a Auteur supprimé.
+		 */
+		void oublier(Auteur a) {
+			PAR_CLE.computeIfPresent(a.CLE, (k, e) -> e == a ? null : e);
+		}
+	}
 
 	// Attributs d'instances -----------------------------------------------
 
 	/**
-	 * Nom de l'auteur (public et non modifiable).
+	 * Catalogue de l'auteur (public et non modifiable).
+	 */
+	public final Catalogue CATALOGUE;
+
+	/**
+	 * Nom de l'auteur (non modifiable, voir {@link #getNom()}), ou null s'il est
+	 * rangé hors du tas (voir {@link Textes}).
+	 */
+	private final String NOM;
+
+	/**
+	 * Prénom de l'auteur (non modifiable, voir {@link #getPrenom()}), ou null
+	 * s'il est rangé hors du tas.
+	 */
+	private final String PRENOM;
+
+	/**
+	 * Positions hors du tas du nom et du prénom, quand ils n'y sont pas gardés.
+	 */
+	private final long NOM_SAISI_HORS_TAS, PRENOM_SAISI_HORS_TAS;
+
+	/**
+	 * Clé de l'auteur, identique pour deux auteurs égaux au sens de equals.
+	 */
+	final String CLE;
+
+	/**
+	 * Numéro de l'auteur, unique parmi les auteurs existants.
+	 */
+	final int ID;
+
+	/**
+	 * Nom en minuscules, calculé une fois pour toutes pour les recherches, ou
+	 * null s'il est rangé hors du tas (voir {@link Textes}).
+	 */
+	final String NOM_MINUSCULES;
+
+	/**
+	 * Prénom en minuscules, ou null s'il est rangé hors du tas.
+	 */
+	final String PRENOM_MINUSCULES;
+
+	/**
+	 * Positions hors du tas du nom et du prénom en minuscules, quand ils n'y
+	 * sont pas gardés.
+	 */
+	final long NOM_HORS_TAS, PRENOM_HORS_TAS;
+
+	/**
+	 * Nom et prénom sans accents (voir {@link Casse#sansAccents(String)}), ou
+	 * null s'ils sont rangés hors du tas. Ce sont les mêmes chaînes que
+	 * NOM_MINUSCULES et PRENOM_MINUSCULES quand les deux formes sont égales.
+	 */
+	final String NOM_SANS_ACCENTS, PRENOM_SANS_ACCENTS;
+
+	/**
+	 * Positions hors du tas du nom et du prénom sans accents.
+	 */
+	final long NOM_SANS_ACCENTS_HORS_TAS, PRENOM_SANS_ACCENTS_HORS_TAS;
+
+	/**
+	 * Numéros des livres de l'auteur, tenus à jour par la classe Livre.
 	 */
-	public final String NOM;
+	final ListeIds LIVRES;
 
 	/**
-	 * Prénom de l'auteur (public et non modifiable).
+	 * Vrai une fois que l'auteur, n'ayant plus de livre, est supprimé : il ne
+	 * peut plus en recevoir.
 	 */
-	public final String PRENOM;
+	private volatile boolean supprime;
 
 	// Constructeur --------------------------------------------------------
 
 	/**
-	 * Constructeur unique et privé.
+	 * Constructeur unique et privé. Le nom, le prénom (s'ils sont gardés dans le
+	 * tas) et la clé sont partagés avec les auteurs égaux des autres catalogues.
 	 * 
+	 * @param c      Catalogue de l'auteur.
 	 * @param nom    Nom de l'auteur.
 	 * @param prenom Prénom de l'auteur.
+	 * @param cle    Clé de l'auteur (voir {@link #cle(String, String)}).
 	 */
-	private Auteur(String nom, String prenom) {
-		this.NOM = nom;
-		this.PRENOM = prenom;
+	private Auteur(Catalogue c, String nom, String prenom, String cle) {
+		this.CATALOGUE = c;
+		this.CLE = cle.intern();
+		this.ID = c.AUTEURS.NUMEROS.numero();
+		String nomMinuscules = nom.toLowerCase(), prenomMinuscules = prenom.toLowerCase();
+		this.NOM_HORS_TAS = Textes.ranger(nomMinuscules);
+		this.PRENOM_HORS_TAS = Textes.ranger(prenomMinuscules);
+		this.NOM_MINUSCULES = this.NOM_HORS_TAS == Textes.DANS_LE_TAS ? nomMinuscules : null;
+		this.PRENOM_MINUSCULES = this.PRENOM_HORS_TAS == Textes.DANS_LE_TAS ? prenomMinuscules : null;
+		this.NOM_SAISI_HORS_TAS = nom.equals(nomMinuscules) ? this.NOM_HORS_TAS : Textes.ranger(nom);
+		this.PRENOM_SAISI_HORS_TAS = prenom.equals(prenomMinuscules) ? this.PRENOM_HORS_TAS : Textes.ranger(prenom);
+		this.NOM = this.NOM_SAISI_HORS_TAS == Textes.DANS_LE_TAS ? nom.intern() : null;
+		this.PRENOM = this.PRENOM_SAISI_HORS_TAS == Textes.DANS_LE_TAS ? prenom.intern() : null;
+		String nomSansAccents = Casse.sansAccents(nom), prenomSansAccents = Casse.sansAccents(prenom);
+		if (nomSansAccents.equals(nomMinuscules)) {
+			this.NOM_SANS_ACCENTS = this.NOM_MINUSCULES;
+			this.NOM_SANS_ACCENTS_HORS_TAS = this.NOM_HORS_TAS;
+		} else {
+			this.NOM_SANS_ACCENTS_HORS_TAS = Textes.ranger(nomSansAccents);
+			this.NOM_SANS_ACCENTS = this.NOM_SANS_ACCENTS_HORS_TAS == Textes.DANS_LE_TAS ? nomSansAccents : null;
+		}
+		if (prenomSansAccents.equals(prenomMinuscules)) {
+			this.PRENOM_SANS_ACCENTS = this.PRENOM_MINUSCULES;
+			this.PRENOM_SANS_ACCENTS_HORS_TAS = this.PRENOM_HORS_TAS;
+		} else {
+			this.PRENOM_SANS_ACCENTS_HORS_TAS = Textes.ranger(prenomSansAccents);
+			this.PRENOM_SANS_ACCENTS = this.PRENOM_SANS_ACCENTS_HORS_TAS == Textes.DANS_LE_TAS ? prenomSansAccents
+					: null;
+		}
+		this.LIVRES = new ListeIds();
+	}
+
+	/**
+	 * Calcule la clé d'un auteur à partir de son nom et de son prénom.
+	 * 
+	 * @param nom    Nom de l'auteur.
+	 * @param prenom Prénom de l'auteur.
+	 * @return clé commune à tous les auteurs égaux, indépendamment de la casse.
+	 */
+	static String cle(String nom, String prenom) {
+		return Casse.replier(nom) + '\0' + Casse.replier(prenom);
 	}
 
 	// Accesseurs et usines à objets ---------------------------------------
 
+	/**
+	 * @return nom de l'auteur, tel que saisi à sa création.
+	 */
+	public String getNom() {
+		return this.NOM != null ? this.NOM : Textes.lire(this.NOM_SAISI_HORS_TAS);
+	}
+
+	/**
+	 * @return prénom de l'auteur, tel que saisi à sa création.
+	 */
+	public String getPrenom() {
+		return this.PRENOM != null ? this.PRENOM : Textes.lire(this.PRENOM_SAISI_HORS_TAS);
+	}
+
 	/**
 	 * Si possible, renvoie une instance de Auteur correspondant à un nom et à un
 	 * prénom.
@@ -62,6 +243,7 @@ public class Auteur {
 	 * résultat</li>
 	 * </ul>
 	 * 
+	 * @param c       Catalogue de l'auteur
 	 * @param nom     Nom de l'auteur à créer ou à récupérer
 	 * @param prenom  Prénom de l'auteur à créer ou à récupérer
 	 * @param getOnly indique si on ne veut que récupérer une instance existante
@@ -69,18 +251,91 @@ public class Auteur {
 	 * @return selon les cas : null, ou une instance existante, ou une nouvelle
 	 *         instance
 	 */
-	private static Auteur getOrCreate(String nom, String prenom, boolean getOnly) {
-		// TODO à compléter...
+	static Auteur getOrCreate(Catalogue c, String nom, String prenom, boolean getOnly) {
 		if (nom == null || nom.contentEquals("") || prenom == null)
 			return null; //
-		Auteur nouvelAuteur = new Auteur(nom, prenom);
-		for (Auteur a : AUTEURS)
-			if (a.equals(nouvelAuteur))
-				return a;
-		if (getOnly)
-			return null;
-		AUTEURS.add(nouvelAuteur);
-		return nouvelAuteur;
+		Registre r = c.AUTEURS;
+		String cle = cle(nom, prenom);
+		Auteur a = r.PAR_CLE.get(cle);
+		while (a != null && a.supprime) {
+			r.oublier(a); // supprimé mais pas encore retiré du registre
+			a = r.PAR_CLE.get(cle);
+		}
+		if (a != null && r.NUMEROS.get(a.ID) != a)
+			synchronized (a) { // en cours de création : attend qu'il soit rangé partout
+			}
+		if (a != null || getOnly)
+			return a;
+		Auteur nouvelAuteur = new Auteur(c, nom, prenom, cle);
+		synchronized (nouvelAuteur) { // aucun livre ne peut lui être rattaché avant qu'il soit rangé partout
+			a = r.PAR_CLE.putIfAbsent(nouvelAuteur.CLE, nouvelAuteur);
+			if (a == null) {
+				r.NUMEROS.ranger(nouvelAuteur.ID, nouvelAuteur);
+				r.TRIES.add(nouvelAuteur);
+				r.INDEX_NOMS.ajouter(nouvelAuteur.nomMinuscules(), nouvelAuteur.ID);
+				r.INDEX_PRENOMS.ajouter(nouvelAuteur.prenomMinuscules(), nouvelAuteur.ID);
+				if (nouvelAuteur.nomADesAccents())
+					r.INDEX_NOMS_SANS_ACCENTS.ajouter(nouvelAuteur.nomSansAccents(), nouvelAuteur.ID);
+				if (nouvelAuteur.prenomADesAccents())
+					r.INDEX_PRENOMS_SANS_ACCENTS.ajouter(nouvelAuteur.prenomSansAccents(), nouvelAuteur.ID);
+				c.OBSERVATEURS.auteurCree(nouvelAuteur); // prévenu avant toute suppression de l'auteur
+				return nouvelAuteur;
+			}
+		}
+		r.NUMEROS.liberer(nouvelAuteur.ID); // jamais rangé
+		return getOrCreate(c, nom, prenom, false); // créé entre-temps par un autre thread
+	}
+
+	// Rattachement des livres ---------------------------------------------
+
+	/**
+	 * @return vrai si l'auteur a été supprimé : il faut alors le remplacer (voir
+	 *         {@link #remplacant()}). À lire sous le verrou de l'auteur pour lui
+	 *         rattacher un livre.
+	 */
+	boolean estSupprime() {
+		return supprime;
+	}
+
+	/**
+	 * Détache un livre supprimé de l'auteur. L'auteur est supprimé s'il n'a plus
+	 * de livre.
+	 * 
+	 * @param livre Numéro du livre.
+	 * @return vrai si l'auteur vient d'être supprimé : il faut alors appeler
+	 *         {@link #liberer()}.
+	 */
+	synchronized boolean detacher(int livre) {
+		if (!LIVRES.retirer(livre) || LIVRES.taille() > 0)
+			return false;
+		supprime = true;
+		return true;
+	}
+
+	/**
+	 * @return l'auteur de même nom et prénom qui remplace cet auteur supprimé
+	 *         (créé si besoin).
+	 */
+	Auteur remplacant() {
+		return getOrCreate(CATALOGUE, getNom(), getPrenom(), false);
+	}
+
+	/**
+	 * Retire des registres et des index un auteur qui vient d'être supprimé.
+	 */
+	synchronized void liberer() {
+		Registre r = CATALOGUE.AUTEURS;
+		r.oublier(this);
+		r.TRIES.remove(this);
+		r.INDEX_NOMS.retirer(nomMinuscules(), ID);
+		r.INDEX_PRENOMS.retirer(prenomMinuscules(), ID);
+		if (nomADesAccents())
+			r.INDEX_NOMS_SANS_ACCENTS.retirer(nomSansAccents(), ID);
+		if (prenomADesAccents())
+			r.INDEX_PRENOMS_SANS_ACCENTS.retirer(prenomSansAccents(), ID);
+		r.NUMEROS.ranger(ID, null);
+		CATALOGUE.OBSERVATEURS.auteurSupprime(this);
+		r.NUMEROS.liberer(ID); // plus aucun index ne le contient
 	}
 
 	/**
@@ -103,7 +358,7 @@ public class Auteur {
 	 *         instance
 	 */
 	public static Auteur getOrCreate(String nom, String prenom) {
-		return getOrCreate(nom, prenom, false);
+		return Catalogue.defaut().getOrCreateAuteur(nom, prenom);
 	}
 
 	/**
@@ -124,7 +379,122 @@ public class Auteur {
 	 * @return selon les cas : null, ou une instance existante
 	 */
 	public static Auteur get(String nom, String prenom) {
-		return getOrCreate(nom, prenom, true);
+		return Catalogue.defaut().getAuteur(nom, prenom);
+	}
+
+	/**
+	 * @return nom en minuscules, où qu'il soit rangé.
+	 */
+	String nomMinuscules() {
+		return this.NOM_MINUSCULES != null ? this.NOM_MINUSCULES : Textes.lire(this.NOM_HORS_TAS);
+	}
+
+	/**
+	 * @return prénom en minuscules, où qu'il soit rangé.
+	 */
+	String prenomMinuscules() {
+		return this.PRENOM_MINUSCULES != null ? this.PRENOM_MINUSCULES : Textes.lire(this.PRENOM_HORS_TAS);
+	}
+
+	/**
+	 * @return nom sans accents, où qu'il soit rangé.
+	 */
+	String nomSansAccents() {
+		return this.NOM_SANS_ACCENTS != null ? this.NOM_SANS_ACCENTS : Textes.lire(this.NOM_SANS_ACCENTS_HORS_TAS);
+	}
+
+	/**
+	 * @return prénom sans accents, où qu'il soit rangé.
+	 */
+	String prenomSansAccents() {
+		return this.PRENOM_SANS_ACCENTS != null ? this.PRENOM_SANS_ACCENTS
+				: Textes.lire(this.PRENOM_SANS_ACCENTS_HORS_TAS);
+	}
+
+	/**
+	 * @return vrai si le nom sans accents diffère du nom en minuscules.
+	 */
+	private boolean nomADesAccents() {
+		return this.NOM_SANS_ACCENTS != this.NOM_MINUSCULES || this.NOM_SANS_ACCENTS_HORS_TAS != this.NOM_HORS_TAS;
+	}
+
+	/**
+	 * @return vrai si le prénom sans accents diffère du prénom en minuscules.
+	 */
+	private boolean prenomADesAccents() {
+		return this.PRENOM_SANS_ACCENTS != this.PRENOM_MINUSCULES
+				|| this.PRENOM_SANS_ACCENTS_HORS_TAS != this.PRENOM_HORS_TAS;
+	}
+
+	/**
+	 * @param nom    Motif normalisé du nom.
+	 * @param prenom Motif normalisé du prénom, dans le même mode.
+	 * @return vrai si les formes du nom et du prénom correspondant au mode des
+	 *         motifs contiennent les motifs.
+	 */
+	boolean correspond(Textes.Motif nom, Textes.Motif prenom) {
+		if (nom.MODE == ModeRecherche.SANS_ACCENTS)
+			return nom.trouveDans(this.NOM_SANS_ACCENTS, this.NOM_SANS_ACCENTS_HORS_TAS)
+					&& prenom.trouveDans(this.PRENOM_SANS_ACCENTS, this.PRENOM_SANS_ACCENTS_HORS_TAS);
+		return nom.trouveDans(this.NOM_MINUSCULES, this.NOM_HORS_TAS)
+				&& prenom.trouveDans(this.PRENOM_MINUSCULES, this.PRENOM_HORS_TAS);
+	}
+
+	/**
+	 * Renvoie les auteurs dont le nom et le prénom peuvent contenir des motifs,
+	 * d'après les index.
+	 * 
+	 * @param r      Registre des auteurs.
+	 * @param nom    Motif normalisé du nom.
+	 * @param prenom Motif normalisé du prénom, dans le même mode.
+	 * @return candidats à vérifier, ou null si tous les auteurs sont candidats.
+	 */
+	private static Collection<Auteur> candidats(Registre r, Textes.Motif nom, Textes.Motif prenom) {
+		ListeIds.Contenu numeros = numerosCandidats(r, nom, prenom);
+		return numeros == null ? null : r.NUMEROS.elements(numeros);
+	}
+
+	/**
+	 * @param r      Registre des auteurs.
+	 * @param nom    Motif normalisé du nom.
+	 * @param prenom Motif normalisé du prénom, dans le même mode.
+	 * @return numéros des candidats à vérifier, ou null si tous les auteurs sont
+	 *         candidats.
+	 */
+	private static ListeIds.Contenu numerosCandidats(Registre r, Textes.Motif nom, Textes.Motif prenom) {
+		if (nom.MODE == ModeRecherche.SANS_ACCENTS)
+			return IndexTrigrammes.plusPetit(r.INDEX_NOMS_SANS_ACCENTS.numerosCandidats(nom.TEXTE),
+					r.INDEX_PRENOMS_SANS_ACCENTS.numerosCandidats(prenom.TEXTE));
+		return IndexTrigrammes.plusPetit(r.INDEX_NOMS.numerosCandidats(nom.TEXTE),
+				r.INDEX_PRENOMS.numerosCandidats(prenom.TEXTE));
+	}
+
+	/**
+	 * Renvoie tous les auteurs existants du catalogue par défaut.
+	 * 
+	 * @return vue (non modifiable) du registre des auteurs.
+	 */
+	static Collection<Auteur> tous() {
+		return tous(Catalogue.defaut());
+	}
+
+	/**
+	 * Renvoie tous les auteurs existants d'un catalogue.
+	 * 
+	 * @param c Catalogue.
+	 * @return vue (non modifiable) du registre des auteurs.
+	 */
+	static Collection<Auteur> tous(Catalogue c) {
+		return Collections.unmodifiableCollection(c.AUTEURS.PAR_CLE.values());
+	}
+
+	/**
+	 * @param c      Catalogue de l'auteur.
+	 * @param numero Numéro d'un auteur.
+	 * @return l'auteur portant ce numéro, ou null s'il n'existe pas.
+	 */
+	static Auteur parNumero(Catalogue c, int numero) {
+		return c.AUTEURS.NUMEROS.get(numero);
 	}
 
 	// toString et equals --------------------------------------------------
@@ -132,10 +502,10 @@ public class Auteur {
 	@Override
 	public String toString() {
 		// TODO à compléter...
-		String prenomAut, nomAut;
-		nomAut = this.NOM.toUpperCase();
-		if(this.PRENOM.length()>0){
-			prenomAut = " " + String.valueOf(this.PRENOM.charAt(0)).toUpperCase() + (this.PRENOM.substring(1)).toLowerCase();
+		String prenomAut, nomAut, prenom = getPrenom();
+		nomAut = getNom().toUpperCase();
+		if(prenom.length()>0){
+			prenomAut = " " + String.valueOf(prenom.charAt(0)).toUpperCase() + (prenom.substring(1)).toLowerCase();
 		} else {
 			prenomAut = "";
 		}
@@ -152,11 +522,14 @@ public class Auteur {
 		if (!(obj instanceof Auteur))
 			return false;
 		Auteur subject = (Auteur) obj;
-		boolean result = (this.NOM.equalsIgnoreCase(subject.NOM) && this.PRENOM.equalsIgnoreCase(subject.PRENOM));
+		boolean result = this.CATALOGUE == subject.CATALOGUE && this.CLE.equals(subject.CLE);
 		return result; // <- TODO résultat à adapter
 	}
 
-
+	@Override
+	public int hashCode() {
+		return this.CLE.hashCode();
+	}
 
 	// Requêtes ------------------------------------------------------------
 
@@ -170,16 +543,62 @@ public class Auteur {
 	 *         paramètres fournis, indépendamment de la casse
 	 */
 	public static Set<Auteur> select(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet) {
+		return select(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, ModeRecherche.STRICT);
+	}
+
+	/**
+	 * Sélection d'auteurs à partir d'un nom et d'un prénom, selon un mode de
+	 * recherche.
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom de l'auteur à
+	 *                                      rechercher
+	 * @param mode                          mode de recherche
+	 * @return ensemble des auteurs dont le nom et le prénom correspondent aux
+	 *         paramètres fournis dans ce mode
+	 */
+	public static Set<Auteur> select(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			ModeRecherche mode) {
+		return Catalogue.defaut().selectAuteurs(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, mode);
+	}
+
+	static Set<Auteur> selectSansCache(Catalogue c, String nomDAuteurPartielOuComplet,
+			String prenomDAuteurPartielOuComplet, ModeRecherche mode) {
 		// TODO à compléter...
-		String subNom = nomDAuteurPartielOuComplet.toLowerCase();
-		String subPrenom = prenomDAuteurPartielOuComplet.toLowerCase();
-		Set<Auteur> auteursSet = new HashSet<>();
+		Registre r = c.AUTEURS;
+		Textes.Motif motifNom = new Textes.Motif(nomDAuteurPartielOuComplet, mode);
+		Textes.Motif motifPrenom = new Textes.Motif(prenomDAuteurPartielOuComplet, mode);
+		ListeIds.Contenu retenus = r.NUMEROS.filtrer(numerosCandidats(r, motifNom, motifPrenom),
+				a -> a.correspond(motifNom, motifPrenom));
+		return new HashSet<>(r.NUMEROS.elements(retenus));
+	}
 
-		for(Auteur a : AUTEURS){
-			if(a.NOM.toLowerCase().contains(subNom) && a.PRENOM.toLowerCase().contains(subPrenom)){
-				auteursSet.add(a);
-			}
-		}
-		return auteursSet;
+	/**
+	 * Parcours trié des auteurs à partir d'un nom et d'un prénom.
+	 * <p>
+	 * 
+	 * Les résultats sont ceux de {@link #select(String, String)}, triés selon
+	 * {@link #ORDRE} et produits au fur et à mesure de la consommation du flot.
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom de l'auteur à
+	 *                                      rechercher
+	 * @param apres                         dernier auteur de la page précédente,
+	 *                                      ou null pour commencer au début
+	 * @return flot trié des auteurs qui correspondent aux paramètres fournis et
+	 *         qui suivent le curseur
+	 */
+	public static Stream<Auteur> parcourir(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			Auteur apres) {
+		return parcourir(Catalogue.defaut(), nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, apres);
+	}
+
+	static Stream<Auteur> parcourir(Catalogue c, String nomDAuteurPartielOuComplet,
+			String prenomDAuteurPartielOuComplet, Auteur apres) {
+		Registre r = c.AUTEURS;
+		Textes.Motif motifNom = new Textes.Motif(nomDAuteurPartielOuComplet, ModeRecherche.STRICT);
+		Textes.Motif motifPrenom = new Textes.Motif(prenomDAuteurPartielOuComplet, ModeRecherche.STRICT);
+		return Parcours.trier(candidats(r, motifNom, motifPrenom), r.TRIES, apres,
+				a -> a.correspond(motifNom, motifPrenom));
 	}
 }
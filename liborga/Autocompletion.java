@@ -0,0 +1,350 @@
+package liborga;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Complétion de la saisie d'un titre, d'un auteur ou d'un mot clé.
+ * <p>
+ * 
+ * Une fois activée pour un catalogue, l'autocomplétion tient trois arbres des
+ * préfixes (voir {@link Prefixes}) des titres, des auteurs (sous la forme "nom
+ * prénom" et "prénom nom") et des mots clés, sans accents et indépendamment de
+ * la casse. Ils sont construits à partir des registres à l'activation, puis mis
+ * à jour à chaque création, chaque suppression et chaque ajout ou retrait de mot
+ * clé. Les propositions sont classées par popularité :
+ * <ul>
+ * <li>un auteur, par son nombre de livres ;</li>
+ * <li>un mot clé, par son nombre de livres ;</li>
+ * <li>un livre, par son nombre de mots clés.</li>
+ * </ul>
+ * Les {@value Prefixes#MEMORISES} premières propositions d'un préfixe sont
+ * gardées toutes prêtes ; au-delà, le sous-arbre du préfixe est parcouru.
+ * <p>
+ * 
+ * Les complétions ne modifient pas les arbres et se font en même temps ; une
+ * modification du catalogue attend qu'elles soient terminées (voir
+ * {@link Verrou}).
+ */
+public final class Autocompletion {
+
+	/**
+	 * État de l'autocomplétion d'un catalogue.
+	 */
+	static final class Etat {
+
+		private final Verrou VERROU = new Verrou();
+
+		/**
+		 * Arbres des préfixes, null tant que l'autocomplétion n'est pas activée.
+		 */
+		private Prefixes<Livre> titres;
+
+		private Prefixes<Auteur> auteurs;
+
+		private Prefixes<MotCle> motsCles;
+
+		private final Observateur OBSERVATEUR = new Observateur() {
+			@Override
+			public void auteurCree(Auteur a) {
+				VERROU.ecrire(() -> {
+					if (auteurs != null)
+						ajouter(a);
+				});
+			}
+
+			@Override
+			public void motCleCree(MotCle m) {
+				VERROU.ecrire(() -> {
+					if (motsCles != null)
+						ajouter(m);
+				});
+			}
+
+			@Override
+			public void livreCree(Livre l) {
+				VERROU.ecrire(() -> {
+					if (titres != null) {
+						ajouter(l);
+						noter(l.AUTEUR);
+					}
+				});
+			}
+
+			@Override
+			public void motCleAjoute(Livre l, MotCle m) {
+				VERROU.ecrire(() -> {
+					if (titres != null) {
+						noter(l);
+						noter(m);
+					}
+				});
+			}
+
+			@Override
+			public void motCleAjouteATous(MotCle m, Collection<Livre> livres) {
+				VERROU.ecrire(() -> {
+					if (titres != null) {
+						for (Livre l : livres)
+							noter(l);
+						noter(m);
+					}
+				});
+			}
+
+			@Override
+			public void motCleRetire(Livre l, MotCle m) {
+				VERROU.ecrire(() -> {
+					if (titres != null) {
+						noter(l);
+						noter(m);
+					}
+				});
+			}
+
+			@Override
+			public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+				VERROU.ecrire(() -> {
+					if (titres != null) {
+						titres.retirer(l.titreSansAccents(), l.ID);
+						titres.oublier(l.ID);
+						noter(l.AUTEUR);
+						for (MotCle m : motsCles)
+							noter(m);
+					}
+				});
+			}
+
+			@Override
+			public void auteurSupprime(Auteur a) {
+				VERROU.ecrire(() -> {
+					if (auteurs != null) {
+						for (String cle : cles(a))
+							auteurs.retirer(cle, a.ID);
+						auteurs.oublier(a.ID);
+					}
+				});
+			}
+
+			@Override
+			public void motCleSupprime(MotCle m) {
+				VERROU.ecrire(() -> {
+					if (motsCles != null) {
+						motsCles.retirer(m.sansAccents(), m.ID);
+						motsCles.oublier(m.ID);
+					}
+				});
+			}
+		};
+
+		private void verifierActive() {
+			if (titres == null)
+				throw new IllegalStateException("l'autocomplétion n'est pas activée");
+		}
+
+		// Mise à jour (sous le verrou) -------------------------------------
+
+		private void ajouter(Livre l) {
+			titres.ajouter(l.titreSansAccents(), l.ID);
+		}
+
+		private void ajouter(Auteur a) {
+			for (String cle : cles(a))
+				auteurs.ajouter(cle, a.ID);
+		}
+
+		private void ajouter(MotCle m) {
+			motsCles.ajouter(m.sansAccents(), m.ID);
+		}
+
+		private void noter(Livre l) {
+			titres.noter(l.ID, l.getMotsCles().size(), l.titreSansAccents());
+		}
+
+		private void noter(Auteur a) {
+			auteurs.noter(a.ID, a.LIVRES.taille(), cles(a));
+		}
+
+		private void noter(MotCle m) {
+			motsCles.noter(m.ID, m.LIVRES.taille(), m.sansAccents());
+		}
+	}
+
+	private Autocompletion() {
+	}
+
+	// Configuration -------------------------------------------------------
+
+	/**
+	 * Active ou désactive l'autocomplétion du catalogue par défaut.
+	 * 
+	 * @param completer vrai pour activer l'autocomplétion.
+	 */
+	public static void activer(boolean completer) {
+		activer(Catalogue.defaut(), completer);
+	}
+
+	/**
+	 * Active ou désactive l'autocomplétion d'un catalogue. L'activation construit
+	 * les arbres des préfixes à partir de tout le catalogue existant.
+	 * 
+	 * @param c         Catalogue.
+	 * @param completer vrai pour activer l'autocomplétion.
+	 */
+	public static void activer(Catalogue c, boolean completer) {
+		Etat e = c.AUTOCOMPLETION;
+		e.VERROU.ecrire(() -> {
+			if (completer == (e.titres != null))
+				return;
+			if (!completer) {
+				c.OBSERVATEURS.desabonner(e.OBSERVATEUR);
+				e.titres = null;
+				e.auteurs = null;
+				e.motsCles = null;
+				return;
+			}
+			e.titres = new Prefixes<>(n -> Livre.parNumero(c, n));
+			e.auteurs = new Prefixes<>(n -> Auteur.parNumero(c, n));
+			e.motsCles = new Prefixes<>(n -> MotCle.parNumero(c, n));
+			// abonné d'abord pour ne rien manquer : les ajouts en double sont sans effet
+			c.OBSERVATEURS.abonner(e.OBSERVATEUR);
+			for (Auteur a : Auteur.tous(c)) {
+				e.ajouter(a);
+				e.noter(a);
+			}
+			for (MotCle m : MotCle.tous(c)) {
+				e.ajouter(m);
+				e.noter(m);
+			}
+			for (Livre l : Livre.tous(c)) {
+				e.ajouter(l);
+				e.noter(l);
+			}
+		});
+	}
+
+	/**
+	 * @return vrai si l'autocomplétion du catalogue par défaut est activée.
+	 */
+	public static boolean estActive() {
+		return estActive(Catalogue.defaut());
+	}
+
+	/**
+	 * @param c Catalogue.
+	 * @return vrai si l'autocomplétion de ce catalogue est activée.
+	 */
+	public static boolean estActive(Catalogue c) {
+		Etat e = c.AUTOCOMPLETION;
+		return e.VERROU.lire(() -> e.titres != null);
+	}
+
+	// Complétion ----------------------------------------------------------
+
+	/**
+	 * Propose les livres du catalogue par défaut dont le titre commence par un
+	 * préfixe (voir {@link #titres(Catalogue, String, int)}).
+	 * 
+	 * @param prefixe Début de titre saisi.
+	 * @param nombre  Nombre maximal de propositions.
+	 * @return livres proposés, ceux qui ont le plus de mots clés d'abord.
+	 * @throws IllegalStateException si l'autocomplétion n'est pas activée.
+	 */
+	public static List<Livre> titres(String prefixe, int nombre) {
+		return titres(Catalogue.defaut(), prefixe, nombre);
+	}
+
+	/**
+	 * Propose les livres dont le titre commence par un préfixe (indépendamment de
+	 * la casse et des accents).
+	 * 
+	 * @param c       Catalogue.
+	 * @param prefixe Début de titre saisi.
+	 * @param nombre  Nombre maximal de propositions.
+	 * @return livres proposés, ceux qui ont le plus de mots clés d'abord.
+	 * @throws IllegalStateException si l'autocomplétion n'est pas activée.
+	 */
+	public static List<Livre> titres(Catalogue c, String prefixe, int nombre) {
+		String p = Casse.sansAccents(prefixe);
+		Etat e = c.AUTOCOMPLETION;
+		return e.VERROU.lire(() -> {
+			e.verifierActive();
+			return e.titres.completer(p, nombre);
+		});
+	}
+
+	/**
+	 * Propose les auteurs du catalogue par défaut dont le nom ou le prénom
+	 * commence par un préfixe (voir {@link #auteurs(Catalogue, String, int)}).
+	 * 
+	 * @param prefixe Début de nom ou de prénom saisi.
+	 * @param nombre  Nombre maximal de propositions.
+	 * @return auteurs proposés, ceux qui ont le plus de livres d'abord.
+	 * @throws IllegalStateException si l'autocomplétion n'est pas activée.
+	 */
+	public static List<Auteur> auteurs(String prefixe, int nombre) {
+		return auteurs(Catalogue.defaut(), prefixe, nombre);
+	}
+
+	/**
+	 * Propose les auteurs dont le nom ou le prénom commence par un préfixe
+	 * (indépendamment de la casse et des accents). Le préfixe peut se poursuivre
+	 * sur l'autre partie : "victor h" propose Victor Hugo.
+	 * 
+	 * @param c       Catalogue.
+	 * @param prefixe Début de nom ou de prénom saisi.
+	 * @param nombre  Nombre maximal de propositions.
+	 * @return auteurs proposés, ceux qui ont le plus de livres d'abord.
+	 * @throws IllegalStateException si l'autocomplétion n'est pas activée.
+	 */
+	public static List<Auteur> auteurs(Catalogue c, String prefixe, int nombre) {
+		String p = Casse.sansAccents(prefixe);
+		Etat e = c.AUTOCOMPLETION;
+		return e.VERROU.lire(() -> {
+			e.verifierActive();
+			return e.auteurs.completer(p, nombre);
+		});
+	}
+
+	/**
+	 * Propose les mots clés du catalogue par défaut qui commencent par un
+	 * préfixe (voir {@link #motsCles(Catalogue, String, int)}).
+	 * 
+	 * @param prefixe Début de mot clé saisi.
+	 * @param nombre  Nombre maximal de propositions.
+	 * @return mots clés proposés, les plus utilisés d'abord.
+	 * @throws IllegalStateException si l'autocomplétion n'est pas activée.
+	 */
+	public static List<MotCle> motsCles(String prefixe, int nombre) {
+		return motsCles(Catalogue.defaut(), prefixe, nombre);
+	}
+
+	/**
+	 * Propose les mots clés qui commencent par un préfixe (indépendamment de la
+	 * casse et des accents).
+	 * 
+	 * @param c       Catalogue.
+	 * @param prefixe Début de mot clé saisi.
+	 * @param nombre  Nombre maximal de propositions.
+	 * @return mots clés proposés, les plus utilisés d'abord.
+	 * @throws IllegalStateException si l'autocomplétion n'est pas activée.
+	 */
+	public static List<MotCle> motsCles(Catalogue c, String prefixe, int nombre) {
+		String p = Casse.sansAccents(prefixe);
+		Etat e = c.AUTOCOMPLETION;
+		return e.VERROU.lire(() -> {
+			e.verifierActive();
+			return e.motsCles.completer(p, nombre);
+		});
+	}
+
+	/**
+	 * @return clés d'un auteur : "nom prénom" et, s'il a un prénom, "prénom nom".
+	 */
+	private static String[] cles(Auteur a) {
+		String nom = a.nomSansAccents(), prenom = a.prenomSansAccents();
+		if (prenom.isEmpty())
+			return new String[] { nom };
+		return new String[] { nom + " " + prenom, prenom + " " + nom };
+	}
+}
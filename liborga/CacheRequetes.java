@@ -0,0 +1,510 @@
+package liborga;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache des résultats des méthodes de sélection ({@link Livre#select},
+ * {@link Livre#selectParAuteur}, {@link Livre#selectParMotCle},
+ * {@link Auteur#select} et {@link MotCle#select}).
+ * <p>
+ * 
+ * Chaque catalogue a son cache, désactivé par défaut. Une fois activé, il
+ * garde au plus un nombre donné de résultats et oublie d'abord les moins
+ * récemment utilisés.
+ * <p>
+ * 
+ * Il est tenu à jour au fil des modifications du catalogue : une création, une
+ * suppression, un ajout ou un retrait de mot clé n'efface que les résultats
+ * qu'il peut changer, c'est-à-dire ceux dont le motif correspond à l'élément
+ * concerné (par exemple, l'ajout du mot clé "roman" à un livre efface le
+ * résultat de selectParMotCle("rom") mais pas celui de
+ * selectParMotCle("théatre")). Un résultat calculé pendant une
+ * modification qui peut le concerner n'est pas conservé.
+ * <p>
+ * 
+ * Chaque résultat est rangé sous le premier trigramme de son motif (ou du
+ * prénom cherché si le nom a moins de trois caractères) : une modification ne
+ * teste que les résultats rangés sous un trigramme du texte de l'élément
+ * concerné, plus ceux dont les motifs sont trop courts pour avoir un
+ * trigramme.
+ * <p>
+ * 
+ * Quand le cache est actif, une sélection renvoie un ensemble non modifiable,
+ * partagé par toutes les sélections servies par le même résultat en cache : il
+ * n'est jamais recopié.
+ */
+public final class CacheRequetes {
+
+	/**
+	 * Sorte de sélection mise en cache.
+	 */
+	enum Sorte {
+		LIVRES_PAR_TITRE, LIVRES_PAR_AUTEUR, LIVRES_PAR_MOT_CLE, AUTEURS, MOTS_CLES
+	}
+
+	/**
+	 * Compteurs du cache, pour le dimensionner.
+	 */
+	public static final class Statistiques {
+
+		/**
+		 * Nombre de sélections servies par le cache.
+		 */
+		public final long SUCCES;
+
+		/**
+		 * Nombre de sélections calculées faute de résultat en cache.
+		 */
+		public final long ECHECS;
+
+		/**
+		 * Nombre de résultats oubliés faute de place.
+		 */
+		public final long EVICTIONS;
+
+		/**
+		 * Nombre de résultats effacés par des modifications du catalogue.
+		 */
+		public final long INVALIDATIONS;
+
+		/**
+		 * Nombre de résultats actuellement en cache.
+		 */
+		public final int TAILLE;
+
+		/**
+		 * Nombre maximal de résultats en cache (0 si le cache est désactivé).
+		 */
+		public final int CAPACITE;
+
+		private Statistiques(long succes, long echecs, long evictions, long invalidations, int taille,
+				int capacite) {
+			this.SUCCES = succes;
+			this.ECHECS = echecs;
+			this.EVICTIONS = evictions;
+			this.INVALIDATIONS = invalidations;
+			this.TAILLE = taille;
+			this.CAPACITE = capacite;
+		}
+
+		/**
+		 * @return proportion des sélections servies par le cache (0 si aucune).
+		 */
+		public double tauxDeSucces() {
+			long n = SUCCES + ECHECS;
+			return n == 0 ? 0 : (double) SUCCES / n;
+		}
+
+		@Override
+		public String toString() {
+			return TAILLE + "/" + CAPACITE + " résultats, " + SUCCES + " succès, " + ECHECS + " échecs, "
+					+ EVICTIONS + " évictions, " + INVALIDATIONS + " invalidations";
+		}
+	}
+
+	/**
+	 * Identification d'une sélection : sorte, mode et motifs tels que saisis.
+	 */
+	private static final class Cle {
+
+		final Sorte SORTE;
+
+		final ModeRecherche MODE;
+
+		final String MOTIF, MOTIF2;
+
+		Cle(Sorte sorte, ModeRecherche mode, String motif, String motif2) {
+			this.SORTE = sorte;
+			this.MODE = mode;
+			this.MOTIF = motif;
+			this.MOTIF2 = motif2;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Cle))
+				return false;
+			Cle c = (Cle) obj;
+			return SORTE == c.SORTE && MODE == c.MODE && MOTIF.equals(c.MOTIF) && Objects.equals(MOTIF2, c.MOTIF2);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(SORTE, MODE, MOTIF, MOTIF2);
+		}
+	}
+
+	/**
+	 * Résultat en cache, avec ses motifs normalisés pour tester les nouveaux
+	 * éléments.
+	 */
+	private static final class Entree {
+
+		/**
+		 * Valeur de {@link #TRIGRAMME} quand aucun motif n'a trois caractères.
+		 */
+		static final long AUCUN = -1;
+
+		final Set<?> RESULTATS;
+
+		final Textes.Motif MOTIF, MOTIF2;
+
+		/**
+		 * Trigramme sous lequel le résultat est rangé, ou {@link #AUCUN}.
+		 */
+		final long TRIGRAMME;
+
+		Entree(Set<?> resultats, Cle cle) {
+			this.RESULTATS = resultats;
+			this.MOTIF = new Textes.Motif(cle.MOTIF, cle.MODE);
+			this.MOTIF2 = cle.MOTIF2 == null ? null : new Textes.Motif(cle.MOTIF2, cle.MODE);
+			if (MOTIF.TEXTE.length() >= 3)
+				this.TRIGRAMME = IndexTrigrammes.trigramme(MOTIF.TEXTE, 0);
+			else if (MOTIF2 != null && MOTIF2.TEXTE.length() >= 3)
+				this.TRIGRAMME = IndexTrigrammes.trigramme(MOTIF2.TEXTE, 0);
+			else
+				this.TRIGRAMME = AUCUN;
+		}
+	}
+
+	/**
+	 * Résultats en cache d'une sorte, rangés par trigramme.
+	 */
+	private static final class Rangement {
+
+		final Map<Long, Map<Cle, Entree>> PAR_TRIGRAMME = new HashMap<>();
+
+		/**
+		 * Résultats sans trigramme, testés à chaque modification.
+		 */
+		final Map<Cle, Entree> COURTS = new HashMap<>();
+
+		void ranger(Cle cle, Entree e) {
+			if (e.TRIGRAMME == Entree.AUCUN)
+				COURTS.put(cle, e);
+			else
+				PAR_TRIGRAMME.computeIfAbsent(e.TRIGRAMME, t -> new HashMap<>()).put(cle, e);
+		}
+
+		void oter(Cle cle, Entree e) {
+			if (e.TRIGRAMME == Entree.AUCUN) {
+				COURTS.remove(cle);
+				return;
+			}
+			Map<Cle, Entree> entrees = PAR_TRIGRAMME.get(e.TRIGRAMME);
+			if (entrees != null && entrees.remove(cle) != null && entrees.isEmpty())
+				PAR_TRIGRAMME.remove(e.TRIGRAMME);
+		}
+
+		void vider() {
+			PAR_TRIGRAMME.clear();
+			COURTS.clear();
+		}
+	}
+
+	/**
+	 * État du cache d'un catalogue.
+	 */
+	static final class Etat {
+
+		private final Object VERROU = new Object();
+
+		/**
+		 * Résultats, du moins récemment au plus récemment utilisé.
+		 */
+		private final LinkedHashMap<Cle, Entree> ENTREES = new LinkedHashMap<Cle, Entree>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Cle, Entree> plusAncienne) {
+				if (size() <= capacite)
+					return false;
+				PAR_SORTE.get(plusAncienne.getKey().SORTE).oter(plusAncienne.getKey(), plusAncienne.getValue());
+				EVICTIONS.increment();
+				return true;
+			}
+		};
+
+		/**
+		 * Résultats en cache regroupés par sorte et par trigramme, pour ne tester
+		 * que ceux qu'une modification peut concerner (sans changer l'ordre
+		 * d'utilisation).
+		 */
+		private final Map<Sorte, Rangement> PAR_SORTE = new EnumMap<>(Sorte.class);
+
+		/**
+		 * Nombre de modifications pouvant concerner chaque sorte de sélection.
+		 */
+		private final long[] VERSIONS = new long[Sorte.values().length];
+
+		private final Observateur OBSERVATEUR = new Observateur() {
+			@Override
+			public void livreCree(Livre l) {
+				invalider(Sorte.LIVRES_PAR_TITRE, e -> l.titreContient(e.MOTIF), titres(l));
+				invalider(Sorte.LIVRES_PAR_AUTEUR, e -> l.AUTEUR.correspond(e.MOTIF, e.MOTIF2), noms(l.AUTEUR));
+			}
+
+			@Override
+			public void motCleAjoute(Livre l, MotCle m) {
+				invalider(Sorte.LIVRES_PAR_MOT_CLE, e -> m.contient(e.MOTIF), mots(m));
+			}
+
+			@Override
+			public void motCleAjouteATous(MotCle m, Collection<Livre> livres) {
+				invalider(Sorte.LIVRES_PAR_MOT_CLE, e -> m.contient(e.MOTIF), mots(m));
+			}
+
+			@Override
+			public void auteurCree(Auteur a) {
+				invalider(Sorte.AUTEURS, e -> a.correspond(e.MOTIF, e.MOTIF2), noms(a));
+			}
+
+			@Override
+			public void motCleCree(MotCle m) {
+				invalider(Sorte.MOTS_CLES, e -> m.contient(e.MOTIF), mots(m));
+			}
+
+			@Override
+			public void motCleRetire(Livre l, MotCle m) {
+				invalider(Sorte.LIVRES_PAR_MOT_CLE, e -> m.contient(e.MOTIF), mots(m));
+			}
+
+			@Override
+			public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+				invalider(Sorte.LIVRES_PAR_TITRE, e -> l.titreContient(e.MOTIF), titres(l));
+				invalider(Sorte.LIVRES_PAR_AUTEUR, e -> l.AUTEUR.correspond(e.MOTIF, e.MOTIF2), noms(l.AUTEUR));
+				for (MotCle m : motsCles)
+					invalider(Sorte.LIVRES_PAR_MOT_CLE, e -> m.contient(e.MOTIF), mots(m));
+			}
+
+			@Override
+			public void auteurSupprime(Auteur a) {
+				invalider(Sorte.AUTEURS, e -> a.correspond(e.MOTIF, e.MOTIF2), noms(a));
+			}
+
+			@Override
+			public void motCleSupprime(MotCle m) {
+				invalider(Sorte.MOTS_CLES, e -> m.contient(e.MOTIF), mots(m));
+			}
+		};
+
+		private volatile int capacite;
+
+		/**
+		 * Compteurs, incrémentés hors du verrou.
+		 */
+		private final LongAdder SUCCES = new LongAdder(), ECHECS = new LongAdder(), EVICTIONS = new LongAdder(),
+				INVALIDATIONS = new LongAdder();
+
+		Etat() {
+			for (Sorte s : Sorte.values())
+				PAR_SORTE.put(s, new Rangement());
+		}
+
+		/**
+		 * Efface les résultats d'une sorte qu'une modification peut changer : seuls
+		 * ceux rangés sous un trigramme des textes de l'élément modifié, ou sans
+		 * trigramme, sont testés.
+		 * 
+		 * @param sorte    Sorte de sélection concernée.
+		 * @param concerne Vrai si la modification peut changer un résultat.
+		 * @param textes   Textes normalisés de l'élément modifié, dans chacun des
+		 *                 modes de recherche.
+		 */
+		private void invalider(Sorte sorte, Predicate<Entree> concerne, String... textes) {
+			synchronized (VERROU) {
+				VERSIONS[sorte.ordinal()]++;
+				Rangement r = PAR_SORTE.get(sorte);
+				invalider(r.COURTS, concerne);
+				if (r.PAR_TRIGRAMME.isEmpty())
+					return;
+				Set<Long> vus = new HashSet<>();
+				for (String texte : textes)
+					for (int i = 0; i + 3 <= texte.length(); i++) {
+						long t = IndexTrigrammes.trigramme(texte, i);
+						Map<Cle, Entree> entrees = r.PAR_TRIGRAMME.get(t);
+						if (entrees != null && vus.add(t)) {
+							invalider(entrees, concerne);
+							if (entrees.isEmpty())
+								r.PAR_TRIGRAMME.remove(t);
+						}
+					}
+			}
+		}
+
+		private void invalider(Map<Cle, Entree> entrees, Predicate<Entree> concerne) {
+			for (Iterator<Map.Entry<Cle, Entree>> it = entrees.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<Cle, Entree> e = it.next();
+				if (concerne.test(e.getValue())) {
+					it.remove();
+					ENTREES.remove(e.getKey());
+					INVALIDATIONS.increment();
+				}
+			}
+		}
+
+		private static String[] titres(Livre l) {
+			return new String[] { l.titreMinuscules(), l.titreSansAccents() };
+		}
+
+		private static String[] noms(Auteur a) {
+			return new String[] { a.nomMinuscules(), a.prenomMinuscules(), a.nomSansAccents(),
+					a.prenomSansAccents() };
+		}
+
+		private static String[] mots(MotCle m) {
+			return new String[] { m.minuscules(), m.sansAccents() };
+		}
+	}
+
+	private CacheRequetes() {
+	}
+
+	// Configuration -------------------------------------------------------
+
+	/**
+	 * Active le cache du catalogue par défaut, change sa capacité ou le
+	 * désactive.
+	 * 
+	 * @param nombreDeResultats Nombre maximal de résultats gardés en cache (0
+	 *                          pour désactiver le cache).
+	 */
+	public static void activer(int nombreDeResultats) {
+		activer(Catalogue.defaut(), nombreDeResultats);
+	}
+
+	/**
+	 * Active le cache d'un catalogue, change sa capacité ou le désactive.
+	 * 
+	 * @param c                 Catalogue.
+	 * @param nombreDeResultats Nombre maximal de résultats gardés en cache (0
+	 *                          pour désactiver le cache).
+	 */
+	public static void activer(Catalogue c, int nombreDeResultats) {
+		if (nombreDeResultats < 0)
+			throw new IllegalArgumentException("capacité négative : " + nombreDeResultats);
+		Etat e = c.CACHE;
+		synchronized (e.VERROU) {
+			if (e.capacite == 0 && nombreDeResultats > 0)
+				c.OBSERVATEURS.abonner(e.OBSERVATEUR);
+			else if (e.capacite > 0 && nombreDeResultats == 0)
+				c.OBSERVATEURS.desabonner(e.OBSERVATEUR);
+			e.capacite = nombreDeResultats;
+			for (int i = 0; i < e.VERSIONS.length; i++)
+				e.VERSIONS[i]++; // les calculs en cours ne sont plus suivis
+			for (Iterator<Map.Entry<Cle, Entree>> it = e.ENTREES.entrySet().iterator(); e.ENTREES
+					.size() > e.capacite;) {
+				Map.Entry<Cle, Entree> ancienne = it.next();
+				it.remove();
+				e.PAR_SORTE.get(ancienne.getKey().SORTE).oter(ancienne.getKey(), ancienne.getValue());
+				e.EVICTIONS.increment();
+			}
+		}
+	}
+
+	/**
+	 * Oublie tous les résultats en cache du catalogue par défaut (les compteurs
+	 * sont conservés).
+	 */
+	public static void vider() {
+		vider(Catalogue.defaut());
+	}
+
+	/**
+	 * Oublie tous les résultats en cache d'un catalogue (les compteurs sont
+	 * conservés).
+	 * 
+	 * @param c Catalogue.
+	 */
+	public static void vider(Catalogue c) {
+		Etat e = c.CACHE;
+		synchronized (e.VERROU) {
+			e.ENTREES.clear();
+			for (Rangement r : e.PAR_SORTE.values())
+				r.vider();
+		}
+	}
+
+	/**
+	 * @return état actuel des compteurs du cache du catalogue par défaut.
+	 */
+	public static Statistiques statistiques() {
+		return statistiques(Catalogue.defaut());
+	}
+
+	/**
+	 * @param c Catalogue.
+	 * @return état actuel des compteurs du cache de ce catalogue.
+	 */
+	public static Statistiques statistiques(Catalogue c) {
+		Etat e = c.CACHE;
+		int taille;
+		synchronized (e.VERROU) {
+			taille = e.ENTREES.size();
+		}
+		return new Statistiques(e.SUCCES.sum(), e.ECHECS.sum(), e.EVICTIONS.sum(), e.INVALIDATIONS.sum(), taille,
+				e.capacite);
+	}
+
+	// Consultation --------------------------------------------------------
+
+	/**
+	 * Renvoie le résultat d'une sélection, depuis le cache du catalogue si
+	 * possible.
+	 * 
+	 * @param <T>    Type des éléments sélectionnés.
+	 * @param c      Catalogue.
+	 * @param sorte  Sorte de sélection.
+	 * @param mode   Mode de recherche.
+	 * @param motif  Motif tel que saisi.
+	 * @param motif2 Second motif (prénom) pour les sélections par auteur, null
+	 *               sinon.
+	 * @param calcul Calcul du résultat, sans passer par le cache.
+	 * @return ensemble des éléments sélectionnés, non modifiable si le cache est
+	 *         actif.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Set<T> obtenir(Catalogue c, Sorte sorte, ModeRecherche mode, String motif, String motif2,
+			Supplier<Set<T>> calcul) {
+		Etat e = c.CACHE;
+		if (e.capacite == 0)
+			return calcul.get();
+		Cle cle = new Cle(sorte, mode, motif, motif2);
+		Entree trouvee;
+		long version;
+		synchronized (e.VERROU) {
+			trouvee = e.ENTREES.get(cle); // tient aussi l'ordre d'utilisation à jour
+			version = e.VERSIONS[sorte.ordinal()];
+		}
+		if (trouvee != null) {
+			e.SUCCES.increment();
+			return (Set<T>) trouvee.RESULTATS;
+		}
+		e.ECHECS.increment();
+		// le calcul renvoie un nouvel ensemble, que personne d'autre ne modifie
+		Set<T> resultats = Collections.unmodifiableSet(calcul.get());
+		Entree nouvelle = new Entree(resultats, cle);
+		synchronized (e.VERROU) {
+			// une modification concurrente a pu rendre le résultat incomplet
+			if (e.capacite > 0 && e.VERSIONS[sorte.ordinal()] == version) {
+				Entree remplacee = e.ENTREES.put(cle, nouvelle);
+				if (remplacee != null)
+					e.PAR_SORTE.get(sorte).oter(cle, remplacee);
+				e.PAR_SORTE.get(sorte).ranger(cle, nouvelle);
+			}
+		}
+		return resultats;
+	}
+}
@@ -0,0 +1,70 @@
+package liborga;
+
+import java.text.Normalizer;
+
+/**
+ * Outils de comparaison de chaînes indépendante de la casse (et, sur demande,
+ * des accents).
+ */
+final class Casse {
+
+	private Casse() {
+	}
+
+	/**
+	 * Replie une chaîne sur une forme canonique indépendante de la casse.
+	 * <p>
+	 * 
+	 * Deux chaînes ont la même forme repliée si et seulement si elles sont égales
+	 * au sens de {@link String#equalsIgnoreCase(String)} : chaque caractère est
+	 * passé en majuscule puis en minuscule, exactement comme le fait cette
+	 * méthode.
+	 * 
+	 * @param s Chaîne à replier (non null).
+	 * @return forme repliée de la chaîne, utilisable comme clé de table.
+	 */
+	static String replier(String s) {
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length();) {
+			int c = s.codePointAt(i);
+			sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c)));
+			i += Character.charCount(c);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Retire les accents et autres signes diacritiques d'une chaîne, puis la
+	 * replie (voir {@link #replier(String)}).
+	 * <p>
+	 * 
+	 * La chaîne est décomposée (forme NFD) et les marques combinantes qui
+	 * suivent les lettres de base sont supprimées : "FURETIÈRE" donne
+	 * "furetiere". Le résultat ne dépend pas de la langue par défaut.
+	 * 
+	 * @param s Chaîne (non null).
+	 * @return forme de la chaîne sans accents et repliée.
+	 */
+	static String sansAccents(String s) {
+		int i = 0;
+		while (i < s.length() && s.charAt(i) < 0x80)
+			i++;
+		if (i == s.length())
+			return replier(s); // rien à décomposer
+		String d = Normalizer.normalize(s, Normalizer.Form.NFD);
+		StringBuilder sb = new StringBuilder(d.length());
+		for (int j = 0; j < d.length();) {
+			int c = d.codePointAt(j);
+			j += Character.charCount(c);
+			switch (Character.getType(c)) {
+			case Character.NON_SPACING_MARK:
+			case Character.COMBINING_SPACING_MARK:
+			case Character.ENCLOSING_MARK:
+				break;
+			default:
+				sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c)));
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,391 @@
+package liborga;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Catalogue de livres, d'auteurs et de mots clés, avec ses propres registres et
+ * ses propres index.
+ * <p>
+ * 
+ * Les méthodes statiques de {@link Livre}, {@link Auteur} et {@link MotCle}
+ * portent sur le catalogue par défaut (voir {@link #defaut()}). D'autres
+ * catalogues, indépendants, peuvent être créés avec {@link #creer()} : par
+ * exemple un par bibliothèque, ou un par test. Un livre, un auteur ou un mot
+ * clé appartient au catalogue où il a été créé ; deux éléments de catalogues
+ * différents ne sont jamais égaux. Les noms, prénoms et mots clés sont partagés
+ * entre catalogues (voir {@link String#intern()}).
+ * <p>
+ * 
+ * Les services optionnels ({@link CacheRequetes}, {@link Autocompletion},
+ * {@link RechercheApprochee}, {@link RechercheClassee}, {@link Recommandation},
+ * {@link Journal}, {@link Sauvegarde}, {@link Importation}, {@link Requete} et
+ * {@link Etiquetage}) portent sur un catalogue donné en paramètre, ou sur le
+ * catalogue par défaut sans ce paramètre ; chaque catalogue a son propre cache
+ * et ses propres index. Les comptes de {@link Mesures} ne portent que sur le
+ * catalogue par défaut ; les durées mesurées couvrent tous les catalogues.
+ */
+public final class Catalogue {
+
+	/**
+	 * Catalogue des méthodes statiques.
+	 */
+	private static final Catalogue DEFAUT = new Catalogue();
+
+	/**
+	 * Nombre de catalogues créés en plus du catalogue par défaut.
+	 */
+	private static final AtomicInteger CREES = new AtomicInteger();
+
+	/**
+	 * Livres du catalogue.
+	 */
+	final Livre.Registre LIVRES = new Livre.Registre();
+
+	/**
+	 * Auteurs du catalogue.
+	 */
+	final Auteur.Registre AUTEURS = new Auteur.Registre();
+
+	/**
+	 * Mots clés du catalogue.
+	 */
+	final MotCle.Registre MOTS_CLES = new MotCle.Registre();
+
+	/**
+	 * Observateurs des modifications du catalogue.
+	 */
+	final Observateurs OBSERVATEURS = new Observateurs();
+
+	/**
+	 * États des services optionnels du catalogue.
+	 */
+	final CacheRequetes.Etat CACHE = new CacheRequetes.Etat();
+
+	final Autocompletion.Etat AUTOCOMPLETION = new Autocompletion.Etat();
+
+	final RechercheApprochee.Etat RECHERCHE_APPROCHEE = new RechercheApprochee.Etat();
+
+	final RechercheClassee.Etat RECHERCHE_CLASSEE = new RechercheClassee.Etat();
+
+	final Recommandation.Etat RECOMMANDATION = new Recommandation.Etat();
+
+	private Catalogue() {
+	}
+
+	/**
+	 * @return le catalogue par défaut, celui des méthodes statiques.
+	 */
+	public static Catalogue defaut() {
+		return DEFAUT;
+	}
+
+	/**
+	 * @return un nouveau catalogue vide, indépendant des autres.
+	 */
+	public static Catalogue creer() {
+		CREES.incrementAndGet();
+		return new Catalogue();
+	}
+
+	/**
+	 * @return vrai si d'autres catalogues que le catalogue par défaut ont été
+	 *         créés.
+	 */
+	static boolean autresCrees() {
+		return CREES.get() > 0;
+	}
+
+	/**
+	 * @return vrai si le catalogue n'a ni livre, ni auteur, ni mot clé.
+	 */
+	public boolean estVide() {
+		return LIVRES.PAR_CLE.isEmpty() && AUTEURS.PAR_CLE.isEmpty() && MOTS_CLES.PAR_CLE.isEmpty();
+	}
+
+	/**
+	 * @return nombre de livres du catalogue.
+	 */
+	public int nombreLivres() {
+		return LIVRES.PAR_CLE.size();
+	}
+
+	/**
+	 * Passe par le cache des requêtes du catalogue.
+	 */
+	private <T> Set<T> obtenir(CacheRequetes.Sorte sorte, ModeRecherche mode, String motif, String motif2,
+			Supplier<Set<T>> calcul) {
+		return CacheRequetes.obtenir(this, sorte, mode, motif, motif2, calcul);
+	}
+
+	// Livres --------------------------------------------------------------
+
+	/**
+	 * Voir {@link Livre#getOrCreate(String, String, String)}.
+	 * 
+	 * @param titre        Titre du livre à créer ou à récupérer
+	 * @param nomAuteur    Nom de l'auteur du livre à créer ou à récupérer
+	 * @param prenomAuteur Prénom de l'auteur du livre à créer ou à récupérer
+	 * @return selon les cas : null, ou une instance existante, ou une nouvelle
+	 *         instance
+	 */
+	public Livre getOrCreateLivre(String titre, String nomAuteur, String prenomAuteur) {
+		long debut = Mesures.debut();
+		Livre r = Livre.getOrCreate(this, titre, nomAuteur, prenomAuteur, false);
+		Mesures.fin(Mesures.Operation.LIVRE_GET_OR_CREATE, debut, -1);
+		return r;
+	}
+
+	/**
+	 * Voir {@link Livre#get(String, String, String)}.
+	 * 
+	 * @param titre        Titre du livre à récupérer
+	 * @param nomAuteur    Nom de l'auteur du livre à récupérer
+	 * @param prenomAuteur Prénom de l'auteur du livre à récupérer
+	 * @return selon les cas : null, ou une instance existante
+	 */
+	public Livre getLivre(String titre, String nomAuteur, String prenomAuteur) {
+		long debut = Mesures.debut();
+		Livre r = Livre.getOrCreate(this, titre, nomAuteur, prenomAuteur, true);
+		Mesures.fin(Mesures.Operation.LIVRE_GET, debut, -1);
+		return r;
+	}
+
+	/**
+	 * Voir {@link Livre#select(String, ModeRecherche)}.
+	 * 
+	 * @param titrePartielOuComplet titre ou partie du titre à rechercher
+	 * @param mode                  mode de recherche
+	 * @return ensemble des livres dont le titre correspond au paramètre fourni
+	 *         dans ce mode
+	 */
+	public Set<Livre> selectLivres(String titrePartielOuComplet, ModeRecherche mode) {
+		long debut = Mesures.debut();
+		Set<Livre> r = obtenir(CacheRequetes.Sorte.LIVRES_PAR_TITRE, mode, titrePartielOuComplet, null,
+				() -> Livre.selectSansCache(this, titrePartielOuComplet, mode));
+		Mesures.fin(Mesures.Operation.LIVRE_SELECT, debut, r.size());
+		return r;
+	}
+
+	/**
+	 * Voir {@link Livre#selectParAuteur(String, String, ModeRecherche)}.
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom à
+	 *                                      rechercher
+	 * @param mode                          mode de recherche
+	 * @return ensemble des livres dont l'auteur correspond aux paramètres
+	 *         fournis dans ce mode
+	 */
+	public Set<Livre> selectLivresParAuteur(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			ModeRecherche mode) {
+		long debut = Mesures.debut();
+		Set<Livre> r = obtenir(CacheRequetes.Sorte.LIVRES_PAR_AUTEUR, mode, nomDAuteurPartielOuComplet,
+				prenomDAuteurPartielOuComplet,
+				() -> Livre.selectParAuteurSansCache(this, nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet,
+						mode));
+		Mesures.fin(Mesures.Operation.LIVRE_SELECT_PAR_AUTEUR, debut, r.size());
+		return r;
+	}
+
+	/**
+	 * Voir {@link Livre#selectParMotCle(String, ModeRecherche)}.
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param mode                   mode de recherche
+	 * @return ensemble des livres dont au moins un mot clé correspond au
+	 *         paramètre fourni dans ce mode
+	 */
+	public Set<Livre> selectLivresParMotCle(String motClePartielOuComplet, ModeRecherche mode) {
+		long debut = Mesures.debut();
+		Set<Livre> r = obtenir(CacheRequetes.Sorte.LIVRES_PAR_MOT_CLE, mode, motClePartielOuComplet, null,
+				() -> Livre.selectParMotCleSansCache(this, motClePartielOuComplet, mode));
+		Mesures.fin(Mesures.Operation.LIVRE_SELECT_PAR_MOT_CLE, debut, r.size());
+		return r;
+	}
+
+	/**
+	 * Voir {@link Livre#parcourir(String, Livre)}.
+	 * 
+	 * @param titrePartielOuComplet titre ou partie du titre à rechercher
+	 * @param apres                 dernier livre de la page précédente, ou null
+	 *                              pour commencer au début
+	 * @return flot trié des livres dont le titre correspond au paramètre fourni
+	 *         et qui suivent le curseur
+	 */
+	public Stream<Livre> parcourirLivres(String titrePartielOuComplet, Livre apres) {
+		return Livre.parcourir(this, titrePartielOuComplet, apres);
+	}
+
+	/**
+	 * Voir {@link Livre#parcourirParAuteur(String, String, Livre)}.
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom à
+	 *                                      rechercher
+	 * @param apres                         dernier livre de la page précédente,
+	 *                                      ou null pour commencer au début
+	 * @return flot trié des livres dont l'auteur correspond aux paramètres
+	 *         fournis et qui suivent le curseur
+	 */
+	public Stream<Livre> parcourirLivresParAuteur(String nomDAuteurPartielOuComplet,
+			String prenomDAuteurPartielOuComplet, Livre apres) {
+		return Livre.parcourirParAuteur(this, nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, apres);
+	}
+
+	/**
+	 * Voir {@link Livre#parcourirParMotCle(String, Livre)}.
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param apres                  dernier livre de la page précédente, ou null
+	 *                               pour commencer au début
+	 * @return flot trié des livres dont au moins un mot clé correspond au
+	 *         paramètre fourni et qui suivent le curseur
+	 */
+	public Stream<Livre> parcourirLivresParMotCle(String motClePartielOuComplet, Livre apres) {
+		return Livre.parcourirParMotCle(this, motClePartielOuComplet, apres);
+	}
+
+	// Auteurs -------------------------------------------------------------
+
+	/**
+	 * Voir {@link Auteur#getOrCreate(String, String)}.
+	 * 
+	 * @param nom    Nom de l'auteur à créer ou à récupérer
+	 * @param prenom Prénom de l'auteur à créer ou à récupérer
+	 * @return selon les cas : null, ou une instance existante, ou une nouvelle
+	 *         instance
+	 */
+	public Auteur getOrCreateAuteur(String nom, String prenom) {
+		long debut = Mesures.debut();
+		Auteur r = Auteur.getOrCreate(this, nom, prenom, false);
+		Mesures.fin(Mesures.Operation.AUTEUR_GET_OR_CREATE, debut, -1);
+		return r;
+	}
+
+	/**
+	 * Voir {@link Auteur#get(String, String)}.
+	 * 
+	 * @param nom    Nom de l'auteur à récupérer
+	 * @param prenom Prénom de l'auteur à récupérer
+	 * @return selon les cas : null, ou une instance existante
+	 */
+	public Auteur getAuteur(String nom, String prenom) {
+		long debut = Mesures.debut();
+		Auteur r = Auteur.getOrCreate(this, nom, prenom, true);
+		Mesures.fin(Mesures.Operation.AUTEUR_GET, debut, -1);
+		return r;
+	}
+
+	/**
+	 * Voir {@link Auteur#select(String, String, ModeRecherche)}.
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom de l'auteur à
+	 *                                      rechercher
+	 * @param mode                          mode de recherche
+	 * @return ensemble des auteurs dont le nom et le prénom correspondent aux
+	 *         paramètres fournis dans ce mode
+	 */
+	public Set<Auteur> selectAuteurs(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			ModeRecherche mode) {
+		long debut = Mesures.debut();
+		Set<Auteur> r = selectAuteursSansMesure(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, mode);
+		Mesures.fin(Mesures.Operation.AUTEUR_SELECT, debut, r.size());
+		return r;
+	}
+
+	/**
+	 * Variante de {@link #selectAuteurs(String, String, ModeRecherche)} pour les
+	 * sélections internes, qui ne sont pas comptées dans les {@link Mesures}.
+	 */
+	Set<Auteur> selectAuteursSansMesure(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			ModeRecherche mode) {
+		return obtenir(CacheRequetes.Sorte.AUTEURS, mode, nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet,
+				() -> Auteur.selectSansCache(this, nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, mode));
+	}
+
+	/**
+	 * Voir {@link Auteur#parcourir(String, String, Auteur)}.
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom de l'auteur à
+	 *                                      rechercher
+	 * @param apres                         dernier auteur de la page précédente,
+	 *                                      ou null pour commencer au début
+	 * @return flot trié des auteurs qui correspondent aux paramètres fournis et
+	 *         qui suivent le curseur
+	 */
+	public Stream<Auteur> parcourirAuteurs(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			Auteur apres) {
+		return Auteur.parcourir(this, nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, apres);
+	}
+
+	// Mots clés -----------------------------------------------------------
+
+	/**
+	 * Voir {@link MotCle#getOrCreate(String)}.
+	 * 
+	 * @param mot Mot clé à créer ou à récupérer
+	 * @return selon les cas : null, ou une instance existante, ou une nouvelle
+	 *         instance
+	 */
+	public MotCle getOrCreateMotCle(String mot) {
+		long debut = Mesures.debut();
+		MotCle r = MotCle.getOrCreate(this, mot, false);
+		Mesures.fin(Mesures.Operation.MOT_CLE_GET_OR_CREATE, debut, -1);
+		return r;
+	}
+
+	/**
+	 * Voir {@link MotCle#get(String)}.
+	 * 
+	 * @param mot Mot clé à récupérer
+	 * @return selon les cas : null, ou une instance existante
+	 */
+	public MotCle getMotCle(String mot) {
+		long debut = Mesures.debut();
+		MotCle r = MotCle.getOrCreate(this, mot, true);
+		Mesures.fin(Mesures.Operation.MOT_CLE_GET, debut, -1);
+		return r;
+	}
+
+	/**
+	 * Voir {@link MotCle#select(String, ModeRecherche)}.
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param mode                   mode de recherche
+	 * @return ensemble des mots clés qui correspondent au paramètre fourni dans
+	 *         ce mode
+	 */
+	public Set<MotCle> selectMotsCles(String motClePartielOuComplet, ModeRecherche mode) {
+		long debut = Mesures.debut();
+		Set<MotCle> r = selectMotsClesSansMesure(motClePartielOuComplet, mode);
+		Mesures.fin(Mesures.Operation.MOT_CLE_SELECT, debut, r.size());
+		return r;
+	}
+
+	/**
+	 * Variante de {@link #selectMotsCles(String, ModeRecherche)} pour les
+	 * sélections internes, qui ne sont pas comptées dans les {@link Mesures}.
+	 */
+	Set<MotCle> selectMotsClesSansMesure(String motClePartielOuComplet, ModeRecherche mode) {
+		return obtenir(CacheRequetes.Sorte.MOTS_CLES, mode, motClePartielOuComplet, null,
+				() -> MotCle.selectSansCache(this, motClePartielOuComplet, mode));
+	}
+
+	/**
+	 * Voir {@link MotCle#parcourir(String, MotCle)}.
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param apres                  dernier mot clé de la page précédente, ou
+	 *                               null pour commencer au début
+	 * @return flot trié des mots clés qui correspondent au paramètre fourni et
+	 *         qui suivent le curseur
+	 */
+	public Stream<MotCle> parcourirMotsCles(String motClePartielOuComplet, MotCle apres) {
+		return MotCle.parcourir(this, motClePartielOuComplet, apres);
+	}
+}
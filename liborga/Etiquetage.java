@@ -0,0 +1,319 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Ajout en masse de mots clés à des livres.
+ * <p>
+ * 
+ * Chaque mot distinct n'est résolu qu'une fois en mot clé. Chaque livre reçoit
+ * ensuite tous ses nouveaux mots clés en une seule recopie, puis chaque mot clé
+ * tous ses nouveaux livres en une seule fusion ; les observateurs (cache,
+ * autocomplétion, journal...) sont prévenus une fois par mot clé.
+ * <p>
+ * 
+ * Le résultat est le même qu'avec un appel de {@link Livre#addMotCle(String)}
+ * par livre et par mot. Les mots qui ne sont pas des mots clés valides (null ou
+ * vides) sont comptés et ignorés. Un mot clé supprimé pendant l'ajout (voir
+ * {@link Livre#removeMotCle(String)}) est recréé pour les livres qui le
+ * reçoivent ; un mot clé créé pour l'ajout que finalement aucun livre ne
+ * reçoit est supprimé. Les livres d'un même ajout doivent appartenir au même catalogue
+ * (voir {@link Catalogue}).
+ */
+public final class Etiquetage {
+
+	private Etiquetage() {
+	}
+
+	/**
+	 * Bilan d'un ajout en masse.
+	 */
+	public static final class Bilan {
+
+		/**
+		 * Nombre de nouvelles associations entre un livre et un mot clé.
+		 */
+		public final long LIENS;
+
+		/**
+		 * Nombre de livres ayant reçu au moins un nouveau mot clé.
+		 */
+		public final int LIVRES;
+
+		/**
+		 * Nombre de mots clés distincts ajoutés à au moins un livre.
+		 */
+		public final int MOTS_CLES;
+
+		/**
+		 * Nombre de mots distincts rejetés car invalides.
+		 */
+		public final int REJETS;
+
+		/**
+		 * Durée de l'ajout en nanosecondes.
+		 */
+		public final long DUREE;
+
+		Bilan(long liens, int livres, int motsCles, int rejets, long duree) {
+			this.LIENS = liens;
+			this.LIVRES = livres;
+			this.MOTS_CLES = motsCles;
+			this.REJETS = rejets;
+			this.DUREE = duree;
+		}
+
+		@Override
+		public String toString() {
+			return LIENS + " liens ajoutés (" + LIVRES + " livres, " + MOTS_CLES + " mots clés), " + REJETS
+					+ " mots rejetés en " + DUREE / 1000000 + " ms";
+		}
+	}
+
+	// Ajouts --------------------------------------------------------------
+
+	/**
+	 * Ajoute les mêmes mots clés à plusieurs livres.
+	 * 
+	 * @param livres Livres à compléter.
+	 * @param mots   Mots clés à leur ajouter (créés si besoin).
+	 * @return bilan de l'ajout.
+	 * @throws IllegalArgumentException si les livres sont de catalogues
+	 *                                  différents.
+	 */
+	public static Bilan etiqueter(Collection<Livre> livres, Collection<String> mots) {
+		long debut = System.nanoTime();
+		Resolution r = new Resolution(catalogue(livres));
+		ListeIds.Contenu numeros = r.numeros(mots);
+		return appliquer(livres, l -> numeros, r, debut);
+	}
+
+	/**
+	 * Ajoute les mêmes mots clés à tous les livres du catalogue par défaut
+	 * sélectionnés par une requête.
+	 * 
+	 * @param requete Requête sélectionnant les livres à compléter.
+	 * @param mots    Mots clés à leur ajouter (créés si besoin).
+	 * @return bilan de l'ajout.
+	 */
+	public static Bilan etiqueter(Requete requete, Collection<String> mots) {
+		return etiqueter(Catalogue.defaut(), requete, mots);
+	}
+
+	/**
+	 * Ajoute les mêmes mots clés à tous les livres d'un catalogue sélectionnés
+	 * par une requête.
+	 * 
+	 * @param c       Catalogue interrogé.
+	 * @param requete Requête sélectionnant les livres à compléter.
+	 * @param mots    Mots clés à leur ajouter (créés si besoin).
+	 * @return bilan de l'ajout.
+	 */
+	public static Bilan etiqueter(Catalogue c, Requete requete, Collection<String> mots) {
+		long debut = System.nanoTime();
+		Requete.Plan plan = requete.planifier(c);
+		ListeIds.Contenu selection = plan.numeros();
+		Collection<Livre> livres = selection != null ? Livre.parNumeros(c, selection) : plan.resultats();
+		Resolution r = new Resolution(c);
+		ListeIds.Contenu numeros = r.numeros(mots);
+		return appliquer(livres, l -> numeros, r, debut);
+	}
+
+	/**
+	 * Ajoute à chaque livre ses propres mots clés.
+	 * 
+	 * @param motsParLivre Mots clés à ajouter (créés si besoin), par livre.
+	 * @return bilan de l'ajout.
+	 * @throws IllegalArgumentException si les livres sont de catalogues
+	 *                                  différents.
+	 */
+	public static Bilan etiqueter(Map<Livre, ? extends Collection<String>> motsParLivre) {
+		long debut = System.nanoTime();
+		Resolution r = new Resolution(catalogue(motsParLivre.keySet()));
+		return appliquer(motsParLivre.keySet(), l -> r.numeros(motsParLivre.get(l)), r, debut);
+	}
+
+	/**
+	 * @param livres Livres à compléter.
+	 * @return leur catalogue (le catalogue par défaut s'il n'y a aucun livre).
+	 * @throws IllegalArgumentException si les livres sont de catalogues
+	 *                                  différents.
+	 */
+	private static Catalogue catalogue(Collection<Livre> livres) {
+		Catalogue c = null;
+		for (Livre l : livres) {
+			if (c == null)
+				c = l.AUTEUR.CATALOGUE;
+			else if (l.AUTEUR.CATALOGUE != c)
+				throw new IllegalArgumentException("livre d'un autre catalogue : " + l);
+		}
+		return c != null ? c : Catalogue.defaut();
+	}
+
+	/**
+	 * Ajoute leurs mots clés aux livres, puis leurs livres aux mots clés.
+	 * 
+	 * @param livres Livres à compléter.
+	 * @param motsDe Numéros des mots clés à ajouter à un livre.
+	 * @param r      Résolution des mots.
+	 * @param debut  Instant de début de l'ajout.
+	 * @return bilan de l'ajout.
+	 */
+	private static Bilan appliquer(Collection<Livre> livres, Function<Livre, ListeIds.Contenu> motsDe, Resolution r,
+			long debut) {
+		long mesure = Mesures.debut();
+		Catalogue c = r.CATALOGUE;
+		Map<Integer, Liens> liens = new HashMap<>();
+		int nbLivres = 0;
+		for (Livre l : livres) {
+			ListeIds.Contenu nouveaux = l.addMotsCles(motsDe.apply(l));
+			if (nouveaux.TAILLE > 0)
+				nbLivres++;
+			for (int i = 0; i < nouveaux.TAILLE; i++)
+				liens.computeIfAbsent(nouveaux.IDS[i], k -> new Liens()).ajouter(l.ID);
+		}
+		long nbLiens = 0;
+		for (Map.Entry<Integer, Liens> e : liens.entrySet()) {
+			MotCle m = r.PAR_NUMERO.get(e.getKey());
+			ListeIds.Contenu ajoutes = e.getValue().contenu();
+			boolean supprime;
+			synchronized (m) {
+				supprime = m.estSupprime();
+				if (!supprime) {
+					// un livre supprimé ou retiré du mot entre-temps n'est plus à rattacher
+					int n = 0;
+					for (int i = 0; i < ajoutes.TAILLE; i++) {
+						Livre l = Livre.parNumero(c, ajoutes.IDS[i]);
+						if (l != null && l.aLeMotCle(m.ID))
+							ajoutes.IDS[n++] = ajoutes.IDS[i];
+					}
+					ajoutes = new ListeIds.Contenu(ajoutes.IDS, n);
+					m.LIVRES.ajouter(ajoutes);
+					c.OBSERVATEURS.motCleAjouteATous(m, Livre.parNumeros(c, ajoutes));
+				}
+			}
+			if (!supprime) {
+				nbLiens += ajoutes.TAILLE;
+				continue;
+			}
+			// le mot clé a perdu son dernier livre depuis sa résolution : ajout un par un
+			for (int i = 0; i < ajoutes.TAILLE; i++) {
+				Livre l = Livre.parNumero(c, ajoutes.IDS[i]);
+				if (l == null)
+					continue;
+				l.oublierMotCle(m.ID);
+				if (l.addMotCle(m))
+					nbLiens++;
+			}
+		}
+		r.oublierInutiles();
+		Mesures.fin(Mesures.Operation.ETIQUETAGE, mesure, (int) Math.min(nbLiens, Integer.MAX_VALUE));
+		return new Bilan(nbLiens, nbLivres, liens.size(), r.rejets, System.nanoTime() - debut);
+	}
+
+	/**
+	 * Mots déjà résolus au cours d'un ajout.
+	 */
+	private static final class Resolution {
+
+		/**
+		 * Catalogue des livres à compléter, où les mots sont résolus.
+		 */
+		private final Catalogue CATALOGUE;
+
+		/**
+		 * Mots clés indexés par mot brut (null pour un mot invalide).
+		 */
+		private final Map<String, MotCle> MOTS = new HashMap<>();
+
+		/**
+		 * Mots clés résolus, par numéro.
+		 */
+		private final Map<Integer, MotCle> PAR_NUMERO = new HashMap<>();
+
+		/**
+		 * Mots clés créés par la résolution, à supprimer si aucun livre ne les a
+		 * finalement reçus.
+		 */
+		private final List<MotCle> CREES = new ArrayList<>();
+
+		int rejets;
+
+		Resolution(Catalogue c) {
+			this.CATALOGUE = c;
+		}
+
+		/**
+		 * @param mots Mots bruts.
+		 * @return numéros triés et distincts des mots clés correspondants.
+		 */
+		ListeIds.Contenu numeros(Collection<String> mots) {
+			int[] ids = new int[mots.size()];
+			int n = 0;
+			for (String s : mots) {
+				MotCle m = MOTS.get(s);
+				if (m == null && !MOTS.containsKey(s)) {
+					m = MotCle.getOrCreate(CATALOGUE, s, true);
+					if (m == null) {
+						m = MotCle.getOrCreate(CATALOGUE, s, false);
+						if (m != null)
+							CREES.add(m);
+					}
+					MOTS.put(s, m);
+					if (m == null)
+						rejets++;
+					else
+						PAR_NUMERO.put(m.ID, m);
+				}
+				if (m != null)
+					ids[n++] = m.ID;
+			}
+			Arrays.sort(ids, 0, n);
+			int k = 0;
+			for (int i = 0; i < n; i++)
+				if (k == 0 || ids[i] != ids[k - 1])
+					ids[k++] = ids[i];
+			return new ListeIds.Contenu(ids, k);
+		}
+
+		/**
+		 * Supprime les mots clés créés par la résolution qui n'ont été ajoutés à
+		 * aucun livre (livres supprimés entre-temps, sélection vide...).
+		 */
+		void oublierInutiles() {
+			for (MotCle m : CREES)
+				if (m.abandonner())
+					m.liberer();
+		}
+	}
+
+	/**
+	 * Numéros des livres nouvellement associés à un mot clé.
+	 */
+	private static final class Liens {
+
+		private int[] ids = new int[4];
+
+		private int n;
+
+		void ajouter(int id) {
+			if (n == ids.length)
+				ids = Arrays.copyOf(ids, 2 * n);
+			ids[n++] = id;
+		}
+
+		/**
+		 * @return numéros triés (un livre n'apparaît qu'une fois).
+		 */
+		ListeIds.Contenu contenu() {
+			Arrays.sort(ids, 0, n);
+			return new ListeIds.Contenu(ids, n);
+		}
+	}
+}
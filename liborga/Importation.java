@@ -0,0 +1,352 @@
+package liborga;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Import en masse de livres depuis un fichier texte délimité (CSV, TSV...).
+ * <p>
+ * 
+ * Chaque ligne décrit un livre par quatre champs séparés par un même caractère
+ * : titre, nom de l'auteur, prénom de l'auteur et liste (éventuellement vide)
+ * de mots clés séparés par {@value #SEPARATEUR_MOTS}. Le dernier champ peut
+ * être omis, et le prénom aussi (il vaut alors la chaîne vide). Les champs ne
+ * sont pas entre guillemets.
+ * <p>
+ * 
+ * Le fichier est lu ligne par ligne, sans jamais être chargé entièrement en
+ * mémoire. Les lignes vides sont ignorées ; les lignes qui ne permettent pas de
+ * créer un livre (titre ou nom vide par exemple) sont comptées et sautées.
+ * <p>
+ * 
+ * Les lignes sont regroupées en lots, qui peuvent être traités en parallèle par
+ * plusieurs threads. Chaque lot résout une seule fois chacun de ses auteurs et
+ * de ses mots clés avant de les rattacher aux livres ; les registres étant
+ * concurrents, chaque clé garde une instance unique quel que soit le nombre de
+ * threads.
+ */
+public final class Importation {
+
+	/**
+	 * Séparateur des mots clés à l'intérieur du dernier champ.
+	 */
+	public static final char SEPARATEUR_MOTS = '|';
+
+	/**
+	 * Taille du tampon de lecture, en caractères.
+	 */
+	private static final int TAILLE_TAMPON = 1 << 16;
+
+	/**
+	 * Nombre de lignes par lot par défaut.
+	 */
+	public static final int TAILLE_LOT = 1024;
+
+	private Importation() {
+	}
+
+	/**
+	 * Bilan d'un import.
+	 */
+	public static final class Bilan {
+
+		/**
+		 * Nombre de lignes non vides lues.
+		 */
+		public final long LIGNES;
+
+		/**
+		 * Nombre de lignes rejetées car mal formées.
+		 */
+		public final long REJETS;
+
+		/**
+		 * Durée de l'import en nanosecondes.
+		 */
+		public final long DUREE;
+
+		Bilan(long lignes, long rejets, long duree) {
+			this.LIGNES = lignes;
+			this.REJETS = rejets;
+			this.DUREE = duree;
+		}
+
+		/**
+		 * @return nombre de lignes importées par seconde.
+		 */
+		public double lignesParSeconde() {
+			return DUREE == 0 ? 0 : LIGNES * 1e9 / DUREE;
+		}
+
+		@Override
+		public String toString() {
+			return LIGNES + " lignes dont " + REJETS + " rejetées en " + DUREE / 1000000 + " ms ("
+					+ Math.round(lignesParSeconde()) + " lignes/s)";
+		}
+	}
+
+	/**
+	 * Importe tous les livres d'un fichier encodé en UTF-8, dans le thread
+	 * courant.
+	 * 
+	 * @param fichier    Fichier à importer.
+	 * @param separateur Séparateur des champs (par exemple ',' ou '\t').
+	 * @return bilan de l'import.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	public static Bilan importer(Path fichier, char separateur) throws IOException {
+		return importer(fichier, separateur, 1, TAILLE_LOT);
+	}
+
+	/**
+	 * Importe tous les livres d'un fichier encodé en UTF-8.
+	 * 
+	 * @param fichier    Fichier à importer.
+	 * @param separateur Séparateur des champs (par exemple ',' ou '\t').
+	 * @param nbTaches   Nombre de threads traitant les lots (1 pour tout traiter
+	 *                   dans le thread courant).
+	 * @param tailleLot  Nombre de lignes par lot.
+	 * @return bilan de l'import.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	public static Bilan importer(Path fichier, char separateur, int nbTaches, int tailleLot) throws IOException {
+		return importer(Catalogue.defaut(), fichier, separateur, nbTaches, tailleLot);
+	}
+
+	/**
+	 * Importe dans un catalogue tous les livres d'un fichier encodé en UTF-8.
+	 * 
+	 * @param c          Catalogue où les livres sont créés.
+	 * @param fichier    Fichier à importer.
+	 * @param separateur Séparateur des champs (par exemple ',' ou '\t').
+	 * @param nbTaches   Nombre de threads traitant les lots (1 pour tout traiter
+	 *                   dans le thread courant).
+	 * @param tailleLot  Nombre de lignes par lot.
+	 * @return bilan de l'import.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	public static Bilan importer(Catalogue c, Path fichier, char separateur, int nbTaches, int tailleLot)
+			throws IOException {
+		try (Reader r = new InputStreamReader(Files.newInputStream(fichier), StandardCharsets.UTF_8)) {
+			return importer(c, r, separateur, nbTaches, tailleLot);
+		}
+	}
+
+	/**
+	 * Importe dans le catalogue par défaut tous les livres lus depuis un flot de
+	 * caractères (voir {@link #importer(Catalogue, Reader, char, int, int)}).
+	 * 
+	 * @param source     Flot à lire (il n'est pas fermé).
+	 * @param separateur Séparateur des champs.
+	 * @param nbTaches   Nombre de threads traitant les lots (1 pour tout traiter
+	 *                   dans le thread courant).
+	 * @param tailleLot  Nombre de lignes par lot.
+	 * @return bilan de l'import.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	public static Bilan importer(Reader source, char separateur, int nbTaches, int tailleLot) throws IOException {
+		return importer(Catalogue.defaut(), source, separateur, nbTaches, tailleLot);
+	}
+
+	/**
+	 * Importe dans un catalogue tous les livres lus depuis un flot de
+	 * caractères.
+	 * <p>
+	 * 
+	 * Le thread courant lit le flot et découpe les lignes en lots. Si la file des
+	 * lots en attente est pleine, il traite lui-même le lot suivant, ce qui
+	 * limite la mémoire utilisée quand la lecture va plus vite que le traitement.
+	 * 
+	 * @param c          Catalogue où les livres sont créés.
+	 * @param source     Flot à lire (il n'est pas fermé).
+	 * @param separateur Séparateur des champs.
+	 * @param nbTaches   Nombre de threads traitant les lots (1 pour tout traiter
+	 *                   dans le thread courant).
+	 * @param tailleLot  Nombre de lignes par lot.
+	 * @return bilan de l'import.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	public static Bilan importer(Catalogue c, Reader source, char separateur, int nbTaches, int tailleLot)
+			throws IOException {
+		if (nbTaches < 1 || tailleLot < 1)
+			throw new IllegalArgumentException("nbTaches et tailleLot doivent être positifs");
+		long debut = System.nanoTime();
+		long lignes = 0;
+		LongAdder rejets = new LongAdder();
+		AtomicReference<RuntimeException> erreur = new AtomicReference<>();
+		ThreadPoolExecutor executeur = null;
+		if (nbTaches > 1) {
+			executeur = new ThreadPoolExecutor(nbTaches, nbTaches, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(2 * nbTaches), r -> {
+						Thread t = new Thread(r, "importation");
+						t.setDaemon(true);
+						return t;
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		try {
+			BufferedReader lecteur = new BufferedReader(source, TAILLE_TAMPON);
+			String[] lot = new String[tailleLot];
+			int n = 0;
+			String ligne;
+			while ((ligne = lecteur.readLine()) != null && erreur.get() == null) {
+				if (ligne.isEmpty())
+					continue;
+				lignes++;
+				lot[n++] = ligne;
+				if (n == tailleLot) {
+					traiter(new Lot(c, lot, n, separateur, rejets, erreur), executeur);
+					lot = new String[tailleLot];
+					n = 0;
+				}
+			}
+			if (n > 0)
+				traiter(new Lot(c, lot, n, separateur, rejets, erreur), executeur);
+		} finally {
+			if (executeur != null) {
+				executeur.shutdown();
+				try {
+					while (!executeur.awaitTermination(1, TimeUnit.SECONDS))
+						;
+				} catch (InterruptedException e) {
+					executeur.shutdownNow();
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		if (erreur.get() != null)
+			throw erreur.get();
+		return new Bilan(lignes, rejets.sum(), System.nanoTime() - debut);
+	}
+
+	/**
+	 * Traite un lot dans le thread courant ou le confie à un exécuteur.
+	 * 
+	 * @param lot        Lot à traiter.
+	 * @param executeur  Exécuteur, ou null pour traiter le lot immédiatement.
+	 */
+	private static void traiter(Lot lot, ThreadPoolExecutor executeur) {
+		if (executeur == null)
+			lot.run();
+		else
+			executeur.execute(lot);
+	}
+
+	/**
+	 * Lot de lignes à importer.
+	 * <p>
+	 * 
+	 * Les auteurs et les mots clés sont d'abord cherchés dans des tables propres
+	 * au lot, indexées par les mêmes clés que les registres (indépendantes de la
+	 * casse), et ne sont résolus dans les registres globaux qu'à leur première
+	 * apparition dans le lot, quelle que soit la casse.
+	 */
+	private static final class Lot implements Runnable {
+
+		private final Catalogue CATALOGUE;
+		private final String[] LIGNES;
+		private final int N;
+		private final char SEPARATEUR;
+		private final LongAdder REJETS;
+		private final AtomicReference<RuntimeException> ERREUR;
+
+		Lot(Catalogue c, String[] lignes, int n, char separateur, LongAdder rejets,
+				AtomicReference<RuntimeException> erreur) {
+			this.CATALOGUE = c;
+			this.LIGNES = lignes;
+			this.N = n;
+			this.SEPARATEUR = separateur;
+			this.REJETS = rejets;
+			this.ERREUR = erreur;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Map<String, Auteur> auteurs = new HashMap<>();
+				Map<String, MotCle> mots = new HashMap<>();
+				String[] champs = new String[4];
+				int rejets = 0;
+				for (int i = 0; i < N; i++)
+					if (!importerLigne(CATALOGUE, LIGNES[i], SEPARATEUR, champs, auteurs, mots))
+						rejets++;
+				REJETS.add(rejets);
+			} catch (RuntimeException e) {
+				ERREUR.compareAndSet(null, e);
+			}
+		}
+	}
+
+	/**
+	 * Crée (ou retrouve) le livre décrit par une ligne et lui ajoute ses mots
+	 * clés.
+	 * 
+	 * @param c          Catalogue où le livre est créé.
+	 * @param ligne      Ligne à importer.
+	 * @param separateur Séparateur des champs.
+	 * @param champs     Tableau de travail d'au moins quatre cases.
+	 * @param auteurs    Auteurs déjà résolus, indexés par clé (voir
+	 *                   {@link Auteur#cle(String, String)}).
+	 * @param mots       Mots clés déjà résolus, indexés par mot replié (voir
+	 *                   {@link Casse#replier(String)}).
+	 * @return false si la ligne est mal formée.
+	 */
+	private static boolean importerLigne(Catalogue c, String ligne, char separateur, String[] champs,
+			Map<String, Auteur> auteurs, Map<String, MotCle> mots) {
+		int n = decouper(ligne, separateur, champs);
+		if (n < 2 || champs[0].isEmpty())
+			return false;
+		String nom = champs[1], prenom = n > 2 ? champs[2] : "";
+		Auteur a = auteurs.computeIfAbsent(Auteur.cle(nom, prenom), k -> Auteur.getOrCreate(c, nom, prenom, false));
+		if (a == null)
+			return false;
+		Livre l = Livre.getOrCreate(champs[0], a, false);
+		if (n > 3) {
+			String liste = champs[3];
+			for (int i = 0, j; i < liste.length(); i = j + 1) {
+				j = liste.indexOf(SEPARATEUR_MOTS, i);
+				if (j < 0)
+					j = liste.length();
+				if (j > i) {
+					String mot = liste.substring(i, j);
+					l.addMotCle(mots.computeIfAbsent(Casse.replier(mot), k -> MotCle.getOrCreate(c, mot, false)));
+				}
+			}
+		}
+		return true;
+	}
+	/**
+	 * Découpe une ligne en champs.
+	 * 
+	 * @param ligne      Ligne à découper.
+	 * @param separateur Séparateur des champs.
+	 * @param champs     Tableau recevant les champs.
+	 * @return nombre de champs trouvés, ou -1 s'il y en a plus que de cases
+	 *         dans le tableau.
+	 */
+	private static int decouper(String ligne, char separateur, String[] champs) {
+		int n = 0;
+		for (int i = 0;; n++) {
+			if (n == champs.length)
+				return -1;
+			int j = ligne.indexOf(separateur, i);
+			if (j < 0) {
+				champs[n] = ligne.substring(i);
+				return n + 1;
+			}
+			champs[n] = ligne.substring(i, j);
+			i = j + 1;
+		}
+	}
+}
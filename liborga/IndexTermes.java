@@ -0,0 +1,398 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+
+/**
+ * Index inversé des termes de documents numérotés (un titre et des mots clés),
+ * pour les classer par pertinence selon BM25.
+ * <p>
+ * 
+ * Chaque terme garde la liste triée des documents où il apparaît, avec son
+ * nombre d'occurrences ; chaque document garde sa longueur en termes. Ces
+ * statistiques sont tenues à jour à chaque ajout ou retrait : une recherche
+ * n'a rien à recompter. Le score d'un document pour une requête est la somme,
+ * sur les termes de la requête, de
+ * <pre>
+ * idf × tf × (k1 + 1) / (tf + k1 × (1 - b + b × longueur / longueur moyenne))
+ * </pre>
+ * avec idf = ln(1 + (N - df + 0,5) / (df + 0,5)).
+ * <p>
+ * 
+ * Les listes des termes de la requête sont parcourues ensemble, document par
+ * document, et les k meilleurs gardés dans un tas. Dès que le tas est plein,
+ * les termes dont les scores maximaux cumulés n'atteignent pas le plus faible
+ * score du tas ne proposent plus de documents : ils ne servent plus qu'à
+ * compléter le score des autres, par recherche dichotomique (MaxScore).
+ * <p>
+ * 
+ * Un document retient les mots clés indexés pour lui : ajouter deux fois le
+ * même mot clé, ou retirer un mot clé absent, est sans effet. Un document
+ * retiré alors qu'il lui reste des mots clés non annoncés garde ceux-ci
+ * jusqu'à leur retrait, sans plus apparaître dans les résultats.
+ * <p>
+ * 
+ * Cette classe n'est pas synchronisée : {@link #chercher} ne modifie rien et
+ * peut être appelée par plusieurs threads à la fois, mais pas pendant une
+ * modification (voir {@link RechercheClassee}).
+ * 
+ * @param <T> Type des documents.
+ */
+final class IndexTermes<T> {
+
+	/**
+	 * Saturation de la fréquence d'un terme.
+	 */
+	static final double K1 = 1.2;
+
+	/**
+	 * Poids de la normalisation par la longueur du document.
+	 */
+	static final double B = 0.75;
+
+	private static final int[] AUCUN = new int[0];
+
+	/**
+	 * Liste des documents d'un terme, triés par numéro.
+	 */
+	private static final class Terme {
+
+		int[] ids = new int[2];
+
+		/**
+		 * Nombre d'occurrences du terme dans chaque document.
+		 */
+		int[] tfs = new int[2];
+
+		int taille;
+	}
+
+	private final IntFunction<T> ELEMENTS;
+
+	private final Map<String, Terme> TERMES = new HashMap<>();
+
+	/**
+	 * Documents présents (ajoutés et pas encore retirés).
+	 */
+	private final BitSet PRESENTS = new BitSet();
+
+	/**
+	 * Longueur de chaque document en termes, par numéro.
+	 */
+	private int[] longueurs = new int[64];
+
+	/**
+	 * Numéros triés des mots clés indexés pour chaque document, par numéro.
+	 */
+	private int[][] motsCles = new int[64][];
+
+	private int documents;
+
+	private long longueurTotale;
+
+	/**
+	 * @param elements Accès à un document par son numéro.
+	 */
+	IndexTermes(IntFunction<T> elements) {
+		this.ELEMENTS = elements;
+	}
+
+	// Modification --------------------------------------------------------
+
+	/**
+	 * Ajoute un document (sans effet s'il est déjà présent).
+	 * 
+	 * @param numero Numéro du document.
+	 * @param titre  Titre du document, sans accents.
+	 */
+	void ajouter(int numero, String titre) {
+		if (PRESENTS.get(numero))
+			return;
+		reserver(numero);
+		PRESENTS.set(numero);
+		documents++;
+		indexer(numero, titre, 1);
+	}
+
+	/**
+	 * Retire un document (sans effet s'il est absent). Ses mots clés passés en
+	 * paramètre sont retirés avec lui.
+	 * 
+	 * @param numero Numéro du document.
+	 * @param titre  Titre du document, sans accents.
+	 * @param mots   Numéros des mots clés du document.
+	 * @param textes Textes sans accents de ces mots clés.
+	 */
+	void retirer(int numero, String titre, int[] mots, String[] textes) {
+		if (!PRESENTS.get(numero))
+			return;
+		for (int i = 0; i < mots.length; i++)
+			retirerMotCle(numero, mots[i], textes[i]);
+		indexer(numero, titre, -1);
+		PRESENTS.clear(numero);
+		documents--;
+		longueurTotale -= longueurs[numero];
+	}
+
+	/**
+	 * Ajoute un mot clé à un document présent (sans effet s'il l'a déjà).
+	 * 
+	 * @param numero Numéro du document.
+	 * @param mot    Numéro du mot clé.
+	 * @param texte  Mot clé sans accents.
+	 */
+	void ajouterMotCle(int numero, int mot, String texte) {
+		if (!PRESENTS.get(numero))
+			return;
+		int[] ids = motsCles[numero] == null ? AUCUN : motsCles[numero];
+		int p = Arrays.binarySearch(ids, mot);
+		if (p >= 0)
+			return;
+		p = -p - 1;
+		int[] r = new int[ids.length + 1];
+		System.arraycopy(ids, 0, r, 0, p);
+		r[p] = mot;
+		System.arraycopy(ids, p, r, p + 1, ids.length - p);
+		motsCles[numero] = r;
+		indexer(numero, texte, 1);
+	}
+
+	/**
+	 * Retire un mot clé d'un document (sans effet s'il ne l'a pas).
+	 * 
+	 * @param numero Numéro du document.
+	 * @param mot    Numéro du mot clé.
+	 * @param texte  Mot clé sans accents.
+	 */
+	void retirerMotCle(int numero, int mot, String texte) {
+		int[] ids = numero < motsCles.length ? motsCles[numero] : null;
+		int p = ids == null ? -1 : Arrays.binarySearch(ids, mot);
+		if (p < 0)
+			return;
+		if (ids.length == 1) {
+			motsCles[numero] = null;
+		} else {
+			int[] r = new int[ids.length - 1];
+			System.arraycopy(ids, 0, r, 0, p);
+			System.arraycopy(ids, p + 1, r, p, r.length - p);
+			motsCles[numero] = r;
+		}
+		indexer(numero, texte, -1);
+	}
+
+	/**
+	 * Ajoute (sens = 1) ou retire (sens = -1) les termes d'un texte d'un
+	 * document.
+	 */
+	private void indexer(int numero, String texte, int sens) {
+		List<String> termes = termes(texte);
+		for (String t : termes)
+			compter(t, numero, sens);
+		longueurs[numero] += sens * termes.size();
+		if (PRESENTS.get(numero))
+			longueurTotale += sens * termes.size();
+	}
+
+	private void compter(String terme, int numero, int sens) {
+		Terme t = TERMES.get(terme);
+		if (t == null) {
+			if (sens < 0)
+				return;
+			TERMES.put(terme, t = new Terme());
+		}
+		int p = t.taille > 0 && t.ids[t.taille - 1] < numero ? -t.taille - 1
+				: Arrays.binarySearch(t.ids, 0, t.taille, numero);
+		if (p >= 0) {
+			t.tfs[p] += sens;
+			if (t.tfs[p] > 0)
+				return;
+			System.arraycopy(t.ids, p + 1, t.ids, p, t.taille - p - 1);
+			System.arraycopy(t.tfs, p + 1, t.tfs, p, t.taille - p - 1);
+			if (--t.taille == 0)
+				TERMES.remove(terme);
+			return;
+		}
+		if (sens < 0)
+			return;
+		p = -p - 1;
+		if (t.taille == t.ids.length) {
+			t.ids = Arrays.copyOf(t.ids, 2 * t.taille);
+			t.tfs = Arrays.copyOf(t.tfs, 2 * t.taille);
+		}
+		System.arraycopy(t.ids, p, t.ids, p + 1, t.taille - p);
+		System.arraycopy(t.tfs, p, t.tfs, p + 1, t.taille - p);
+		t.ids[p] = numero;
+		t.tfs[p] = 1;
+		t.taille++;
+	}
+
+	private void reserver(int numero) {
+		if (numero >= longueurs.length) {
+			int n = Math.max(numero + 1, 2 * longueurs.length);
+			longueurs = Arrays.copyOf(longueurs, n);
+			motsCles = Arrays.copyOf(motsCles, n);
+		}
+	}
+
+	/**
+	 * Découpe un texte en termes : suites maximales de lettres et de chiffres.
+	 * 
+	 * @param texte Texte sans accents.
+	 * @return termes du texte, dans l'ordre, avec leurs répétitions.
+	 */
+	static List<String> termes(String texte) {
+		List<String> r = new ArrayList<>();
+		int debut = -1;
+		for (int i = 0; i <= texte.length(); i++) {
+			boolean lettre = i < texte.length() && Character.isLetterOrDigit(texte.charAt(i));
+			if (lettre && debut < 0) {
+				debut = i;
+			} else if (!lettre && debut >= 0) {
+				r.add(texte.substring(debut, i));
+				debut = -1;
+			}
+		}
+		return r;
+	}
+
+	// Recherche -----------------------------------------------------------
+
+	/**
+	 * Position dans la liste d'un terme de la requête.
+	 */
+	private static final class Curseur {
+
+		final Terme TERME;
+
+		/**
+		 * idf du terme, multiplié par son nombre d'occurrences dans la requête.
+		 */
+		final double POIDS;
+
+		/**
+		 * Score maximal que le terme peut apporter à un document.
+		 */
+		final double MAXIMUM;
+
+		int position;
+
+		Curseur(Terme t, double poids) {
+			this.TERME = t;
+			this.POIDS = poids;
+			this.MAXIMUM = poids * (K1 + 1);
+		}
+
+		int courant() {
+			return position < TERME.taille ? TERME.ids[position] : Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Document retenu, avec son score.
+	 */
+	private static final class Retenu {
+
+		final int NUMERO;
+
+		final double SCORE;
+
+		Retenu(int numero, double score) {
+			this.NUMERO = numero;
+			this.SCORE = score;
+		}
+	}
+
+	/**
+	 * Renvoie les documents les plus pertinents pour une requête.
+	 * 
+	 * @param requete Requête sans accents.
+	 * @param nombre  Nombre maximal de documents renvoyés.
+	 * @return documents contenant au moins un terme de la requête, du plus au
+	 *         moins pertinent (puis par numéro).
+	 */
+	List<T> chercher(String requete, int nombre) {
+		if (nombre <= 0 || documents == 0)
+			return Collections.emptyList();
+		Map<String, Integer> occurrences = new HashMap<>();
+		for (String t : termes(requete))
+			occurrences.merge(t, 1, Integer::sum);
+		List<Curseur> liste = new ArrayList<>(occurrences.size());
+		for (Map.Entry<String, Integer> e : occurrences.entrySet()) {
+			Terme t = TERMES.get(e.getKey());
+			if (t != null)
+				liste.add(new Curseur(t, e.getValue() * Math.log(1 + (documents - t.taille + 0.5) / (t.taille + 0.5))));
+		}
+		if (liste.isEmpty())
+			return Collections.emptyList();
+		liste.sort((a, b) -> Double.compare(a.MAXIMUM, b.MAXIMUM));
+		Curseur[] curseurs = liste.toArray(new Curseur[0]);
+		double[] cumuls = new double[curseurs.length];
+		for (int i = 0; i < curseurs.length; i++)
+			cumuls[i] = curseurs[i].MAXIMUM + (i > 0 ? cumuls[i - 1] : 0);
+		double moyenne = Math.max(1, (double) longueurTotale / documents);
+		// le moins bon en tête ; à score égal, le plus grand numéro (vu en dernier)
+		Comparator<Retenu> ordre = (a, b) -> a.SCORE != b.SCORE ? Double.compare(a.SCORE, b.SCORE)
+				: Integer.compare(b.NUMERO, a.NUMERO);
+		PriorityQueue<Retenu> tas = new PriorityQueue<>(Math.min(nombre, 256), ordre);
+		double seuil = 0;
+		int essentiels = 0; // les termes avant cet indice ne proposent plus de documents
+		while (essentiels < curseurs.length) {
+			int doc = Integer.MAX_VALUE;
+			for (int i = essentiels; i < curseurs.length; i++)
+				doc = Math.min(doc, curseurs[i].courant());
+			if (doc == Integer.MAX_VALUE)
+				break;
+			double score = 0;
+			for (int i = essentiels; i < curseurs.length; i++) {
+				Curseur c = curseurs[i];
+				if (c.courant() == doc)
+					score += contribution(c, doc, moyenne);
+			}
+			for (int i = essentiels; i < curseurs.length; i++)
+				if (curseurs[i].courant() == doc)
+					curseurs[i].position++;
+			for (int i = essentiels - 1; i >= 0 && score + cumuls[i] > seuil; i--) {
+				Curseur c = curseurs[i];
+				int p = Arrays.binarySearch(c.TERME.ids, c.position, c.TERME.taille, doc);
+				c.position = p >= 0 ? p : -p - 1;
+				if (p >= 0)
+					score += contribution(c, doc, moyenne);
+			}
+			if (!PRESENTS.get(doc))
+				continue;
+			if (tas.size() == nombre) {
+				if (score <= seuil)
+					continue;
+				tas.poll();
+			}
+			tas.add(new Retenu(doc, score));
+			if (tas.size() == nombre) {
+				seuil = tas.peek().SCORE;
+				while (essentiels < curseurs.length && cumuls[essentiels] <= seuil)
+					essentiels++;
+			}
+		}
+		Retenu[] retenus = tas.toArray(new Retenu[0]);
+		Arrays.sort(retenus, ordre.reversed());
+		List<T> r = new ArrayList<>(retenus.length);
+		for (Retenu x : retenus) {
+			T e = ELEMENTS.apply(x.NUMERO);
+			if (e != null)
+				r.add(e);
+		}
+		return r;
+	}
+
+	private double contribution(Curseur c, int doc, double moyenne) {
+		int tf = c.TERME.tfs[c.position];
+		return c.POIDS * tf * (K1 + 1) / (tf + K1 * (1 - B + B * longueurs[doc] / moyenne));
+	}
+}
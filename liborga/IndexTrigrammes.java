@@ -0,0 +1,162 @@
+package liborga;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index inversé de trigrammes permettant de limiter une recherche de
+ * sous-chaîne aux seuls éléments susceptibles de la contenir.
+ * <p>
+ * 
+ * Chaque élément est indexé sous tous les trigrammes (suites de trois
+ * caractères consécutifs) de son texte. Un texte qui contient un motif contient
+ * forcément tous les trigrammes de ce motif : les éléments d'une seule de ces
+ * listes suffisent donc comme candidats, qu'il reste à vérifier.
+ * <p>
+ * 
+ * Les listes ne contiennent que les numéros des éléments (voir {@link Table}),
+ * traduits en éléments au moment de la consultation.
+ * <p>
+ * 
+ * L'index peut être mis à jour et consulté simultanément par plusieurs threads.
+ * 
+ * @param <T> Type des éléments indexés.
+ */
+final class IndexTrigrammes<T> {
+
+	/**
+	 * Listes de numéros d'éléments indexées par trigramme (voir
+	 * {@link #trigramme(String, int)}).
+	 */
+	private final ConcurrentMap<Long, ListeIds> LISTES = new ConcurrentHashMap<>();
+
+	/**
+	 * Table des éléments indexés.
+	 */
+	private final Table<T> ELEMENTS;
+
+	/**
+	 * Index complété par celui-ci, ou null.
+	 */
+	private final IndexTrigrammes<T> BASE;
+
+	/**
+	 * @param elements Table des éléments indexés.
+	 */
+	IndexTrigrammes(Table<T> elements) {
+		this(elements, null);
+	}
+
+	/**
+	 * Crée un index d'une seconde forme des textes, qui n'indexe que les
+	 * éléments dont la seconde forme diffère de celle indexée par un index de
+	 * base : ses candidats comprennent ceux de l'index de base. Les textes
+	 * identiques dans les deux formes ne sont ainsi pas indexés deux fois.
+	 * 
+	 * @param elements Table des éléments indexés.
+	 * @param base     Index de la première forme des textes.
+	 */
+	IndexTrigrammes(Table<T> elements, IndexTrigrammes<T> base) {
+		this.ELEMENTS = elements;
+		this.BASE = base;
+	}
+
+	/**
+	 * Indexe un élément sous tous les trigrammes d'un texte.
+	 * 
+	 * @param texte  Texte de l'élément, déjà dans la forme utilisée pour la
+	 *               recherche (par exemple en minuscules).
+	 * @param numero Numéro de l'élément, déjà rangé dans la table.
+	 */
+	void ajouter(String texte, int numero) {
+		for (int i = 0; i + 3 <= texte.length(); i++)
+			LISTES.computeIfAbsent(trigramme(texte, i), k -> new ListeIds()).ajouter(numero);
+	}
+
+	/**
+	 * Retire un élément de l'index.
+	 * 
+	 * @param texte  Texte sous lequel l'élément a été indexé.
+	 * @param numero Numéro de l'élément.
+	 */
+	void retirer(String texte, int numero) {
+		for (int i = 0; i + 3 <= texte.length(); i++) {
+			ListeIds liste = LISTES.get(trigramme(texte, i));
+			if (liste != null)
+				liste.retirer(numero);
+		}
+	}
+
+	/**
+	 * Renvoie les candidats pouvant contenir un motif.
+	 * 
+	 * @param motif Motif recherché, dans la même forme que les textes indexés.
+	 * @return la plus courte des listes associées aux trigrammes du motif
+	 *         (éventuellement vide), ou null si le motif est trop court pour
+	 *         contenir un trigramme, auquel cas tous les éléments sont candidats.
+	 */
+	Collection<T> candidats(String motif) {
+		ListeIds.Contenu numeros = numerosCandidats(motif);
+		return numeros == null ? null : ELEMENTS.elements(numeros);
+	}
+
+	/**
+	 * @param motif Motif recherché, dans la même forme que les textes indexés.
+	 * @return numéros des candidats (voir {@link #candidats(String)}), ou null si
+	 *         tous les éléments sont candidats.
+	 */
+	ListeIds.Contenu numerosCandidats(String motif) {
+		if (motif.length() < 3)
+			return null;
+		ListeIds.Contenu numeros = numeros(motif);
+		if (BASE != null)
+			numeros = ListeIds.union(numeros, BASE.numeros(motif));
+		return numeros;
+	}
+
+	/**
+	 * @param motif Motif d'au moins trois caractères.
+	 * @return la plus courte des listes associées aux trigrammes du motif dans
+	 *         cet index.
+	 */
+	private ListeIds.Contenu numeros(String motif) {
+		ListeIds meilleure = null;
+		for (int i = 0; i + 3 <= motif.length(); i++) {
+			ListeIds liste = LISTES.get(trigramme(motif, i));
+			if (liste == null)
+				return ListeIds.Contenu.VIDE;
+			if (meilleure == null || liste.taille() < meilleure.taille())
+				meilleure = liste;
+		}
+		return meilleure.lire();
+	}
+
+	/**
+	 * Choisit le plus petit de deux ensembles de candidats.
+	 * 
+	 * @param a Numéros des candidats, ou null si tous les éléments sont
+	 *          candidats.
+	 * @param b Numéros des candidats, ou null si tous les éléments sont
+	 *          candidats.
+	 * @return le plus petit des deux ensembles, ou null si les deux sont null.
+	 */
+	static ListeIds.Contenu plusPetit(ListeIds.Contenu a, ListeIds.Contenu b) {
+		if (a == null)
+			return b;
+		if (b == null)
+			return a;
+		return a.TAILLE <= b.TAILLE ? a : b;
+	}
+
+	/**
+	 * Code les trois caractères d'un texte commençant à une position donnée.
+	 * 
+	 * @param texte Texte.
+	 * @param i     Position du premier caractère.
+	 * @return code du trigramme.
+	 */
+	static long trigramme(String texte, int i) {
+		return ((long) texte.charAt(i) << 32) | ((long) texte.charAt(i + 1) << 16) | texte.charAt(i + 2);
+	}
+}
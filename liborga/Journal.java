@@ -0,0 +1,584 @@
+package liborga;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/**
+ * Journal des modifications du catalogue, en ajout seul, permettant de
+ * retrouver après un arrêt brutal tout ce qui a été fait depuis le dernier
+ * instantané (voir {@link Sauvegarde}).
+ * <p>
+ * 
+ * Une fois ouvert, le journal enregistre chaque création et chaque suppression
+ * de livre, et chaque ajout ou retrait de mot clé. Chaque enregistrement est
+ * précédé de sa longueur et de sa somme de contrôle CRC32, ce qui permet
+ * d'ignorer un dernier enregistrement écrit à moitié. Les enregistrements ne
+ * contiennent que des textes (titre, nom, prénom, mot) et sont rejoués dans
+ * l'ordre : les rejouer plusieurs fois donne le même catalogue.
+ * <p>
+ * 
+ * Le compactage écrit un nouvel instantané puis supprime la partie du journal
+ * qu'il contient. Pendant le compactage, cette partie est conservée à côté du
+ * journal sous le suffixe {@value #SUFFIXE_ANCIEN} ; {@link #restaurer} la
+ * rejoue aussi si le compactage a été interrompu.
+ */
+public final class Journal implements Closeable {
+
+	/**
+	 * Façon de rendre les enregistrements durables.
+	 */
+	public enum Mode {
+		/**
+		 * Chaque modification est écrite et synchronisée sur disque avant de rendre
+		 * la main.
+		 */
+		SYNCHRONE,
+		/**
+		 * Chaque modification attend d'être sur disque, mais les modifications
+		 * arrivées pendant une synchronisation sont écrites et synchronisées
+		 * ensemble par un thread dédié.
+		 */
+		GROUPE,
+		/**
+		 * Les modifications sont écrites et synchronisées par un thread dédié sans
+		 * être attendues : les dernières peuvent être perdues en cas d'arrêt
+		 * brutal.
+		 */
+		ASYNCHRONE
+	}
+
+	/**
+	 * Suffixe de la partie du journal en cours de compactage.
+	 */
+	public static final String SUFFIXE_ANCIEN = ".ancien";
+
+	private static final byte CREATION = 1;
+
+	private static final byte LIEN = 2;
+
+	private static final byte SUPPRESSION = 3;
+
+	private static final byte RETRAIT = 4;
+
+	/**
+	 * Volume d'enregistrements en attente au-delà duquel les modifications en
+	 * mode asynchrone attendent le thread d'écriture.
+	 */
+	private static final int ATTENTE_MAX = 1 << 22;
+
+	private final Catalogue CATALOGUE;
+
+	private final Path FICHIER;
+
+	private final Mode MODE;
+
+	/**
+	 * Observateur enregistrant les modifications du catalogue dans ce journal.
+	 */
+	private final Observateur OBSERVATEUR = new Observateur() {
+		@Override
+		public void livreCree(Livre l) {
+			ecrire(enregistrement(CREATION, l, null));
+		}
+
+		@Override
+		public void motCleAjoute(Livre l, MotCle m) {
+			ecrire(enregistrement(LIEN, l, m));
+		}
+
+		@Override
+		public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+			ecrire(enregistrement(SUPPRESSION, l, null));
+		}
+
+		@Override
+		public void motCleRetire(Livre l, MotCle m) {
+			ecrire(enregistrement(RETRAIT, l, m));
+		}
+	};
+
+	/**
+	 * Thread d'écriture (null en mode synchrone).
+	 */
+	private final Thread ECRIVAIN;
+
+	// Les champs suivants sont protégés par le verrou du journal.
+
+	private FileChannel canal;
+
+	/**
+	 * Enregistrements en attente d'écriture (modes groupé et asynchrone).
+	 */
+	private final ByteArrayOutputStream ATTENTE = new ByteArrayOutputStream();
+
+	/**
+	 * Nombre d'enregistrements confiés au journal.
+	 */
+	private long nbEcrits;
+
+	/**
+	 * Nombre d'enregistrements écrits et synchronisés sur disque.
+	 */
+	private long nbDurables;
+
+	private IOException erreur;
+
+	private boolean ferme;
+
+	// Ouverture et fermeture ----------------------------------------------
+
+	/**
+	 * Constructeur privé (voir {@link #ouvrir(Catalogue, Path, Mode)}).
+	 * 
+	 * @param c       Catalogue dont les modifications sont enregistrées.
+	 * @param fichier Fichier du journal.
+	 * @param mode    Mode d'écriture.
+	 * @param canal   Canal ouvert en écriture à la fin du fichier.
+	 */
+	private Journal(Catalogue c, Path fichier, Mode mode, FileChannel canal) {
+		this.CATALOGUE = c;
+		this.FICHIER = fichier;
+		this.MODE = mode;
+		this.canal = canal;
+		if (mode == Mode.SYNCHRONE) {
+			this.ECRIVAIN = null;
+		} else {
+			this.ECRIVAIN = new Thread(this::boucleEcriture, "journal " + fichier.getFileName());
+			this.ECRIVAIN.setDaemon(true);
+			this.ECRIVAIN.start();
+		}
+		c.OBSERVATEURS.abonner(OBSERVATEUR);
+	}
+
+	/**
+	 * Ouvre un journal des modifications du catalogue par défaut (voir
+	 * {@link #ouvrir(Catalogue, Path, Mode)}).
+	 * 
+	 * @param fichier Fichier du journal.
+	 * @param mode    Mode d'écriture.
+	 * @return journal ouvert.
+	 * @throws IOException en cas d'erreur d'accès au fichier.
+	 */
+	public static Journal ouvrir(Path fichier, Mode mode) throws IOException {
+		return ouvrir(Catalogue.defaut(), fichier, mode);
+	}
+
+	/**
+	 * Ouvre un journal (en le créant si besoin) et commence à y enregistrer les
+	 * modifications d'un catalogue.
+	 * <p>
+	 * 
+	 * Un éventuel enregistrement incomplet à la fin du fichier est supprimé. Le
+	 * contenu existant n'est pas rejoué : voir {@link #restaurer}.
+	 * 
+	 * @param c       Catalogue dont les modifications sont enregistrées.
+	 * @param fichier Fichier du journal.
+	 * @param mode    Mode d'écriture.
+	 * @return journal ouvert.
+	 * @throws IOException en cas d'erreur d'accès au fichier.
+	 */
+	public static Journal ouvrir(Catalogue c, Path fichier, Mode mode) throws IOException {
+		long fin = Files.exists(fichier) ? parcourir(c, fichier, false) : 0;
+		FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		canal.truncate(fin);
+		canal.position(fin);
+		return new Journal(c, fichier, mode, canal);
+	}
+
+	/**
+	 * Reconstruit le catalogue par défaut après un redémarrage, puis ouvre le
+	 * journal (voir {@link #restaurer(Catalogue, Path, Path, Mode)}).
+	 * 
+	 * @param instantane Fichier de l'instantané.
+	 * @param fichier    Fichier du journal.
+	 * @param mode       Mode d'écriture.
+	 * @return journal ouvert.
+	 * @throws IOException en cas d'erreur d'accès aux fichiers.
+	 */
+	public static Journal restaurer(Path instantane, Path fichier, Mode mode) throws IOException {
+		return restaurer(Catalogue.defaut(), instantane, fichier, mode);
+	}
+
+	/**
+	 * Reconstruit un catalogue après un redémarrage, puis ouvre le journal.
+	 * <p>
+	 * 
+	 * Charge l'instantané s'il existe, rejoue la partie du journal dont le
+	 * compactage a été interrompu s'il y en a une, puis le journal lui-même.
+	 * 
+	 * @param c          Catalogue à reconstruire.
+	 * @param instantane Fichier de l'instantané.
+	 * @param fichier    Fichier du journal.
+	 * @param mode       Mode d'écriture.
+	 * @return journal ouvert.
+	 * @throws IOException en cas d'erreur d'accès aux fichiers.
+	 */
+	public static Journal restaurer(Catalogue c, Path instantane, Path fichier, Mode mode) throws IOException {
+		if (Files.exists(instantane))
+			Sauvegarde.charger(c, instantane);
+		Path ancien = ancien(fichier);
+		if (Files.exists(ancien))
+			parcourir(c, ancien, true);
+		if (Files.exists(fichier))
+			parcourir(c, fichier, true);
+		return ouvrir(c, fichier, mode);
+	}
+
+	/**
+	 * Écrit sur disque tous les enregistrements en attente puis ferme le journal.
+	 * Les modifications suivantes ne sont plus enregistrées.
+	 * 
+	 * @throws IOException en cas d'erreur d'écriture.
+	 */
+	@Override
+	public void close() throws IOException {
+		CATALOGUE.OBSERVATEURS.desabonner(OBSERVATEUR);
+		synchronized (this) {
+			if (ferme)
+				return;
+			ferme = true;
+			notifyAll();
+		}
+		if (ECRIVAIN != null) {
+			try {
+				ECRIVAIN.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("fermeture du journal interrompue");
+			}
+		}
+		synchronized (this) {
+			canal.close();
+			if (erreur != null)
+				throw erreur;
+		}
+	}
+
+	// Écriture ------------------------------------------------------------
+
+	/**
+	 * Code un enregistrement, précédé de sa longueur et de sa somme de contrôle.
+	 * 
+	 * @param type Type d'enregistrement.
+	 * @param l    Livre concerné.
+	 * @param m    Mot clé ajouté, ou null pour une création.
+	 * @return enregistrement prêt à être écrit.
+	 */
+	private static byte[] enregistrement(byte type, Livre l, MotCle m) {
+		try {
+			ByteArrayOutputStream octets = new ByteArrayOutputStream(64);
+			DataOutputStream out = new DataOutputStream(octets);
+			out.writeInt(0); // longueur, renseignée plus bas
+			out.writeInt(0); // somme de contrôle, renseignée plus bas
+			out.writeByte(type);
+			chaine(out, l.getTitre());
+			chaine(out, l.AUTEUR.getNom());
+			chaine(out, l.AUTEUR.getPrenom());
+			if (m != null)
+				chaine(out, m.getMot());
+			byte[] r = octets.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(r, 8, r.length - 8);
+			ByteBuffer.wrap(r).putInt(r.length - 8).putInt((int) crc.getValue());
+			return r;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // impossible en mémoire
+		}
+	}
+
+	private static void chaine(DataOutputStream out, String s) throws IOException {
+		byte[] octets = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(octets.length);
+		out.write(octets);
+	}
+
+	/**
+	 * Confie un enregistrement au journal, selon le mode choisi.
+	 * 
+	 * @param r Enregistrement.
+	 * @throws UncheckedIOException si le journal ne peut plus écrire. La
+	 *                              modification a déjà eu lieu ; les autres
+	 *                              observateurs en sont tout de même prévenus
+	 *                              (voir {@link Observateurs}).
+	 */
+	private synchronized void ecrire(byte[] r) {
+		try {
+			verifier();
+			if (MODE == Mode.SYNCHRONE) {
+				ecrireTout(canal, ByteBuffer.wrap(r));
+				canal.force(false);
+				return;
+			}
+			while (MODE == Mode.ASYNCHRONE && ATTENTE.size() >= ATTENTE_MAX) {
+				wait();
+				verifier();
+			}
+			ATTENTE.write(r, 0, r.length);
+			long n = ++nbEcrits;
+			notifyAll();
+			while (MODE == Mode.GROUPE && nbDurables < n) {
+				wait();
+				verifier();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException("écriture dans le journal interrompue"));
+		}
+	}
+
+	private void verifier() throws IOException {
+		if (erreur != null)
+			throw new IOException("le journal a rencontré une erreur", erreur);
+		if (ferme)
+			throw new IOException("journal fermé");
+	}
+
+	/**
+	 * Boucle du thread d'écriture : écrit d'un bloc tous les enregistrements
+	 * arrivés depuis le tour précédent, puis les synchronise sur disque.
+	 */
+	private void boucleEcriture() {
+		while (true) {
+			byte[] lot;
+			long n;
+			FileChannel c;
+			synchronized (this) {
+				try {
+					while (ATTENTE.size() == 0 && !ferme)
+						wait();
+				} catch (InterruptedException e) {
+					erreur = new InterruptedIOException("thread d'écriture du journal interrompu");
+					notifyAll();
+					return;
+				}
+				if (ATTENTE.size() == 0)
+					return; // fermé et tout est écrit
+				lot = ATTENTE.toByteArray();
+				ATTENTE.reset();
+				n = nbEcrits;
+				c = canal;
+				notifyAll();
+			}
+			IOException e = null;
+			try {
+				ecrireTout(c, ByteBuffer.wrap(lot));
+				c.force(false);
+			} catch (IOException ex) {
+				e = ex;
+			}
+			synchronized (this) {
+				if (e != null) {
+					erreur = e;
+					notifyAll();
+					return;
+				}
+				nbDurables = n;
+				notifyAll();
+			}
+		}
+	}
+
+	private static void ecrireTout(FileChannel c, ByteBuffer b) throws IOException {
+		while (b.hasRemaining())
+			c.write(b);
+	}
+
+	/**
+	 * Attend que tous les enregistrements confiés au journal soient sur disque.
+	 * 
+	 * @throws IOException en cas d'erreur d'écriture ou d'interruption.
+	 */
+	public synchronized void synchroniser() throws IOException {
+		try {
+			while (nbDurables < nbEcrits) {
+				if (erreur != null)
+					throw erreur;
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("synchronisation du journal interrompue");
+		}
+	}
+
+	// Compactage ----------------------------------------------------------
+
+	/**
+	 * Intègre le contenu du journal dans un nouvel instantané.
+	 * <p>
+	 * 
+	 * Le journal est d'abord mis de côté et remplacé par un journal vide, qui
+	 * continue à recevoir les modifications. L'instantané est ensuite écrit et
+	 * synchronisé sur disque (voir {@link Sauvegarde#enregistrer(Catalogue, Path)}) ; la
+	 * partie mise de côté n'est supprimée qu'après. Un arrêt brutal à n'importe
+	 * quel moment laisse donc toujours un instantané complet ou un journal qui
+	 * le complète.
+	 * 
+	 * @param instantane Fichier de l'instantané à remplacer.
+	 * @throws IOException en cas d'erreur d'accès aux fichiers.
+	 */
+	public void compacter(Path instantane) throws IOException {
+		Path ancien = ancien(FICHIER);
+		synchronized (this) {
+			synchroniser();
+			verifier();
+			canal.close();
+			if (Files.exists(ancien)) {
+				// compactage précédent interrompu : on garde tout ce qui n'est dans aucun
+				// instantané
+				try (FileChannel source = FileChannel.open(FICHIER, StandardOpenOption.READ);
+						FileChannel cible = FileChannel.open(ancien, StandardOpenOption.WRITE,
+								StandardOpenOption.APPEND)) {
+					for (long p = 0, n = source.size(); p < n;)
+						p += source.transferTo(p, n - p, cible);
+					cible.force(false);
+				}
+				Files.delete(FICHIER);
+			} else {
+				Files.move(FICHIER, ancien, StandardCopyOption.ATOMIC_MOVE);
+			}
+			canal = FileChannel.open(FICHIER, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			Sauvegarde.synchroniserRepertoire(FICHIER);
+		}
+		Sauvegarde.enregistrer(CATALOGUE, instantane); // durable avant que l'ancienne partie ne soit supprimée
+		Files.delete(ancien);
+		Sauvegarde.synchroniserRepertoire(ancien);
+	}
+
+	/**
+	 * Lance {@link #compacter(Path)} dans un thread séparé.
+	 * 
+	 * @param instantane Fichier de l'instantané à remplacer.
+	 * @return tâche de compactage, terminée en erreur si le compactage échoue.
+	 */
+	public CompletableFuture<Void> compacterEnArrierePlan(Path instantane) {
+		CompletableFuture<Void> tache = new CompletableFuture<>();
+		Thread t = new Thread(() -> {
+			try {
+				compacter(instantane);
+				tache.complete(null);
+			} catch (IOException | RuntimeException e) {
+				tache.completeExceptionally(e);
+			}
+		}, "compactage " + FICHIER.getFileName());
+		t.setDaemon(true);
+		t.start();
+		return tache;
+	}
+
+	private static Path ancien(Path fichier) {
+		return fichier.resolveSibling(fichier.getFileName() + SUFFIXE_ANCIEN);
+	}
+
+	// Relecture -----------------------------------------------------------
+
+	/**
+	 * Rejoue dans le catalogue par défaut toutes les modifications d'un journal.
+	 * 
+	 * @param fichier Fichier du journal.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	public static void rejouer(Path fichier) throws IOException {
+		rejouer(Catalogue.defaut(), fichier);
+	}
+
+	/**
+	 * Rejoue dans un catalogue toutes les modifications d'un journal.
+	 * 
+	 * @param c       Catalogue à modifier.
+	 * @param fichier Fichier du journal.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	public static void rejouer(Catalogue c, Path fichier) throws IOException {
+		parcourir(c, fichier, true);
+	}
+
+	/**
+	 * Lit un journal jusqu'à son dernier enregistrement valide.
+	 * 
+	 * @param c         Catalogue où rejouer les enregistrements.
+	 * @param fichier   Fichier du journal.
+	 * @param appliquer indique s'il faut rejouer les enregistrements lus.
+	 * @return position de la fin du dernier enregistrement valide.
+	 * @throws IOException en cas d'erreur de lecture.
+	 */
+	private static long parcourir(Catalogue c, Path fichier, boolean appliquer) throws IOException {
+		long fin = 0;
+		CRC32 crc = new CRC32();
+		byte[] octets = new byte[256];
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(fichier), 1 << 16))) {
+			while (true) {
+				int longueur, somme;
+				try {
+					longueur = in.readInt();
+					somme = in.readInt();
+					if (longueur <= 0 || longueur > (1 << 24))
+						return fin;
+					if (octets.length < longueur)
+						octets = new byte[longueur];
+					in.readFully(octets, 0, longueur);
+				} catch (EOFException e) {
+					return fin; // fin du fichier, éventuellement au milieu d'un enregistrement
+				}
+				crc.reset();
+				crc.update(octets, 0, longueur);
+				if ((int) crc.getValue() != somme)
+					return fin;
+				if (appliquer)
+					appliquer(c, ByteBuffer.wrap(octets, 0, longueur));
+				fin += 8 + longueur;
+			}
+		}
+	}
+
+	/**
+	 * Applique un enregistrement à un catalogue.
+	 * 
+	 * @param c Catalogue à modifier.
+	 * @param b Contenu de l'enregistrement (sans longueur ni somme de contrôle).
+	 */
+	private static void appliquer(Catalogue c, ByteBuffer b) {
+		byte type = b.get();
+		String titre = chaine(b), nom = chaine(b), prenom = chaine(b);
+		if (type == CREATION || type == LIEN) {
+			Livre l = Livre.getOrCreate(c, titre, nom, prenom, false);
+			if (type == LIEN && l != null)
+				l.ajouterMotCle(chaine(b));
+			return;
+		}
+		Livre l = Livre.getOrCreate(c, titre, nom, prenom, true);
+		if (l == null)
+			return; // déjà supprimé
+		if (type == SUPPRESSION)
+			l.supprimer();
+		else
+			l.retirerMotCle(chaine(b));
+	}
+
+	private static String chaine(ByteBuffer b) {
+		int n = b.getInt();
+		String s = new String(b.array(), b.arrayOffset() + b.position(), n, StandardCharsets.UTF_8);
+		b.position(b.position() + n);
+		return s;
+	}
+}
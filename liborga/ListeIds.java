@@ -0,0 +1,366 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Ensemble trié de numéros (voir {@link Table}), stocké dans des tableaux
+ * d'entiers plutôt que dans un ensemble d'objets.
+ * <p>
+ * 
+ * Les numéros plus grands que tous ceux de l'ensemble, cas de loin le plus
+ * fréquent puisque les numéros sont attribués dans l'ordre de création (hormis
+ * les numéros réattribués), sont ajoutés à la fin d'un tableau principal. Les autres sont rangés dans un
+ * petit tableau trié à part, refondu dans le tableau principal quand il
+ * grossit : un ajout coûte donc en moyenne un temps constant. De même, les
+ * numéros retirés sont notés dans un petit tableau trié, et ne sont enlevés
+ * des autres tableaux que quand il grossit.
+ * <p>
+ * 
+ * Les modifications sont faites sous verrou ; la lecture ne prend aucun verrou et
+ * travaille sur un état figé de l'ensemble ({@link #lire()}).
+ */
+final class ListeIds {
+
+	private static final int[] VIDE = new int[0];
+
+	/**
+	 * État de l'ensemble, jamais modifié une fois publié (le tableau principal
+	 * peut être complété au-delà de {@code nbBase}, ce qui reste invisible pour
+	 * cet état).
+	 */
+	private static final class Etat {
+
+		final int[] BASE;
+
+		final int NB_BASE;
+
+		final int[] AUTRES;
+
+		/**
+		 * Numéros de BASE ou AUTRES qui ne font plus partie de l'ensemble.
+		 */
+		final int[] RETIRES;
+
+		Etat(int[] base, int nbBase, int[] autres, int[] retires) {
+			this.BASE = base;
+			this.NB_BASE = nbBase;
+			this.AUTRES = autres;
+			this.RETIRES = retires;
+		}
+	}
+
+	private static final Etat ETAT_VIDE = new Etat(VIDE, 0, VIDE, VIDE);
+
+	private volatile Etat etat = ETAT_VIDE;
+
+	/**
+	 * Contenu figé d'un ensemble : les numéros {@code IDS[0..TAILLE[} en ordre
+	 * croissant.
+	 */
+	static final class Contenu {
+
+		static final Contenu VIDE = new Contenu(ListeIds.VIDE, 0);
+
+		final int[] IDS;
+
+		final int TAILLE;
+
+		Contenu(int[] ids, int taille) {
+			this.IDS = ids;
+			this.TAILLE = taille;
+		}
+
+		boolean contient(int id) {
+			return Arrays.binarySearch(IDS, 0, TAILLE, id) >= 0;
+		}
+	}
+
+	/**
+	 * @return nombre de numéros de l'ensemble.
+	 */
+	int taille() {
+		Etat e = etat;
+		return e.NB_BASE + e.AUTRES.length - e.RETIRES.length;
+	}
+
+	/**
+	 * @param id Numéro.
+	 * @return vrai si le numéro appartient à l'ensemble.
+	 */
+	boolean contient(int id) {
+		Etat e = etat;
+		return (Arrays.binarySearch(e.BASE, 0, e.NB_BASE, id) >= 0 || Arrays.binarySearch(e.AUTRES, id) >= 0)
+				&& Arrays.binarySearch(e.RETIRES, id) < 0;
+	}
+
+	/**
+	 * @return contenu actuel de l'ensemble.
+	 */
+	Contenu lire() {
+		Etat e = etat;
+		Contenu c = new Contenu(e.BASE, e.NB_BASE);
+		if (e.AUTRES.length > 0)
+			c = union(c, new Contenu(e.AUTRES, e.AUTRES.length));
+		if (e.RETIRES.length > 0)
+			c = difference(c, new Contenu(e.RETIRES, e.RETIRES.length));
+		return c;
+	}
+
+	/**
+	 * Ajoute un numéro à l'ensemble.
+	 * 
+	 * @param id Numéro à ajouter.
+	 * @return vrai si le numéro n'était pas déjà présent.
+	 */
+	synchronized boolean ajouter(int id) {
+		Etat e = etat;
+		int r = Arrays.binarySearch(e.RETIRES, id);
+		if (r >= 0) {
+			etat = new Etat(e.BASE, e.NB_BASE, e.AUTRES, sans(e.RETIRES, r)); // numéro retiré puis rajouté
+			return true;
+		}
+		int n = e.NB_BASE;
+		if (n == 0 || e.BASE[n - 1] < id) {
+			if (Arrays.binarySearch(e.AUTRES, id) >= 0)
+				return false;
+			int[] base = e.BASE;
+			if (n == base.length)
+				base = Arrays.copyOf(base, Math.max(4, n + (n >> 1)));
+			base[n] = id; // au-delà de la partie visible de l'état actuel
+			etat = new Etat(base, n + 1, e.AUTRES, e.RETIRES);
+			return true;
+		}
+		if (Arrays.binarySearch(e.BASE, 0, n, id) >= 0)
+			return false;
+		int p = Arrays.binarySearch(e.AUTRES, id);
+		if (p >= 0)
+			return false;
+		int[] autres = avec(e.AUTRES, -p - 1, id);
+		if (autres.length > Math.max(32, n >> 4)) {
+			Contenu c = union(new Contenu(e.BASE, n), new Contenu(autres, autres.length));
+			etat = new Etat(c.IDS, c.TAILLE, VIDE, e.RETIRES);
+		} else {
+			etat = new Etat(e.BASE, n, autres, e.RETIRES);
+		}
+		return true;
+	}
+
+	/**
+	 * Ajoute plusieurs numéros à l'ensemble, en une seule fusion.
+	 * 
+	 * @param ids Numéros à ajouter, triés et distincts.
+	 * @return nombre de numéros qui n'étaient pas déjà présents.
+	 */
+	synchronized int ajouter(Contenu ids) {
+		Contenu nouveaux = difference(ids, lire());
+		if (nouveaux.TAILLE == 0)
+			return 0;
+		Etat e = etat;
+		int n = e.NB_BASE;
+		if (n == 0 || e.BASE[n - 1] < nouveaux.IDS[0]) {
+			int[] base = e.BASE;
+			if (n + nouveaux.TAILLE > base.length)
+				base = Arrays.copyOf(base, Math.max(n + nouveaux.TAILLE, n + (n >> 1)));
+			System.arraycopy(nouveaux.IDS, 0, base, n, nouveaux.TAILLE); // au-delà de la partie visible
+			etat = new Etat(base, n + nouveaux.TAILLE, e.AUTRES, e.RETIRES);
+		} else {
+			Contenu c = union(lire(), nouveaux);
+			etat = new Etat(c.IDS, c.TAILLE, VIDE, VIDE);
+		}
+		return nouveaux.TAILLE;
+	}
+
+	/**
+	 * Retire un numéro de l'ensemble.
+	 * 
+	 * @param id Numéro à retirer.
+	 * @return vrai si le numéro était présent.
+	 */
+	synchronized boolean retirer(int id) {
+		Etat e = etat;
+		int r = Arrays.binarySearch(e.RETIRES, id);
+		if (r >= 0 || Arrays.binarySearch(e.BASE, 0, e.NB_BASE, id) < 0 && Arrays.binarySearch(e.AUTRES, id) < 0)
+			return false;
+		int[] retires = avec(e.RETIRES, -r - 1, id);
+		if (retires.length > Math.max(32, e.NB_BASE >> 4)) {
+			Contenu c = union(new Contenu(e.BASE, e.NB_BASE), new Contenu(e.AUTRES, e.AUTRES.length));
+			c = difference(c, new Contenu(retires, retires.length));
+			etat = new Etat(c.IDS, c.TAILLE, VIDE, VIDE);
+		} else {
+			etat = new Etat(e.BASE, e.NB_BASE, e.AUTRES, retires);
+		}
+		return true;
+	}
+
+	/**
+	 * @return copie du tableau trié t avec id inséré en position p.
+	 */
+	private static int[] avec(int[] t, int p, int id) {
+		int[] r = new int[t.length + 1];
+		System.arraycopy(t, 0, r, 0, p);
+		r[p] = id;
+		System.arraycopy(t, p, r, p + 1, t.length - p);
+		return r;
+	}
+
+	/**
+	 * @return copie du tableau t sans sa case p.
+	 */
+	private static int[] sans(int[] t, int p) {
+		int[] r = new int[t.length - 1];
+		System.arraycopy(t, 0, r, 0, p);
+		System.arraycopy(t, p + 1, r, p, r.length - p);
+		return r;
+	}
+
+	// Opérations ensemblistes ---------------------------------------------
+
+	/**
+	 * @param a Contenu trié.
+	 * @param b Contenu trié.
+	 * @return numéros présents dans a et dans b.
+	 */
+	static Contenu intersection(Contenu a, Contenu b) {
+		if (a.TAILLE > b.TAILLE) {
+			Contenu c = a;
+			a = b;
+			b = c;
+		}
+		int[] r = new int[a.TAILLE];
+		int n = 0;
+		if ((long) a.TAILLE * 16 < b.TAILLE) {
+			// listes très déséquilibrées : recherche dichotomique dans la plus grande
+			for (int i = 0, depuis = 0; i < a.TAILLE && depuis < b.TAILLE; i++) {
+				int p = Arrays.binarySearch(b.IDS, depuis, b.TAILLE, a.IDS[i]);
+				if (p >= 0) {
+					r[n++] = a.IDS[i];
+					depuis = p + 1;
+				} else {
+					depuis = -p - 1;
+				}
+			}
+		} else {
+			for (int i = 0, j = 0; i < a.TAILLE && j < b.TAILLE;) {
+				int x = a.IDS[i], y = b.IDS[j];
+				if (x < y)
+					i++;
+				else if (x > y)
+					j++;
+				else {
+					r[n++] = x;
+					i++;
+					j++;
+				}
+			}
+		}
+		return new Contenu(r, n);
+	}
+
+	/**
+	 * @param a Contenu trié.
+	 * @param b Contenu trié.
+	 * @return numéros présents dans a ou dans b.
+	 */
+	static Contenu union(Contenu a, Contenu b) {
+		if (a.TAILLE == 0)
+			return b;
+		if (b.TAILLE == 0)
+			return a;
+		int[] r = new int[a.TAILLE + b.TAILLE];
+		int i = 0, j = 0, n = 0;
+		while (i < a.TAILLE && j < b.TAILLE) {
+			int x = a.IDS[i], y = b.IDS[j];
+			if (x <= y) {
+				r[n++] = x;
+				i++;
+				if (x == y)
+					j++;
+			} else {
+				r[n++] = y;
+				j++;
+			}
+		}
+		while (i < a.TAILLE)
+			r[n++] = a.IDS[i++];
+		while (j < b.TAILLE)
+			r[n++] = b.IDS[j++];
+		return new Contenu(r, n);
+	}
+
+	/**
+	 * @param a Contenu trié.
+	 * @param b Contenu trié.
+	 * @return numéros présents dans a mais pas dans b.
+	 */
+	static Contenu difference(Contenu a, Contenu b) {
+		if (a.TAILLE == 0 || b.TAILLE == 0)
+			return a;
+		int[] r = new int[a.TAILLE];
+		int n = 0;
+		if ((long) a.TAILLE * 16 < b.TAILLE) {
+			for (int i = 0, depuis = 0; i < a.TAILLE; i++) {
+				int p = Arrays.binarySearch(b.IDS, depuis, b.TAILLE, a.IDS[i]);
+				if (p >= 0) {
+					depuis = p + 1;
+				} else {
+					r[n++] = a.IDS[i];
+					depuis = -p - 1;
+				}
+			}
+		} else {
+			for (int i = 0, j = 0; i < a.TAILLE; i++) {
+				int x = a.IDS[i];
+				while (j < b.TAILLE && b.IDS[j] < x)
+					j++;
+				if (j == b.TAILLE || b.IDS[j] != x)
+					r[n++] = x;
+			}
+		}
+		return new Contenu(r, n);
+	}
+
+	/**
+	 * @param listes Ensembles à réunir.
+	 * @return numéros présents dans au moins un des ensembles.
+	 */
+	static Contenu union(Iterable<ListeIds> listes) {
+		List<Contenu> contenus = new ArrayList<>();
+		for (ListeIds l : listes) {
+			Contenu c = l.lire();
+			if (c.TAILLE > 0)
+				contenus.add(c);
+		}
+		long[] cumuls = new long[contenus.size() + 1];
+		for (int i = 0; i < contenus.size(); i++)
+			cumuls[i + 1] = cumuls[i] + contenus.get(i).TAILLE;
+		return reunir(contenus, cumuls, 0, contenus.size(), Table.parallele());
+	}
+
+	/**
+	 * Réunit deux à deux des contenus consécutifs, de sorte que chaque numéro
+	 * n'est recopié qu'un nombre logarithmique de fois. Les deux moitiés d'une
+	 * réunion assez grande sont calculées en parallèle.
+	 * 
+	 * @param contenus  Contenus à réunir.
+	 * @param cumuls    Tailles cumulées des contenus.
+	 * @param debut     Premier contenu à réunir.
+	 * @param fin       Dernier contenu à réunir (exclu).
+	 * @param parallele Vrai si le pool commun a plusieurs threads.
+	 * @return réunion des contenus de debut à fin.
+	 */
+	private static Contenu reunir(List<Contenu> contenus, long[] cumuls, int debut, int fin, boolean parallele) {
+		if (fin - debut <= 1)
+			return debut == fin ? Contenu.VIDE : contenus.get(debut);
+		int milieu = (debut + fin) >>> 1;
+		if (parallele && cumuls[fin] - cumuls[debut] > Table.SEUIL_PARALLELE) {
+			ForkJoinTask<Contenu> gauche = ForkJoinTask
+					.adapt(() -> reunir(contenus, cumuls, debut, milieu, true)).fork();
+			Contenu droite = reunir(contenus, cumuls, milieu, fin, true);
+			return union(gauche.join(), droite);
+		}
+		return union(reunir(contenus, cumuls, debut, milieu, false), reunir(contenus, cumuls, milieu, fin, false));
+	}
+}
@@ -2,7 +2,17 @@ package liborga;
 
 import java.util.Set;
 import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
 /**
  * Représente un livre caractérisé par un titre, un auteur et une série
@@ -13,17 +23,74 @@ public class Livre {
 	// Attributs statiques -------------------------------------------------
 
 	/**
-	 * Ensemble de tous les livres existants.
+	 * Ordre de tri des livres : par titre puis par auteur, indépendamment de la
+	 * casse. Cet ordre est compatible avec equals.
 	 */
-	@SuppressWarnings("unused")
-	private static final Set<Livre> LIVRES = new HashSet<>();
+	public static final Comparator<Livre> ORDRE = Comparator.comparing(l -> l.CLE);
+
+	/**
+	 * Registre des livres d'un catalogue (voir {@link Catalogue}).
+	 */
+	static final class Registre {
+
+		/**
+		 * Ensemble de tous les livres existants, indexés par leur clé (titre replié
+		 * et clé de l'auteur, voir {@link Casse#replier(String)}).
+		 * <p>
+		 * 
+		 * La table est partagée sans verrou entre threads, par segments selon le
+		 * hachage de la clé : une création concurrente de la même clé produit une
+		 * seule instance (voir putIfAbsent).
+		 */
+		final Segments<Livre> PAR_CLE = new Segments<>();
+
+		/**
+		 * Tous les livres existants, triés selon {@link Livre#ORDRE} (puis par
+		 * numéro, pour qu'un livre supprimé et celui qui le remplace restent
+		 * distincts).
+		 */
+		final ConcurrentSkipListSet<Livre> TRIES = new ConcurrentSkipListSet<>(ORDRE.thenComparingInt(l -> l.ID));
+
+		/**
+		 * Tous les livres existants, rangés par numéro (voir {@link Livre#ID}).
+		 */
+		final Table<Livre> NUMEROS = new Table<>();
+
+		/**
+		 * Index des titres (en minuscules) de tous les livres existants.
+		 */
+		final IndexTrigrammes<Livre> INDEX_TITRES = new IndexTrigrammes<>(NUMEROS);
+
+		/**
+		 * Index des titres sans accents, pour ceux qui diffèrent de leur forme en
+		 * minuscules (voir {@link ModeRecherche#SANS_ACCENTS}).
+		 */
+		final IndexTrigrammes<Livre> INDEX_TITRES_SANS_ACCENTS = new IndexTrigrammes<>(NUMEROS, INDEX_TITRES);
+
+		/**
+		 * Retire un livre supprimé de {@link #PAR_CLE} s'il y est encore. Seule
+		 * cette instance est retirée, jamais un livre égal (au sens de equals)
+		 * rangé sous la même clé.
+		 * 
+		 * @param l Livre supprimé.
+		 */
+		void oublier(Livre l) {
+			PAR_CLE.computeIfPresent(l.CLE, (k, e) -> e == l ? null : e);
+		}
+	}
 
 	// Attributs d'instances -----------------------------------------------
 
 	/**
-	 * Titre du livre (public et non modifiable).
+	 * Titre du livre (non modifiable, voir {@link #getTitre()}), ou null s'il
+	 * est rangé hors du tas (voir {@link Textes}).
+	 */
+	private final String TITRE;
+
+	/**
+	 * Position du titre hors du tas, si TITRE est null.
 	 */
-	public final String TITRE;
+	private final long TITRE_SAISI_HORS_TAS;
 
 	/**
 	 * Référence de l'auteur (publique et non modifiable).
@@ -34,38 +101,205 @@ public class Livre {
 	public final Auteur AUTEUR;
 
 	/**
-	 * Ensemble éventuellement vide des mots clés du livre.
+	 * Numéros triés des mots clés du livre (tableau éventuellement vide).
 	 * <p>
 	 * 
-	 * L'ensemble ne peut pas être mis à jour à l'extérieur de la classe. Il est
+	 * Le tableau ne peut pas être mis à jour à l'extérieur de la classe. Il est
 	 * donc privé et un accesseur spécifique permet d'en récupérer une vue
-	 * constante.
+	 * constante. Il n'est jamais modifié sur place : un ajout le remplace par
+	 * une copie, ce qui permet de le lire sans verrou.
+	 */
+	private volatile int[] motsCles;
+
+	/**
+	 * Vrai une fois le livre supprimé (voir {@link #remove()}).
 	 */
-	private final Set<MotCle> MOTSCLES;
+	private volatile boolean supprime;
+
+	/**
+	 * Clé du livre, identique pour deux livres égaux au sens de equals.
+	 */
+	final String CLE;
+
+	/**
+	 * Numéro du livre, unique parmi les livres existants.
+	 */
+	final int ID;
+
+	/**
+	 * Titre en minuscules, calculé une fois pour toutes pour les recherches, ou
+	 * null s'il est rangé hors du tas (voir {@link Textes}).
+	 */
+	final String TITRE_MINUSCULES;
+
+	/**
+	 * Position du titre en minuscules hors du tas, si TITRE_MINUSCULES est null.
+	 */
+	final long TITRE_HORS_TAS;
+
+	/**
+	 * Titre sans accents (voir {@link Casse#sansAccents(String)}), ou null s'il
+	 * est rangé hors du tas. C'est la même chaîne que TITRE_MINUSCULES quand les
+	 * deux formes sont égales.
+	 */
+	final String TITRE_SANS_ACCENTS;
+
+	/**
+	 * Position du titre sans accents hors du tas, si TITRE_SANS_ACCENTS est null.
+	 */
+	final long TITRE_SANS_ACCENTS_HORS_TAS;
 
 	// Constructeur --------------------------------------------------------
 
+	private static final int[] AUCUN_MOT = new int[0];
+
 	/**
 	 * Constructeur unique et privé.
 	 * 
 	 * @param titre  Titre du livre.
 	 * @param auteur Auteur du livre.
+	 * @param cle    Clé du livre (voir {@link #cle(String, Auteur)}).
 	 */
-	private Livre(String titre, Auteur auteur) {
-		this.TITRE = titre;
+	private Livre(String titre, Auteur auteur, String cle) {
 		this.AUTEUR = auteur;
-		this.MOTSCLES = new HashSet<>();
+		this.motsCles = AUCUN_MOT;
+		this.CLE = cle;
+		this.ID = auteur.CATALOGUE.LIVRES.NUMEROS.numero();
+		String minuscules = titre.toLowerCase();
+		this.TITRE_HORS_TAS = Textes.ranger(minuscules);
+		this.TITRE_MINUSCULES = this.TITRE_HORS_TAS == Textes.DANS_LE_TAS ? minuscules : null;
+		this.TITRE_SAISI_HORS_TAS = titre.equals(minuscules) ? this.TITRE_HORS_TAS : Textes.ranger(titre);
+		this.TITRE = this.TITRE_SAISI_HORS_TAS == Textes.DANS_LE_TAS ? titre : null;
+		String sansAccents = Casse.sansAccents(titre);
+		if (sansAccents.equals(minuscules)) {
+			this.TITRE_SANS_ACCENTS = this.TITRE_MINUSCULES;
+			this.TITRE_SANS_ACCENTS_HORS_TAS = this.TITRE_HORS_TAS;
+		} else {
+			this.TITRE_SANS_ACCENTS_HORS_TAS = Textes.ranger(sansAccents);
+			this.TITRE_SANS_ACCENTS = this.TITRE_SANS_ACCENTS_HORS_TAS == Textes.DANS_LE_TAS ? sansAccents : null;
+		}
+	}
+
+	/**
+	 * Calcule la clé d'un livre à partir de son titre et de son auteur.
+	 * 
+	 * @param titre  Titre du livre.
+	 * @param auteur Auteur du livre.
+	 * @return clé commune à tous les livres égaux, indépendamment de la casse.
+	 */
+	static String cle(String titre, Auteur auteur) {
+		return Casse.replier(titre) + '\0' + auteur.CLE;
 	}
 
 	// Accesseurs et usines à objets ---------------------------------------
 
+	/**
+	 * @return titre du livre, tel que saisi à sa création.
+	 */
+	public String getTitre() {
+		return this.TITRE != null ? this.TITRE : Textes.lire(this.TITRE_SAISI_HORS_TAS);
+	}
+
 	/**
 	 * Rend les mots clés accessibles en lecture seule.
+	 * <p>
 	 * 
-	 * @return vue non-modifiable de l'attribut MOTSCLES.
+	 * Un mot clé supprimé pendant un étiquetage en cours peut encore figurer un
+	 * instant parmi les numéros du livre : il est sauté, et n'est pas compté.
+	 * 
+	 * @return vue non-modifiable des mots clés du livre.
 	 */
 	public Set<MotCle> getMotsCles() {
-		return Collections.unmodifiableSet(this.MOTSCLES);
+		Table<MotCle> numeros = AUTEUR.CATALOGUE.MOTS_CLES.NUMEROS;
+		return new AbstractSet<MotCle>() {
+			@Override
+			public Iterator<MotCle> iterator() {
+				int[] ids = motsCles;
+				return new Iterator<MotCle>() {
+					private int i;
+
+					private MotCle suivant;
+
+					@Override
+					public boolean hasNext() {
+						while (suivant == null && i < ids.length)
+							suivant = numeros.get(ids[i++]);
+						return suivant != null;
+					}
+
+					@Override
+					public MotCle next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						MotCle m = suivant;
+						suivant = null;
+						return m;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				int n = 0;
+				for (int id : motsCles)
+					if (numeros.get(id) != null)
+						n++;
+				return n;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof MotCle))
+					return false;
+				int id = ((MotCle) o).ID;
+				return Arrays.binarySearch(motsCles, id) >= 0 && numeros.get(id) == o;
+			}
+		};
+	}
+
+	/**
+	 * @param mots Numéros triés de mots clés.
+	 * @return vrai si au moins un des mots clés du livre en fait partie.
+	 */
+	boolean aUnMotCleParmi(ListeIds.Contenu mots) {
+		for (int id : this.motsCles)
+			if (mots.contient(id))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return titre en minuscules, où qu'il soit rangé.
+	 */
+	String titreMinuscules() {
+		return this.TITRE_MINUSCULES != null ? this.TITRE_MINUSCULES : Textes.lire(this.TITRE_HORS_TAS);
+	}
+
+	/**
+	 * @return titre sans accents, où qu'il soit rangé.
+	 */
+	String titreSansAccents() {
+		return this.TITRE_SANS_ACCENTS != null ? this.TITRE_SANS_ACCENTS
+				: Textes.lire(this.TITRE_SANS_ACCENTS_HORS_TAS);
+	}
+
+	/**
+	 * @return vrai si le titre sans accents diffère du titre en minuscules.
+	 */
+	private boolean aDesAccents() {
+		return this.TITRE_SANS_ACCENTS != this.TITRE_MINUSCULES
+				|| this.TITRE_SANS_ACCENTS_HORS_TAS != this.TITRE_HORS_TAS;
+	}
+
+	/**
+	 * @param motif Motif normalisé.
+	 * @return vrai si la forme du titre correspondant au mode du motif contient
+	 *         le motif.
+	 */
+	boolean titreContient(Textes.Motif motif) {
+		if (motif.MODE == ModeRecherche.SANS_ACCENTS)
+			return motif.trouveDans(this.TITRE_SANS_ACCENTS, this.TITRE_SANS_ACCENTS_HORS_TAS);
+		return motif.trouveDans(this.TITRE_MINUSCULES, this.TITRE_HORS_TAS);
 	}
 
 	/**
@@ -73,14 +307,273 @@ public class Livre {
 	 * 
 	 * @param mot Mot clé à rajouter.
 	 * @return true si le mot correspond à un mot clé qui n'était pas déjà associé
-	 *         au livre avant (false sinon).
+	 *         au livre avant (false sinon, en particulier si le livre a été
+	 *         supprimé).
 	 */
 	public boolean addMotCle(String mot) {
-		MotCle m = MotCle.getOrCreate(mot);
-		if (m == null)
-			return false; // le mot n'est pas valide
-		// Résultat :
-		return this.MOTSCLES.add(m); // le résultat de add indique si le mot est nouveau
+		long debut = Mesures.debut();
+		boolean ajoute = ajouterMotCle(mot);
+		Mesures.fin(Mesures.Operation.ADD_MOT_CLE, debut, -1);
+		return ajoute;
+	}
+
+	/**
+	 * Variante de {@link #addMotCle(String)} pour les ajouts internes (journal),
+	 * qui ne sont pas comptés dans les {@link Mesures}.
+	 */
+	boolean ajouterMotCle(String mot) {
+		MotCle m = this.supprime ? null : MotCle.getOrCreate(AUTEUR.CATALOGUE, mot, false);
+		return m != null && addMotCle(m); // faux si le mot n'est pas valide
+	}
+
+	/**
+	 * Rajoute au livre un mot clé déjà résolu.
+	 * 
+	 * @param m Mot clé à rajouter (non null).
+	 * @return true si le mot clé n'était pas déjà associé au livre avant (false
+	 *         sinon).
+	 */
+	boolean addMotCle(MotCle m) {
+		while (true) {
+			synchronized (m) { // le mot clé ne peut pas être supprimé pendant l'ajout
+				if (!m.estSupprime()) {
+					synchronized (this) {
+						if (this.supprime)
+							return false;
+						int[] ids = this.motsCles;
+						int p = Arrays.binarySearch(ids, m.ID);
+						if (p >= 0)
+							return false; // le mot était déjà associé au livre
+						p = -p - 1;
+						int[] nouveaux = new int[ids.length + 1];
+						System.arraycopy(ids, 0, nouveaux, 0, p);
+						nouveaux[p] = m.ID;
+						System.arraycopy(ids, p, nouveaux, p + 1, ids.length - p);
+						this.motsCles = nouveaux;
+					}
+					m.LIVRES.ajouter(this.ID);
+					// sous le verrou du mot : prévenu avant un retrait qui suivrait
+					AUTEUR.CATALOGUE.OBSERVATEURS.motCleAjoute(this, m);
+					return true;
+				}
+			}
+			m = m.remplacant(); // le mot clé a perdu son dernier livre entre-temps
+		}
+	}
+
+	/**
+	 * Retire un mot clé du livre si possible.
+	 * <p>
+	 * 
+	 * Un mot clé qui n'est plus associé à aucun livre est supprimé.
+	 * 
+	 * @param mot Mot clé à retirer.
+	 * @return true si le mot correspond à un mot clé qui était associé au livre
+	 *         (false sinon).
+	 */
+	public boolean removeMotCle(String mot) {
+		long debut = Mesures.debut();
+		boolean retire = retirerMotCle(mot);
+		Mesures.fin(Mesures.Operation.REMOVE_MOT_CLE, debut, -1);
+		return retire;
+	}
+
+	/**
+	 * Variante de {@link #removeMotCle(String)} pour les retraits internes
+	 * (journal), qui ne sont pas comptés dans les {@link Mesures}.
+	 */
+	boolean retirerMotCle(String mot) {
+		MotCle m = MotCle.getOrCreate(AUTEUR.CATALOGUE, mot, true);
+		return m != null && removeMotCle(m);
+	}
+
+	/**
+	 * Retire du livre un mot clé déjà résolu.
+	 * 
+	 * @param m Mot clé à retirer (non null).
+	 * @return true si le mot clé était associé au livre (false sinon).
+	 */
+	boolean removeMotCle(MotCle m) {
+		boolean orphelin;
+		synchronized (m) {
+			synchronized (this) {
+				if (this.supprime)
+					return false;
+				int[] ids = this.motsCles;
+				int p = Arrays.binarySearch(ids, m.ID);
+				if (p < 0)
+					return false;
+				this.motsCles = sans(ids, p);
+			}
+			orphelin = m.detacher(this.ID);
+			// sous le verrou du mot : prévenu avant un ajout qui suivrait
+			AUTEUR.CATALOGUE.OBSERVATEURS.motCleRetire(this, m);
+		}
+		if (orphelin)
+			m.liberer();
+		return true;
+	}
+
+	/**
+	 * Supprime le livre du catalogue. Son auteur et ses mots clés sont supprimés
+	 * s'ils n'ont plus d'autre livre.
+	 * <p>
+	 * 
+	 * Le coût de la suppression ne dépend que du nombre de mots clés du livre.
+	 * Une fois supprimé, le livre n'a plus de mot clé et ne peut plus en
+	 * recevoir ; un nouveau livre de même titre et de même auteur peut être
+	 * créé.
+	 * 
+	 * @return true si le livre n'était pas déjà supprimé.
+	 */
+	public boolean remove() {
+		long debut = Mesures.debut();
+		boolean r = supprimer();
+		Mesures.fin(Mesures.Operation.LIVRE_REMOVE, debut, -1);
+		return r;
+	}
+
+	/**
+	 * @return vrai si le livre a été supprimé.
+	 */
+	public boolean estSupprime() {
+		return this.supprime;
+	}
+
+	/**
+	 * Variante de {@link #remove()} pour les suppressions internes (journal),
+	 * qui ne sont pas comptées dans les {@link Mesures}.
+	 */
+	boolean supprimer() {
+		int[] ids;
+		synchronized (this) { // attend la fin de la création du livre
+			if (this.supprime)
+				return false;
+			this.supprime = true;
+			ids = this.motsCles;
+			this.motsCles = AUCUN_MOT;
+		}
+		Catalogue c = this.AUTEUR.CATALOGUE;
+		Registre r = c.LIVRES;
+		r.TRIES.remove(this);
+		r.INDEX_TITRES.retirer(titreMinuscules(), this.ID);
+		if (aDesAccents())
+			r.INDEX_TITRES_SANS_ACCENTS.retirer(titreSansAccents(), this.ID);
+		r.NUMEROS.ranger(this.ID, null);
+		boolean auteurOrphelin = this.AUTEUR.detacher(this.ID);
+		List<MotCle> mots = new ArrayList<>(ids.length), orphelins = new ArrayList<>(0);
+		for (int id : ids) {
+			MotCle m = c.MOTS_CLES.NUMEROS.get(id); // null si supprimé pendant un étiquetage en cours
+			if (m == null)
+				continue;
+			mots.add(m);
+			if (m.detacher(this.ID))
+				orphelins.add(m);
+		}
+		Livre englobant = EN_SUPPRESSION.get();
+		EN_SUPPRESSION.set(this);
+		try {
+			c.OBSERVATEURS.livreSupprime(this, Collections.unmodifiableList(mots));
+		} finally {
+			EN_SUPPRESSION.set(englobant);
+			// en dernier : un livre de même clé ne peut être recréé qu'après l'événement
+			r.oublier(this);
+			synchronized (this) {
+				notifyAll(); // réveille les créations en attente (voir attendreOubli)
+			}
+		}
+		r.NUMEROS.liberer(this.ID); // plus aucun index ne le contient
+		if (auteurOrphelin)
+			this.AUTEUR.liberer();
+		for (MotCle m : orphelins)
+			m.liberer();
+		return true;
+	}
+
+	/**
+	 * Livre dont le thread courant signale la suppression aux observateurs.
+	 */
+	private static final ThreadLocal<Livre> EN_SUPPRESSION = new ThreadLocal<>();
+
+	/**
+	 * Attend que ce livre supprimé soit retiré du registre, pour qu'un livre de
+	 * même clé puisse être créé.
+	 * 
+	 * @throws IllegalStateException si le thread courant est en train de signaler
+	 *                               la suppression de ce livre (il attendrait
+	 *                               indéfiniment).
+	 */
+	private void attendreOubli() {
+		if (EN_SUPPRESSION.get() == this)
+			throw new IllegalStateException("Livre en cours de suppression : " + this.CLE);
+		Registre r = this.AUTEUR.CATALOGUE.LIVRES;
+		boolean interrompu = false;
+		synchronized (this) {
+			while (r.PAR_CLE.get(this.CLE) == this) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrompu = true;
+				}
+			}
+		}
+		if (interrompu)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * @param id Numéro d'un mot clé.
+	 * @return vrai si ce mot clé est associé au livre, qui n'est pas supprimé.
+	 */
+	boolean aLeMotCle(int id) {
+		synchronized (this) {
+			return !this.supprime && Arrays.binarySearch(this.motsCles, id) >= 0;
+		}
+	}
+
+	/**
+	 * Retire un numéro de mot clé du livre, sans autre mise à jour (voir
+	 * {@link Etiquetage}).
+	 * 
+	 * @param id Numéro d'un mot clé supprimé.
+	 */
+	void oublierMotCle(int id) {
+		synchronized (this) {
+			int p = Arrays.binarySearch(this.motsCles, id);
+			if (p >= 0)
+				this.motsCles = sans(this.motsCles, p);
+		}
+	}
+
+	private static int[] sans(int[] ids, int p) {
+		if (ids.length == 1)
+			return AUCUN_MOT;
+		int[] r = new int[ids.length - 1];
+		System.arraycopy(ids, 0, r, 0, p);
+		System.arraycopy(ids, p + 1, r, p, r.length - p);
+		return r;
+	}
+
+	/**
+	 * Associe plusieurs mots clés au livre en une seule recopie de ses mots clés.
+	 * Les mots clés ne sont pas mis à jour et les observateurs ne sont pas
+	 * prévenus (voir {@link Etiquetage}).
+	 * 
+	 * @param ids Numéros de mots clés existants, triés et distincts.
+	 * @return numéros de ceux qui n'étaient pas déjà associés au livre.
+	 */
+	ListeIds.Contenu addMotsCles(ListeIds.Contenu ids) {
+		synchronized (this) {
+			if (this.supprime)
+				return ListeIds.Contenu.VIDE;
+			ListeIds.Contenu actuels = new ListeIds.Contenu(this.motsCles, this.motsCles.length);
+			ListeIds.Contenu nouveaux = ListeIds.difference(ids, actuels);
+			if (nouveaux.TAILLE > 0) {
+				ListeIds.Contenu tous = ListeIds.union(actuels, nouveaux);
+				this.motsCles = Arrays.copyOf(tous.IDS, tous.TAILLE);
+			}
+			return nouveaux;
+		}
 	}
 
 	/**
@@ -103,6 +596,7 @@ public class Livre {
 	 * résultat</li>
 	 * </ul>
 	 * 
+	 * @param c            Catalogue du livre
 	 * @param titre        Titre du livre à créer ou à récupérer
 	 * @param nomAuteur    Nom de l'auteur du livre à créer ou à récupérer
 	 * @param prenomAuteur Prénom de l'auteur du livre à créer ou à récupérer
@@ -111,20 +605,67 @@ public class Livre {
 	 * @return selon les cas : null, ou une instance existante, ou une nouvelle
 	 *         instance
 	 */
-	private static Livre getOrCreate(String titre, String nomAuteur, String prenomAuteur, boolean getOnly) {
+	static Livre getOrCreate(Catalogue c, String titre, String nomAuteur, String prenomAuteur, boolean getOnly) {
 		if (titre == null || titre.contentEquals(""))
 			return null; 
-		Auteur a = Auteur.getOrCreate(nomAuteur, prenomAuteur);
+		Auteur a = Auteur.getOrCreate(c, nomAuteur, prenomAuteur, getOnly);
 		if(a == null)
 			return null;
-		Livre nouvLivre = new Livre(titre, a); 
-		for (Livre l : LIVRES)
-			if (l.equals(nouvLivre))
+		return getOrCreate(titre, a, getOnly);
+	}
+
+	/**
+	 * Variante de {@link #getOrCreate(Catalogue, String, String, String, boolean)}
+	 * pour un auteur déjà résolu, dans le catalogue de l'auteur.
+	 * 
+	 * @param titre   Titre du livre à créer ou à récupérer (non vide)
+	 * @param a       Auteur du livre (non null)
+	 * @param getOnly indique si on ne veut que récupérer une instance existante
+	 * @return selon les cas : null, ou une instance existante, ou une nouvelle
+	 *         instance
+	 */
+	static Livre getOrCreate(String titre, Auteur a, boolean getOnly) {
+		String cle = cle(titre, a);
+		Registre r = a.CATALOGUE.LIVRES;
+		while (true) {
+			Livre l = r.PAR_CLE.get(cle);
+			if (l != null && l.supprime) {
+				if (getOnly)
+					return null;
+				l.attendreOubli(); // en cours de suppression : il sera bientôt retiré du registre
+				continue;
+			}
+			if (l != null || getOnly)
 				return l;
-		if (getOnly)
-			return null; 
-		LIVRES.add(nouvLivre); 
-		return nouvLivre;
+			Livre nouvLivre = new Livre(titre, a, cle);
+			boolean auteurSupprime;
+			synchronized (nouvLivre) { // le livre ne peut pas être supprimé avant d'être rangé partout
+				synchronized (a) { // l'auteur ne peut pas être supprimé pendant le rattachement
+					auteurSupprime = a.estSupprime();
+					if (!auteurSupprime) {
+						l = r.PAR_CLE.putIfAbsent(cle, nouvLivre);
+						if (l == null) {
+							r.NUMEROS.ranger(nouvLivre.ID, nouvLivre);
+							a.LIVRES.ajouter(nouvLivre.ID);
+						}
+					}
+				}
+				if (!auteurSupprime && l == null) {
+					r.TRIES.add(nouvLivre);
+					r.INDEX_TITRES.ajouter(nouvLivre.titreMinuscules(), nouvLivre.ID);
+					if (nouvLivre.aDesAccents())
+						r.INDEX_TITRES_SANS_ACCENTS.ajouter(nouvLivre.titreSansAccents(), nouvLivre.ID);
+					a.CATALOGUE.OBSERVATEURS.livreCree(nouvLivre); // prévenu avant toute suppression du livre
+					return nouvLivre;
+				}
+			}
+			r.NUMEROS.liberer(nouvLivre.ID); // jamais rangé
+			if (auteurSupprime) {
+				a = a.remplacant(); // l'auteur a perdu son dernier livre entre-temps
+			} else if (!l.supprime) {
+				return l; // créé entre-temps par un autre thread
+			}
+		}
 	}
 
 	/**
@@ -149,7 +690,7 @@ public class Livre {
 	 *         instance
 	 */
 	public static Livre getOrCreate(String titre, String nomAuteur, String prenomAuteur) {
-		return getOrCreate(titre, nomAuteur, prenomAuteur, false);
+		return Catalogue.defaut().getOrCreateLivre(titre, nomAuteur, prenomAuteur);
 	}
 
 	/**
@@ -172,7 +713,67 @@ public class Livre {
 	 * @return selon les cas : null, ou une instance existante
 	 */
 	public static Livre get(String titre, String nomAuteur, String prenomAuteur) {
-		return getOrCreate(titre, nomAuteur, prenomAuteur, true);
+		return Catalogue.defaut().getLivre(titre, nomAuteur, prenomAuteur);
+	}
+
+	/**
+	 * Renvoie tous les livres existants du catalogue par défaut.
+	 * 
+	 * @return vue (non modifiable) du registre des livres.
+	 */
+	static Collection<Livre> tous() {
+		return tous(Catalogue.defaut());
+	}
+
+	/**
+	 * Renvoie tous les livres existants d'un catalogue.
+	 * 
+	 * @param c Catalogue.
+	 * @return vue (non modifiable) du registre des livres.
+	 */
+	static Collection<Livre> tous(Catalogue c) {
+		return Collections.unmodifiableCollection(c.LIVRES.PAR_CLE.values());
+	}
+
+	/**
+	 * @return nombre de livres existants du catalogue par défaut.
+	 */
+	static int nombre() {
+		return Catalogue.defaut().nombreLivres();
+	}
+
+	/**
+	 * @param c      Catalogue du livre.
+	 * @param numero Numéro d'un livre.
+	 * @return le livre portant ce numéro, ou null s'il n'existe pas.
+	 */
+	static Livre parNumero(Catalogue c, int numero) {
+		return c.LIVRES.NUMEROS.get(numero);
+	}
+
+	/**
+	 * @param c       Catalogue des livres.
+	 * @param numeros Numéros de livres existants.
+	 * @return vue (non modifiable) des livres correspondants.
+	 */
+	static Collection<Livre> parNumeros(Catalogue c, ListeIds.Contenu numeros) {
+		return c.LIVRES.NUMEROS.elements(numeros);
+	}
+
+	/**
+	 * Renvoie les livres d'un catalogue dont le titre peut contenir un motif,
+	 * d'après l'index des titres.
+	 * 
+	 * @param c     Catalogue des livres.
+	 * @param motif Motif normalisé.
+	 * @return candidats à vérifier, ou null si tous les livres sont candidats.
+	 */
+	static Collection<Livre> candidatsTitre(Catalogue c, Textes.Motif motif) {
+		return indexTitres(c, motif).candidats(motif.TEXTE);
+	}
+
+	private static IndexTrigrammes<Livre> indexTitres(Catalogue c, Textes.Motif motif) {
+		return motif.MODE == ModeRecherche.SANS_ACCENTS ? c.LIVRES.INDEX_TITRES_SANS_ACCENTS : c.LIVRES.INDEX_TITRES;
 	}
 
 	// toString et equals --------------------------------------------------
@@ -180,7 +781,8 @@ public class Livre {
 	@Override
 	public String toString() {
 		// TODO à compléter...
-		String nomLivre = "\"" + String.valueOf(this.TITRE.charAt(0)).toUpperCase() + this.TITRE.substring(1).toLowerCase() + "\" (" + this.AUTEUR + ")";
+		String titre = getTitre();
+		String nomLivre = "\"" + String.valueOf(titre.charAt(0)).toUpperCase() + titre.substring(1).toLowerCase() + "\" (" + this.AUTEUR + ")";
 		return nomLivre; // <- TODO résultat à adapter
 	}
 
@@ -194,10 +796,14 @@ public class Livre {
 		if (!(obj instanceof Livre))
 			return false;
 		Livre subject = (Livre) obj;
-		boolean result = (this.TITRE.equalsIgnoreCase(subject.TITRE) && this.AUTEUR.equals(subject.AUTEUR));
+		boolean result = this.AUTEUR.CATALOGUE == subject.AUTEUR.CATALOGUE && this.CLE.equals(subject.CLE);
 		return result; // <- TODO résultat à adapter
 	}
 
+	@Override
+	public int hashCode() {
+		return this.CLE.hashCode();
+	}
 
 	// Requêtes ------------------------------------------------------------
 
@@ -209,29 +815,56 @@ public class Livre {
 	 *         indépendamment de la casse
 	 */
 	public static Set<Livre> select(String titrePartielOuComplet) {
-		// TODO à compléter...
-		String sub = titrePartielOuComplet.toLowerCase();
-		Set<Livre> livreSet = new HashSet<>();
+		return select(titrePartielOuComplet, ModeRecherche.STRICT);
+	}
 
-		for(Livre l : LIVRES){
-			if(l.TITRE.toLowerCase().contains(sub)){
-				livreSet.add(l);
-			}
-		}
-		return livreSet;
+	/**
+	 * Sélection de livres à partir d'un titre, selon un mode de recherche.
+	 * 
+	 * @param titrePartielOuComplet titre ou partie du titre à rechercher
+	 * @param mode                  mode de recherche
+	 * @return ensemble des livres dont le titre correspond au paramètre fourni
+	 *         dans ce mode
+	 */
+	public static Set<Livre> select(String titrePartielOuComplet, ModeRecherche mode) {
+		return Catalogue.defaut().selectLivres(titrePartielOuComplet, mode);
+	}
+
+	static Set<Livre> selectSansCache(Catalogue c, String titrePartielOuComplet, ModeRecherche mode) {
+		Textes.Motif motif = new Textes.Motif(titrePartielOuComplet, mode);
+		ListeIds.Contenu retenus = c.LIVRES.NUMEROS.filtrer(indexTitres(c, motif).numerosCandidats(motif.TEXTE),
+				l -> l.titreContient(motif));
+		return new HashSet<>(parNumeros(c, retenus));
 	}
 
 	public static Set<Livre> selectParAuteur(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet) {
-		// TODO à compléter...
-		Set<Livre> livresSet = new HashSet<>();
-		Set<Auteur> auteurs = Auteur.select(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet);
+		return selectParAuteur(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, ModeRecherche.STRICT);
+	}
 
-		for(Livre l : LIVRES){
-			if(auteurs.contains(l.AUTEUR)){
-				livresSet.add(l);
-			}
+	/**
+	 * Sélection de livres à partir d'un nom et d'un prénom d'auteur, selon un
+	 * mode de recherche.
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom à
+	 *                                      rechercher
+	 * @param mode                          mode de recherche
+	 * @return ensemble des livres dont l'auteur correspond aux paramètres
+	 *         fournis dans ce mode
+	 */
+	public static Set<Livre> selectParAuteur(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			ModeRecherche mode) {
+		return Catalogue.defaut().selectLivresParAuteur(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet,
+				mode);
+	}
+
+	static Set<Livre> selectParAuteurSansCache(Catalogue c, String nomDAuteurPartielOuComplet,
+			String prenomDAuteurPartielOuComplet, ModeRecherche mode) {
+		List<ListeIds> listes = new ArrayList<>();
+		for(Auteur a : c.selectAuteursSansMesure(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, mode)){
+			listes.add(a.LIVRES);
 		}
-		return livresSet;
+		return new HashSet<>(parNumeros(c, ListeIds.union(listes)));
 	}
 
 
@@ -243,14 +876,118 @@ public class Livre {
 	 *         fourni, indépendamment de la casse
 	 */
 	public static Set<Livre> selectParMotCle(String motClePartielOuComplet) {
-		// TODO à compléter...
-		Set<Livre> livresSet = new HashSet<>();
-		Set<MotCle> motsSet = MotCle.select(motClePartielOuComplet);
+		return selectParMotCle(motClePartielOuComplet, ModeRecherche.STRICT);
+	}
+
+	/**
+	 * Sélection de livres à partir d'un mot clé, selon un mode de recherche.
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param mode                   mode de recherche
+	 * @return ensemble des livres dont au moins un mot clé correspond au
+	 *         paramètre fourni dans ce mode
+	 */
+	public static Set<Livre> selectParMotCle(String motClePartielOuComplet, ModeRecherche mode) {
+		return Catalogue.defaut().selectLivresParMotCle(motClePartielOuComplet, mode);
+	}
 
-		for(Livre l : LIVRES){
-			if(!Collections.disjoint(l.MOTSCLES, motsSet))
-				livresSet.add(l);
+	static Set<Livre> selectParMotCleSansCache(Catalogue c, String motClePartielOuComplet, ModeRecherche mode) {
+		List<ListeIds> listes = new ArrayList<>();
+		for(MotCle m : c.selectMotsClesSansMesure(motClePartielOuComplet, mode)){
+			listes.add(m.LIVRES);
 		}
-		return livresSet; // <- TODO résultat à adapter
+		return new HashSet<>(parNumeros(c, ListeIds.union(listes)));
+	}
+
+	// Requêtes paresseuses -------------------------------------------------
+
+	/**
+	 * Parcours trié des livres à partir d'un titre.
+	 * <p>
+	 * 
+	 * Les résultats sont ceux de {@link #select(String)}, triés selon
+	 * {@link #ORDRE} et produits au fur et à mesure : on peut en limiter le
+	 * nombre (par exemple avec skip et limit) sans que les suivants soient
+	 * calculés.
+	 * 
+	 * @param titrePartielOuComplet titre ou partie du titre à rechercher
+	 * @param apres                 dernier livre de la page précédente, ou null
+	 *                              pour commencer au début
+	 * @return flot trié des livres dont le titre correspond au paramètre fourni
+	 *         et qui suivent le curseur
+	 */
+	public static Stream<Livre> parcourir(String titrePartielOuComplet, Livre apres) {
+		return parcourir(Catalogue.defaut(), titrePartielOuComplet, apres);
+	}
+
+	static Stream<Livre> parcourir(Catalogue c, String titrePartielOuComplet, Livre apres) {
+		Textes.Motif motif = new Textes.Motif(titrePartielOuComplet, ModeRecherche.STRICT);
+		return Parcours.trier(indexTitres(c, motif).candidats(motif.TEXTE), c.LIVRES.TRIES, apres,
+				l -> l.titreContient(motif));
+	}
+
+	/**
+	 * Parcours trié des livres à partir d'un nom et d'un prénom d'auteur (voir
+	 * {@link #parcourir(String, Livre)}).
+	 * 
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom à
+	 *                                      rechercher
+	 * @param apres                         dernier livre de la page précédente,
+	 *                                      ou null pour commencer au début
+	 * @return flot trié des livres dont l'auteur correspond aux paramètres
+	 *         fournis et qui suivent le curseur
+	 */
+	public static Stream<Livre> parcourirParAuteur(String nomDAuteurPartielOuComplet,
+			String prenomDAuteurPartielOuComplet, Livre apres) {
+		return parcourirParAuteur(Catalogue.defaut(), nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet,
+				apres);
+	}
+
+	static Stream<Livre> parcourirParAuteur(Catalogue c, String nomDAuteurPartielOuComplet,
+			String prenomDAuteurPartielOuComplet, Livre apres) {
+		Set<Auteur> auteurs = c.selectAuteursSansMesure(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet,
+				ModeRecherche.STRICT);
+		List<ListeIds> listes = new ArrayList<>(auteurs.size());
+		for (Auteur a : auteurs)
+			listes.add(a.LIVRES);
+		return Parcours.trier(candidats(c, listes), c.LIVRES.TRIES, apres, l -> auteurs.contains(l.AUTEUR));
+	}
+
+	/**
+	 * Parcours trié des livres à partir d'un mot clé (voir
+	 * {@link #parcourir(String, Livre)}).
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param apres                  dernier livre de la page précédente, ou null
+	 *                               pour commencer au début
+	 * @return flot trié des livres dont au moins un mot clé correspond au
+	 *         paramètre fourni et qui suivent le curseur
+	 */
+	public static Stream<Livre> parcourirParMotCle(String motClePartielOuComplet, Livre apres) {
+		return parcourirParMotCle(Catalogue.defaut(), motClePartielOuComplet, apres);
+	}
+
+	static Stream<Livre> parcourirParMotCle(Catalogue c, String motClePartielOuComplet, Livre apres) {
+		Set<MotCle> mots = c.selectMotsClesSansMesure(motClePartielOuComplet, ModeRecherche.STRICT);
+		List<ListeIds> listes = new ArrayList<>(mots.size());
+		for (MotCle m : mots)
+			listes.add(m.LIVRES);
+		ListeIds.Contenu numeros = MotCle.numeros(mots);
+		return Parcours.trier(candidats(c, listes), c.LIVRES.TRIES, apres, l -> l.aUnMotCleParmi(numeros));
+	}
+
+	/**
+	 * Réunit des listes de livres si elles sont assez petites pour être triées.
+	 * 
+	 * @param c      Catalogue des livres.
+	 * @param listes Listes de livres.
+	 * @return réunion des listes, ou null si elle dépasse
+	 *         {@link Parcours#SEUIL_TRI}.
+	 */
+	private static Collection<Livre> candidats(Catalogue c, List<ListeIds> listes) {
+		if (Parcours.taille(listes) > Parcours.SEUIL_TRI)
+			return null;
+		return parNumeros(c, ListeIds.union(listes));
 	}
 }
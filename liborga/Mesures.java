@@ -0,0 +1,408 @@
+package liborga;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Mesures des opérations du catalogue : nombre d'appels, distribution des
+ * durées et du nombre de résultats, et taille des registres.
+ * <p>
+ * 
+ * Les mesures sont désactivées par défaut ; une opération ne fait alors que
+ * lire un booléen. Activées, elles n'ajoutent à chaque appel que deux lectures
+ * de l'horloge et quelques incréments de compteurs répartis ({@link LongAdder}),
+ * sans verrou. Les durées et les nombres de résultats sont rangés dans des
+ * histogrammes à échelle logarithmique dont la précision relative est de
+ * 1/{@value #SOUS_CLASSES}.
+ * <p>
+ * 
+ * Seuls les appels publics sont comptés : les opérations faites en interne
+ * (l'auteur d'un nouveau livre, les mots clés d'un import ou d'un journal
+ * rejoué, les auteurs d'une sélection par auteur...) ne le sont pas.
+ * <p>
+ * 
+ * Les mesures se consultent par {@link #instantane()} ou par JMX, sous le nom
+ * {@value #NOM_JMX} (voir {@link #publierJmx()}).
+ */
+public final class Mesures {
+
+	/**
+	 * Opération mesurée.
+	 */
+	public enum Operation {
+		LIVRE_GET_OR_CREATE, LIVRE_GET, AUTEUR_GET_OR_CREATE, AUTEUR_GET, MOT_CLE_GET_OR_CREATE, MOT_CLE_GET,
+		ADD_MOT_CLE, LIVRE_SELECT, LIVRE_SELECT_PAR_AUTEUR, LIVRE_SELECT_PAR_MOT_CLE, AUTEUR_SELECT, MOT_CLE_SELECT,
+		ETIQUETAGE, LIVRE_REMOVE, REMOVE_MOT_CLE
+	}
+
+	/**
+	 * Nom sous lequel les mesures sont publiées par JMX.
+	 */
+	public static final String NOM_JMX = "liborga:type=Mesures";
+
+	/**
+	 * Nombre de classes d'un histogramme entre deux puissances de deux.
+	 */
+	private static final int SOUS_CLASSES = 8;
+
+	private static final int BITS_SOUS_CLASSES = 3;
+
+	private static volatile boolean actif;
+
+	private static final Map<Operation, Compteurs> COMPTEURS = new EnumMap<>(Operation.class);
+
+	static {
+		for (Operation o : Operation.values())
+			COMPTEURS.put(o, new Compteurs());
+	}
+
+	private Mesures() {
+	}
+
+	// Configuration -------------------------------------------------------
+
+	/**
+	 * Active ou désactive les mesures (les compteurs sont conservés).
+	 * 
+	 * @param mesurer vrai pour mesurer les opérations suivantes.
+	 */
+	public static void activer(boolean mesurer) {
+		actif = mesurer;
+	}
+
+	/**
+	 * @return vrai si les mesures sont activées.
+	 */
+	public static boolean estActif() {
+		return actif;
+	}
+
+	/**
+	 * Remet tous les compteurs à zéro.
+	 */
+	public static void reinitialiser() {
+		for (Compteurs c : COMPTEURS.values())
+			c.reinitialiser();
+	}
+
+	/**
+	 * Publie les mesures par JMX, dans le serveur de la plateforme (sans effet si
+	 * elles le sont déjà).
+	 * 
+	 * @throws JMException en cas de refus du serveur JMX.
+	 */
+	public static synchronized void publierJmx() throws JMException {
+		MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+		ObjectName nom = new ObjectName(NOM_JMX);
+		if (!serveur.isRegistered(nom))
+			serveur.registerMBean(new Jmx(), nom);
+	}
+
+	// Mesure --------------------------------------------------------------
+
+	/**
+	 * Début d'une opération.
+	 * 
+	 * @return instant de début à passer à {@link #fin}, ou 0 si les mesures sont
+	 *         désactivées.
+	 */
+	static long debut() {
+		return actif ? System.nanoTime() | 1 : 0; // jamais 0 si actif
+	}
+
+	/**
+	 * Fin d'une opération.
+	 * 
+	 * @param operation  Opération terminée.
+	 * @param debut      Valeur renvoyée par {@link #debut()}.
+	 * @param resultats  Nombre de résultats, ou -1 s'il n'a pas de sens.
+	 */
+	static void fin(Operation operation, long debut, int resultats) {
+		if (debut == 0)
+			return;
+		Compteurs c = COMPTEURS.get(operation);
+		c.DUREES.ajouter(Math.max(0, System.nanoTime() - debut));
+		if (resultats >= 0)
+			c.RESULTATS.ajouter(resultats);
+	}
+
+	/**
+	 * Compteurs d'une opération.
+	 */
+	private static final class Compteurs {
+
+		final Histogramme DUREES = new Histogramme();
+
+		final Histogramme RESULTATS = new Histogramme();
+
+		void reinitialiser() {
+			DUREES.reinitialiser();
+			RESULTATS.reinitialiser();
+		}
+	}
+
+	/**
+	 * Histogramme à échelle logarithmique de valeurs positives, mis à jour sans
+	 * verrou.
+	 */
+	private static final class Histogramme {
+
+		private final LongAdder[] CLASSES = new LongAdder[(64 - BITS_SOUS_CLASSES) * SOUS_CLASSES];
+
+		private final LongAdder NOMBRE = new LongAdder();
+
+		private final LongAdder SOMME = new LongAdder();
+
+		private final LongAccumulator MAX = new LongAccumulator(Math::max, 0);
+
+		Histogramme() {
+			for (int i = 0; i < CLASSES.length; i++)
+				CLASSES[i] = new LongAdder();
+		}
+
+		void ajouter(long v) {
+			CLASSES[classe(v)].increment();
+			NOMBRE.increment();
+			SOMME.add(v);
+			MAX.accumulate(v);
+		}
+
+		void reinitialiser() {
+			for (LongAdder a : CLASSES)
+				a.reset();
+			NOMBRE.reset();
+			SOMME.reset();
+			MAX.reset();
+		}
+
+		/**
+		 * Les valeurs inférieures à SOUS_CLASSES ont chacune leur classe ; au-delà,
+		 * chaque intervalle [2^e, 2^(e+1)[ est découpé en SOUS_CLASSES classes
+		 * égales.
+		 */
+		private static int classe(long v) {
+			if (v < SOUS_CLASSES)
+				return (int) v;
+			int e = 63 - Long.numberOfLeadingZeros(v);
+			int sous = (int) (v >>> (e - BITS_SOUS_CLASSES)) & (SOUS_CLASSES - 1);
+			return (e - BITS_SOUS_CLASSES + 1) * SOUS_CLASSES + sous;
+		}
+
+		/**
+		 * @return plus grande valeur de la classe.
+		 */
+		private static long borne(int classe) {
+			if (classe < SOUS_CLASSES)
+				return classe;
+			int e = classe / SOUS_CLASSES + BITS_SOUS_CLASSES - 1;
+			long sous = classe % SOUS_CLASSES;
+			return ((SOUS_CLASSES + sous + 1) << (e - BITS_SOUS_CLASSES)) - 1;
+		}
+
+		Resume resumer() {
+			long[] n = new long[CLASSES.length];
+			long total = 0;
+			for (int i = 0; i < n.length; i++)
+				total += n[i] = CLASSES[i].sum();
+			long max = MAX.get();
+			return new Resume(total, total == 0 ? 0 : (double) SOMME.sum() / total, centile(n, total, 0.50, max),
+					centile(n, total, 0.90, max), centile(n, total, 0.99, max), centile(n, total, 0.999, max), max);
+		}
+
+		private static long centile(long[] n, long total, double q, long max) {
+			long rang = (long) Math.ceil(q * total), cumul = 0;
+			for (int i = 0; i < n.length; i++)
+				if ((cumul += n[i]) >= rang && cumul > 0)
+					return Math.min(borne(i), max);
+			return max;
+		}
+	}
+
+	// Consultation --------------------------------------------------------
+
+	/**
+	 * Résumé d'une distribution de valeurs (durées en nanosecondes ou nombres de
+	 * résultats). Les centiles sont exacts à 1/{@value #SOUS_CLASSES} près.
+	 */
+	public static final class Resume {
+
+		public final long NOMBRE;
+
+		public final double MOYENNE;
+
+		public final long P50, P90, P99, P999;
+
+		public final long MAX;
+
+		Resume(long nombre, double moyenne, long p50, long p90, long p99, long p999, long max) {
+			this.NOMBRE = nombre;
+			this.MOYENNE = moyenne;
+			this.P50 = p50;
+			this.P90 = p90;
+			this.P99 = p99;
+			this.P999 = p999;
+			this.MAX = max;
+		}
+
+		@Override
+		public String toString() {
+			return "n=" + NOMBRE + " moy=" + Math.round(MOYENNE) + " p50=" + P50 + " p90=" + P90 + " p99=" + P99
+					+ " p99.9=" + P999 + " max=" + MAX;
+		}
+	}
+
+	/**
+	 * État des mesures à un instant donné.
+	 */
+	public static final class Instantane {
+
+		/**
+		 * Durées (en nanosecondes) de chaque opération ; le nombre de durées est le
+		 * nombre d'appels mesurés.
+		 */
+		public final Map<Operation, Resume> DUREES;
+
+		/**
+		 * Nombres de résultats des opérations de sélection.
+		 */
+		public final Map<Operation, Resume> RESULTATS;
+
+		public final int NB_LIVRES, NB_AUTEURS, NB_MOTS_CLES;
+
+		/**
+		 * Nombre moyen de mots clés par livre.
+		 */
+		public final double MOTS_CLES_PAR_LIVRE;
+
+		private Instantane() {
+			Map<Operation, Resume> durees = new EnumMap<>(Operation.class);
+			Map<Operation, Resume> resultats = new EnumMap<>(Operation.class);
+			for (Map.Entry<Operation, Compteurs> e : COMPTEURS.entrySet()) {
+				durees.put(e.getKey(), e.getValue().DUREES.resumer());
+				Resume r = e.getValue().RESULTATS.resumer();
+				if (r.NOMBRE > 0)
+					resultats.put(e.getKey(), r);
+			}
+			this.DUREES = Collections.unmodifiableMap(durees);
+			this.RESULTATS = Collections.unmodifiableMap(resultats);
+			this.NB_LIVRES = Livre.nombre();
+			this.NB_AUTEURS = Auteur.tous().size();
+			long liens = 0;
+			int nbMots = 0;
+			for (MotCle m : MotCle.tous()) {
+				liens += m.LIVRES.taille();
+				nbMots++;
+			}
+			this.NB_MOTS_CLES = nbMots;
+			this.MOTS_CLES_PAR_LIVRE = NB_LIVRES == 0 ? 0 : (double) liens / NB_LIVRES;
+		}
+
+		/**
+		 * @return toutes les valeurs sous forme de table à plat (clés du type
+		 *         "LIVRE_SELECT.duree.p99"), durées en nanosecondes.
+		 */
+		public Map<String, Number> aPlat() {
+			Map<String, Number> m = new LinkedHashMap<>();
+			m.put("livres", NB_LIVRES);
+			m.put("auteurs", NB_AUTEURS);
+			m.put("motsCles", NB_MOTS_CLES);
+			m.put("motsClesParLivre", MOTS_CLES_PAR_LIVRE);
+			for (Map.Entry<Operation, Resume> e : DUREES.entrySet())
+				aPlat(m, e.getKey() + ".duree.", e.getValue());
+			for (Map.Entry<Operation, Resume> e : RESULTATS.entrySet())
+				aPlat(m, e.getKey() + ".resultats.", e.getValue());
+			return m;
+		}
+
+		private static void aPlat(Map<String, Number> m, String prefixe, Resume r) {
+			m.put(prefixe + "nombre", r.NOMBRE);
+			m.put(prefixe + "moyenne", r.MOYENNE);
+			m.put(prefixe + "p50", r.P50);
+			m.put(prefixe + "p90", r.P90);
+			m.put(prefixe + "p99", r.P99);
+			m.put(prefixe + "p999", r.P999);
+			m.put(prefixe + "max", r.MAX);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(NB_LIVRES).append(" livres, ").append(NB_AUTEURS).append(" auteurs, ").append(NB_MOTS_CLES)
+					.append(" mots clés, ").append(String.format("%.2f", MOTS_CLES_PAR_LIVRE))
+					.append(" mots clés par livre");
+			for (Map.Entry<Operation, Resume> e : DUREES.entrySet())
+				if (e.getValue().NOMBRE > 0) {
+					sb.append('\n').append(e.getKey()).append(" durée (ns) : ").append(e.getValue());
+					Resume r = RESULTATS.get(e.getKey());
+					if (r != null)
+						sb.append("\n").append(e.getKey()).append(" résultats : ").append(r);
+				}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * @return état actuel des mesures et des registres.
+	 */
+	public static Instantane instantane() {
+		return new Instantane();
+	}
+
+	/**
+	 * Publication JMX.
+	 */
+	private static final class Jmx implements MesuresMXBean {
+
+		@Override
+		public boolean isActif() {
+			return actif;
+		}
+
+		@Override
+		public void setActif(boolean mesurer) {
+			activer(mesurer);
+		}
+
+		@Override
+		public int getNombreLivres() {
+			return Livre.nombre();
+		}
+
+		@Override
+		public int getNombreAuteurs() {
+			return Auteur.tous().size();
+		}
+
+		@Override
+		public int getNombreMotsCles() {
+			return MotCle.tous().size();
+		}
+
+		@Override
+		public double getMotsClesParLivre() {
+			return instantane().MOTS_CLES_PAR_LIVRE;
+		}
+
+		@Override
+		public Map<String, Double> getMesures() {
+			Map<String, Double> m = new LinkedHashMap<>();
+			for (Map.Entry<String, Number> e : instantane().aPlat().entrySet())
+				m.put(e.getKey(), e.getValue().doubleValue());
+			return m;
+		}
+
+		@Override
+		public void reinitialiser() {
+			Mesures.reinitialiser();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package liborga;
+
+import java.util.Map;
+
+/**
+ * Interface JMX des mesures du catalogue (voir {@link Mesures}).
+ */
+public interface MesuresMXBean {
+
+	/**
+	 * @return vrai si les mesures sont activées.
+	 */
+	boolean isActif();
+
+	/**
+	 * @param mesurer vrai pour activer les mesures.
+	 */
+	void setActif(boolean mesurer);
+
+	/**
+	 * @return nombre de livres existants.
+	 */
+	int getNombreLivres();
+
+	/**
+	 * @return nombre d'auteurs existants.
+	 */
+	int getNombreAuteurs();
+
+	/**
+	 * @return nombre de mots clés existants.
+	 */
+	int getNombreMotsCles();
+
+	/**
+	 * @return nombre moyen de mots clés par livre.
+	 */
+	double getMotsClesParLivre();
+
+	/**
+	 * @return toutes les mesures (voir {@link Mesures.Instantane#aPlat()}).
+	 */
+	Map<String, Double> getMesures();
+
+	/**
+	 * Remet les compteurs à zéro.
+	 */
+	void reinitialiser();
+}
@@ -0,0 +1,36 @@
+package liborga;
+
+/**
+ * Façon de comparer un motif recherché aux titres, noms, prénoms et mots clés.
+ */
+public enum ModeRecherche {
+
+	/**
+	 * Sous-chaîne indépendamment de la casse : "theatre" ne trouve pas
+	 * "THÉATRE" (mode par défaut des méthodes de sélection).
+	 */
+	STRICT {
+		@Override
+		String normaliser(String texte) {
+			return texte.toLowerCase();
+		}
+	},
+
+	/**
+	 * Sous-chaîne indépendamment de la casse et des accents : "theatre" trouve
+	 * "THÉATRE" et "emile" trouve "Émile" (voir
+	 * {@link Casse#sansAccents(String)}).
+	 */
+	SANS_ACCENTS {
+		@Override
+		String normaliser(String texte) {
+			return Casse.sansAccents(texte);
+		}
+	};
+
+	/**
+	 * @param texte Texte ou motif.
+	 * @return forme du texte comparée dans ce mode.
+	 */
+	abstract String normaliser(String texte);
+}
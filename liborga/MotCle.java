@@ -1,7 +1,13 @@
 package liborga;
 
 import java.util.Set;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
 /**
  * Représente un mot-clé associé à un livre.
@@ -11,31 +17,167 @@ public class MotCle {
 	// Attributs statiques -------------------------------------------------
 
 	/**
-	 * Ensemble de tous les mots clés existants.
+	 * Ordre de tri des mots clés, indépendant de la casse et compatible avec
+	 * equals.
 	 */
-	@SuppressWarnings("unused")
-	private static final Set<MotCle> MOTSCLES = new HashSet<>();
+	public static final Comparator<MotCle> ORDRE = Comparator.comparing(m -> m.CLE);
+
+	/**
+	 * Registre des mots clés d'un catalogue (voir {@link Catalogue}).
+	 */
+	static final class Registre {
+
+		/**
+		 * Ensemble de tous les mots clés existants, indexés par leur forme repliée
+		 * (voir {@link Casse#replier(String)}).
+		 * <p>
+		 * 
+		 * Table concurrente, comme celles des livres et des auteurs.
+		 */
+		final Segments<MotCle> PAR_CLE = new Segments<>();
+
+		/**
+		 * Tous les mots clés existants, triés selon {@link MotCle#ORDRE} (puis par
+		 * numéro, pour qu'un mot clé supprimé et celui qui le remplace restent
+		 * distincts).
+		 */
+		final ConcurrentSkipListSet<MotCle> TRIES = new ConcurrentSkipListSet<>(ORDRE.thenComparingInt(m -> m.ID));
+
+		/**
+		 * Tous les mots clés existants, rangés par numéro (voir {@link MotCle#ID}).
+		 */
+		final Table<MotCle> NUMEROS = new Table<>();
+
+		/**
+		 * Index des mots (en minuscules) de tous les mots clés existants.
+		 */
+		final IndexTrigrammes<MotCle> INDEX_MOTS = new IndexTrigrammes<>(NUMEROS);
+
+		/**
+		 * Index des mots sans accents qui diffèrent de leur forme en minuscules.
+		 */
+		final IndexTrigrammes<MotCle> INDEX_MOTS_SANS_ACCENTS = new IndexTrigrammes<>(NUMEROS, INDEX_MOTS);
+
+		/**
+		 * Retire un mot clé supprimé de {@link #PAR_CLE} s'il y est encore. Seule
+		 * cette instance est retirée : le mot clé qui l'a remplacé sous la même
+		 * clé (égal au sens de equals) reste dans le registre.
+		 * 
+		 * @param m Mot clé supprimé.
+		 */
+		void oublier(MotCle m) {
+			PAR_CLE.computeIfPresent(m.CLE, (k, e) -> e == m ? null : e);
+		}
+	}
 
 	// Attributs d'instances -----------------------------------------------
 
 	/**
-	 * Mot clé (public et non modifiable).
+	 * Catalogue du mot clé (public et non modifiable).
+	 */
+	public final Catalogue CATALOGUE;
+
+	/**
+	 * Mot clé (non modifiable, voir {@link #getMot()}), ou null s'il est rangé
+	 * hors du tas (voir {@link Textes}).
+	 */
+	private final String MOT;
+
+	/**
+	 * Position du mot clé hors du tas, si MOT est null.
+	 */
+	private final long MOT_SAISI_HORS_TAS;
+
+	/**
+	 * Clé du mot clé, identique pour deux mots clés égaux au sens de equals.
+	 */
+	final String CLE;
+
+	/**
+	 * Numéro du mot clé, unique parmi les mots clés existants.
+	 */
+	final int ID;
+
+	/**
+	 * Mot clé en minuscules, calculé une fois pour toutes pour les recherches, ou
+	 * null s'il est rangé hors du tas (voir {@link Textes}).
+	 */
+	final String MINUSCULES;
+
+	/**
+	 * Position du mot clé en minuscules hors du tas, si MINUSCULES est null.
+	 */
+	final long HORS_TAS;
+
+	/**
+	 * Mot clé sans accents (voir {@link Casse#sansAccents(String)}), ou null s'il
+	 * est rangé hors du tas. C'est la même chaîne que MINUSCULES quand les deux
+	 * formes sont égales.
+	 */
+	final String SANS_ACCENTS;
+
+	/**
+	 * Position du mot clé sans accents hors du tas, si SANS_ACCENTS est null.
 	 */
-	public final String MOT;
+	final long SANS_ACCENTS_HORS_TAS;
+
+	/**
+	 * Numéros des livres associés au mot clé, tenus à jour par la classe Livre
+	 * sous le verrou du mot clé.
+	 */
+	final ListeIds LIVRES;
+
+	/**
+	 * Vrai une fois que le mot clé, n'étant plus associé à aucun livre, est
+	 * supprimé : il ne peut plus être associé à un livre.
+	 */
+	private volatile boolean supprime;
 
 	// Constructeur --------------------------------------------------------
 
 	/**
-	 * Constructeur unique et privé.
+	 * Constructeur unique et privé. Le mot (s'il est gardé dans le tas) et sa clé
+	 * sont partagés avec les mots clés égaux des autres catalogues.
 	 * 
+	 * @param c   Catalogue du mot clé
 	 * @param mot Mot clé
+	 * @param cle Forme repliée du mot clé
 	 */
-	private MotCle(String mot) {
-		this.MOT = mot;
+	private MotCle(Catalogue c, String mot, String cle) {
+		this.CATALOGUE = c;
+		cle = cle.intern();
+		String minuscules = mot.toLowerCase();
+		if (cle.equals(minuscules)) { // une seule chaîne si possible, la clé restant dans le tas
+			this.CLE = this.MINUSCULES = cle;
+			this.HORS_TAS = Textes.DANS_LE_TAS;
+		} else {
+			this.CLE = cle;
+			this.HORS_TAS = Textes.ranger(minuscules);
+			this.MINUSCULES = this.HORS_TAS == Textes.DANS_LE_TAS ? minuscules : null;
+		}
+		this.ID = c.MOTS_CLES.NUMEROS.numero();
+		this.LIVRES = new ListeIds();
+		String sansAccents = Casse.sansAccents(mot);
+		if (sansAccents.equals(minuscules)) {
+			this.SANS_ACCENTS = this.MINUSCULES;
+			this.SANS_ACCENTS_HORS_TAS = this.HORS_TAS;
+		} else {
+			this.SANS_ACCENTS_HORS_TAS = Textes.ranger(sansAccents);
+			this.SANS_ACCENTS = this.SANS_ACCENTS_HORS_TAS == Textes.DANS_LE_TAS ? sansAccents : null;
+		}
+		this.MOT_SAISI_HORS_TAS = mot.equals(minuscules) ? this.HORS_TAS : Textes.ranger(mot);
+		this.MOT = this.MOT_SAISI_HORS_TAS == Textes.DANS_LE_TAS ? mot.intern() : null;
 	}
 
 	// Accesseurs et usines à objets ---------------------------------------
 
+	/**
+	 * @return mot clé, tel que saisi à sa création.
+	 */
+	public String getMot() {
+		return this.MOT != null ? this.MOT : Textes.lire(this.MOT_SAISI_HORS_TAS);
+	}
+
 	/**
 	 * Si possible, renvoie une instance de MotCle correspondant à une chaîne de
 	 * caractères.
@@ -55,24 +197,113 @@ public class MotCle {
 	 * résultat</li>
 	 * </ul>
 	 * 
+	 * @param c       Catalogue du mot clé
 	 * @param mot     Mot clé à créer ou à récupérer
 	 * @param getOnly indique si on ne veut que récupérer une instance existante
 	 *                (pas de création dans ce cas)
 	 * @return selon les cas : null, ou une instance existante, ou une nouvelle
 	 *         instance
 	 */
-	private static MotCle getOrCreate(String mot, boolean getOnly) {
-		// TODO à compléter...
+	static MotCle getOrCreate(Catalogue c, String mot, boolean getOnly) {
 		if (mot == null || mot.contentEquals(""))
 			return null; //
-		MotCle nouvMot = new MotCle(mot);
-		for (MotCle m : MOTSCLES)
-			if (m.equals(nouvMot))
-				return m;
-		if (getOnly)
-			return null;
-		MOTSCLES.add(nouvMot);
-		return nouvMot; // <- TODO résultat à adapter
+		Registre r = c.MOTS_CLES;
+		String cle = Casse.replier(mot);
+		MotCle m = r.PAR_CLE.get(cle);
+		while (m != null && m.supprime) {
+			r.oublier(m); // supprimé mais pas encore retiré du registre
+			m = r.PAR_CLE.get(cle);
+		}
+		if (m != null && r.NUMEROS.get(m.ID) != m)
+			synchronized (m) { // en cours de création : attend qu'il soit rangé partout
+			}
+		if (m != null || getOnly)
+			return m;
+		MotCle nouvMot = new MotCle(c, mot, cle);
+		synchronized (nouvMot) { // aucun livre ne peut lui être associé avant qu'il soit rangé partout
+			m = r.PAR_CLE.putIfAbsent(nouvMot.CLE, nouvMot);
+			if (m == null) {
+				r.NUMEROS.ranger(nouvMot.ID, nouvMot);
+				r.TRIES.add(nouvMot);
+				r.INDEX_MOTS.ajouter(nouvMot.minuscules(), nouvMot.ID);
+				if (nouvMot.aDesAccents())
+					r.INDEX_MOTS_SANS_ACCENTS.ajouter(nouvMot.sansAccents(), nouvMot.ID);
+				c.OBSERVATEURS.motCleCree(nouvMot); // prévenu avant toute suppression du mot clé
+				return nouvMot;
+			}
+		}
+		r.NUMEROS.liberer(nouvMot.ID); // jamais rangé
+		return getOrCreate(c, mot, false); // créé entre-temps par un autre thread
+	}
+
+	// Association aux livres ----------------------------------------------
+
+	/**
+	 * @return vrai si le mot clé a été supprimé : il faut alors le remplacer
+	 *         (voir {@link #remplacant()}). À lire sous le verrou du mot clé pour
+	 *         lui associer un livre.
+	 */
+	boolean estSupprime() {
+		return supprime;
+	}
+
+	/**
+	 * Retire un livre du mot clé. Le mot clé est supprimé s'il n'est plus associé
+	 * à aucun livre.
+	 * 
+	 * @param livre Numéro du livre.
+	 * @return vrai si le mot clé vient d'être supprimé : il faut alors appeler
+	 *         {@link #liberer()}.
+	 */
+	synchronized boolean detacher(int livre) {
+		if (!LIVRES.retirer(livre) || LIVRES.taille() > 0)
+			return false;
+		supprime = true;
+		return true;
+	}
+
+	/**
+	 * Supprime le mot clé s'il n'est associé à aucun livre : un mot clé créé pour
+	 * un ajout qui n'a finalement concerné aucun livre ne doit pas rester.
+	 * 
+	 * @return vrai si le mot clé vient d'être supprimé : il faut alors appeler
+	 *         {@link #liberer()}.
+	 */
+	synchronized boolean abandonner() {
+		if (supprime || LIVRES.taille() > 0)
+			return false;
+		supprime = true;
+		return true;
+	}
+
+	/**
+	 * @return le mot clé de même clé qui remplace ce mot clé supprimé (créé si
+	 *         besoin).
+	 */
+	MotCle remplacant() {
+		return getOrCreate(CATALOGUE, getMot(), false);
+	}
+
+	/**
+	 * Retire des registres et des index un mot clé qui vient d'être supprimé.
+	 */
+	synchronized void liberer() {
+		Registre r = CATALOGUE.MOTS_CLES;
+		r.oublier(this);
+		r.TRIES.remove(this);
+		r.INDEX_MOTS.retirer(minuscules(), ID);
+		if (aDesAccents())
+			r.INDEX_MOTS_SANS_ACCENTS.retirer(sansAccents(), ID);
+		r.NUMEROS.ranger(ID, null);
+		CATALOGUE.OBSERVATEURS.motCleSupprime(this);
+		r.NUMEROS.liberer(ID); // plus aucun index ne le contient
+	}
+
+	/**
+	 * @return vrai si le mot sans accents diffère du mot en minuscules.
+	 */
+	private boolean aDesAccents() {
+		return this.SANS_ACCENTS != this.MINUSCULES || this.SANS_ACCENTS_HORS_TAS != this.HORS_TAS;
 	}
 
 	/**
@@ -94,7 +325,7 @@ public class MotCle {
 	 *         instance
 	 */
 	public static MotCle getOrCreate(String mot) {
-		return getOrCreate(mot, false);
+		return Catalogue.defaut().getOrCreateMotCle(mot);
 	}
 
 	/**
@@ -114,7 +345,87 @@ public class MotCle {
 	 * @return selon les cas : null, ou une instance existante
 	 */
 	public static MotCle get(String mot) {
-		return getOrCreate(mot, true);
+		return Catalogue.defaut().getMotCle(mot);
+	}
+
+	/**
+	 * @param c      Catalogue du mot clé.
+	 * @param numero Numéro d'un mot clé.
+	 * @return le mot clé portant ce numéro, ou null s'il n'existe pas.
+	 */
+	static MotCle parNumero(Catalogue c, int numero) {
+		return c.MOTS_CLES.NUMEROS.get(numero);
+	}
+
+	/**
+	 * @param mots Mots clés.
+	 * @return numéros triés de ces mots clés.
+	 */
+	static ListeIds.Contenu numeros(Collection<MotCle> mots) {
+		int[] ids = new int[mots.size()];
+		int n = 0;
+		for (MotCle m : mots)
+			ids[n++] = m.ID;
+		Arrays.sort(ids, 0, n);
+		return new ListeIds.Contenu(ids, n);
+	}
+
+	/**
+	 * @return mot clé en minuscules, où qu'il soit rangé.
+	 */
+	String minuscules() {
+		return this.MINUSCULES != null ? this.MINUSCULES : Textes.lire(this.HORS_TAS);
+	}
+
+	/**
+	 * @return mot clé sans accents, où qu'il soit rangé.
+	 */
+	String sansAccents() {
+		return this.SANS_ACCENTS != null ? this.SANS_ACCENTS : Textes.lire(this.SANS_ACCENTS_HORS_TAS);
+	}
+
+	/**
+	 * @param motif Motif normalisé.
+	 * @return vrai si la forme du mot clé correspondant au mode du motif
+	 *         contient le motif.
+	 */
+	boolean contient(Textes.Motif motif) {
+		if (motif.MODE == ModeRecherche.SANS_ACCENTS)
+			return motif.trouveDans(this.SANS_ACCENTS, this.SANS_ACCENTS_HORS_TAS);
+		return motif.trouveDans(this.MINUSCULES, this.HORS_TAS);
+	}
+
+	/**
+	 * @param r     Registre des mots clés.
+	 * @param motif Motif normalisé.
+	 * @return mots clés pouvant contenir le motif d'après les index, ou null si
+	 *         tous les mots clés sont candidats.
+	 */
+	private static Collection<MotCle> candidats(Registre r, Textes.Motif motif) {
+		return index(r, motif).candidats(motif.TEXTE);
+	}
+
+	private static IndexTrigrammes<MotCle> index(Registre r, Textes.Motif motif) {
+		return motif.MODE == ModeRecherche.SANS_ACCENTS ? r.INDEX_MOTS_SANS_ACCENTS : r.INDEX_MOTS;
+	}
+
+	/**
+	 * Renvoie tous les mots clés existants du catalogue par défaut.
+	 * 
+	 * @return vue (non modifiable) du registre des mots clés.
+	 */
+	static Collection<MotCle> tous() {
+		return tous(Catalogue.defaut());
+	}
+
+	/**
+	 * Renvoie tous les mots clés existants d'un catalogue.
+	 * 
+	 * @param c Catalogue.
+	 * @return vue (non modifiable) du registre des mots clés.
+	 */
+	static Collection<MotCle> tous(Catalogue c) {
+		return Collections.unmodifiableCollection(c.MOTS_CLES.PAR_CLE.values());
 	}
 
 	// toString et equals --------------------------------------------------
@@ -122,7 +433,7 @@ public class MotCle {
 	@Override
 	public String toString() {
 		// TODO à compléter...
-		return this.MOT.toUpperCase(); // <- TODO résultat à adapter
+		return getMot().toUpperCase(); // <- TODO résultat à adapter
 	}
 
 	@Override
@@ -131,11 +442,14 @@ public class MotCle {
 		MotCle mc;
 		if(!(obj instanceof MotCle)) return false;
 		mc = (MotCle) obj;
-		boolean result = (this.MOT.equalsIgnoreCase(mc.MOT));
+		boolean result = this.CATALOGUE == mc.CATALOGUE && this.CLE.equals(mc.CLE);
 		return result; // <- TODO résultat à adapter
 	}
 
-
+	@Override
+	public int hashCode() {
+		return this.CLE.hashCode();
+	}
 
 	// Requêtes ------------------------------------------------------------
 
@@ -147,15 +461,49 @@ public class MotCle {
 	 *         indépendamment de la casse
 	 */
 	public static Set<MotCle> select(String motClePartielOuComplet) {
+		return select(motClePartielOuComplet, ModeRecherche.STRICT);
+	}
+
+	/**
+	 * Sélection de mots clés à partir d'un mot, selon un mode de recherche.
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param mode                   mode de recherche
+	 * @return ensemble des mots clés qui correspondent au paramètre fourni dans
+	 *         ce mode
+	 */
+	public static Set<MotCle> select(String motClePartielOuComplet, ModeRecherche mode) {
+		return Catalogue.defaut().selectMotsCles(motClePartielOuComplet, mode);
+	}
+
+	static Set<MotCle> selectSansCache(Catalogue c, String motClePartielOuComplet, ModeRecherche mode) {
 		// TODO à compléter...
-		String sub = motClePartielOuComplet.toLowerCase();
-		Set<MotCle> motSet = new HashSet<>();
+		Registre r = c.MOTS_CLES;
+		Textes.Motif motif = new Textes.Motif(motClePartielOuComplet, mode);
+		ListeIds.Contenu retenus = r.NUMEROS.filtrer(index(r, motif).numerosCandidats(motif.TEXTE),
+				m -> m.contient(motif));
+		return new HashSet<>(r.NUMEROS.elements(retenus));
+	}
 
-		for(MotCle m : MOTSCLES){
-			if(m.MOT.toLowerCase().contains(sub)){
-				motSet.add(m);
-			}
-		}
-		return motSet; // <- TODO résultat à adapter
+	/**
+	 * Parcours trié des mots clés à partir d'un mot.
+	 * <p>
+	 * 
+	 * Les résultats sont ceux de {@link #select(String)}, triés selon
+	 * {@link #ORDRE} et produits au fur et à mesure de la consommation du flot.
+	 * 
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param apres                  dernier mot clé de la page précédente, ou
+	 *                               null pour commencer au début
+	 * @return flot trié des mots clés qui correspondent au paramètre fourni et
+	 *         qui suivent le curseur
+	 */
+	public static Stream<MotCle> parcourir(String motClePartielOuComplet, MotCle apres) {
+		return parcourir(Catalogue.defaut(), motClePartielOuComplet, apres);
+	}
+
+	static Stream<MotCle> parcourir(Catalogue c, String motClePartielOuComplet, MotCle apres) {
+		Textes.Motif motif = new Textes.Motif(motClePartielOuComplet, ModeRecherche.STRICT);
+		return Parcours.trier(candidats(c.MOTS_CLES, motif), c.MOTS_CLES.TRIES, apres, m -> m.contient(motif));
 	}
 }
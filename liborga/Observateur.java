@@ -0,0 +1,104 @@
+package liborga;
+
+import java.util.Collection;
+
+/**
+ * Reçoit les modifications du catalogue, après qu'elles ont eu lieu.
+ * <p>
+ * 
+ * Les méthodes sont appelées dans le thread qui a fait la modification ; elles
+ * doivent donc être rapides et peuvent être appelées simultanément par
+ * plusieurs threads.
+ * <p>
+ * 
+ * Les créations, les suppressions d'auteurs et de mots clés, et les ajouts ou
+ * retraits de mots clés sont signalés sous le verrou de l'élément concerné (le
+ * mot clé pour un ajout ou un retrait) : les modifications d'un même élément
+ * sont reçues dans l'ordre où elles ont eu lieu. Ces méthodes ne doivent donc
+ * pas modifier le catalogue elles-mêmes. La suppression d'un livre est signalée
+ * hors de tout verrou, mais un livre de même clé n'est recréé qu'après le
+ * retour de {@link #livreSupprime}.
+ */
+interface Observateur {
+
+	/**
+	 * Un nouvel auteur vient d'être créé.
+	 * 
+	 * @param a Auteur créé.
+	 */
+	default void auteurCree(Auteur a) {
+	}
+
+	/**
+	 * Un nouveau mot clé vient d'être créé.
+	 * 
+	 * @param m Mot clé créé.
+	 */
+	default void motCleCree(MotCle m) {
+	}
+
+	/**
+	 * Un nouveau livre vient d'être créé.
+	 * 
+	 * @param l Livre créé.
+	 */
+	default void livreCree(Livre l) {
+	}
+
+	/**
+	 * Un mot clé vient d'être associé à un livre.
+	 * 
+	 * @param l Livre.
+	 * @param m Mot clé nouvellement associé au livre.
+	 */
+	default void motCleAjoute(Livre l, MotCle m) {
+	}
+
+	/**
+	 * Un mot clé vient d'être associé à plusieurs livres à la fois (voir
+	 * {@link Etiquetage}). Par défaut, équivaut à un appel de
+	 * {@link #motCleAjoute(Livre, MotCle)} par livre.
+	 * 
+	 * @param m      Mot clé.
+	 * @param livres Livres auxquels le mot clé vient d'être associé.
+	 */
+	default void motCleAjouteATous(MotCle m, Collection<Livre> livres) {
+		for (Livre l : livres)
+			motCleAjoute(l, m);
+	}
+
+	/**
+	 * Un mot clé vient d'être retiré d'un livre.
+	 * 
+	 * @param l Livre.
+	 * @param m Mot clé qui n'est plus associé au livre.
+	 */
+	default void motCleRetire(Livre l, MotCle m) {
+	}
+
+	/**
+	 * Un livre vient d'être supprimé. Il n'est plus rattaché à son auteur ni à
+	 * ses mots clés, et n'a plus de mot clé.
+	 * 
+	 * @param l        Livre supprimé.
+	 * @param motsCles Mots clés qu'il avait.
+	 */
+	default void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+	}
+
+	/**
+	 * Un auteur qui n'avait plus de livre vient d'être supprimé.
+	 * 
+	 * @param a Auteur supprimé.
+	 */
+	default void auteurSupprime(Auteur a) {
+	}
+
+	/**
+	 * Un mot clé qui n'était plus associé à aucun livre vient d'être supprimé.
+	 * 
+	 * @param m Mot clé supprimé.
+	 */
+	default void motCleSupprime(MotCle m) {
+	}
+}
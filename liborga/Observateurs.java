@@ -0,0 +1,88 @@
+package liborga;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Liste des observateurs d'un catalogue et diffusion de ses modifications.
+ * <p>
+ * 
+ * Une modification est toujours diffusée à tous les observateurs : si l'un
+ * d'eux échoue (par exemple un journal qui ne peut plus écrire), les suivants
+ * sont prévenus quand même, pour que les caches et les index restent à jour.
+ * La première exception est relancée à la fin de la diffusion, les autres lui
+ * étant attachées.
+ */
+final class Observateurs {
+
+	/**
+	 * Observateurs abonnés (la liste est presque toujours lue, rarement
+	 * modifiée).
+	 */
+	private final List<Observateur> LISTE = new CopyOnWriteArrayList<>();
+
+	Observateurs() {
+	}
+
+	void abonner(Observateur o) {
+		LISTE.add(o);
+	}
+
+	void desabonner(Observateur o) {
+		LISTE.remove(o);
+	}
+
+	void auteurCree(Auteur a) {
+		diffuser(o -> o.auteurCree(a));
+	}
+
+	void motCleCree(MotCle m) {
+		diffuser(o -> o.motCleCree(m));
+	}
+
+	void livreCree(Livre l) {
+		diffuser(o -> o.livreCree(l));
+	}
+
+	void motCleAjoute(Livre l, MotCle m) {
+		diffuser(o -> o.motCleAjoute(l, m));
+	}
+
+	void motCleAjouteATous(MotCle m, Collection<Livre> livres) {
+		diffuser(o -> o.motCleAjouteATous(m, livres));
+	}
+
+	void motCleRetire(Livre l, MotCle m) {
+		diffuser(o -> o.motCleRetire(l, m));
+	}
+
+	void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+		diffuser(o -> o.livreSupprime(l, motsCles));
+	}
+
+	void auteurSupprime(Auteur a) {
+		diffuser(o -> o.auteurSupprime(a));
+	}
+
+	void motCleSupprime(MotCle m) {
+		diffuser(o -> o.motCleSupprime(m));
+	}
+
+	private void diffuser(Consumer<Observateur> evenement) {
+		RuntimeException erreur = null;
+		for (Observateur o : LISTE) {
+			try {
+				evenement.accept(o);
+			} catch (RuntimeException e) {
+				if (erreur == null)
+					erreur = e;
+				else
+					erreur.addSuppressed(e);
+			}
+		}
+		if (erreur != null)
+			throw erreur;
+	}
+}
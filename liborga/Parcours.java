@@ -0,0 +1,70 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Production paresseuse et triée des résultats d'une requête.
+ */
+final class Parcours {
+
+	/**
+	 * Nombre maximal de candidats que l'on accepte de copier et de trier. Au-delà,
+	 * les résultats sont produits au fil d'un parcours du registre trié.
+	 */
+	static final int SEUIL_TRI = 4096;
+
+	private Parcours() {
+	}
+
+	/**
+	 * Renvoie, dans l'ordre du registre trié, les éléments qui vérifient un
+	 * filtre et qui suivent éventuellement un curseur.
+	 * <p>
+	 * 
+	 * Si les candidats connus sont peu nombreux, ils sont filtrés puis triés ;
+	 * sinon le registre trié est parcouru au fur et à mesure de la consommation
+	 * du flot. Dans les deux cas, la mémoire utilisée ne dépend pas du nombre de
+	 * résultats.
+	 * 
+	 * @param <T>       Type des éléments.
+	 * @param candidats Éléments parmi lesquels se trouvent tous les résultats, ou
+	 *                  null s'ils ne sont pas connus.
+	 * @param tous      Registre trié de tous les éléments.
+	 * @param apres     Curseur : seuls les éléments qui le suivent strictement
+	 *                  sont renvoyés (null pour partir du début).
+	 * @param filtre    Condition que doivent vérifier les résultats.
+	 * @return flot trié des résultats.
+	 */
+	static <T> Stream<T> trier(Collection<T> candidats, NavigableSet<T> tous, T apres, Predicate<? super T> filtre) {
+		if (candidats != null && candidats.size() <= SEUIL_TRI) {
+			List<T> liste = new ArrayList<>(candidats.size());
+			for (T e : candidats)
+				if ((apres == null || tous.comparator().compare(e, apres) > 0) && filtre.test(e))
+					liste.add(e);
+			liste.sort(tous.comparator());
+			return liste.stream();
+		}
+		NavigableSet<T> suite = apres == null ? tous : tous.tailSet(apres, false);
+		return suite.stream().filter(filtre);
+	}
+
+	/**
+	 * Additionne les tailles de plusieurs ensembles de numéros, en s'arrêtant dès
+	 * que le seuil de tri est dépassé.
+	 * 
+	 * @param ensembles Ensembles à mesurer.
+	 * @return somme des tailles, ou une valeur supérieure à {@link #SEUIL_TRI}.
+	 */
+	static int taille(Iterable<ListeIds> ensembles) {
+		int n = 0;
+		for (ListeIds l : ensembles)
+			if ((n += l.taille()) > SEUIL_TRI)
+				break;
+		return n;
+	}
+}
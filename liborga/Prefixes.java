@@ -0,0 +1,461 @@
+package liborga;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+
+/**
+ * Arbre des préfixes de clés associées à des éléments numérotés, classés par
+ * popularité.
+ * <p>
+ * 
+ * L'arbre est compacté : chaque arête porte une suite de caractères et seuls
+ * les nœuds où les clés divergent sont créés, d'où au plus deux nœuds par clé.
+ * Un nœud dont le sous-arbre contient plus de {@value #MEMORISES} clés garde
+ * la liste de ses {@value #MEMORISES} éléments les plus populaires, tenue à
+ * jour à chaque ajout et à chaque changement de popularité : les premières
+ * complétions d'un préfixe se lisent alors directement, sans parcourir le
+ * sous-arbre. Quand un élément quitte la liste d'un nœud (retrait, baisse de
+ * popularité), elle est recalculée à partir des listes de ses enfants, sans
+ * parcourir non plus le sous-arbre.
+ * <p>
+ * 
+ * À popularité égale, les éléments de plus petit numéro passent en premier.
+ * Un élément peut avoir plusieurs clés ; il n'est proposé qu'une fois.
+ * <p>
+ * 
+ * Cette classe n'est pas synchronisée : {@link #completer} ne modifie rien et
+ * peut être appelée par plusieurs threads à la fois, mais pas pendant une
+ * modification (voir {@link Autocompletion}).
+ * 
+ * @param <T> Type des éléments.
+ */
+final class Prefixes<T> {
+
+	/**
+	 * Nombre d'éléments les plus populaires gardés en chaque nœud.
+	 */
+	static final int MEMORISES = 10;
+
+	private static final int[] AUCUN = new int[0];
+
+	/**
+	 * Nœud de l'arbre.
+	 */
+	private static final class Noeud {
+
+		/**
+		 * Caractères de l'arête qui mène à ce nœud.
+		 */
+		String etiquette;
+
+		/**
+		 * Enfants, triés sur le premier caractère de leur étiquette.
+		 */
+		Noeud[] enfants = AUCUN_ENFANT;
+
+		/**
+		 * Numéros des éléments dont une clé se termine à ce nœud.
+		 */
+		int[] ids = AUCUN;
+
+		/**
+		 * Nombre de clés du sous-arbre.
+		 */
+		int nombre;
+
+		/**
+		 * Éléments les plus populaires du sous-arbre, du plus au moins populaire ;
+		 * null si le sous-arbre a au plus {@value Prefixes#MEMORISES} clés.
+		 */
+		int[] meilleurs;
+
+		Noeud(String etiquette) {
+			this.etiquette = etiquette;
+		}
+	}
+
+	private static final Noeud[] AUCUN_ENFANT = new Noeud[0];
+
+	private final IntFunction<T> ELEMENTS;
+
+	private final Noeud RACINE = new Noeud("");
+
+	/**
+	 * Popularité de chaque élément, par numéro.
+	 */
+	private int[] popularites = new int[64];
+
+	/**
+	 * @param elements Accès à un élément par son numéro.
+	 */
+	Prefixes(IntFunction<T> elements) {
+		this.ELEMENTS = elements;
+	}
+
+	// Modification --------------------------------------------------------
+
+	/**
+	 * Associe une clé à un élément (sans effet si c'est déjà le cas).
+	 * 
+	 * @param cle    Clé normalisée.
+	 * @param numero Numéro de l'élément.
+	 */
+	void ajouter(String cle, int numero) {
+		if (contient(cle, numero))
+			return;
+		reserver(numero);
+		Noeud n = RACINE;
+		for (int i = 0;;) {
+			n.nombre++;
+			if (n.meilleurs == null && n.nombre > MEMORISES)
+				n.meilleurs = plusPopulaires(n, MEMORISES);
+			if (n.meilleurs != null)
+				placer(n, numero);
+			if (i == cle.length()) {
+				n.ids = avec(n.ids, numero);
+				return;
+			}
+			int c = enfant(n, cle.charAt(i));
+			if (c < 0) {
+				Noeud f = new Noeud(cle.substring(i));
+				f.nombre = 1;
+				f.ids = new int[] { numero };
+				inserer(n, -c - 1, f);
+				return;
+			}
+			Noeud f = n.enfants[c];
+			int commun = communs(f.etiquette, cle, i);
+			if (commun < f.etiquette.length()) {
+				// l'arête se sépare : un nœud intermédiaire reprend le sous-arbre
+				Noeud m = new Noeud(f.etiquette.substring(0, commun));
+				f.etiquette = f.etiquette.substring(commun);
+				m.enfants = new Noeud[] { f };
+				m.nombre = f.nombre;
+				m.meilleurs = f.meilleurs == null ? null : f.meilleurs.clone();
+				n.enfants[c] = f = m;
+			}
+			i += commun;
+			n = f;
+		}
+	}
+
+	/**
+	 * Dissocie une clé d'un élément (sans effet si elle ne lui est pas associée).
+	 * 
+	 * @param cle    Clé normalisée.
+	 * @param numero Numéro de l'élément.
+	 */
+	void retirer(String cle, int numero) {
+		if (!contient(cle, numero))
+			return;
+		List<Noeud> chemin = chemin(cle);
+		Noeud n = chemin.get(chemin.size() - 1);
+		int p = 0;
+		while (n.ids[p] != numero)
+			p++;
+		n.ids = sans(n.ids, p);
+		for (int k = chemin.size() - 1; k >= 0; k--) {
+			n = chemin.get(k);
+			n.nombre--;
+			if (n.meilleurs != null)
+				n.meilleurs = n.nombre <= MEMORISES ? null : recalculer(n, numero);
+			if (k == 0)
+				break;
+			// un nœud vide disparaît, un nœud de passage rejoint son unique enfant
+			Noeud parent = chemin.get(k - 1);
+			int c = enfant(parent, n.etiquette.charAt(0));
+			if (n.nombre == 0) {
+				Noeud[] e = new Noeud[parent.enfants.length - 1];
+				System.arraycopy(parent.enfants, 0, e, 0, c);
+				System.arraycopy(parent.enfants, c + 1, e, c, e.length - c);
+				parent.enfants = e.length == 0 ? AUCUN_ENFANT : e;
+			} else if (n.ids.length == 0 && n.enfants.length == 1) {
+				Noeud f = n.enfants[0];
+				f.etiquette = n.etiquette + f.etiquette;
+				parent.enfants[c] = f;
+				chemin.set(k, f);
+			}
+		}
+	}
+
+	/**
+	 * Change la popularité d'un élément.
+	 * 
+	 * @param numero     Numéro de l'élément.
+	 * @param popularite Nouvelle popularité.
+	 * @param cles       Clés de l'élément, déjà ajoutées (les autres sont
+	 *                   ignorées).
+	 */
+	void noter(int numero, int popularite, String... cles) {
+		reserver(numero);
+		int ancienne = popularites[numero];
+		if (popularite == ancienne)
+			return;
+		popularites[numero] = popularite;
+		List<List<Noeud>> chemins = new ArrayList<>(cles.length);
+		int profondeur = 0;
+		for (String cle : cles) {
+			if (!contient(cle, numero))
+				continue;
+			List<Noeud> chemin = chemin(cle);
+			chemins.add(chemin);
+			profondeur = Math.max(profondeur, chemin.size());
+			if (popularite > ancienne)
+				for (Noeud n : chemin)
+					if (n.meilleurs != null)
+						placer(n, numero);
+		}
+		if (popularite > ancienne)
+			return;
+		// baisse : l'élément peut céder sa place à un autre, des feuilles à la racine ; les
+		// chemins de toutes ses clés sont remontés ensemble, pour qu'un nœud commun ne soit
+		// recalculé qu'à partir d'enfants déjà à jour
+		for (int k = profondeur - 1; k >= 0; k--)
+			for (List<Noeud> chemin : chemins)
+				if (k < chemin.size()) {
+					Noeud n = chemin.get(k);
+					if (n.meilleurs != null)
+						n.meilleurs = recalculer(n, numero);
+				}
+	}
+
+	/**
+	 * Oublie la popularité d'un élément qui n'a plus de clé, pour que son numéro
+	 * puisse être réattribué (voir {@link Table}).
+	 * 
+	 * @param numero Numéro de l'élément.
+	 */
+	void oublier(int numero) {
+		if (numero < popularites.length)
+			popularites[numero] = 0;
+	}
+
+	// Consultation --------------------------------------------------------
+
+	/**
+	 * @param prefixe Préfixe normalisé.
+	 * @param nombre  Nombre maximal d'éléments renvoyés.
+	 * @return éléments ayant une clé qui commence par le préfixe, du plus au
+	 *         moins populaire.
+	 */
+	List<T> completer(String prefixe, int nombre) {
+		if (nombre <= 0)
+			return Collections.emptyList();
+		Noeud n = RACINE;
+		for (int i = 0; i < prefixe.length();) {
+			int c = enfant(n, prefixe.charAt(i));
+			if (c < 0)
+				return Collections.emptyList();
+			n = n.enfants[c];
+			int commun = communs(n.etiquette, prefixe, i);
+			if (i + commun < prefixe.length() && commun < n.etiquette.length())
+				return Collections.emptyList();
+			i += commun;
+		}
+		int[] ids = n.meilleurs != null && (nombre <= MEMORISES || n.meilleurs.length < MEMORISES) ? n.meilleurs
+				: plusPopulaires(n, nombre);
+		List<T> r = new ArrayList<>(Math.min(nombre, ids.length));
+		for (int i = 0; i < ids.length && r.size() < nombre; i++) {
+			T e = ELEMENTS.apply(ids[i]);
+			if (e != null) // pas encore rangé par le thread qui le crée
+				r.add(e);
+		}
+		return r;
+	}
+
+	/**
+	 * @return vrai si la clé est déjà associée à l'élément.
+	 */
+	private boolean contient(String cle, int numero) {
+		Noeud n = RACINE;
+		for (int i = 0; i < cle.length();) {
+			int c = enfant(n, cle.charAt(i));
+			if (c < 0)
+				return false;
+			n = n.enfants[c];
+			if (!cle.startsWith(n.etiquette, i))
+				return false;
+			i += n.etiquette.length();
+		}
+		for (int id : n.ids)
+			if (id == numero)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return nœuds rencontrés en suivant une clé depuis la racine, jusqu'au nœud
+	 *         de la clé s'il existe, sinon jusqu'au dernier nœud dont l'arête
+	 *         correspond à la clé.
+	 */
+	private List<Noeud> chemin(String cle) {
+		List<Noeud> chemin = new ArrayList<>();
+		Noeud n = RACINE;
+		for (int i = 0;;) {
+			chemin.add(n);
+			if (i == cle.length())
+				break;
+			int c = enfant(n, cle.charAt(i));
+			if (c < 0 || !cle.startsWith(n.enfants[c].etiquette, i))
+				break;
+			n = n.enfants[c];
+			i += n.etiquette.length();
+		}
+		return chemin;
+	}
+
+	/**
+	 * Recalcule les éléments les plus populaires d'un nœud dont les enfants sont
+	 * à jour, s'ils comprenaient un élément retiré ou devenu moins populaire.
+	 * 
+	 * @return nouvelle liste des plus populaires du nœud.
+	 */
+	private int[] recalculer(Noeud n, int numero) {
+		int[] t = n.meilleurs;
+		int p = t.length - 1;
+		while (p >= 0 && t[p] != numero)
+			p--;
+		if (p < 0)
+			return t;
+		// les plus populaires du sous-arbre sont parmi ceux du nœud et de chaque enfant
+		List<Integer> candidats = new ArrayList<>();
+		for (int id : n.ids)
+			candidats.add(id);
+		for (Noeud f : n.enfants)
+			for (int id : f.meilleurs != null ? f.meilleurs : plusPopulaires(f, MEMORISES))
+				candidats.add(id);
+		candidats.sort((a, b) -> avant(a, b) ? -1 : a.equals(b) ? 0 : 1);
+		int[] r = new int[MEMORISES];
+		int k = 0;
+		for (int i = 0; i < candidats.size() && k < MEMORISES; i++)
+			if (i == 0 || !candidats.get(i).equals(candidats.get(i - 1)))
+				r[k++] = candidats.get(i);
+		return k == MEMORISES ? r : Arrays.copyOf(r, k);
+	}
+
+	/**
+	 * Parcourt un sous-arbre en ne gardant que ses éléments les plus populaires.
+	 * 
+	 * @return ces éléments, du plus au moins populaire.
+	 */
+	private int[] plusPopulaires(Noeud racine, int nombre) {
+		PriorityQueue<Integer> tas = new PriorityQueue<>(nombre, (a, b) -> avant(a, b) ? 1 : a.equals(b) ? 0 : -1);
+		Deque<Noeud> aVoir = new ArrayDeque<>();
+		aVoir.push(racine);
+		while (!aVoir.isEmpty()) {
+			Noeud n = aVoir.pop();
+			for (int id : n.ids) {
+				if (tas.size() == nombre && !avant(id, tas.peek()))
+					continue;
+				if (tas.contains(id))
+					continue; // élément déjà vu sous une autre clé
+				tas.add(id);
+				if (tas.size() > nombre)
+					tas.poll();
+			}
+			for (Noeud f : n.enfants)
+				aVoir.push(f);
+		}
+		int[] r = new int[tas.size()];
+		for (int i = r.length - 1; i >= 0; i--)
+			r[i] = tas.poll();
+		return r;
+	}
+
+	/**
+	 * Range un élément du sous-arbre parmi les plus populaires d'un nœud, s'il y
+	 * a sa place.
+	 */
+	private void placer(Noeud n, int numero) {
+		int[] t = n.meilleurs;
+		int p = t.length - 1;
+		while (p >= 0 && t[p] != numero)
+			p--;
+		if (p < 0) {
+			if (t.length < MEMORISES)
+				t = Arrays.copyOf(t, t.length + 1);
+			else if (!avant(numero, t[t.length - 1]))
+				return;
+			p = t.length - 1;
+			t[p] = numero;
+		}
+		for (; p > 0 && avant(t[p], t[p - 1]); p--) {
+			int x = t[p];
+			t[p] = t[p - 1];
+			t[p - 1] = x;
+		}
+		n.meilleurs = t;
+	}
+
+	private void reserver(int numero) {
+		if (numero >= popularites.length)
+			popularites = Arrays.copyOf(popularites, Math.max(numero + 1, 2 * popularites.length));
+	}
+
+	/**
+	 * @return vrai si l'élément a passe avant l'élément b.
+	 */
+	private boolean avant(int a, int b) {
+		int pa = popularites[a], pb = popularites[b];
+		return pa > pb || pa == pb && a < b;
+	}
+
+	/**
+	 * @return position de l'enfant dont l'étiquette commence par le caractère,
+	 *         ou (-(position d'insertion) - 1).
+	 */
+	private static int enfant(Noeud n, char c) {
+		int bas = 0, haut = n.enfants.length - 1;
+		while (bas <= haut) {
+			int milieu = (bas + haut) >>> 1;
+			char m = n.enfants[milieu].etiquette.charAt(0);
+			if (m < c)
+				bas = milieu + 1;
+			else if (m > c)
+				haut = milieu - 1;
+			else
+				return milieu;
+		}
+		return -bas - 1;
+	}
+
+	private static void inserer(Noeud n, int p, Noeud f) {
+		Noeud[] e = new Noeud[n.enfants.length + 1];
+		System.arraycopy(n.enfants, 0, e, 0, p);
+		e[p] = f;
+		System.arraycopy(n.enfants, p, e, p + 1, n.enfants.length - p);
+		n.enfants = e;
+	}
+
+	private static int[] avec(int[] ids, int numero) {
+		int[] r = Arrays.copyOf(ids, ids.length + 1);
+		r[ids.length] = numero;
+		return r;
+	}
+
+	private static int[] sans(int[] ids, int p) {
+		if (ids.length == 1)
+			return AUCUN;
+		int[] r = new int[ids.length - 1];
+		System.arraycopy(ids, 0, r, 0, p);
+		System.arraycopy(ids, p + 1, r, p, r.length - p);
+		return r;
+	}
+
+	/**
+	 * @return nombre de caractères communs au début de l'étiquette et à la clé
+	 *         à partir de la position i.
+	 */
+	private static int communs(String etiquette, String cle, int i) {
+		int n = Math.min(etiquette.length(), cle.length() - i), k = 0;
+		while (k < n && etiquette.charAt(k) == cle.charAt(i + k))
+			k++;
+		return k;
+	}
+}
@@ -0,0 +1,245 @@
+package liborga;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Recherche de titres et d'auteurs qui tolère les fautes de frappe.
+ * <p>
+ * 
+ * Une fois activée, la recherche approchée tient deux arbres de
+ * Burkhard-Keller (voir {@link ArbreBK}) des titres et des auteurs (sous les
+ * formes "nom", "nom prénom" et "prénom nom"), sans accents et indépendamment
+ * de la casse. Ils sont construits à partir des registres à l'activation, puis
+ * mis à jour à chaque création et chaque suppression. Une recherche renvoie
+ * les éléments à distance d'édition au plus donnée de la saisie, les plus
+ * proches d'abord : "Germinall" trouve Germinal, "furetire" trouve Antoine
+ * Furetière.
+ * <p>
+ * 
+ * La comparaison porte sur le titre ou le nom entier, et non sur une partie
+ * comme {@link Livre#select(String)}. Comme l'autocomplétion, la recherche
+ * approchée s'active catalogue par catalogue (voir {@link Catalogue}). Les
+ * recherches se font en même temps ; une modification du catalogue attend
+ * qu'elles soient terminées (voir {@link Verrou}).
+ */
+public final class RechercheApprochee {
+
+	/**
+	 * État de la recherche approchée d'un catalogue.
+	 */
+	static final class Etat {
+
+		private final Verrou VERROU = new Verrou();
+
+		/**
+		 * Arbres des titres et des auteurs, null tant que la recherche approchée
+		 * n'est pas activée.
+		 */
+		private ArbreBK<Livre> titres;
+
+		private ArbreBK<Auteur> auteurs;
+
+		private final Observateur OBSERVATEUR = new Observateur() {
+			@Override
+			public void auteurCree(Auteur a) {
+				VERROU.ecrire(() -> {
+					if (auteurs != null)
+						for (String cle : cles(a))
+							auteurs.ajouter(cle, a.ID);
+				});
+			}
+
+			@Override
+			public void livreCree(Livre l) {
+				VERROU.ecrire(() -> {
+					if (titres != null)
+						titres.ajouter(l.titreSansAccents(), l.ID);
+				});
+			}
+
+			@Override
+			public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+				VERROU.ecrire(() -> {
+					if (titres != null)
+						titres.retirer(l.titreSansAccents(), l.ID);
+				});
+			}
+
+			@Override
+			public void auteurSupprime(Auteur a) {
+				VERROU.ecrire(() -> {
+					if (auteurs != null)
+						for (String cle : cles(a))
+							auteurs.retirer(cle, a.ID);
+				});
+			}
+		};
+
+		private void verifierActive() {
+			if (titres == null)
+				throw new IllegalStateException("la recherche approchée n'est pas activée");
+		}
+	}
+
+	private RechercheApprochee() {
+	}
+
+	// Configuration -------------------------------------------------------
+
+	/**
+	 * Active ou désactive la recherche approchée du catalogue par défaut.
+	 * 
+	 * @param approcher vrai pour activer la recherche approchée.
+	 */
+	public static void activer(boolean approcher) {
+		activer(Catalogue.defaut(), approcher);
+	}
+
+	/**
+	 * Active ou désactive la recherche approchée d'un catalogue. L'activation
+	 * construit les arbres à partir de tout le catalogue existant.
+	 * 
+	 * @param c         Catalogue.
+	 * @param approcher vrai pour activer la recherche approchée.
+	 */
+	public static void activer(Catalogue c, boolean approcher) {
+		Etat e = c.RECHERCHE_APPROCHEE;
+		e.VERROU.ecrire(() -> {
+			if (approcher == (e.titres != null))
+				return;
+			if (!approcher) {
+				c.OBSERVATEURS.desabonner(e.OBSERVATEUR);
+				e.titres = null;
+				e.auteurs = null;
+				return;
+			}
+			e.titres = new ArbreBK<>(n -> Livre.parNumero(c, n));
+			e.auteurs = new ArbreBK<>(n -> Auteur.parNumero(c, n));
+			// abonné d'abord pour ne rien manquer : les ajouts en double sont sans effet
+			c.OBSERVATEURS.abonner(e.OBSERVATEUR);
+			for (Auteur a : Auteur.tous(c))
+				for (String cle : cles(a))
+					e.auteurs.ajouter(cle, a.ID);
+			for (Livre l : Livre.tous(c))
+				e.titres.ajouter(l.titreSansAccents(), l.ID);
+		});
+	}
+
+	/**
+	 * @return vrai si la recherche approchée du catalogue par défaut est activée.
+	 */
+	public static boolean estActive() {
+		return estActive(Catalogue.defaut());
+	}
+
+	/**
+	 * @param c Catalogue.
+	 * @return vrai si la recherche approchée de ce catalogue est activée.
+	 */
+	public static boolean estActive(Catalogue c) {
+		Etat e = c.RECHERCHE_APPROCHEE;
+		return e.VERROU.lire(() -> e.titres != null);
+	}
+
+	// Recherche -----------------------------------------------------------
+
+	/**
+	 * Cherche les livres du catalogue par défaut dont le titre est proche d'une
+	 * saisie (voir {@link #livres(Catalogue, String, int, int)}).
+	 * 
+	 * @param titre       Titre saisi.
+	 * @param distanceMax Nombre maximal de caractères insérés, supprimés ou
+	 *                    remplacés par rapport au titre cherché.
+	 * @param nombre      Nombre maximal de livres renvoyés.
+	 * @return livres trouvés, ceux dont le titre est le plus proche d'abord.
+	 * @throws IllegalArgumentException si la distance est négative.
+	 * @throws IllegalStateException    si la recherche approchée n'est pas
+	 *                                  activée.
+	 */
+	public static List<Livre> livres(String titre, int distanceMax, int nombre) {
+		return livres(Catalogue.defaut(), titre, distanceMax, nombre);
+	}
+
+	/**
+	 * Cherche les livres dont le titre est proche d'une saisie (indépendamment
+	 * de la casse et des accents).
+	 * 
+	 * @param c           Catalogue.
+	 * @param titre       Titre saisi.
+	 * @param distanceMax Nombre maximal de caractères insérés, supprimés ou
+	 *                    remplacés par rapport au titre cherché.
+	 * @param nombre      Nombre maximal de livres renvoyés.
+	 * @return livres trouvés, ceux dont le titre est le plus proche d'abord.
+	 * @throws IllegalArgumentException si la distance est négative.
+	 * @throws IllegalStateException    si la recherche approchée n'est pas
+	 *                                  activée.
+	 */
+	public static List<Livre> livres(Catalogue c, String titre, int distanceMax, int nombre) {
+		verifierDistance(distanceMax);
+		String q = Casse.sansAccents(titre);
+		Etat e = c.RECHERCHE_APPROCHEE;
+		return e.VERROU.lire(() -> {
+			e.verifierActive();
+			return e.titres.chercher(q, distanceMax, nombre);
+		});
+	}
+
+	/**
+	 * Cherche les auteurs du catalogue par défaut proches d'une saisie (voir
+	 * {@link #auteurs(Catalogue, String, int, int)}).
+	 * 
+	 * @param nom         Nom, "nom prénom" ou "prénom nom" saisi.
+	 * @param distanceMax Nombre maximal de caractères insérés, supprimés ou
+	 *                    remplacés par rapport à l'auteur cherché.
+	 * @param nombre      Nombre maximal d'auteurs renvoyés.
+	 * @return auteurs trouvés, les plus proches d'abord.
+	 * @throws IllegalArgumentException si la distance est négative.
+	 * @throws IllegalStateException    si la recherche approchée n'est pas
+	 *                                  activée.
+	 */
+	public static List<Auteur> auteurs(String nom, int distanceMax, int nombre) {
+		return auteurs(Catalogue.defaut(), nom, distanceMax, nombre);
+	}
+
+	/**
+	 * Cherche les auteurs dont le nom, ou le nom et le prénom dans un ordre ou
+	 * dans l'autre, sont proches d'une saisie (indépendamment de la casse et des
+	 * accents).
+	 * 
+	 * @param c           Catalogue.
+	 * @param nom         Nom, "nom prénom" ou "prénom nom" saisi.
+	 * @param distanceMax Nombre maximal de caractères insérés, supprimés ou
+	 *                    remplacés par rapport à l'auteur cherché.
+	 * @param nombre      Nombre maximal d'auteurs renvoyés.
+	 * @return auteurs trouvés, les plus proches d'abord.
+	 * @throws IllegalArgumentException si la distance est négative.
+	 * @throws IllegalStateException    si la recherche approchée n'est pas
+	 *                                  activée.
+	 */
+	public static List<Auteur> auteurs(Catalogue c, String nom, int distanceMax, int nombre) {
+		verifierDistance(distanceMax);
+		String q = Casse.sansAccents(nom);
+		Etat e = c.RECHERCHE_APPROCHEE;
+		return e.VERROU.lire(() -> {
+			e.verifierActive();
+			return e.auteurs.chercher(q, distanceMax, nombre);
+		});
+	}
+
+	private static void verifierDistance(int distanceMax) {
+		if (distanceMax < 0)
+			throw new IllegalArgumentException("distance négative : " + distanceMax);
+	}
+
+	/**
+	 * @return clés d'un auteur : "nom" et, s'il a un prénom, "nom prénom" et
+	 *         "prénom nom".
+	 */
+	private static String[] cles(Auteur a) {
+		String nom = a.nomSansAccents(), prenom = a.prenomSansAccents();
+		if (prenom.isEmpty())
+			return new String[] { nom };
+		return new String[] { nom, nom + " " + prenom, prenom + " " + nom };
+	}
+}
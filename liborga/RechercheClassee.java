@@ -0,0 +1,187 @@
+package liborga;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Recherche de livres classés par pertinence.
+ * <p>
+ * 
+ * Une fois activée, la recherche classée tient un index des termes (mots et
+ * nombres, sans accents et indépendamment de la casse) des titres et des mots
+ * clés des livres (voir {@link IndexTermes}). Il est construit à partir du
+ * registre des livres à l'activation, puis mis à jour à chaque création, chaque
+ * suppression et chaque ajout ou retrait de mot clé. Une recherche renvoie les
+ * livres qui contiennent au moins un terme de la requête, classés selon BM25 :
+ * les termes rares et répétés comptent plus, les titres longs un peu moins.
+ * <p>
+ * 
+ * Contrairement à {@link Livre#select(String)}, qui renvoie tous les livres
+ * dont le titre contient un motif, seuls les meilleurs sont calculés : les
+ * dix premiers d'une requête très large restent rapides. Comme
+ * l'autocomplétion, la recherche classée s'active catalogue par catalogue
+ * (voir {@link Catalogue}). Les recherches se font en même temps ; une modification
+ * du catalogue attend qu'elles soient terminées (voir {@link Verrou}).
+ */
+public final class RechercheClassee {
+
+	/**
+	 * État de la recherche classée d'un catalogue.
+	 */
+	static final class Etat {
+
+		private final Verrou VERROU = new Verrou();
+
+		/**
+		 * Index des termes, null tant que la recherche classée n'est pas activée.
+		 */
+		private IndexTermes<Livre> index;
+
+		private final Observateur OBSERVATEUR = new Observateur() {
+			@Override
+			public void livreCree(Livre l) {
+				VERROU.ecrire(() -> {
+					if (index != null)
+						index.ajouter(l.ID, l.titreSansAccents());
+				});
+			}
+
+			@Override
+			public void motCleAjoute(Livre l, MotCle m) {
+				VERROU.ecrire(() -> {
+					if (index != null)
+						index.ajouterMotCle(l.ID, m.ID, m.sansAccents());
+				});
+			}
+
+			@Override
+			public void motCleAjouteATous(MotCle m, Collection<Livre> livres) {
+				String texte = m.sansAccents();
+				VERROU.ecrire(() -> {
+					if (index != null)
+						for (Livre l : livres)
+							index.ajouterMotCle(l.ID, m.ID, texte);
+				});
+			}
+
+			@Override
+			public void motCleRetire(Livre l, MotCle m) {
+				VERROU.ecrire(() -> {
+					if (index != null)
+						index.retirerMotCle(l.ID, m.ID, m.sansAccents());
+				});
+			}
+
+			@Override
+			public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+				int[] mots = new int[motsCles.size()];
+				String[] textes = new String[mots.length];
+				int i = 0;
+				for (MotCle m : motsCles) {
+					mots[i] = m.ID;
+					textes[i++] = m.sansAccents();
+				}
+				VERROU.ecrire(() -> {
+					if (index != null)
+						index.retirer(l.ID, l.titreSansAccents(), mots, textes);
+				});
+			}
+		};
+	}
+
+	private RechercheClassee() {
+	}
+
+	// Configuration -------------------------------------------------------
+
+	/**
+	 * Active ou désactive la recherche classée du catalogue par défaut.
+	 * 
+	 * @param classer vrai pour activer la recherche classée.
+	 */
+	public static void activer(boolean classer) {
+		activer(Catalogue.defaut(), classer);
+	}
+
+	/**
+	 * Active ou désactive la recherche classée d'un catalogue. L'activation
+	 * construit l'index à partir de tout le catalogue existant.
+	 * 
+	 * @param c       Catalogue.
+	 * @param classer vrai pour activer la recherche classée.
+	 */
+	public static void activer(Catalogue c, boolean classer) {
+		Etat e = c.RECHERCHE_CLASSEE;
+		e.VERROU.ecrire(() -> {
+			if (classer == (e.index != null))
+				return;
+			if (!classer) {
+				c.OBSERVATEURS.desabonner(e.OBSERVATEUR);
+				e.index = null;
+				return;
+			}
+			e.index = new IndexTermes<>(n -> Livre.parNumero(c, n));
+			// abonné d'abord pour ne rien manquer : les ajouts en double sont sans effet
+			c.OBSERVATEURS.abonner(e.OBSERVATEUR);
+			for (Livre l : Livre.tous(c)) {
+				e.index.ajouter(l.ID, l.titreSansAccents());
+				for (MotCle m : l.getMotsCles())
+					if (m != null)
+						e.index.ajouterMotCle(l.ID, m.ID, m.sansAccents());
+			}
+		});
+	}
+
+	/**
+	 * @return vrai si la recherche classée du catalogue par défaut est activée.
+	 */
+	public static boolean estActive() {
+		return estActive(Catalogue.defaut());
+	}
+
+	/**
+	 * @param c Catalogue.
+	 * @return vrai si la recherche classée de ce catalogue est activée.
+	 */
+	public static boolean estActive(Catalogue c) {
+		Etat e = c.RECHERCHE_CLASSEE;
+		return e.VERROU.lire(() -> e.index != null);
+	}
+
+	// Recherche -----------------------------------------------------------
+
+	/**
+	 * Cherche les livres du catalogue par défaut les plus pertinents pour une
+	 * requête (voir {@link #chercher(Catalogue, String, int)}).
+	 * 
+	 * @param requete Termes cherchés, séparés par des espaces ou des signes.
+	 * @param nombre  Nombre maximal de livres renvoyés.
+	 * @return livres contenant au moins un terme de la requête, du plus au moins
+	 *         pertinent.
+	 * @throws IllegalStateException si la recherche classée n'est pas activée.
+	 */
+	public static List<Livre> chercher(String requete, int nombre) {
+		return chercher(Catalogue.defaut(), requete, nombre);
+	}
+
+	/**
+	 * Cherche les livres les plus pertinents pour une requête, d'après les
+	 * termes de leur titre et de leurs mots clés.
+	 * 
+	 * @param c       Catalogue.
+	 * @param requete Termes cherchés, séparés par des espaces ou des signes.
+	 * @param nombre  Nombre maximal de livres renvoyés.
+	 * @return livres contenant au moins un terme de la requête, du plus au moins
+	 *         pertinent.
+	 * @throws IllegalStateException si la recherche classée n'est pas activée.
+	 */
+	public static List<Livre> chercher(Catalogue c, String requete, int nombre) {
+		String q = Casse.sansAccents(requete);
+		Etat e = c.RECHERCHE_CLASSEE;
+		return e.VERROU.lire(() -> {
+			if (e.index == null)
+				throw new IllegalStateException("la recherche classée n'est pas activée");
+			return e.index.chercher(q, nombre);
+		});
+	}
+}
@@ -0,0 +1,218 @@
+package liborga;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Recommandation de livres semblables à un livre donné.
+ * <p>
+ * 
+ * Une fois activée, la recommandation tient le voisinage des livres (voir
+ * {@link Voisinage}) : les mots clés de chaque livre, les livres de chaque mot
+ * clé et de chaque auteur, et le nombre de livres que partagent deux mots clés.
+ * Il est construit à partir du registre des livres à l'activation, puis mis à
+ * jour à chaque création, chaque suppression et chaque ajout ou retrait de mot
+ * clé. Les livres recommandés sont ceux qui ont le plus de mots clés en commun
+ * avec le livre (relativement à leur nombre), ceux du même auteur étant
+ * favorisés.
+ * <p>
+ * 
+ * Plutôt que de réunir un {@link Livre#selectParMotCle(String)} par mot clé du
+ * livre, chaque recommandation ne compare qu'un nombre borné de candidats, et
+ * ses résultats sont gardés. {@link #recalculer()} recalcule en parallèle les
+ * recommandations de tout le catalogue ; on peut l'appeler périodiquement pour
+ * que les recommandations reflètent les derniers changements des autres livres.
+ * Comme l'autocomplétion, la recommandation s'active catalogue par catalogue
+ * (voir {@link Catalogue}). Les recommandations se font en même temps ; une
+ * modification du catalogue ou un recalcul attend qu'elles soient terminées
+ * (voir {@link Verrou}).
+ */
+public final class Recommandation {
+
+	/**
+	 * État de la recommandation d'un catalogue.
+	 */
+	static final class Etat {
+
+		private final Verrou VERROU = new Verrou();
+
+		/**
+		 * Voisinage des livres, null tant que la recommandation n'est pas activée.
+		 */
+		private Voisinage<Livre, MotCle> voisinage;
+
+		private final Observateur OBSERVATEUR = new Observateur() {
+			@Override
+			public void livreCree(Livre l) {
+				VERROU.ecrire(() -> {
+					if (voisinage != null)
+						voisinage.ajouter(l.ID, l.AUTEUR.ID);
+				});
+			}
+
+			@Override
+			public void motCleAjoute(Livre l, MotCle m) {
+				VERROU.ecrire(() -> {
+					if (voisinage != null)
+						voisinage.ajouterMotCle(l.ID, m.ID);
+				});
+			}
+
+			@Override
+			public void motCleAjouteATous(MotCle m, Collection<Livre> livres) {
+				VERROU.ecrire(() -> {
+					if (voisinage != null)
+						for (Livre l : livres)
+							voisinage.ajouterMotCle(l.ID, m.ID);
+				});
+			}
+
+			@Override
+			public void motCleRetire(Livre l, MotCle m) {
+				VERROU.ecrire(() -> {
+					if (voisinage != null)
+						voisinage.retirerMotCle(l.ID, m.ID);
+				});
+			}
+
+			@Override
+			public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+				VERROU.ecrire(() -> {
+					if (voisinage != null)
+						voisinage.retirer(l.ID);
+				});
+			}
+		};
+
+		private void verifierActive() {
+			if (voisinage == null)
+				throw new IllegalStateException("la recommandation n'est pas activée");
+		}
+	}
+
+	private Recommandation() {
+	}
+
+	// Configuration -------------------------------------------------------
+
+	/**
+	 * Active ou désactive la recommandation du catalogue par défaut.
+	 * 
+	 * @param recommander vrai pour activer la recommandation.
+	 */
+	public static void activer(boolean recommander) {
+		activer(Catalogue.defaut(), recommander);
+	}
+
+	/**
+	 * Active ou désactive la recommandation d'un catalogue. L'activation
+	 * construit le voisinage à partir de tout le catalogue existant, puis calcule
+	 * les recommandations de tous les livres.
+	 * 
+	 * @param c           Catalogue.
+	 * @param recommander vrai pour activer la recommandation.
+	 */
+	public static void activer(Catalogue c, boolean recommander) {
+		Etat e = c.RECOMMANDATION;
+		e.VERROU.ecrire(() -> {
+			if (recommander == (e.voisinage != null))
+				return;
+			if (!recommander) {
+				c.OBSERVATEURS.desabonner(e.OBSERVATEUR);
+				e.voisinage = null;
+				return;
+			}
+			e.voisinage = new Voisinage<>(n -> Livre.parNumero(c, n), n -> MotCle.parNumero(c, n));
+			// abonné d'abord pour ne rien manquer : les ajouts en double sont sans effet
+			c.OBSERVATEURS.abonner(e.OBSERVATEUR);
+			for (Livre l : Livre.tous(c)) {
+				e.voisinage.ajouter(l.ID, l.AUTEUR.ID);
+				for (MotCle m : l.getMotsCles())
+					if (m != null)
+						e.voisinage.ajouterMotCle(l.ID, m.ID);
+			}
+			e.voisinage.recalculer();
+		});
+	}
+
+	/**
+	 * @return vrai si la recommandation du catalogue par défaut est activée.
+	 */
+	public static boolean estActive() {
+		return estActive(Catalogue.defaut());
+	}
+
+	/**
+	 * @param c Catalogue.
+	 * @return vrai si la recommandation de ce catalogue est activée.
+	 */
+	public static boolean estActive(Catalogue c) {
+		Etat e = c.RECOMMANDATION;
+		return e.VERROU.lire(() -> e.voisinage != null);
+	}
+
+	/**
+	 * Recalcule les recommandations de tous les livres du catalogue par défaut
+	 * (voir {@link #recalculer(Catalogue)}).
+	 * 
+	 * @throws IllegalStateException si la recommandation n'est pas activée.
+	 */
+	public static void recalculer() {
+		recalculer(Catalogue.defaut());
+	}
+
+	/**
+	 * Recalcule les recommandations de tous les livres d'un catalogue, en
+	 * parallèle. Les modifications du catalogue attendent la fin du recalcul.
+	 * 
+	 * @param c Catalogue.
+	 * @throws IllegalStateException si la recommandation n'est pas activée.
+	 */
+	public static void recalculer(Catalogue c) {
+		Etat e = c.RECOMMANDATION;
+		e.VERROU.ecrire(() -> {
+			e.verifierActive();
+			e.voisinage.recalculer();
+		});
+	}
+
+	// Recherche -----------------------------------------------------------
+
+	/**
+	 * Recommande des livres semblables à un livre, dans son catalogue : qui
+	 * partagent ses mots clés ou son auteur.
+	 * 
+	 * @param livre  Livre.
+	 * @param nombre Nombre maximal de livres renvoyés.
+	 * @return livres recommandés, les plus semblables d'abord (le livre lui-même
+	 *         n'en fait pas partie).
+	 * @throws IllegalStateException si la recommandation n'est pas activée pour
+	 *                               le catalogue du livre.
+	 */
+	public static List<Livre> semblables(Livre livre, int nombre) {
+		Etat e = livre.AUTEUR.CATALOGUE.RECOMMANDATION;
+		return e.VERROU.lire(() -> {
+			e.verifierActive();
+			return e.voisinage.semblables(livre.ID, nombre);
+		});
+	}
+
+	/**
+	 * Cherche les mots clés le plus souvent associés à un mot clé sur les mêmes
+	 * livres, dans son catalogue.
+	 * 
+	 * @param mot    Mot clé.
+	 * @param nombre Nombre maximal de mots clés renvoyés.
+	 * @return mots clés partageant au moins un livre avec celui-ci, les plus
+	 *         associés d'abord.
+	 * @throws IllegalStateException si la recommandation n'est pas activée pour
+	 *                               le catalogue du mot clé.
+	 */
+	public static List<MotCle> motsClesAssocies(MotCle mot, int nombre) {
+		Etat e = mot.CATALOGUE.RECOMMANDATION;
+		return e.VERROU.lire(() -> {
+			e.verifierActive();
+			return e.voisinage.associes(mot.ID, nombre);
+		});
+	}
+}
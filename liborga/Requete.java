@@ -0,0 +1,480 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Requête composée sur les livres : combinaison par ET, OU et NON de critères
+ * portant sur le titre, l'auteur et les mots clés.
+ * <p>
+ * 
+ * Chaque critère a le sens de la méthode de sélection correspondante de
+ * {@link Livre} (sous-chaîne, indépendamment de la casse). Par exemple, les
+ * romans de Zola qui ne sont pas des comédies :
+ * 
+ * <pre>
+ * Requete.et(Requete.auteur("zola", ""), Requete.motCle("roman"), Requete.non(Requete.motCle("comédie"))).executer()
+ * </pre>
+ * 
+ * À l'exécution, chaque critère estime le nombre de livres qu'il peut
+ * sélectionner à partir des index des registres. Une conjonction ne calcule
+ * que les livres de son critère le plus sélectif, puis vérifie les autres
+ * critères livre par livre, du plus sélectif au moins sélectif : son coût
+ * dépend de la plus petite des listes de livres, pas de la taille du
+ * catalogue.
+ * <p>
+ * 
+ * Les requêtes sont immuables et peuvent être exécutées plusieurs fois, y
+ * compris simultanément.
+ */
+public abstract class Requete {
+
+	/**
+	 * Constructeur réservé aux sous-classes de ce fichier.
+	 */
+	private Requete() {
+	}
+
+	// Usines ----------------------------------------------------------------
+
+	/**
+	 * @param titrePartielOuComplet titre ou partie du titre à rechercher
+	 * @return critère sélectionnant les livres de {@link Livre#select(String)}
+	 */
+	public static Requete titre(String titrePartielOuComplet) {
+		return titre(titrePartielOuComplet, ModeRecherche.STRICT);
+	}
+
+	/**
+	 * @param titrePartielOuComplet titre ou partie du titre à rechercher
+	 * @param mode                  mode de recherche
+	 * @return critère sélectionnant les livres de
+	 *         {@link Livre#select(String, ModeRecherche)}
+	 */
+	public static Requete titre(String titrePartielOuComplet, ModeRecherche mode) {
+		Textes.Motif motif = new Textes.Motif(titrePartielOuComplet, mode);
+		return new Critere("titre", titrePartielOuComplet, mode) {
+			@Override
+			Plan planifier(Catalogue c) {
+				Collection<Livre> candidats = Livre.candidatsTitre(c, motif);
+				return new Plan(c, candidats == null ? c.nombreLivres() : candidats.size()) {
+					@Override
+					Set<Livre> resultats() {
+						if (candidats == null)
+							return c.LIVRES.PAR_CLE.filtrer(this::accepte);
+						Set<Livre> r = new HashSet<>();
+						for (Livre l : candidats)
+							if (accepte(l))
+								r.add(l);
+						return r;
+					}
+
+					@Override
+					boolean accepte(Livre l) {
+						return l.titreContient(motif);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom à
+	 *                                      rechercher
+	 * @return critère sélectionnant les livres de
+	 *         {@link Livre#selectParAuteur(String, String)}
+	 */
+	public static Requete auteur(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet) {
+		return auteur(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet, ModeRecherche.STRICT);
+	}
+
+	/**
+	 * @param nomDAuteurPartielOuComplet    nom ou partie du nom à rechercher
+	 * @param prenomDAuteurPartielOuComplet prénom ou partie du prénom à
+	 *                                      rechercher
+	 * @param mode                          mode de recherche
+	 * @return critère sélectionnant les livres de
+	 *         {@link Livre#selectParAuteur(String, String, ModeRecherche)}
+	 */
+	public static Requete auteur(String nomDAuteurPartielOuComplet, String prenomDAuteurPartielOuComplet,
+			ModeRecherche mode) {
+		return new Critere("auteur", nomDAuteurPartielOuComplet + ", " + prenomDAuteurPartielOuComplet, mode) {
+			@Override
+			Plan planifier(Catalogue c) {
+				Set<Auteur> auteurs = c.selectAuteursSansMesure(nomDAuteurPartielOuComplet, prenomDAuteurPartielOuComplet,
+						mode);
+				List<ListeIds> listes = new ArrayList<>(auteurs.size());
+				long n = 0;
+				for (Auteur a : auteurs) {
+					listes.add(a.LIVRES);
+					n += a.LIVRES.taille();
+				}
+				return new Plan(c, n) {
+					@Override
+					ListeIds.Contenu numeros() {
+						return ListeIds.union(listes);
+					}
+
+					@Override
+					boolean accepte(Livre l) {
+						return auteurs.contains(l.AUTEUR);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @return critère sélectionnant les livres de
+	 *         {@link Livre#selectParMotCle(String)}
+	 */
+	public static Requete motCle(String motClePartielOuComplet) {
+		return motCle(motClePartielOuComplet, ModeRecherche.STRICT);
+	}
+
+	/**
+	 * @param motClePartielOuComplet mot clé ou partie du mot clé à rechercher
+	 * @param mode                   mode de recherche
+	 * @return critère sélectionnant les livres de
+	 *         {@link Livre#selectParMotCle(String, ModeRecherche)}
+	 */
+	public static Requete motCle(String motClePartielOuComplet, ModeRecherche mode) {
+		return new Critere("motCle", motClePartielOuComplet, mode) {
+			@Override
+			Plan planifier(Catalogue c) {
+				Set<MotCle> mots = c.selectMotsClesSansMesure(motClePartielOuComplet, mode);
+				List<ListeIds> listes = new ArrayList<>(mots.size());
+				long n = 0;
+				for (MotCle m : mots) {
+					listes.add(m.LIVRES);
+					n += m.LIVRES.taille();
+				}
+				ListeIds.Contenu numerosMots = MotCle.numeros(mots);
+				return new Plan(c, n) {
+					@Override
+					ListeIds.Contenu numeros() {
+						return ListeIds.union(listes);
+					}
+
+					@Override
+					boolean accepte(Livre l) {
+						return l.aUnMotCleParmi(numerosMots);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * @param requetes requêtes à combiner (au moins une)
+	 * @return requête sélectionnant les livres sélectionnés par toutes les
+	 *         requêtes fournies
+	 */
+	public static Requete et(Requete... requetes) {
+		return new Et(liste(requetes));
+	}
+
+	/**
+	 * @param requetes requêtes à combiner (au moins une)
+	 * @return requête sélectionnant les livres sélectionnés par au moins une des
+	 *         requêtes fournies
+	 */
+	public static Requete ou(Requete... requetes) {
+		return new Ou(liste(requetes));
+	}
+
+	/**
+	 * @param requete requête à inverser
+	 * @return requête sélectionnant les livres non sélectionnés par la requête
+	 *         fournie
+	 */
+	public static Requete non(Requete requete) {
+		if (requete == null)
+			throw new NullPointerException("requête null");
+		return new Non(requete);
+	}
+
+	private static List<Requete> liste(Requete[] requetes) {
+		if (requetes.length == 0)
+			throw new IllegalArgumentException("au moins une requête est nécessaire");
+		List<Requete> l = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(requetes)));
+		if (l.contains(null))
+			throw new NullPointerException("requête null");
+		return l;
+	}
+
+	// Exécution -------------------------------------------------------------
+
+	/**
+	 * Exécute la requête sur le catalogue par défaut.
+	 * 
+	 * @return ensemble des livres sélectionnés par la requête
+	 */
+	public Set<Livre> executer() {
+		return executer(Catalogue.defaut());
+	}
+
+	/**
+	 * Exécute la requête sur un catalogue, dans son état actuel.
+	 * 
+	 * @param c catalogue interrogé
+	 * @return ensemble des livres sélectionnés par la requête
+	 */
+	public Set<Livre> executer(Catalogue c) {
+		return planifier(c).resultats();
+	}
+
+	/**
+	 * Prépare l'exécution de la requête sur un catalogue, dans son état actuel.
+	 * 
+	 * @param c catalogue interrogé
+	 * @return plan d'exécution
+	 */
+	abstract Plan planifier(Catalogue c);
+
+	/**
+	 * Plan d'exécution d'une requête : estimation de son nombre de résultats,
+	 * calcul de ses résultats et test d'un livre.
+	 */
+	abstract static class Plan {
+
+		/**
+		 * Catalogue interrogé.
+		 */
+		final Catalogue CATALOGUE;
+
+		/**
+		 * Nombre maximal estimé de livres sélectionnés.
+		 */
+		final long ESTIMATION;
+
+		Plan(Catalogue catalogue, long estimation) {
+			this.CATALOGUE = catalogue;
+			this.ESTIMATION = estimation;
+		}
+
+		/**
+		 * @return vrai si ce plan ne sélectionne des livres qu'en excluant ceux d'un
+		 *         autre (il ne peut alors pas servir de point de départ efficace).
+		 */
+		boolean negatif() {
+			return false;
+		}
+
+		/**
+		 * @return numéros triés des livres sélectionnés, ou null si le plan ne
+		 *         sait pas les obtenir directement de ses index
+		 */
+		ListeIds.Contenu numeros() {
+			return null;
+		}
+
+		/**
+		 * @return nouvel ensemble des livres sélectionnés
+		 */
+		Set<Livre> resultats() {
+			return new HashSet<>(Livre.parNumeros(CATALOGUE, numeros()));
+		}
+
+		/**
+		 * @param l livre à tester
+		 * @return vrai si le livre est sélectionné
+		 */
+		abstract boolean accepte(Livre l);
+	}
+
+	/**
+	 * Ordre des plans, du plus sélectif au moins sélectif.
+	 */
+	private static final Comparator<Plan> SELECTIVITE = Comparator.comparingLong(p -> p.ESTIMATION);
+
+	// Implémentations -------------------------------------------------------
+
+	/**
+	 * Critère élémentaire.
+	 */
+	private abstract static class Critere extends Requete {
+
+		private final String DESCRIPTION;
+
+		Critere(String nom, String valeur, ModeRecherche mode) {
+			this.DESCRIPTION = nom + "(\"" + valeur + (mode == ModeRecherche.STRICT ? "\")" : "\", " + mode + ")");
+		}
+
+		@Override
+		public String toString() {
+			return DESCRIPTION;
+		}
+	}
+
+	private static final class Et extends Requete {
+
+		private final List<Requete> REQUETES;
+
+		Et(List<Requete> requetes) {
+			this.REQUETES = requetes;
+		}
+
+		@Override
+		Plan planifier(Catalogue c) {
+			List<Plan> plans = new ArrayList<>(REQUETES.size());
+			Plan depart = null;
+			for (Requete r : REQUETES) {
+				Plan p = r.planifier(c);
+				plans.add(p);
+				if (!p.negatif() && (depart == null || p.ESTIMATION < depart.ESTIMATION))
+					depart = p;
+			}
+			plans.sort(SELECTIVITE);
+			Plan premier = depart;
+			return new Plan(c, premier == null ? c.nombreLivres() : premier.ESTIMATION) {
+				@Override
+				boolean negatif() {
+					return premier == null;
+				}
+
+				@Override
+				Set<Livre> resultats() {
+					Set<Livre> r;
+					if (premier == null) // uniquement des négations
+						return c.LIVRES.PAR_CLE.filtrer(this::accepte);
+					ListeIds.Contenu numeros = premier.numeros();
+					if (numeros == null) {
+						r = premier.resultats();
+						r.removeIf(l -> !accepteSauf(Collections.singleton(premier), l));
+						return r;
+					}
+					// Les listes de numéros pas beaucoup plus longues que celle du
+					// départ sont intersectées directement, sans consulter les livres.
+					Set<Plan> intersectes = new HashSet<>();
+					intersectes.add(premier);
+					for (Plan p : plans) {
+						if (p.negatif() || intersectes.contains(p) || p.ESTIMATION > 16 * (long) numeros.TAILLE)
+							continue;
+						ListeIds.Contenu autres = p.numeros();
+						if (autres != null) {
+							numeros = ListeIds.intersection(numeros, autres);
+							intersectes.add(p);
+						}
+					}
+					r = new HashSet<>();
+					for (Livre l : Livre.parNumeros(c, numeros))
+						if (accepteSauf(intersectes, l))
+							r.add(l);
+					return r;
+				}
+
+				@Override
+				boolean accepte(Livre l) {
+					return accepteSauf(Collections.emptySet(), l);
+				}
+
+				private boolean accepteSauf(Set<Plan> exclus, Livre l) {
+					for (Plan p : plans)
+						if (!exclus.contains(p) && !p.accepte(l))
+							return false;
+					return true;
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return "et" + REQUETES;
+		}
+	}
+
+	private static final class Ou extends Requete {
+
+		private final List<Requete> REQUETES;
+
+		Ou(List<Requete> requetes) {
+			this.REQUETES = requetes;
+		}
+
+		@Override
+		Plan planifier(Catalogue c) {
+			List<Plan> plans = new ArrayList<>(REQUETES.size());
+			long n = 0;
+			boolean negatif = false;
+			for (Requete r : REQUETES) {
+				Plan p = r.planifier(c);
+				plans.add(p);
+				n += p.ESTIMATION;
+				negatif |= p.negatif();
+			}
+			plans.sort(SELECTIVITE.reversed()); // le test s'arrête au premier succès
+			boolean contientNegation = negatif;
+			return new Plan(c, Math.min(n, c.nombreLivres())) {
+				@Override
+				boolean negatif() {
+					return contientNegation;
+				}
+
+				@Override
+				Set<Livre> resultats() {
+					Set<Livre> r = new HashSet<>();
+					for (Plan p : plans)
+						r.addAll(p.resultats());
+					return r;
+				}
+
+				@Override
+				boolean accepte(Livre l) {
+					for (Plan p : plans)
+						if (p.accepte(l))
+							return true;
+					return false;
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return "ou" + REQUETES;
+		}
+	}
+
+	private static final class Non extends Requete {
+
+		private final Requete REQUETE;
+
+		Non(Requete requete) {
+			this.REQUETE = requete;
+		}
+
+		@Override
+		Plan planifier(Catalogue c) {
+			Plan inverse = REQUETE.planifier(c);
+			return new Plan(c, c.nombreLivres()) {
+				@Override
+				boolean negatif() {
+					return true;
+				}
+
+				@Override
+				Set<Livre> resultats() {
+					return c.LIVRES.PAR_CLE.filtrer(this::accepte);
+				}
+
+				@Override
+				boolean accepte(Livre l) {
+					return !inverse.accepte(l);
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return "non(" + REQUETE + ")";
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package liborga;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sauvegarde et chargement de tout le catalogue dans un instantané binaire.
+ * <p>
+ * 
+ * Le fichier commence par une table des chaînes distinctes (titres, noms,
+ * prénoms et mots), codées en UTF-8. Les auteurs, les mots clés puis les livres
+ * suivent ; ils ne désignent les chaînes, les auteurs et les mots clés que par
+ * leur numéro. Tous les entiers sont codés sur quatre octets, poids forts en
+ * tête :
+ * 
+ * <pre>
+ * instantané : MAGIE VERSION
+ *              nbChaines  (longueur octets)*
+ *              nbAuteurs  (nom prénom)*
+ *              nbMotsCles (mot)*
+ *              nbLivres   (titre auteur nbMots mot*)*
+ * </pre>
+ * 
+ * Le chargement lit le fichier par projection en mémoire, de façon
+ * séquentielle.
+ */
+public final class Sauvegarde {
+
+	/**
+	 * Nombre magique en tête de fichier ("LIBO").
+	 */
+	private static final int MAGIE = 0x4C49424F;
+
+	/**
+	 * Version du format.
+	 */
+	private static final int VERSION = 1;
+
+	private Sauvegarde() {
+	}
+
+	// Écriture ------------------------------------------------------------
+
+	/**
+	 * Enregistre tout le catalogue par défaut dans un fichier (voir
+	 * {@link #enregistrer(Catalogue, Path)}).
+	 * 
+	 * @param fichier Fichier à créer ou à remplacer.
+	 * @throws IOException en cas d'erreur d'écriture.
+	 */
+	public static void enregistrer(Path fichier) throws IOException {
+		enregistrer(Catalogue.defaut(), fichier);
+	}
+
+	/**
+	 * Enregistre tout un catalogue dans un fichier.
+	 * <p>
+	 * 
+	 * Le fichier est d'abord écrit à côté de sa destination et synchronisé sur
+	 * disque, puis renommé et son répertoire synchronisé : un instantané existant
+	 * n'est jamais remplacé par un fichier incomplet, même en cas d'arrêt
+	 * brutal, et le nouveau est durable quand la méthode rend la main. Les
+	 * créations faites par d'autres threads pendant l'enregistrement peuvent être
+	 * incluses ou non, mais l'instantané reste cohérent.
+	 * 
+	 * @param c       Catalogue à enregistrer.
+	 * @param fichier Fichier à créer ou à remplacer.
+	 * @throws IOException en cas d'erreur d'écriture.
+	 */
+	public static void enregistrer(Catalogue c, Path fichier) throws IOException {
+		// Copie des registres : les livres d'abord, pour que leurs auteurs et leurs
+		// mots clés soient numérotés même s'ils ont été créés entre-temps.
+		List<Livre> livres = new ArrayList<>(Livre.tous(c));
+		List<MotCle[]> liens = new ArrayList<>(livres.size());
+		Numerotation<Auteur> auteurs = new Numerotation<>();
+		Numerotation<MotCle> mots = new Numerotation<>();
+		for (Livre l : livres) {
+			MotCle[] m = l.getMotsCles().toArray(new MotCle[0]);
+			liens.add(m);
+			auteurs.numero(l.AUTEUR);
+			for (MotCle mc : m)
+				mots.numero(mc);
+		}
+		for (Auteur a : Auteur.tous(c))
+			auteurs.numero(a);
+		for (MotCle m : MotCle.tous(c))
+			mots.numero(m);
+
+		Numerotation<String> chaines = new Numerotation<>();
+		for (Auteur a : auteurs.ELEMENTS) {
+			chaines.numero(a.getNom());
+			chaines.numero(a.getPrenom());
+		}
+		for (MotCle m : mots.ELEMENTS)
+			chaines.numero(m.getMot());
+		for (Livre l : livres)
+			chaines.numero(l.getTitre());
+
+		Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+		try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16));
+			out.writeInt(MAGIE);
+			out.writeInt(VERSION);
+			out.writeInt(chaines.ELEMENTS.size());
+			for (String s : chaines.ELEMENTS) {
+				byte[] octets = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(octets.length);
+				out.write(octets);
+			}
+			out.writeInt(auteurs.ELEMENTS.size());
+			for (Auteur a : auteurs.ELEMENTS) {
+				out.writeInt(chaines.numero(a.getNom()));
+				out.writeInt(chaines.numero(a.getPrenom()));
+			}
+			out.writeInt(mots.ELEMENTS.size());
+			for (MotCle m : mots.ELEMENTS)
+				out.writeInt(chaines.numero(m.getMot()));
+			out.writeInt(livres.size());
+			for (int i = 0; i < livres.size(); i++) {
+				Livre l = livres.get(i);
+				MotCle[] m = liens.get(i);
+				out.writeInt(chaines.numero(l.getTitre()));
+				out.writeInt(auteurs.numero(l.AUTEUR));
+				out.writeInt(m.length);
+				for (MotCle mc : m)
+					out.writeInt(mots.numero(mc));
+			}
+			out.flush();
+			canal.force(true); // sur disque avant de remplacer l'ancien instantané
+		}
+		Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		synchroniserRepertoire(fichier);
+	}
+
+	/**
+	 * Synchronise sur disque le répertoire d'un fichier, pour qu'une création,
+	 * un renommage ou une suppression dans ce répertoire survive à un arrêt
+	 * brutal. Sans effet sur les systèmes qui ne permettent pas d'ouvrir un
+	 * répertoire (Windows).
+	 * 
+	 * @param fichier Fichier dont le répertoire a été modifié.
+	 * @throws IOException en cas d'erreur de synchronisation.
+	 */
+	static void synchroniserRepertoire(Path fichier) throws IOException {
+		Path repertoire = fichier.toAbsolutePath().getParent();
+		FileChannel canal;
+		try {
+			canal = FileChannel.open(repertoire, StandardOpenOption.READ);
+		} catch (IOException e) {
+			return; // répertoire impossible à ouvrir sur ce système
+		}
+		try (FileChannel c = canal) {
+			c.force(true);
+		}
+	}
+
+	/**
+	 * Attribue des numéros consécutifs à des éléments distincts.
+	 * 
+	 * @param <T> Type des éléments.
+	 */
+	private static final class Numerotation<T> {
+
+		private final Map<T, Integer> NUMEROS = new HashMap<>();
+
+		private final List<T> ELEMENTS = new ArrayList<>();
+
+		int numero(T element) {
+			Integer n = NUMEROS.get(element);
+			if (n == null) {
+				n = ELEMENTS.size();
+				NUMEROS.put(element, n);
+				ELEMENTS.add(element);
+			}
+			return n;
+		}
+	}
+
+	// Lecture -------------------------------------------------------------
+
+	/**
+	 * Charge un instantané dans le catalogue par défaut (voir
+	 * {@link #charger(Catalogue, Path)}).
+	 * 
+	 * @param fichier Fichier à charger.
+	 * @throws IOException en cas d'erreur de lecture ou si le fichier n'est pas
+	 *                     un instantané valide.
+	 */
+	public static void charger(Path fichier) throws IOException {
+		charger(Catalogue.defaut(), fichier);
+	}
+
+	/**
+	 * Charge un instantané dans un catalogue.
+	 * <p>
+	 * 
+	 * Les livres, auteurs et mots clés de l'instantané sont ajoutés à ceux qui
+	 * existent déjà (un élément déjà présent est simplement retrouvé).
+	 * 
+	 * @param c       Catalogue où charger l'instantané.
+	 * @param fichier Fichier à charger.
+	 * @throws IOException en cas d'erreur de lecture ou si le fichier n'est pas
+	 *                     un instantané valide.
+	 */
+	public static void charger(Catalogue c, Path fichier) throws IOException {
+		try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+			Lecteur in = new Lecteur(canal);
+			if (in.entier() != MAGIE)
+				throw new IOException(fichier + " n'est pas un instantané du catalogue");
+			int version = in.entier();
+			if (version != VERSION)
+				throw new IOException("version d'instantané non supportée : " + version);
+			String[] chaines = new String[in.taille()];
+			for (int i = 0; i < chaines.length; i++)
+				chaines[i] = in.chaine();
+			Auteur[] auteurs = new Auteur[in.taille()];
+			for (int i = 0; i < auteurs.length; i++)
+				auteurs[i] = Auteur.getOrCreate(c, in.element(chaines), in.element(chaines), false);
+			MotCle[] mots = new MotCle[in.taille()];
+			for (int i = 0; i < mots.length; i++)
+				mots[i] = MotCle.getOrCreate(c, in.element(chaines), false);
+			int nbLivres = in.taille();
+			for (int i = 0; i < nbLivres; i++) {
+				String titre = in.element(chaines);
+				Auteur a = in.element(auteurs);
+				if (titre.isEmpty() || a == null)
+					throw new IOException("livre invalide dans l'instantané");
+				Livre l = Livre.getOrCreate(titre, a, false);
+				for (int n = in.taille(); n > 0; n--) {
+					MotCle m = in.element(mots);
+					if (m == null)
+						throw new IOException("mot clé invalide dans l'instantané");
+					l.addMotCle(m);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lecture séquentielle d'un fichier projeté en mémoire par fenêtres
+	 * successives (une projection est limitée à 2 Go).
+	 */
+	private static final class Lecteur {
+
+		private static final int FENETRE = 1 << 30;
+
+		private final FileChannel CANAL;
+
+		private final long TAILLE;
+
+		private ByteBuffer tampon;
+
+		private long debutFenetre;
+
+		private byte[] octets = new byte[256];
+
+		Lecteur(FileChannel canal) throws IOException {
+			this.CANAL = canal;
+			this.TAILLE = canal.size();
+			this.tampon = ByteBuffer.allocate(0);
+		}
+
+		/**
+		 * Garantit qu'au moins n octets sont lisibles dans le tampon.
+		 */
+		private void exiger(int n) throws IOException {
+			if (tampon.remaining() >= n)
+				return;
+			long position = debutFenetre + tampon.position();
+			if (TAILLE - position < n)
+				throw new IOException("instantané tronqué");
+			debutFenetre = position;
+			tampon = CANAL.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.max(n, Math.min(FENETRE, TAILLE - position)));
+		}
+
+		int entier() throws IOException {
+			exiger(4);
+			return tampon.getInt();
+		}
+
+		int taille() throws IOException {
+			int n = entier();
+			if (n < 0)
+				throw new IOException("taille négative dans l'instantané");
+			return n;
+		}
+
+		<T> T element(T[] table) throws IOException {
+			int i = entier();
+			if (i < 0 || i >= table.length)
+				throw new IOException("référence invalide dans l'instantané : " + i);
+			return table[i];
+		}
+
+		String chaine() throws IOException {
+			int n = taille();
+			exiger(n);
+			if (octets.length < n)
+				octets = new byte[Math.max(n, 2 * octets.length)];
+			tampon.get(octets, 0, n);
+			return new String(octets, 0, n, StandardCharsets.UTF_8);
+		}
+	}
+}
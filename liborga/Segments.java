@@ -0,0 +1,223 @@
+package liborga;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Registre d'éléments partagé sans verrou entre threads, partitionné en
+ * {@value #NOMBRE} segments selon le hachage de leur clé (une clé repliée,
+ * voir {@link Casse#replier(String)}). Chaque opération sur une clé ne touche
+ * que son segment, avec les garanties d'une {@link ConcurrentHashMap}.
+ * <p>
+ * 
+ * Un parcours de plus de {@value Table#SEUIL_PARALLELE} éléments (voir
+ * {@link #filtrer(Predicate)}) est réparti par segment entre les threads du
+ * pool commun : chaque segment produit ses propres résultats, réunis ensuite
+ * sans aucune synchronisation.
+ * 
+ * @param <V> Type des éléments.
+ */
+final class Segments<V> extends AbstractMap<String, V> implements ConcurrentMap<String, V> {
+
+	private static final int BITS = 6;
+
+	private static final int NOMBRE = 1 << BITS;
+
+	private final ConcurrentHashMap<String, V>[] SEGMENTS;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	Segments() {
+		SEGMENTS = new ConcurrentHashMap[NOMBRE];
+		for (int i = 0; i < NOMBRE; i++)
+			SEGMENTS[i] = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Le segment est choisi par les bits de poids fort du hachage mélangé : les
+	 * bits de poids faible, qui placent la clé dans son segment, restent ainsi
+	 * tous utiles.
+	 */
+	private ConcurrentHashMap<String, V> segment(Object cle) {
+		return SEGMENTS[(cle.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - BITS)];
+	}
+
+	/**
+	 * Sélectionne les éléments qui vérifient un filtre.
+	 * 
+	 * @param filtre Condition que doivent vérifier les éléments retenus.
+	 * @return nouvel ensemble des éléments retenus.
+	 */
+	Set<V> filtrer(Predicate<? super V> filtre) {
+		if (size() <= Table.SEUIL_PARALLELE || !Table.parallele()) {
+			Set<V> r = new HashSet<>();
+			for (ConcurrentHashMap<String, V> s : SEGMENTS)
+				filtrer(s, filtre, r);
+			return r;
+		}
+		List<List<V>> retenus = Arrays.stream(SEGMENTS).parallel()
+				.map(s -> filtrer(s, filtre, new ArrayList<>()))
+				.collect(Collectors.toList());
+		int total = 0;
+		for (List<V> l : retenus)
+			total += l.size();
+		Set<V> r = new HashSet<>(Math.max(16, (int) (total / .75f) + 1));
+		for (List<V> l : retenus)
+			r.addAll(l);
+		return r;
+	}
+
+	private static <V, C extends Collection<V>> C filtrer(ConcurrentHashMap<String, V> segment,
+			Predicate<? super V> filtre, C r) {
+		for (V e : segment.values())
+			if (filtre.test(e))
+				r.add(e);
+		return r;
+	}
+
+	@Override
+	public int size() {
+		long n = 0;
+		for (ConcurrentHashMap<String, V> s : SEGMENTS)
+			n += s.mappingCount();
+		return (int) Math.min(n, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (ConcurrentHashMap<String, V> s : SEGMENTS)
+			if (!s.isEmpty())
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean containsKey(Object cle) {
+		return segment(cle).containsKey(cle);
+	}
+
+	@Override
+	public V get(Object cle) {
+		return segment(cle).get(cle);
+	}
+
+	@Override
+	public V put(String cle, V valeur) {
+		return segment(cle).put(cle, valeur);
+	}
+
+	@Override
+	public V remove(Object cle) {
+		return segment(cle).remove(cle);
+	}
+
+	@Override
+	public void clear() {
+		for (ConcurrentHashMap<String, V> s : SEGMENTS)
+			s.clear();
+	}
+
+	@Override
+	public V putIfAbsent(String cle, V valeur) {
+		return segment(cle).putIfAbsent(cle, valeur);
+	}
+
+	@Override
+	public boolean remove(Object cle, Object valeur) {
+		return segment(cle).remove(cle, valeur);
+	}
+
+	@Override
+	public boolean replace(String cle, V ancienne, V nouvelle) {
+		return segment(cle).replace(cle, ancienne, nouvelle);
+	}
+
+	@Override
+	public V replace(String cle, V valeur) {
+		return segment(cle).replace(cle, valeur);
+	}
+
+	@Override
+	public V computeIfAbsent(String cle, Function<? super String, ? extends V> calcul) {
+		return segment(cle).computeIfAbsent(cle, calcul);
+	}
+
+	@Override
+	public V computeIfPresent(String cle, BiFunction<? super String, ? super V, ? extends V> calcul) {
+		return segment(cle).computeIfPresent(cle, calcul);
+	}
+
+	@Override
+	public V compute(String cle, BiFunction<? super String, ? super V, ? extends V> calcul) {
+		return segment(cle).compute(cle, calcul);
+	}
+
+	@Override
+	public V merge(String cle, V valeur, BiFunction<? super V, ? super V, ? extends V> calcul) {
+		return segment(cle).merge(cle, valeur, calcul);
+	}
+
+	/**
+	 * @return vue des entrées de tous les segments, parcourus l'un après
+	 *         l'autre (faiblement cohérente, comme celle de chaque segment).
+	 */
+	@Override
+	public Set<Entry<String, V>> entrySet() {
+		return new AbstractSet<Entry<String, V>>() {
+			@Override
+			public Iterator<Entry<String, V>> iterator() {
+				return new Iterator<Entry<String, V>>() {
+					private int segment;
+
+					private Iterator<Entry<String, V>> courant = SEGMENTS[0].entrySet().iterator();
+
+					/**
+					 * Itérateur qui a donné la dernière entrée, avant que hasNext ne
+					 * passe au segment suivant.
+					 */
+					private Iterator<Entry<String, V>> dernier;
+
+					@Override
+					public boolean hasNext() {
+						while (!courant.hasNext() && segment < NOMBRE - 1)
+							courant = SEGMENTS[++segment].entrySet().iterator();
+						return courant.hasNext();
+					}
+
+					@Override
+					public Entry<String, V> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						dernier = courant;
+						return courant.next();
+					}
+
+					@Override
+					public void remove() {
+						if (dernier == null)
+							throw new IllegalStateException();
+						dernier.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return Segments.this.size();
+			}
+		};
+	}
+}
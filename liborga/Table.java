@@ -0,0 +1,275 @@
+package liborga;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Attribution de numéros consécutifs (à partir de 0) à des éléments, et accès
+ * à un élément par son numéro.
+ * <p>
+ * 
+ * Les numéros des éléments supprimés sont réattribués : la table et ses
+ * parcours ne dépassent pas le plus grand nombre d'éléments rangés à la fois.
+ * Un numéro libéré ne l'est qu'une fois retiré de tous les index, et n'est
+ * réattribué qu'après {@value #QUARANTAINE} autres libérations, pour qu'une
+ * recherche en cours qui l'a lu avant sa libération trouve une case vide
+ * plutôt qu'un autre élément.
+ * <p>
+ * 
+ * Les éléments sont rangés par blocs de taille fixe : la table grandit sans
+ * jamais recopier les éléments déjà rangés, et la lecture ne prend aucun
+ * verrou.
+ * <p>
+ * 
+ * Un filtrage de plus de {@value #SEUIL_PARALLELE} éléments est réparti par
+ * segments de {@value #TAILLE_BLOC} numéros entre les threads du pool commun :
+ * chaque segment produit ses propres résultats, qui sont mis bout à bout sans
+ * aucune synchronisation.
+ * 
+ * @param <T> Type des éléments.
+ */
+final class Table<T> {
+
+	private static final int BITS = 12;
+
+	private static final int TAILLE_BLOC = 1 << BITS;
+
+	private static final int MASQUE = TAILLE_BLOC - 1;
+
+	/**
+	 * Nombre d'éléments au-delà duquel un filtrage (ou une réunion de listes de
+	 * numéros, voir {@link ListeIds#union(Iterable)}) est fait en parallèle.
+	 */
+	static final int SEUIL_PARALLELE = 1 << 15;
+
+	/**
+	 * Nombre de numéros libérés au-delà duquel le plus ancien est réattribué.
+	 */
+	static final int QUARANTAINE = TAILLE_BLOC;
+
+	/**
+	 * Prochain numéro jamais attribué.
+	 */
+	private final AtomicInteger SUIVANT = new AtomicInteger();
+
+	/**
+	 * Verrou des numéros libérés.
+	 */
+	private final Object LIBRES = new Object();
+
+	/**
+	 * Numéros libérés, en file circulaire du plus ancien (à l'indice
+	 * {@link #premierLibre}) au plus récent.
+	 */
+	private int[] numerosLibres = new int[16];
+
+	private int premierLibre;
+
+	/**
+	 * Nombre de numéros libérés, lu sans verrou pour ne pas le prendre tant
+	 * qu'aucun numéro n'est réattribuable.
+	 */
+	private volatile int libres;
+
+	private volatile AtomicReferenceArray<T>[] blocs = nouveauxBlocs(0);
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T> AtomicReferenceArray<T>[] nouveauxBlocs(int n) {
+		return new AtomicReferenceArray[n];
+	}
+
+	/**
+	 * @return un numéro libre : le plus anciennement libéré s'il est sorti de
+	 *         quarantaine, sinon un numéro jamais attribué auparavant.
+	 * @throws IllegalStateException si tous les numéros sont attribués.
+	 */
+	int numero() {
+		if (libres > QUARANTAINE) {
+			synchronized (LIBRES) {
+				if (libres > QUARANTAINE) {
+					int n = numerosLibres[premierLibre];
+					premierLibre = (premierLibre + 1) & (numerosLibres.length - 1);
+					libres--;
+					return n;
+				}
+			}
+		}
+		int n = SUIVANT.getAndIncrement();
+		if (n < 0)
+			throw new IllegalStateException("plus de numéro disponible");
+		return n;
+	}
+
+	/**
+	 * Rend un numéro, dont la case a été vidée et que plus aucun index ne
+	 * contient, pour qu'il soit réattribué.
+	 * 
+	 * @param numero Numéro obtenu par {@link #numero()}.
+	 */
+	void liberer(int numero) {
+		synchronized (LIBRES) {
+			int n = libres, t = numerosLibres.length;
+			if (n == t) { // la file double, ses numéros remis dans l'ordre à partir de 0
+				int[] nt = new int[2 * t];
+				System.arraycopy(numerosLibres, premierLibre, nt, 0, t - premierLibre);
+				System.arraycopy(numerosLibres, 0, nt, t - premierLibre, premierLibre);
+				numerosLibres = nt;
+				premierLibre = 0;
+			}
+			numerosLibres[(premierLibre + n) & (numerosLibres.length - 1)] = numero;
+			libres = n + 1;
+		}
+	}
+
+	/**
+	 * @return nombre de numéros attribués (tous les numéros lui sont
+	 *         inférieurs).
+	 */
+	int taille() {
+		return SUIVANT.get();
+	}
+
+	/**
+	 * Range un élément sous son numéro (ou vide la case si l'élément est null).
+	 * 
+	 * @param numero  Numéro obtenu par {@link #numero()}.
+	 * @param element Élément.
+	 */
+	void ranger(int numero, T element) {
+		int i = numero >>> BITS;
+		AtomicReferenceArray<T>[] b = blocs;
+		if (i >= b.length || b[i] == null)
+			b = agrandir(i);
+		b[i].set(numero & MASQUE, element);
+	}
+
+	/**
+	 * @param numero Numéro d'un élément.
+	 * @return l'élément rangé sous ce numéro, ou null s'il n'y en a pas.
+	 */
+	T get(int numero) {
+		AtomicReferenceArray<T>[] b = blocs;
+		int i = numero >>> BITS;
+		if (numero < 0 || i >= b.length || b[i] == null)
+			return null;
+		return b[i].get(numero & MASQUE);
+	}
+
+	/**
+	 * @param numeros Numéros d'éléments rangés dans la table.
+	 * @return vue (non modifiable) des éléments correspondants. Les numéros dont
+	 *         la case a été vidée entre-temps sont sautés ; la taille de la vue
+	 *         les compte encore.
+	 */
+	Collection<T> elements(ListeIds.Contenu numeros) {
+		return new AbstractCollection<T>() {
+			@Override
+			public Iterator<T> iterator() {
+				return new Iterator<T>() {
+					private int i;
+
+					private T suivant;
+
+					@Override
+					public boolean hasNext() {
+						while (suivant == null && i < numeros.TAILLE)
+							suivant = get(numeros.IDS[i++]);
+						return suivant != null;
+					}
+
+					@Override
+					public T next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						T e = suivant;
+						suivant = null;
+						return e;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return numeros.TAILLE;
+			}
+		};
+	}
+
+	/**
+	 * Sélectionne les éléments qui vérifient un filtre.
+	 * 
+	 * @param numeros Numéros des candidats, ou null pour tous les éléments de la
+	 *                table.
+	 * @param filtre  Condition que doivent vérifier les éléments retenus.
+	 * @return numéros triés des éléments retenus (les cases vides sont
+	 *         sautées).
+	 */
+	ListeIds.Contenu filtrer(ListeIds.Contenu numeros, Predicate<? super T> filtre) {
+		int n = numeros == null ? taille() : numeros.TAILLE;
+		if (n <= SEUIL_PARALLELE || !parallele()) {
+			int[] r = filtrer(numeros, 0, n, filtre);
+			return new ListeIds.Contenu(r, r.length);
+		}
+		int[][] segments = IntStream.range(0, (n + MASQUE) >>> BITS).parallel()
+				.mapToObj(s -> filtrer(numeros, s << BITS, Math.min(n, (s + 1) << BITS), filtre))
+				.toArray(int[][]::new);
+		int total = 0;
+		for (int[] s : segments)
+			total += s.length;
+		int[] r = new int[total];
+		int k = 0;
+		for (int[] s : segments) {
+			System.arraycopy(s, 0, r, k, s.length);
+			k += s.length;
+		}
+		return new ListeIds.Contenu(r, total);
+	}
+
+	/**
+	 * Filtre les candidats de rang compris entre deux bornes.
+	 * 
+	 * @return numéros retenus, dans l'ordre des candidats.
+	 */
+	private int[] filtrer(ListeIds.Contenu numeros, int debut, int fin, Predicate<? super T> filtre) {
+		int[] r = new int[Math.min(fin - debut, 16)];
+		int k = 0;
+		for (int i = debut; i < fin; i++) {
+			int numero = numeros == null ? i : numeros.IDS[i];
+			T e = get(numero);
+			if (e == null || !filtre.test(e))
+				continue;
+			if (k == r.length)
+				r = Arrays.copyOf(r, Math.min(fin - debut, 2 * k));
+			r[k++] = numero;
+		}
+		return k == r.length ? r : Arrays.copyOf(r, k);
+	}
+
+	/**
+	 * @return vrai si le pool commun dispose de plusieurs threads.
+	 */
+	static boolean parallele() {
+		return ForkJoinPool.getCommonPoolParallelism() > 1;
+	}
+
+	private synchronized AtomicReferenceArray<T>[] agrandir(int i) {
+		AtomicReferenceArray<T>[] b = blocs;
+		if (i >= b.length) {
+			AtomicReferenceArray<T>[] nb = nouveauxBlocs(Math.max(i + 1, 2 * b.length));
+			System.arraycopy(b, 0, nb, 0, b.length);
+			b = nb;
+		}
+		if (b[i] == null)
+			b[i] = new AtomicReferenceArray<>(TAILLE_BLOC);
+		blocs = b; // publication du bloc créé
+		return b;
+	}
+}
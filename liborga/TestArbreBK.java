@@ -0,0 +1,111 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Arbre de Burkhard-Keller comparé à un calcul naïf de la distance d'édition
+ * avec toutes les clés : courtes (calcul par masques) et longues (calcul en
+ * bande), plusieurs clés par élément, et assez de retraits pour que l'arbre
+ * soit reconstruit.
+ */
+class TestArbreBK {
+
+	private static final String ALPHABET = "abcdeé";
+
+	public static void main(String[] args) {
+		comparer(new SplittableRandom(7), 6_000, 3, 12, 300);
+		comparer(new SplittableRandom(8), 1_500, 60, 40, 60);
+		Verifications.terminer("Arbre BK");
+	}
+
+	/**
+	 * @param elements Nombre d'éléments.
+	 * @param longueur Longueur minimale des clés.
+	 * @param ecart    Écart maximal des longueurs des clés.
+	 * @param requetes Nombre de recherches comparées.
+	 */
+	private static void comparer(SplittableRandom hasard, int elements, int longueur, int ecart, int requetes) {
+		Map<Integer, Set<String>> cles = new HashMap<>();
+		ArbreBK<Integer> arbre = new ArbreBK<>(i -> cles.containsKey(i) ? i : null);
+		List<String> toutes = new ArrayList<>();
+		for (int i = 0; i < elements; i++) {
+			for (int k = hasard.nextInt(8) == 0 ? 2 : 1; k > 0; k--) {
+				String cle = cle(hasard, longueur + hasard.nextInt(ecart));
+				arbre.ajouter(cle, i);
+				cles.computeIfAbsent(i, n -> new HashSet<>()).add(cle);
+				toutes.add(cle);
+			}
+		}
+		// deux tiers des éléments retirés, puis un sur neuf remis
+		for (int i = 0; i < elements; i++)
+			if (i % 3 != 0)
+				for (String cle : cles.remove(i))
+					arbre.retirer(cle, i);
+		for (int i = 1; i < elements; i += 9) {
+			String cle = toutes.get(hasard.nextInt(toutes.size()));
+			arbre.ajouter(cle, i);
+			cles.computeIfAbsent(i, n -> new HashSet<>()).add(cle);
+		}
+		int differences = 0;
+		for (int q = 0; q < requetes; q++) {
+			String requete = toutes.get(hasard.nextInt(toutes.size()));
+			if (hasard.nextBoolean())
+				requete = requete.substring(1) + "b";
+			int distanceMax = hasard.nextInt(4), nombre = 1 + hasard.nextInt(30);
+			List<Integer> attendus = naif(cles, requete, distanceMax, nombre);
+			List<Integer> obtenus = arbre.chercher(requete, distanceMax, nombre);
+			if (!obtenus.equals(attendus) && differences++ < 5)
+				Verifications.verifier(false, "chercher(\"" + requete + "\", " + distanceMax + ", " + nombre + ") : "
+						+ obtenus + " au lieu de " + attendus);
+		}
+		Verifications.verifier(differences == 0, differences + " recherche(s) différente(s)");
+	}
+
+	/**
+	 * @return éléments ayant une clé à distance au plus distanceMax de la
+	 *         requête, les plus proches d'abord puis par numéro.
+	 */
+	private static List<Integer> naif(Map<Integer, Set<String>> cles, String requete, int distanceMax, int nombre) {
+		Map<Integer, Integer> distances = new HashMap<>();
+		for (Map.Entry<Integer, Set<String>> e : cles.entrySet())
+			for (String cle : e.getValue()) {
+				int d = levenshtein(requete, cle);
+				if (d <= distanceMax)
+					distances.merge(e.getKey(), d, Math::min);
+			}
+		List<Integer> r = new ArrayList<>(distances.keySet());
+		r.sort((a, b) -> !distances.get(a).equals(distances.get(b))
+				? Integer.compare(distances.get(a), distances.get(b))
+				: Integer.compare(a, b));
+		return r.size() > nombre ? r.subList(0, nombre) : r;
+	}
+
+	private static int levenshtein(String a, String b) {
+		int[] precedente = new int[b.length() + 1], ligne = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++)
+			precedente[j] = j;
+		for (int i = 1; i <= a.length(); i++) {
+			ligne[0] = i;
+			for (int j = 1; j <= b.length(); j++)
+				ligne[j] = Math.min(Math.min(precedente[j], ligne[j - 1]) + 1,
+						precedente[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+			int[] t = precedente;
+			precedente = ligne;
+			ligne = t;
+		}
+		return precedente[b.length()];
+	}
+
+	private static String cle(SplittableRandom hasard, int longueur) {
+		StringBuilder sb = new StringBuilder(longueur);
+		for (int i = 0; i < longueur; i++)
+			sb.append(ALPHABET.charAt(hasard.nextInt(ALPHABET.length())));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,107 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Cache des sélections comparé aux sélections sans cache : créations,
+ * suppressions de livres et ajouts de mots clés au hasard sur un petit
+ * alphabet (avec et sans accents), pour que les modifications concernent
+ * souvent des résultats en cache.
+ * <p>
+ * 
+ * Une sélection servie par le cache renvoie l'ensemble en cache lui-même, non
+ * modifiable, et chaque sélection compte pour un succès ou un échec.
+ */
+class TestCache {
+
+	private static final String ALPHABET = "aéeoôuÉ";
+
+	public static void main(String[] args) {
+		partage();
+		comparer(new SplittableRandom(3), 20_000);
+		Verifications.terminer("Cache");
+	}
+
+	private static void partage() {
+		Catalogue c = Catalogue.creer();
+		CacheRequetes.activer(c, 10);
+		c.getOrCreateLivre("Nana", "Zola", "Émile");
+		Set<Livre> premier = c.selectLivres("na", ModeRecherche.STRICT);
+		Set<Livre> second = c.selectLivres("na", ModeRecherche.STRICT);
+		Verifications.verifier(premier == second, "le résultat en cache n'est pas recopié");
+		boolean refuse = false;
+		try {
+			second.clear();
+		} catch (UnsupportedOperationException e) {
+			refuse = true;
+		}
+		Verifications.verifier(refuse && second.size() == 1, "le résultat en cache n'est pas modifiable");
+		CacheRequetes.Statistiques s = CacheRequetes.statistiques(c);
+		Verifications.verifier(s.SUCCES == 1 && s.ECHECS == 1, "un succès et un échec : " + s);
+	}
+
+	private static void comparer(SplittableRandom hasard, int operations) {
+		Catalogue c = Catalogue.creer();
+		CacheRequetes.activer(c, 200);
+		List<Livre> livres = new ArrayList<>();
+		int selections = 0, differences = 0;
+		for (int k = 0; k < operations; k++) {
+			String p = mot(hasard, hasard.nextInt(5)), q = mot(hasard, hasard.nextInt(5));
+			ModeRecherche mode = hasard.nextBoolean() ? ModeRecherche.STRICT : ModeRecherche.SANS_ACCENTS;
+			int op = hasard.nextInt(8);
+			if (op == 0) {
+				Livre l = c.getOrCreateLivre(mot(hasard, 3 + hasard.nextInt(6)), mot(hasard, 2 + hasard.nextInt(4)),
+						mot(hasard, hasard.nextInt(5)));
+				if (l != null)
+					livres.add(l);
+				continue;
+			}
+			if (op == 1) {
+				if (!livres.isEmpty())
+					livres.get(hasard.nextInt(livres.size())).addMotCle(mot(hasard, 2 + hasard.nextInt(5)));
+				continue;
+			}
+			if (op == 2) {
+				if (!livres.isEmpty() && hasard.nextInt(4) == 0)
+					livres.remove(hasard.nextInt(livres.size())).remove();
+				continue;
+			}
+			Set<?> obtenus, attendus;
+			if (op == 3) {
+				obtenus = c.selectLivresParAuteur(p, q, mode);
+				attendus = Livre.selectParAuteurSansCache(c, p, q, mode);
+			} else if (op == 4) {
+				obtenus = c.selectAuteurs(p, q, mode);
+				attendus = Auteur.selectSansCache(c, p, q, mode);
+			} else if (op == 5) {
+				obtenus = c.selectLivres(p, mode);
+				attendus = Livre.selectSansCache(c, p, mode);
+			} else if (op == 6) {
+				obtenus = c.selectLivresParMotCle(p, mode);
+				attendus = Livre.selectParMotCleSansCache(c, p, mode);
+			} else {
+				obtenus = c.selectMotsCles(p, mode);
+				attendus = MotCle.selectSansCache(c, p, mode);
+			}
+			selections++;
+			if (!obtenus.equals(attendus) && differences++ < 5)
+				Verifications.verifier(false, "sélection " + op + " (\"" + p + "\", \"" + q + "\", " + mode + ") : "
+						+ obtenus + " au lieu de " + attendus);
+		}
+		Verifications.verifier(differences == 0, differences + " sélection(s) différente(s)");
+		CacheRequetes.Statistiques s = CacheRequetes.statistiques(c);
+		// une sélection de livres par auteur passe aussi par la sélection des auteurs
+		Verifications.verifier(s.SUCCES + s.ECHECS >= selections && s.SUCCES > 0,
+				"chaque sélection est comptée : " + s);
+	}
+
+	private static String mot(SplittableRandom hasard, int longueur) {
+		StringBuilder sb = new StringBuilder(longueur);
+		for (int i = 0; i < longueur; i++)
+			sb.append(ALPHABET.charAt(hasard.nextInt(ALPHABET.length())));
+		return sb.toString();
+	}
+}
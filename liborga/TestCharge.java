@@ -0,0 +1,57 @@
+package liborga;
+
+/**
+ * Test de charge de l'interning : un million d'appels à
+ * {@link Livre#getOrCreate(String, String, String)} créant autant de livres,
+ * puis un million d'appels retrouvant chacun d'eux avec une autre casse.
+ * <p>
+ * 
+ * Le nombre de livres peut être donné en argument. Le test échoue si une
+ * instance n'est pas retrouvée ou si une des deux phases dure plus d'une
+ * minute.
+ */
+class TestCharge {
+
+	private static final String[] NOMS = { "Hugo", "Zola", "Furetière", "Molière", "Flaubert", "Mérimée", "Sévigné",
+			"Éluard", "Brontë", "Lefèvre" };
+
+	private static final String[] PRENOMS = { "Victor", "Émile", "Antoine", "Gérard", "Hélène", "Zoé", "" };
+
+	private static final long DUREE_MAX = 60_000;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		String[] titres = new String[n], noms = new String[n], prenoms = new String[n];
+		for (int i = 0; i < n; i++) {
+			int auteur = i % 50_000;
+			titres[i] = "Les Misérables, tome " + i;
+			noms[i] = NOMS[auteur % NOMS.length] + (auteur / NOMS.length);
+			prenoms[i] = PRENOMS[auteur % PRENOMS.length];
+		}
+
+		Livre[] livres = new Livre[n];
+		long debut = System.currentTimeMillis();
+		for (int i = 0; i < n; i++)
+			livres[i] = Livre.getOrCreate(titres[i], noms[i], prenoms[i]);
+		long creation = System.currentTimeMillis() - debut;
+
+		for (int i = 0; i < n; i++) {
+			titres[i] = titres[i].toUpperCase();
+			noms[i] = noms[i].toLowerCase();
+		}
+		int retrouves = 0;
+		debut = System.currentTimeMillis();
+		for (int i = 0; i < n; i++)
+			if (Livre.getOrCreate(titres[i], noms[i], prenoms[i]) == livres[i])
+				retrouves++;
+		long recherche = System.currentTimeMillis() - debut;
+
+		System.out.println(n + " livres créés en " + creation + " ms, retrouvés en " + recherche + " ms");
+		Verifications.verifier(Livre.nombre() == n, "nombre de livres : " + Livre.nombre());
+		Verifications.verifier(retrouves == n, (n - retrouves) + " livre(s) non retrouvé(s)");
+		Verifications.verifier(creation < DUREE_MAX, "création trop lente");
+		Verifications.verifier(recherche < DUREE_MAX, "recherche trop lente");
+
+		Verifications.terminer("Charge");
+	}
+}
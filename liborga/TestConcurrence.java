@@ -0,0 +1,175 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Test de stress des registres concurrents : huit threads créent les mêmes
+ * livres, auteurs et mots clés en même temps, puis créent, étiquettent et
+ * suppriment des livres au hasard pendant que d'autres sélectionnent.
+ * <p>
+ * 
+ * Vérifie ensuite qu'à chaque clé correspond une seule instance, partagée par
+ * tous les threads, et que les registres, les index et les liens entre livres,
+ * auteurs et mots clés sont cohérents.
+ */
+class TestConcurrence {
+
+	private static final int THREADS = 8;
+
+	private static final int CLES = 20_000;
+
+	private static final int OPERATIONS = 100_000;
+
+	private static final String[] NOMS = { "Hugo", "Zola", "Furetière", "Molière", "Mérimée", "Éluard" };
+
+	private static final String[] MOTS = { "roman", "social", "comédie", "théâtre", "historique", "poésie",
+			"épistolaire", "réalisme" };
+
+	public static void main(String[] args) throws Exception {
+		Catalogue c = Catalogue.creer();
+		creationsSimultanees(c);
+		modificationsSimultanees(c);
+		verifierCoherence(c);
+
+		Verifications.terminer("Concurrence");
+	}
+
+	/**
+	 * Tous les threads créent les mêmes clés, chacun dans son ordre et avec sa
+	 * casse : ils doivent tous obtenir les mêmes instances.
+	 */
+	private static void creationsSimultanees(Catalogue c) throws Exception {
+		Livre[][] livres = new Livre[THREADS][CLES];
+		MotCle[][] mots = new MotCle[THREADS][CLES];
+		lancer(t -> {
+			for (int k = 0; k < CLES; k++) {
+				int i = (k + t * CLES / THREADS) % CLES;
+				String titre = "Germinal " + i, nom = NOMS[i % NOMS.length], mot = "mot " + i;
+				if (t % 2 == 1) {
+					titre = titre.toUpperCase();
+					nom = nom.toLowerCase();
+					mot = mot.toUpperCase();
+				}
+				livres[t][i] = c.getOrCreateLivre(titre, nom, "Émile");
+				mots[t][i] = c.getOrCreateMotCle(mot);
+			}
+		});
+		int differents = 0;
+		for (int t = 1; t < THREADS; t++)
+			for (int i = 0; i < CLES; i++)
+				if (livres[t][i] != livres[0][i] || mots[t][i] != mots[0][i])
+					differents++;
+		Verifications.verifier(differents == 0, differents + " instance(s) en double");
+		Verifications.verifier(c.LIVRES.PAR_CLE.size() == CLES, "nombre de livres : " + c.LIVRES.PAR_CLE.size());
+		Verifications.verifier(c.AUTEURS.PAR_CLE.size() == NOMS.length,
+				"nombre d'auteurs : " + c.AUTEURS.PAR_CLE.size());
+		Verifications.verifier(c.MOTS_CLES.PAR_CLE.size() == CLES,
+				"nombre de mots clés : " + c.MOTS_CLES.PAR_CLE.size());
+	}
+
+	/**
+	 * Créations, étiquetages, retraits et suppressions au hasard sur un petit
+	 * nombre de clés, mêlés à des sélections.
+	 */
+	private static void modificationsSimultanees(Catalogue c) throws Exception {
+		lancer(t -> {
+			SplittableRandom hasard = new SplittableRandom(t);
+			for (int k = 0; k < OPERATIONS; k++) {
+				String titre = "Nana " + hasard.nextInt(500), nom = NOMS[hasard.nextInt(NOMS.length)];
+				String mot = MOTS[hasard.nextInt(MOTS.length)];
+				int choix = hasard.nextInt(10);
+				if (choix < 3) {
+					c.getOrCreateLivre(titre, nom, "").addMotCle(mot);
+				} else if (choix < 5) {
+					Livre l = c.getLivre(titre, nom, "");
+					if (l != null)
+						l.removeMotCle(mot);
+				} else if (choix < 7) {
+					Livre l = c.getLivre(titre, nom, "");
+					if (l != null)
+						l.remove();
+				} else if (choix < 8) {
+					c.selectLivres("nana 1", ModeRecherche.STRICT);
+				} else if (choix < 9) {
+					c.selectLivresParAuteur(nom, "", ModeRecherche.STRICT);
+				} else {
+					c.selectLivresParMotCle(mot, ModeRecherche.STRICT);
+				}
+			}
+		});
+	}
+
+	private static void verifierCoherence(Catalogue c) {
+		for (Map.Entry<String, Livre> e : c.LIVRES.PAR_CLE.entrySet()) {
+			Livre l = e.getValue();
+			Verifications.verifier(e.getKey().equals(l.CLE) && !l.estSupprime(),
+					"livre supprimé dans le registre : " + l);
+			Verifications.verifier(Livre.parNumero(c, l.ID) == l, "numéro du livre : " + l);
+			Verifications.verifier(c.AUTEURS.PAR_CLE.get(l.AUTEUR.CLE) == l.AUTEUR, "auteur absent du registre : " + l);
+			Verifications.verifier(l.AUTEUR.LIVRES.contient(l.ID), "livre absent de son auteur : " + l);
+			for (MotCle m : l.getMotsCles()) {
+				Verifications.verifier(c.MOTS_CLES.PAR_CLE.get(m.CLE) == m, "mot clé absent du registre : " + m);
+				Verifications.verifier(m.LIVRES.contient(l.ID), "livre absent de son mot clé : " + l + " " + m);
+			}
+		}
+		for (Auteur a : c.AUTEURS.PAR_CLE.values()) {
+			ListeIds.Contenu ids = a.LIVRES.lire();
+			Verifications.verifier(!a.estSupprime() && ids.TAILLE > 0, "auteur supprimé ou orphelin : " + a);
+			for (int i = 0; i < ids.TAILLE; i++) {
+				Livre l = Livre.parNumero(c, ids.IDS[i]);
+				Verifications.verifier(l != null && l.AUTEUR == a, "livre disparu de l'auteur " + a);
+			}
+		}
+		for (MotCle m : c.MOTS_CLES.PAR_CLE.values()) {
+			ListeIds.Contenu ids = m.LIVRES.lire();
+			for (int i = 0; i < ids.TAILLE; i++) {
+				Livre l = Livre.parNumero(c, ids.IDS[i]);
+				Verifications.verifier(l != null && l.getMotsCles().contains(m), "livre disparu du mot clé " + m);
+			}
+		}
+		Verifications.verifier(c.LIVRES.TRIES.size() == c.LIVRES.PAR_CLE.size(),
+				"livres triés : " + c.LIVRES.TRIES.size());
+		Verifications.verifier(c.AUTEURS.TRIES.size() == c.AUTEURS.PAR_CLE.size(),
+				"auteurs triés : " + c.AUTEURS.TRIES.size());
+		Verifications.verifier(c.MOTS_CLES.TRIES.size() == c.MOTS_CLES.PAR_CLE.size(),
+				"mots clés triés : " + c.MOTS_CLES.TRIES.size());
+		Verifications.verifier(c.selectLivres("", ModeRecherche.STRICT).size() == c.LIVRES.PAR_CLE.size(),
+				"sélection de tous les livres");
+	}
+
+	/**
+	 * Interface d'une tâche exécutée par chacun des threads.
+	 */
+	private interface Tache {
+		void executer(int thread) throws Exception;
+	}
+
+	/**
+	 * Lance une tâche dans chacun des threads, tous en même temps, et attend
+	 * qu'ils aient fini. Une exception dans un thread compte comme un échec.
+	 */
+	private static void lancer(Tache tache) throws InterruptedException {
+		CyclicBarrier depart = new CyclicBarrier(THREADS);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int numero = t;
+			Thread thread = new Thread(() -> {
+				try {
+					depart.await();
+					tache.executer(numero);
+				} catch (Throwable e) {
+					e.printStackTrace();
+					Verifications.verifier(false, "exception dans le thread " + numero + " : " + e);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread t : threads)
+			t.join();
+	}
+}
@@ -0,0 +1,132 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Ajouts en masse comparés à des ajouts un par un : deux catalogues
+ * identiques reçoivent les mêmes mots, l'un par {@link Etiquetage}, l'autre par
+ * {@link Livre#addMotCle(String)}, puis leurs mots clés et leurs index sont
+ * comparés.
+ * <p>
+ * 
+ * Les mots invalides sont comptés dans le bilan, et le cache (actif sur le
+ * catalogue étiqueté) ne doit garder aucun résultat périmé.
+ */
+class TestEtiquetage {
+
+	public static void main(String[] args) {
+		SplittableRandom hasard = new SplittableRandom(3);
+		Catalogue masse = Catalogue.creer(), unParUn = Catalogue.creer();
+		CacheRequetes.activer(masse, 100);
+		List<Livre> livres = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			String nom = "Nom" + i % 300;
+			Livre l = masse.getOrCreateLivre("Titre " + i, nom, "P");
+			Livre jumeau = unParUn.getOrCreateLivre("Titre " + i, nom, "P");
+			livres.add(l);
+			for (int k = hasard.nextInt(3); k > 0; k--) {
+				String mot = "mot" + hasard.nextInt(200);
+				l.addMotCle(mot);
+				jumeau.addMotCle(mot);
+			}
+		}
+		Set<Livre> avant = masse.selectLivresParMotCle("mot1", ModeRecherche.STRICT);
+
+		// mêmes mots pour les livres d'une requête, dont des invalides
+		List<String> mots = Arrays.asList("mot1", "MOT1", "nouveau", "", null, "mot150");
+		Etiquetage.Bilan b = Etiquetage.etiqueter(masse, Requete.auteur("nom1", ""), mots);
+		long liens = 0;
+		for (Livre l : Requete.auteur("nom1", "").executer(unParUn))
+			for (String mot : mots)
+				if (l.addMotCle(mot))
+					liens++;
+		Verifications.verifier(b.LIENS == liens && b.REJETS == 2,
+				"bilan d'une requête : " + b + ", " + liens + " liens");
+
+		// mots propres à chaque livre
+		Map<Livre, List<String>> carte = new HashMap<>();
+		for (int i = 0; i < 2_000; i++) {
+			List<String> s = carte.computeIfAbsent(livres.get(hasard.nextInt(livres.size())), l -> new ArrayList<>());
+			for (int k = hasard.nextInt(5); k >= 0; k--)
+				s.add("mot" + hasard.nextInt(400));
+		}
+		b = Etiquetage.etiqueter(carte);
+		Verifications.verifier(b.LIVRES <= carte.size() && b.LIENS == ajouter(unParUn, carte),
+				"bilan par livre : " + b);
+
+		// livres en double dans la liste
+		List<Livre> liste = new ArrayList<>(livres.subList(0, 100));
+		liste.addAll(livres.subList(50, 150));
+		b = Etiquetage.etiqueter(liste, Arrays.asList("zz"));
+		Map<Livre, List<String>> zz = new HashMap<>();
+		for (Livre l : liste)
+			zz.put(l, Arrays.asList("zz"));
+		Verifications.verifier(b.LIVRES == 150 && b.LIENS == ajouter(unParUn, zz), "bilan d'une liste : " + b);
+
+		comparer(masse, unParUn);
+		Set<Livre> apres = masse.selectLivresParMotCle("mot1", ModeRecherche.STRICT);
+		Verifications.verifier(!apres.equals(avant)
+				&& apres.equals(Livre.selectParMotCleSansCache(masse, "mot1", ModeRecherche.STRICT)),
+				"pas de résultat périmé dans le cache");
+		Verifications.terminer("Étiquetage");
+	}
+
+	/**
+	 * Ajoute un par un, aux livres jumeaux, les mots d'un ajout en masse.
+	 * 
+	 * @return nombre de nouvelles associations.
+	 */
+	private static long ajouter(Catalogue c, Map<Livre, ? extends Collection<String>> motsParLivre) {
+		long liens = 0;
+		for (Map.Entry<Livre, ? extends Collection<String>> e : motsParLivre.entrySet()) {
+			Livre l = e.getKey();
+			Livre jumeau = c.getLivre(l.getTitre(), l.AUTEUR.getNom(), l.AUTEUR.getPrenom());
+			for (String mot : e.getValue())
+				if (jumeau.addMotCle(mot))
+					liens++;
+		}
+		return liens;
+	}
+
+	/**
+	 * Compare les mots clés de chaque livre, et les livres de chaque mot clé.
+	 */
+	private static void comparer(Catalogue masse, Catalogue unParUn) {
+		int differences = 0;
+		for (Livre l : Livre.tous(masse)) {
+			Livre jumeau = unParUn.getLivre(l.getTitre(), l.AUTEUR.getNom(), l.AUTEUR.getPrenom());
+			Set<String> obtenus = mots(l), attendus = mots(jumeau);
+			if (!obtenus.equals(attendus) && differences++ < 5)
+				Verifications.verifier(false, l + " : " + obtenus + " au lieu de " + attendus);
+		}
+		Verifications.verifier(differences == 0, differences + " livre(s) différent(s)");
+		Verifications.verifier(MotCle.tous(masse).size() == MotCle.tous(unParUn).size(), "autant de mots clés");
+		for (MotCle m : MotCle.tous(masse)) {
+			ListeIds.Contenu c = m.LIVRES.lire();
+			boolean trie = c.TAILLE > 0 && c.TAILLE == m.LIVRES.taille();
+			for (int i = 0; i < c.TAILLE; i++) {
+				trie &= i == 0 || c.IDS[i - 1] < c.IDS[i];
+				Livre l = Livre.parNumero(masse, c.IDS[i]);
+				trie &= l != null && l.getMotsCles().contains(m);
+			}
+			MotCle jumeau = unParUn.getMotCle(m.getMot());
+			if ((!trie || jumeau == null || jumeau.LIVRES.taille() != c.TAILLE) && differences++ < 5)
+				Verifications.verifier(false, "livres du mot clé " + m);
+		}
+	}
+
+	private static Set<String> mots(Livre l) {
+		Set<String> s = new HashSet<>();
+		for (MotCle m : l.getMotsCles())
+			s.add(m.getMot().toLowerCase());
+		return s;
+	}
+}
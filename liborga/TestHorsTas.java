@@ -0,0 +1,60 @@
+package liborga;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Mode hors tas (voir {@link Textes}), activé avant toute création : les
+ * accesseurs redonnent les textes tels que saisis, et les sélections, faites
+ * sur les octets projetés, trouvent les mêmes éléments qu'une recherche dans
+ * les textes décodés.
+ */
+class TestHorsTas {
+
+	private static final String[] MOTIFS = { "e", "é", "ÉMILE", "emile", "oeuvres", "œuvres", "zoe", "ca ", "ç",
+			"roman", "théâtre", "theatre", "" };
+
+	public static void main(String[] args) throws IOException {
+		Path repertoire = Files.createTempDirectory("test-hors-tas");
+		repertoire.toFile().deleteOnExit(); // supprimé à l'arrêt, après le fichier des textes
+		Textes.horsTas(repertoire);
+		Verifications.verifier(Textes.estHorsTas(), "mode hors tas activé");
+		Catalogue c = Catalogue.defaut();
+		String[][] livres = { { "Ça ira, Œuvres complètes", "Müller", "Zoë" }, { "Germinal", "Zola", "Émile" },
+				{ "le roman bourgeois", "furetière", "antoine" }, { "Nana", "Zola", "Émile" } };
+		for (String[] l : livres)
+			c.getOrCreateLivre(l[0], l[1], l[2]).addMotCle(l[0].length() % 2 == 0 ? "Théâtre" : "roman");
+		for (String[] l : livres) {
+			Livre x = c.getLivre(l[0], l[1], l[2]);
+			Verifications.verifier(x != null && x.getTitre().equals(l[0]) && x.AUTEUR.getNom().equals(l[1])
+					&& x.AUTEUR.getPrenom().equals(l[2]), "textes saisis relus : " + x);
+		}
+		Verifications.verifier(c.getMotCle("theatre") == null && c.getMotCle("théâtre").getMot().equals("Théâtre"),
+				"mot clé relu");
+		for (String p : MOTIFS)
+			for (ModeRecherche mode : ModeRecherche.values())
+				comparer(c, p, mode);
+		Verifications.terminer("Hors tas");
+	}
+
+	private static void comparer(Catalogue c, String p, ModeRecherche mode) {
+		String f = mode.normaliser(p);
+		Set<Livre> titres = new HashSet<>(), auteurs = new HashSet<>(), mots = new HashSet<>();
+		for (Livre l : Livre.tous(c)) {
+			if (mode.normaliser(l.getTitre()).contains(f))
+				titres.add(l);
+			if (mode.normaliser(l.AUTEUR.getNom()).contains(f))
+				auteurs.add(l);
+			for (MotCle m : l.getMotsCles())
+				if (mode.normaliser(m.getMot()).contains(f))
+					mots.add(l);
+		}
+		Verifications.verifier(c.selectLivres(p, mode).equals(titres), "titre \"" + p + "\" en mode " + mode);
+		Verifications.verifier(c.selectLivresParAuteur(p, "", mode).equals(auteurs),
+				"auteur \"" + p + "\" en mode " + mode);
+		Verifications.verifier(c.selectLivresParMotCle(p, mode).equals(mots), "mot clé \"" + p + "\" en mode " + mode);
+	}
+}
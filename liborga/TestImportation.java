@@ -0,0 +1,126 @@
+package liborga;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Banc d'essai de l'import parallèle : le même fichier est importé avec 1, 2, 4
+ * puis 8 threads, chaque fois dans une nouvelle JVM pour partir d'un catalogue
+ * vide.
+ * <p>
+ * 
+ * Le fichier contient des auteurs et des mots clés répétés avec des casses
+ * différentes : chaque import doit aboutir aux mêmes nombres de livres,
+ * d'auteurs et de mots clés. Le nombre de lignes peut être donné en argument.
+ */
+class TestImportation {
+
+	private static final int[] TACHES = { 1, 2, 4, 8 };
+
+	private static final int AUTEURS = 5_000;
+
+	private static final int MOTS = 200;
+
+	private static final String[] NOMS = { "Hugo", "Zola", "Furetière", "Molière", "Mérimée", "Éluard", "Brontë" };
+
+	private static final String[] MOTS_CLES = { "roman", "social", "comédie", "théâtre", "épistolaire", "poésie" };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 2 && args[0].startsWith("--")) {
+			importer(Paths.get(args[0].substring(2)), Integer.parseInt(args[1]));
+			return;
+		}
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+		Path fichier = Files.createTempFile("importation", ".tsv");
+		try {
+			generer(fichier, n);
+			System.out.println("Import de " + n + " lignes (" + Runtime.getRuntime().availableProcessors()
+					+ " processeur(s))");
+			String reference = null;
+			double base = 0;
+			for (int taches : TACHES) {
+				String[] r = lancer(fichier, taches).split(" ");
+				double debit = Double.parseDouble(r[0]);
+				String comptes = r[1];
+				if (reference == null) {
+					reference = comptes;
+					base = debit;
+				}
+				System.out.printf("%d thread(s) : %.0f lignes/s (x%.2f), livres/auteurs/mots clés : %s%n", taches,
+						debit, debit / base, comptes);
+				Verifications.verifier(comptes.equals(reference), "import différent avec " + taches + " thread(s)");
+			}
+			Verifications.verifier(reference.equals(n + "/" + AUTEURS + "/" + MOTS),
+					"comptes attendus : " + n + "/" + AUTEURS + "/" + MOTS);
+		} finally {
+			Files.delete(fichier);
+		}
+		Verifications.terminer("Importation");
+	}
+
+	/**
+	 * Écrit un fichier de n livres distincts, dont les auteurs et les mots clés
+	 * sont écrits tantôt en minuscules, tantôt en majuscules.
+	 */
+	private static void generer(Path fichier, int n) throws IOException {
+		SplittableRandom hasard = new SplittableRandom(1);
+		try (BufferedWriter out = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < n; i++) {
+				int a = i % AUTEURS;
+				String nom = NOMS[a % NOMS.length] + " " + a / NOMS.length, prenom = a % 3 == 0 ? "" : "Émile";
+				if (hasard.nextBoolean()) {
+					nom = nom.toUpperCase();
+					prenom = prenom.toLowerCase();
+				}
+				StringBuilder mots = new StringBuilder();
+				for (int k = hasard.nextInt(3); k < 3; k++) {
+					int m = k == 2 && i < MOTS ? i : hasard.nextInt(MOTS); // chaque mot clé au moins une fois
+					String mot = MOTS_CLES[m % MOTS_CLES.length] + " " + m / MOTS_CLES.length;
+					mots.append(mots.length() == 0 ? "" : "|").append(hasard.nextBoolean() ? mot.toUpperCase() : mot);
+				}
+				out.write("Le Rouge et le Noir, tome " + i + '\t' + nom + '\t' + prenom + '\t' + mots + '\n');
+			}
+		}
+	}
+
+	/**
+	 * Importe le fichier dans une nouvelle JVM.
+	 * 
+	 * @return débit puis comptes, tels qu'écrits par {@link #importer}.
+	 */
+	private static String lancer(Path fichier, int taches) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process p = new ProcessBuilder(java, "-Dfile.encoding=UTF-8", "-cp", System.getProperty("java.class.path"),
+				TestImportation.class.getName(), "--" + fichier, String.valueOf(taches)).redirectErrorStream(true)
+				.start();
+		String derniere = null;
+		try (BufferedReader in = new BufferedReader(
+				new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+			for (String ligne; (ligne = in.readLine()) != null;)
+				derniere = ligne;
+		}
+		if (p.waitFor() != 0)
+			throw new IllegalStateException("échec de l'import avec " + taches + " thread(s) : " + derniere);
+		return derniere;
+	}
+
+	/**
+	 * Importe le fichier dans le catalogue (vide) et écrit le débit et les
+	 * comptes.
+	 */
+	private static void importer(Path fichier, int taches) throws IOException {
+		Importation.Bilan b = Importation.importer(fichier, '\t', taches, Importation.TAILLE_LOT);
+		if (b.REJETS > 0)
+			throw new IllegalStateException(b.REJETS + " ligne(s) rejetée(s)");
+		System.out.println(b.lignesParSeconde() + " " + Livre.nombre() + "/" + Auteur.tous().size() + "/"
+				+ MotCle.tous().size());
+	}
+}
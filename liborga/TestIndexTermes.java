@@ -0,0 +1,135 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Index des termes comparé à un calcul naïf de BM25 sur tous les documents :
+ * ajouts et retraits de documents et de mots clés au hasard, sur un
+ * vocabulaire où quelques termes sont très fréquents, pour que l'élagage
+ * (MaxScore) écarte souvent des termes.
+ * <p>
+ * 
+ * Deux documents de même score pouvant être classés dans un ordre ou l'autre
+ * selon les arrondis, ce sont les scores rang par rang qui sont comparés.
+ */
+class TestIndexTermes {
+
+	private static final double PRECISION = 1e-9;
+
+	public static void main(String[] args) {
+		SplittableRandom hasard = new SplittableRandom(7);
+		String[] vocabulaire = new String[40];
+		for (int i = 0; i < vocabulaire.length; i++)
+			vocabulaire[i] = "m" + i;
+		IndexTermes<Integer> index = new IndexTermes<>(i -> i);
+		Map<Integer, List<String>> titres = new HashMap<>();
+		Map<Integer, TreeMap<Integer, String>> motsCles = new HashMap<>();
+		int suivant = 0, differences = 0;
+		for (int k = 0; k < 10_000; k++) {
+			int op = hasard.nextInt(10);
+			List<Integer> documents = new ArrayList<>(titres.keySet());
+			if (op < 4 || documents.isEmpty()) {
+				StringBuilder titre = new StringBuilder();
+				for (int i = 1 + hasard.nextInt(6); i > 0; i--)
+					titre.append(terme(hasard, vocabulaire)).append(i % 2 == 0 ? " " : ", ");
+				int numero = suivant++;
+				titres.put(numero, IndexTermes.termes(titre.toString()));
+				motsCles.put(numero, new TreeMap<>());
+				index.ajouter(numero, titre.toString());
+				continue;
+			}
+			int numero = documents.get(hasard.nextInt(documents.size()));
+			int mot = hasard.nextInt(15);
+			String texte = vocabulaire[mot] + " " + vocabulaire[mot * 7 % vocabulaire.length];
+			if (op < 6) {
+				motsCles.get(numero).put(mot, texte);
+				index.ajouterMotCle(numero, mot, texte);
+			} else if (op < 7) {
+				motsCles.get(numero).remove(mot);
+				index.retirerMotCle(numero, mot, texte);
+			} else if (op < 8) {
+				TreeMap<Integer, String> m = motsCles.remove(numero);
+				int[] mots = new int[m.size()];
+				String[] textes = new String[m.size()];
+				int i = 0;
+				for (Map.Entry<Integer, String> e : m.entrySet()) {
+					mots[i] = e.getKey();
+					textes[i++] = e.getValue();
+				}
+				index.retirer(numero, String.join(" ", titres.remove(numero)), mots, textes);
+			} else {
+				StringBuilder requete = new StringBuilder();
+				for (int i = 1 + hasard.nextInt(4); i > 0; i--)
+					requete.append(vocabulaire[hasard.nextInt(vocabulaire.length)]).append(' ');
+				int nombre = 1 + hasard.nextInt(12);
+				Map<Integer, Double> scores = scores(titres, motsCles, requete.toString());
+				List<Integer> attendus = new ArrayList<>(scores.keySet());
+				attendus.sort((a, b) -> Math.abs(scores.get(a) - scores.get(b)) > PRECISION
+						? Double.compare(scores.get(b), scores.get(a))
+						: Integer.compare(a, b));
+				if (attendus.size() > nombre)
+					attendus = attendus.subList(0, nombre);
+				List<Integer> obtenus = index.chercher(requete.toString(), nombre);
+				boolean egaux = obtenus.size() == attendus.size();
+				for (int i = 0; egaux && i < obtenus.size(); i++)
+					egaux = scores.containsKey(obtenus.get(i))
+							&& Math.abs(scores.get(obtenus.get(i)) - scores.get(attendus.get(i))) < PRECISION;
+				if (!egaux && differences++ < 5)
+					Verifications.verifier(false,
+							"chercher(\"" + requete + "\", " + nombre + ") : " + obtenus + " au lieu de " + attendus);
+			}
+		}
+		Verifications.verifier(differences == 0, differences + " recherche(s) différente(s)");
+		Verifications.terminer("Index des termes");
+	}
+
+	/**
+	 * @return terme du vocabulaire, les premiers étant bien plus fréquents.
+	 */
+	private static String terme(SplittableRandom hasard, String[] vocabulaire) {
+		double x = hasard.nextDouble() * hasard.nextDouble() * vocabulaire.length;
+		return vocabulaire[Math.min(vocabulaire.length - 1, (int) x)];
+	}
+
+	/**
+	 * @return score BM25 de chaque document contenant au moins un terme de la
+	 *         requête.
+	 */
+	private static Map<Integer, Double> scores(Map<Integer, List<String>> titres,
+			Map<Integer, TreeMap<Integer, String>> motsCles, String requete) {
+		Map<Integer, List<String>> termes = new HashMap<>();
+		long longueurTotale = 0;
+		for (Map.Entry<Integer, List<String>> e : titres.entrySet()) {
+			List<String> t = new ArrayList<>(e.getValue());
+			for (String texte : motsCles.get(e.getKey()).values())
+				t.addAll(IndexTermes.termes(texte));
+			termes.put(e.getKey(), t);
+			longueurTotale += t.size();
+		}
+		double moyenne = Math.max(1, (double) longueurTotale / titres.size());
+		Map<String, Integer> occurrences = new HashMap<>();
+		for (String t : IndexTermes.termes(requete))
+			occurrences.merge(t, 1, Integer::sum);
+		Map<Integer, Double> scores = new HashMap<>();
+		for (Map.Entry<String, Integer> o : occurrences.entrySet()) {
+			int df = 0;
+			for (List<String> t : termes.values())
+				if (t.contains(o.getKey()))
+					df++;
+			double idf = Math.log(1 + (titres.size() - df + 0.5) / (df + 0.5));
+			for (Map.Entry<Integer, List<String>> e : termes.entrySet()) {
+				int tf = Collections.frequency(e.getValue(), o.getKey());
+				if (tf > 0)
+					scores.merge(e.getKey(), o.getValue() * idf * tf * (IndexTermes.K1 + 1) / (tf + IndexTermes.K1
+							* (1 - IndexTermes.B + IndexTermes.B * e.getValue().size() / moyenne)), Double::sum);
+			}
+		}
+		return scores;
+	}
+}
@@ -0,0 +1,199 @@
+package liborga;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Journal et instantanés sur disque, dans un répertoire temporaire :
+ * <ul>
+ * <li>un catalogue restauré depuis son journal est identique à l'original,
+ * dans chaque mode d'écriture ;</li>
+ * <li>un journal dont le dernier enregistrement a été coupé par un arrêt
+ * brutal est restauré sans lui, puis continue à enregistrer normalement ;</li>
+ * <li>un compactage, terminé ou interrompu, ne perd aucune modification ;</li>
+ * <li>un instantané rechargé redonne le catalogue enregistré.</li>
+ * </ul>
+ */
+class TestJournal {
+
+	public static void main(String[] args) throws IOException {
+		Path repertoire = Files.createTempDirectory("test-journal");
+		try {
+			for (Journal.Mode mode : Journal.Mode.values())
+				restaurer(repertoire.resolve(mode.name()), mode);
+			finTronquee(repertoire.resolve("tronque"));
+			compacter(repertoire.resolve("compactage"));
+			compactageInterrompu(repertoire.resolve("interrompu"));
+			sauvegarder(repertoire.resolve("instantane"));
+		} finally {
+			supprimer(repertoire);
+		}
+		Verifications.terminer("Journal");
+	}
+
+	private static void restaurer(Path dossier, Journal.Mode mode) throws IOException {
+		Files.createDirectory(dossier);
+		Path journal = dossier.resolve("journal"), instantane = dossier.resolve("instantane");
+		Catalogue c = Catalogue.creer();
+		Journal j = Journal.ouvrir(c, journal, mode);
+		modifier(c, new SplittableRandom(1), 2_000);
+		j.close();
+		Catalogue restaure = Catalogue.creer();
+		Journal.restaurer(restaure, instantane, journal, mode).close();
+		Verifications.verifier(contenu(restaure).equals(contenu(c)), "restauration en mode " + mode);
+	}
+
+	private static void finTronquee(Path dossier) throws IOException {
+		Files.createDirectory(dossier);
+		Path journal = dossier.resolve("journal"), instantane = dossier.resolve("instantane");
+		Catalogue c = Catalogue.creer();
+		Journal j = Journal.ouvrir(c, journal, Journal.Mode.SYNCHRONE);
+		modifier(c, new SplittableRandom(2), 500);
+		List<String> avant = contenu(c);
+		long taille = Files.size(journal);
+		c.getOrCreateLivre("Dernier", "Coupé", "C");
+		j.close();
+		try (FileChannel canal = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+			canal.truncate(canal.size() - 5); // arrêt au milieu du dernier enregistrement
+		}
+		Catalogue restaure = Catalogue.creer();
+		j = Journal.restaurer(restaure, instantane, journal, Journal.Mode.SYNCHRONE);
+		Verifications.verifier(contenu(restaure).equals(avant), "dernier enregistrement incomplet ignoré");
+		Verifications.verifier(Files.size(journal) == taille, "dernier enregistrement incomplet effacé");
+		restaure.getOrCreateLivre("Après", "Reprise", "R");
+		j.close();
+		Catalogue relu = Catalogue.creer();
+		Journal.restaurer(relu, instantane, journal, Journal.Mode.SYNCHRONE).close();
+		Verifications.verifier(relu.getLivre("Après", "Reprise", "R") != null,
+				"enregistrements écrits après la fin incomplète relus");
+		Verifications.verifier(contenu(relu).equals(contenu(restaure)), "restauration après reprise");
+	}
+
+	private static void compacter(Path dossier) throws IOException {
+		Files.createDirectory(dossier);
+		Path journal = dossier.resolve("journal"), instantane = dossier.resolve("instantane");
+		Catalogue c = Catalogue.creer();
+		SplittableRandom hasard = new SplittableRandom(3);
+		try (Journal j = Journal.ouvrir(c, journal, Journal.Mode.GROUPE)) {
+			modifier(c, hasard, 1_500);
+			long taille = Files.size(journal);
+			j.compacter(instantane);
+			Verifications.verifier(Files.size(journal) < taille && !Files.exists(ancien(journal)),
+					"journal vidé par le compactage");
+			modifier(c, hasard, 1_500);
+			j.compacterEnArrierePlan(instantane).join();
+			modifier(c, hasard, 500);
+		}
+		Catalogue restaure = Catalogue.creer();
+		Journal.restaurer(restaure, instantane, journal, Journal.Mode.GROUPE).close();
+		Verifications.verifier(contenu(restaure).equals(contenu(c)), "restauration après compactage");
+	}
+
+	/**
+	 * Arrêt brutal entre la mise de côté du journal et l'écriture du nouvel
+	 * instantané : l'ancien instantané, la partie mise de côté et le nouveau
+	 * journal suffisent à tout retrouver, y compris après un second compactage.
+	 */
+	private static void compactageInterrompu(Path dossier) throws IOException {
+		Files.createDirectory(dossier);
+		Path journal = dossier.resolve("journal"), instantane = dossier.resolve("instantane");
+		Catalogue c = Catalogue.creer();
+		SplittableRandom hasard = new SplittableRandom(4);
+		try (Journal premier = Journal.ouvrir(c, journal, Journal.Mode.SYNCHRONE)) {
+			modifier(c, hasard, 500);
+			premier.compacter(instantane);
+			modifier(c, hasard, 500);
+		}
+		Files.move(journal, ancien(journal));
+		Journal j = Journal.ouvrir(c, journal, Journal.Mode.SYNCHRONE);
+		modifier(c, hasard, 500);
+		j.close();
+		Catalogue restaure = Catalogue.creer();
+		try (Journal repris = Journal.restaurer(restaure, instantane, journal, Journal.Mode.SYNCHRONE)) {
+			Verifications.verifier(contenu(restaure).equals(contenu(c)), "restauration d'un compactage interrompu");
+			modifier(restaure, hasard, 500);
+			repris.compacter(instantane);
+		}
+		Verifications.verifier(!Files.exists(ancien(journal)), "partie mise de côté supprimée");
+		Catalogue relu = Catalogue.creer();
+		Journal.restaurer(relu, instantane, journal, Journal.Mode.SYNCHRONE).close();
+		Verifications.verifier(contenu(relu).equals(contenu(restaure)), "compactage repris");
+	}
+
+	private static void sauvegarder(Path fichier) throws IOException {
+		Catalogue c = Catalogue.creer();
+		modifier(c, new SplittableRandom(5), 3_000);
+		Sauvegarde.enregistrer(c, fichier);
+		Catalogue charge = Catalogue.creer();
+		Sauvegarde.charger(charge, fichier);
+		Verifications.verifier(contenu(charge).equals(contenu(c)), "instantané rechargé");
+	}
+
+	/**
+	 * Créations et suppressions de livres, ajouts et retraits de mots clés au
+	 * hasard, avec des textes accentués.
+	 */
+	private static void modifier(Catalogue c, SplittableRandom hasard, int operations) {
+		List<Livre> livres = new ArrayList<>(Livre.tous(c));
+		for (int k = 0; k < operations; k++) {
+			int op = hasard.nextInt(10);
+			if (op < 4 || livres.isEmpty()) {
+				String titre = "Titre é" + Long.toHexString(hasard.nextLong()); // un nouveau livre à chaque fois
+				livres.add(c.getOrCreateLivre(titre, "Nom" + hasard.nextInt(50), "Prénom" + hasard.nextInt(3)));
+				continue;
+			}
+			int i = hasard.nextInt(livres.size());
+			Livre l = livres.get(i);
+			if (op < 7) {
+				l.addMotCle("mot" + hasard.nextInt(100));
+			} else if (op < 9) {
+				List<MotCle> mots = new ArrayList<>(l.getMotsCles());
+				if (!mots.isEmpty())
+					l.removeMotCle(mots.get(hasard.nextInt(mots.size())).getMot());
+			} else {
+				l.remove();
+				livres.set(i, livres.get(livres.size() - 1));
+				livres.remove(livres.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * @return description triée de chaque livre, avec ses mots clés.
+	 */
+	private static List<String> contenu(Catalogue c) {
+		TreeSet<String> livres = new TreeSet<>();
+		for (Livre l : Livre.tous(c)) {
+			TreeSet<String> mots = new TreeSet<>();
+			for (MotCle m : l.getMotsCles())
+				mots.add(m.getMot());
+			livres.add(l.getTitre() + " | " + l.AUTEUR.getNom() + " | " + l.AUTEUR.getPrenom() + " | " + mots);
+		}
+		return new ArrayList<>(livres);
+	}
+
+	private static Path ancien(Path journal) {
+		return journal.resolveSibling(journal.getFileName() + Journal.SUFFIXE_ANCIEN);
+	}
+
+	private static void supprimer(Path repertoire) throws IOException {
+		try (Stream<Path> chemins = Files.walk(repertoire)) {
+			chemins.sorted((a, b) -> b.compareTo(a)).forEach(p -> {
+				try {
+					Files.delete(p);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package liborga;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Comparaison des sélections séquentielles et parallèles sur de grands
+ * catalogues (un et dix millions de livres par défaut, ou les tailles données
+ * en arguments).
+ * <p>
+ * 
+ * Les motifs d'un ou deux caractères ne sont pas couverts par les index de
+ * trigrammes : ces sélections parcourent toute la table des numéros, par
+ * segments. Une requête faite uniquement de négations parcourt de même le
+ * registre des livres, segment par segment. La version séquentielle exécute
+ * la même sélection dans un pool d'un seul thread ; la version parallèle dans
+ * le pool commun. Les deux doivent donner le même résultat.
+ * <p>
+ * 
+ * Chaque livre occupe environ {@value #OCTETS_PAR_LIVRE} octets du tas : dix
+ * millions de livres demandent par exemple -Xmx12g. Les tailles qui ne
+ * tiennent pas dans le tas disponible sont annoncées puis sautées.
+ */
+class TestParallele {
+
+	private static final String[] NOMS = { "Hugo", "Zola", "Furetière", "Molière", "Mérimée", "Éluard", "Brontë" };
+
+	private static final String[] MOTS = { "roman", "social", "comédie", "théâtre", "épistolaire", "poésie" };
+
+	private static final int REPETITIONS = 7;
+
+	/**
+	 * Estimation large de la place d'un livre dans le tas, index compris.
+	 */
+	private static final long OCTETS_PAR_LIVRE = 1200;
+
+	public static void main(String[] args) throws Exception {
+		String[] tailles = args.length > 0 ? args : new String[] { "1000000", "10000000" };
+		System.out.println("Pool commun : " + ForkJoinPool.getCommonPoolParallelism() + " thread(s)"
+				+ (Table.parallele() ? "" : ", sélections toujours séquentielles"));
+		ForkJoinPool sequentiel = new ForkJoinPool(1);
+		try {
+			for (String t : tailles)
+				comparer(Integer.parseInt(t), sequentiel);
+		} finally {
+			sequentiel.shutdown();
+		}
+		Verifications.terminer("Parallèle");
+	}
+
+	private static void comparer(int n, ForkJoinPool sequentiel) throws Exception {
+		long tas = Runtime.getRuntime().maxMemory();
+		if (n * OCTETS_PAR_LIVRE > tas) {
+			System.out.println(n + " livres : sauté, le tas (-Xmx) de " + (tas >> 20) + " Mo est trop petit, il faut "
+					+ "au moins " + ((n * OCTETS_PAR_LIVRE) >> 20) + " Mo");
+			return;
+		}
+		Catalogue c = Catalogue.creer();
+		for (int i = 0; i < n; i++) {
+			int a = i % 100_000;
+			Livre l = c.getOrCreateLivre("Les Misérables, tome " + i, NOMS[a % NOMS.length] + " " + a / NOMS.length,
+					"Émile");
+			l.addMotCle(MOTS[i % MOTS.length] + " " + i % 1000);
+		}
+		System.out.println(n + " livres :");
+		mesurer("Livre.select(\"e\")", sequentiel, () -> c.selectLivres("e", ModeRecherche.STRICT));
+		mesurer("Livre.selectParAuteur(\"o\", \"\")", sequentiel,
+				() -> c.selectLivresParAuteur("o", "", ModeRecherche.STRICT));
+		mesurer("Livre.selectParMotCle(\"é\")", sequentiel,
+				() -> c.selectLivresParMotCle("é", ModeRecherche.STRICT));
+		mesurer("Auteur.select(\"o\", \"\")", sequentiel, () -> c.selectAuteurs("o", "", ModeRecherche.STRICT));
+		mesurer("MotCle.select(\"o\")", sequentiel, () -> c.selectMotsCles("o", ModeRecherche.STRICT));
+		Requete sansSept = Requete.non(Requete.titre("7"));
+		mesurer("non(titre(\"7\"))", sequentiel, () -> sansSept.executer(c));
+	}
+
+	/**
+	 * Mesure la durée médiane d'une sélection dans chacun des deux modes.
+	 */
+	private static void mesurer(String nom, ForkJoinPool sequentiel, Supplier<Set<?>> selection)
+			throws InterruptedException, ExecutionException {
+		long[] seq = new long[REPETITIONS], par = new long[REPETITIONS];
+		Set<?> attendu = null, obtenu = null;
+		for (int i = 0; i < REPETITIONS; i++) {
+			long debut = System.nanoTime();
+			attendu = sequentiel.submit(selection::get).get();
+			seq[i] = System.nanoTime() - debut;
+			debut = System.nanoTime();
+			obtenu = selection.get();
+			par[i] = System.nanoTime() - debut;
+		}
+		Arrays.sort(seq);
+		Arrays.sort(par);
+		long s = seq[REPETITIONS / 2] / 1000, p = par[REPETITIONS / 2] / 1000;
+		System.out.printf("  %-34s %7d résultats  séquentiel %8d µs  parallèle %8d µs  (x%.2f)%n", nom,
+				obtenu.size(), s, p, (double) s / Math.max(1, p));
+		Verifications.verifier(attendu.equals(obtenu), nom + " : résultats différents");
+	}
+}
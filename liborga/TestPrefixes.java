@@ -0,0 +1,105 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Arbre des préfixes comparé à un parcours naïf de toutes les clés : ajouts,
+ * retraits et changements de popularité au hasard, sur un petit alphabet pour
+ * que les arêtes se séparent et se recollent souvent.
+ * <p>
+ * 
+ * Un changement de popularité qui cite une clé absente ne doit rien changer
+ * aux complétions des clés voisines.
+ */
+class TestPrefixes {
+
+	private static final String ALPHABET = "abc";
+
+	public static void main(String[] args) {
+		cleAbsente();
+		comparer(new SplittableRandom(17), 50_000);
+		Verifications.terminer("Préfixes");
+	}
+
+	private static void cleAbsente() {
+		Prefixes<Integer> p = new Prefixes<>(i -> i);
+		for (int i = 0; i < 15; i++)
+			p.ajouter("axy" + i, i);
+		p.noter(99, 100, "abz");
+		Verifications.verifier(p.completer("ax", 3).equals(Arrays.asList(0, 1, 2)),
+				"clé absente ignorée : " + p.completer("ax", 3));
+	}
+
+	private static void comparer(SplittableRandom hasard, int operations) {
+		Prefixes<Integer> p = new Prefixes<>(i -> i);
+		Map<Integer, Set<String>> cles = new HashMap<>();
+		Map<Integer, Integer> popularites = new HashMap<>();
+		int differences = 0;
+		for (int k = 0; k < operations; k++) {
+			int numero = hasard.nextInt(300);
+			String cle = cle(hasard, 1 + hasard.nextInt(6));
+			int op = hasard.nextInt(10);
+			if (op < 4) {
+				p.ajouter(cle, numero);
+				cles.computeIfAbsent(numero, n -> new HashSet<>()).add(cle);
+			} else if (op < 6) {
+				Set<String> s = cles.get(numero);
+				if (s != null && !s.isEmpty() && hasard.nextBoolean())
+					cle = s.iterator().next();
+				p.retirer(cle, numero);
+				if (s != null)
+					s.remove(cle);
+			} else if (op < 8) {
+				int popularite = hasard.nextInt(20);
+				Set<String> s = cles.getOrDefault(numero, new HashSet<>());
+				List<String> notees = new ArrayList<>(s);
+				notees.add(cle); // éventuellement absente
+				p.noter(numero, popularite, notees.toArray(new String[0]));
+				popularites.put(numero, popularite);
+			} else {
+				String prefixe = cle(hasard, hasard.nextInt(4));
+				int nombre = 1 + hasard.nextInt(2 * Prefixes.MEMORISES);
+				List<Integer> attendus = naif(cles, popularites, prefixe, nombre);
+				List<Integer> obtenus = p.completer(prefixe, nombre);
+				if (!obtenus.equals(attendus) && differences++ < 5)
+					Verifications.verifier(false,
+							"completer(\"" + prefixe + "\", " + nombre + ") : " + obtenus + " au lieu de " + attendus);
+			}
+		}
+		Verifications.verifier(differences == 0, differences + " complétion(s) différente(s)");
+	}
+
+	/**
+	 * @return éléments ayant une clé qui commence par le préfixe, du plus au
+	 *         moins populaire puis par numéro.
+	 */
+	private static List<Integer> naif(Map<Integer, Set<String>> cles, Map<Integer, Integer> popularites,
+			String prefixe, int nombre) {
+		List<Integer> r = new ArrayList<>();
+		for (Map.Entry<Integer, Set<String>> e : cles.entrySet())
+			for (String cle : e.getValue())
+				if (cle.startsWith(prefixe)) {
+					r.add(e.getKey());
+					break;
+				}
+		r.sort((a, b) -> {
+			int pa = popularites.getOrDefault(a, 0), pb = popularites.getOrDefault(b, 0);
+			return pa != pb ? Integer.compare(pb, pa) : Integer.compare(a, b);
+		});
+		return r.size() > nombre ? r.subList(0, nombre) : r;
+	}
+
+	private static String cle(SplittableRandom hasard, int longueur) {
+		StringBuilder sb = new StringBuilder(longueur);
+		for (int i = 0; i < longueur; i++)
+			sb.append(ALPHABET.charAt(hasard.nextInt(ALPHABET.length())));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,85 @@
+package liborga;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Requêtes composées au hasard, comparées à la combinaison ensembliste des
+ * sélections de {@link Livre} correspondant à leurs critères, sur un catalogue
+ * au petit alphabet pour que les critères se recoupent souvent.
+ */
+class TestRequete {
+
+	private static final String ALPHABET = "aàeéOoMrT ";
+
+	public static void main(String[] args) {
+		SplittableRandom hasard = new SplittableRandom(3);
+		Catalogue c = Catalogue.creer();
+		for (int i = 0; i < 2_000; i++) {
+			Livre l = c.getOrCreateLivre(mot(hasard, 3 + hasard.nextInt(8)), mot(hasard, 2 + hasard.nextInt(4)),
+					mot(hasard, 1 + hasard.nextInt(4)));
+			if (l != null)
+				for (int k = hasard.nextInt(4); k > 0; k--)
+					l.addMotCle(mot(hasard, 2 + hasard.nextInt(4)));
+		}
+		int differences = 0;
+		for (int i = 0; i < 1_000; i++) {
+			Set<Livre> attendus = new HashSet<>();
+			Requete r = requete(c, hasard, 0, attendus);
+			Set<Livre> obtenus = r.executer(c);
+			if (!obtenus.equals(attendus) && differences++ < 5)
+				Verifications.verifier(false, r + " : " + obtenus.size() + " livres au lieu de " + attendus.size());
+		}
+		Verifications.verifier(differences == 0, differences + " requête(s) différente(s)");
+		Verifications.terminer("Requête");
+	}
+
+	/**
+	 * @param attendus Reçoit les livres que la requête doit sélectionner.
+	 * @return requête au hasard, d'au plus quatre niveaux.
+	 */
+	private static Requete requete(Catalogue c, SplittableRandom hasard, int niveau, Set<Livre> attendus) {
+		String motif = mot(hasard, 1 + hasard.nextInt(3));
+		ModeRecherche mode = hasard.nextBoolean() ? ModeRecherche.STRICT : ModeRecherche.SANS_ACCENTS;
+		switch (niveau > 2 ? hasard.nextInt(3) : hasard.nextInt(6)) {
+		case 0:
+			attendus.addAll(Livre.selectSansCache(c, motif, mode));
+			return Requete.titre(motif, mode);
+		case 1:
+			attendus.addAll(Livre.selectParAuteurSansCache(c, motif, "", mode));
+			return Requete.auteur(motif, "", mode);
+		case 2:
+			attendus.addAll(Livre.selectParMotCleSansCache(c, motif, mode));
+			return Requete.motCle(motif, mode);
+		case 3: {
+			Set<Livre> a = new HashSet<>(), b = new HashSet<>();
+			Requete r = Requete.et(requete(c, hasard, niveau + 1, a), requete(c, hasard, niveau + 1, b));
+			a.retainAll(b);
+			attendus.addAll(a);
+			return r;
+		}
+		case 4: {
+			Set<Livre> a = new HashSet<>(), b = new HashSet<>();
+			Requete r = Requete.ou(requete(c, hasard, niveau + 1, a), requete(c, hasard, niveau + 1, b));
+			attendus.addAll(a);
+			attendus.addAll(b);
+			return r;
+		}
+		default: {
+			Set<Livre> a = new HashSet<>();
+			Requete r = Requete.non(requete(c, hasard, niveau + 1, a));
+			attendus.addAll(Livre.tous(c));
+			attendus.removeAll(a);
+			return r;
+		}
+		}
+	}
+
+	private static String mot(SplittableRandom hasard, int longueur) {
+		StringBuilder sb = new StringBuilder(longueur);
+		for (int i = 0; i < longueur; i++)
+			sb.append(ALPHABET.charAt(hasard.nextInt(ALPHABET.length())));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,131 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suppression d'un livre dont l'auteur et le mot clé, devenus orphelins, sont
+ * recréés avant d'être libérés : la libération des anciens ne doit pas retirer
+ * les nouveaux des registres.
+ * <p>
+ * 
+ * Un livre de même clé qu'un livre en cours de suppression n'est recréé
+ * qu'une fois la suppression signalée ; le thread qui la signale ne peut pas le
+ * recréer.
+ * <p>
+ * 
+ * Les numéros des livres supprimés sont réattribués sans que les nouveaux
+ * livres héritent de la popularité ou des voisins gardés des anciens.
+ * <p>
+ * 
+ * Un étiquetage qui n'atteint aucun livre (livre supprimé, requête sans
+ * résultat) ne doit pas laisser de mot clé orphelin.
+ */
+class TestSuppression {
+
+	public static void main(String[] args) {
+		Catalogue c = Catalogue.creer();
+		Livre germinal = c.getOrCreateLivre("Germinal", "Zola", "Émile");
+		germinal.addMotCle("naturalisme");
+		MotCle ancienMot = c.getMotCle("naturalisme");
+		Livre[] recree = new Livre[1];
+		c.OBSERVATEURS.abonner(new Observateur() {
+			@Override
+			public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+				// appelé entre detacher() et liberer() de l'auteur et du mot clé
+				recree[0] = c.getOrCreateLivre("L'assommoir", "ZOLA", "émile");
+				recree[0].addMotCle("Naturalisme");
+			}
+		});
+		germinal.remove();
+
+		Auteur auteur = recree[0].AUTEUR;
+		MotCle mot = recree[0].getMotsCles().iterator().next();
+		Verifications.verifier(auteur != germinal.AUTEUR, "l'auteur a été recréé");
+		Verifications.verifier(mot != ancienMot, "le mot clé a été recréé");
+		Verifications.verifier(c.getAuteur("Zola", "Émile") == auteur, "l'auteur recréé est dans le registre");
+		Verifications.verifier(c.getMotCle("naturalisme") == mot, "le mot clé recréé est dans le registre");
+		Verifications.verifier(c.getOrCreateAuteur("Zola", "Émile") == auteur, "pas de doublon d'auteur");
+		Verifications.verifier(c.getOrCreateMotCle("naturalisme") == mot, "pas de doublon de mot clé");
+		Verifications.verifier(c.selectLivresParAuteur("Zola", "Émile", ModeRecherche.STRICT).contains(recree[0]),
+				"le livre est trouvé par son auteur");
+		Verifications.verifier(c.selectLivresParMotCle("naturalisme", ModeRecherche.STRICT).contains(recree[0]),
+				"le livre est trouvé par son mot clé");
+
+		recreerPendantSuppression();
+		reattribuerNumeros();
+
+		Etiquetage.etiqueter(Collections.singletonList(germinal), Collections.singletonList("perdu"));
+		Verifications.verifier(c.getMotCle("perdu") == null, "pas de mot clé pour un livre supprimé");
+		Etiquetage.etiqueter(c, Requete.titre("Nana"), Collections.singletonList("perdu"));
+		Verifications.verifier(c.getMotCle("perdu") == null, "pas de mot clé pour une requête sans résultat");
+
+		Verifications.terminer("Suppression");
+	}
+
+	private static void recreerPendantSuppression() {
+		Catalogue c = Catalogue.creer();
+		Livre nana = c.getOrCreateLivre("Nana", "Zola", "Émile");
+		Livre[] recree = new Livre[1];
+		boolean[] refuse = new boolean[1], attendu = new boolean[1];
+		Thread autre = new Thread(() -> recree[0] = c.getOrCreateLivre("Nana", "Zola", "Émile"));
+		c.OBSERVATEURS.abonner(new Observateur() {
+			@Override
+			public void livreSupprime(Livre l, Collection<MotCle> motsCles) {
+				try {
+					c.getOrCreateLivre("Nana", "Zola", "Émile");
+				} catch (IllegalStateException e) {
+					refuse[0] = true;
+				}
+				autre.start();
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				attendu[0] = autre.isAlive();
+			}
+		});
+		nana.remove();
+		try {
+			autre.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		Verifications.verifier(refuse[0], "le thread qui signale la suppression ne recrée pas le livre");
+		Verifications.verifier(attendu[0], "un autre thread attend la fin de la suppression");
+		Verifications.verifier(recree[0] != null && recree[0] != nana && !recree[0].estSupprime(),
+				"le livre est recréé ensuite");
+		Verifications.verifier(c.getLivre("Nana", "Zola", "Émile") == recree[0],
+				"le livre recréé est dans le registre");
+	}
+
+	private static void reattribuerNumeros() {
+		Catalogue c = Catalogue.creer();
+		Autocompletion.activer(c, true);
+		Recommandation.activer(c, true);
+		int n = 3 * Table.QUARANTAINE;
+		Livre garde = c.getOrCreateLivre("Gardé", "Ancien", "A");
+		garde.addMotCle("ancien");
+		List<Livre> anciens = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			Livre l = c.getOrCreateLivre("Ancien " + i, "Ancien", "A");
+			l.addMotCle("ancien");
+			anciens.add(l);
+		}
+		Verifications.verifier(Recommandation.semblables(garde, 5).size() == 5, "voisins gardés avant la suppression");
+		for (Livre l : anciens)
+			l.remove();
+		for (int i = 0; i < n; i++)
+			c.getOrCreateLivre("Neuf " + i, "Nouveau", "N");
+		Livre populaire = c.getOrCreateLivre("Neuf populaire", "Nouveau", "N");
+		populaire.addMotCle("neuf");
+		Verifications.verifier(c.LIVRES.NUMEROS.taille() <= n + Table.QUARANTAINE + 2, "numéros réattribués");
+		Verifications.verifier(Recommandation.semblables(garde, 5).isEmpty(),
+				"pas de voisin gardé sous un numéro réattribué");
+		Verifications.verifier(Autocompletion.titres(c, "neuf", 1).equals(Collections.singletonList(populaire)),
+				"pas de popularité héritée d'un livre supprimé");
+	}
+}
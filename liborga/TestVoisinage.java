@@ -0,0 +1,144 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+/**
+ * Voisinage comparé à un calcul naïf sur un petit catalogue (aucune limite de
+ * candidats n'y est atteinte) : ajouts et retraits de livres et de mots clés au
+ * hasard, puis livres semblables et mots clés associés.
+ * <p>
+ * 
+ * Les livres d'un auteur très prolifique ne doivent pas empêcher de trouver un
+ * livre d'un autre auteur qui a exactement les mêmes mots clés.
+ */
+class TestVoisinage {
+
+	public static void main(String[] args) {
+		auteurProlifique();
+		comparer(new SplittableRandom(11), 6_000);
+		Verifications.terminer("Voisinage");
+	}
+
+	private static void auteurProlifique() {
+		Voisinage<Integer, Integer> v = new Voisinage<>(i -> i, i -> i);
+		int n = Voisinage.CANDIDATS_MAX + 76;
+		for (int i = 0; i < n; i++)
+			v.ajouter(i, 1);
+		int x = n, y = n + 1;
+		v.ajouter(x, 1);
+		v.ajouter(y, 2);
+		for (int livre : new int[] { x, y }) {
+			v.ajouterMotCle(livre, 7);
+			v.ajouterMotCle(livre, 8);
+		}
+		List<Integer> semblables = v.semblables(x, 5);
+		Verifications.verifier(semblables.equals(Arrays.asList(y, 0, 1, 2, 3)),
+				"livre aux mêmes mots clés d'un autre auteur : " + semblables);
+	}
+
+	private static void comparer(SplittableRandom hasard, int operations) {
+		Voisinage<Integer, Integer> v = new Voisinage<>(i -> i, i -> i);
+		Map<Integer, TreeSet<Integer>> mots = new HashMap<>();
+		Map<Integer, Integer> auteurs = new HashMap<>();
+		int suivant = 0, differences = 0;
+		for (int k = 0; k < operations; k++) {
+			int op = hasard.nextInt(12);
+			List<Integer> livres = new ArrayList<>(mots.keySet());
+			if (op < 3 || livres.isEmpty()) {
+				int livre = suivant++, auteur = hasard.nextInt(30);
+				mots.put(livre, new TreeSet<>());
+				auteurs.put(livre, auteur);
+				v.ajouter(livre, auteur);
+				continue;
+			}
+			int livre = livres.get(hasard.nextInt(livres.size()));
+			int mot = hasard.nextInt(25);
+			if (op < 6) {
+				mots.get(livre).add(mot);
+				v.ajouterMotCle(livre, mot);
+			} else if (op < 7) {
+				mots.get(livre).remove(mot);
+				v.retirerMotCle(livre, mot);
+			} else if (op < 8) {
+				mots.remove(livre);
+				auteurs.remove(livre);
+				v.retirer(livre);
+			} else if (op < 10) {
+				int nombre = 1 + hasard.nextInt(25);
+				for (int autre : v.semblables(livre, nombre))
+					if (!mots.containsKey(autre) && differences++ < 5)
+						Verifications.verifier(false, "voisin retiré : " + autre);
+				// entre deux recalculs, seuls les livres modifiés sont à jour
+				v.recalculer();
+				List<Integer> attendus = semblables(mots, auteurs, livre, nombre);
+				List<Integer> obtenus = v.semblables(livre, nombre);
+				if (!obtenus.equals(attendus) && differences++ < 5)
+					Verifications.verifier(false,
+							"semblables(" + livre + ", " + nombre + ") : " + obtenus + " au lieu de " + attendus);
+			} else {
+				int nombre = 1 + hasard.nextInt(10);
+				List<Integer> attendus = associes(mots, mot, nombre);
+				List<Integer> obtenus = v.associes(mot, nombre);
+				if (!obtenus.equals(attendus) && differences++ < 5)
+					Verifications.verifier(false,
+							"associes(" + mot + ", " + nombre + ") : " + obtenus + " au lieu de " + attendus);
+			}
+		}
+		Verifications.verifier(differences == 0, differences + " résultat(s) différent(s)");
+	}
+
+	/**
+	 * @return livres partageant un mot clé ou l'auteur du livre, classés par
+	 *         ressemblance puis par numéro.
+	 */
+	private static List<Integer> semblables(Map<Integer, TreeSet<Integer>> mots, Map<Integer, Integer> auteurs,
+			int livre, int nombre) {
+		Map<Integer, Double> scores = new HashMap<>();
+		for (int autre : mots.keySet()) {
+			if (autre == livre)
+				continue;
+			TreeSet<Integer> communs = new TreeSet<>(mots.get(livre));
+			communs.retainAll(mots.get(autre));
+			boolean memeAuteur = auteurs.get(autre).equals(auteurs.get(livre));
+			if (communs.isEmpty() && !memeAuteur)
+				continue;
+			double s = communs.isEmpty() ? 0
+					: (double) communs.size() / (mots.get(livre).size() + mots.get(autre).size() - communs.size());
+			scores.put(autre, memeAuteur ? s + Voisinage.BONUS_AUTEUR : s);
+		}
+		return premiers(scores, nombre);
+	}
+
+	/**
+	 * @return mots clés portés avec le mot clé, classés par indice de Jaccard de
+	 *         leurs livres puis par numéro.
+	 */
+	private static List<Integer> associes(Map<Integer, TreeSet<Integer>> mots, int mot, int nombre) {
+		Map<Integer, Integer> communs = new HashMap<>(), livres = new HashMap<>();
+		for (TreeSet<Integer> s : mots.values()) {
+			for (int m : s)
+				livres.merge(m, 1, Integer::sum);
+			if (s.contains(mot))
+				for (int m : s)
+					if (m != mot)
+						communs.merge(m, 1, Integer::sum);
+		}
+		Map<Integer, Double> scores = new HashMap<>();
+		for (Map.Entry<Integer, Integer> e : communs.entrySet())
+			scores.put(e.getKey(), (double) e.getValue() / (livres.get(mot) + livres.get(e.getKey()) - e.getValue()));
+		return premiers(scores, nombre);
+	}
+
+	private static List<Integer> premiers(Map<Integer, Double> scores, int nombre) {
+		List<Integer> r = new ArrayList<>(scores.keySet());
+		r.sort((a, b) -> !scores.get(a).equals(scores.get(b)) ? Double.compare(scores.get(b), scores.get(a))
+				: Integer.compare(a, b));
+		return r.size() > nombre ? r.subList(0, nombre) : r;
+	}
+}
@@ -0,0 +1,206 @@
+package liborga;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stockage des textes des livres, auteurs et mots clés : textes tels que
+ * saisis (voir {@link Livre#getTitre()}, {@link Auteur#getNom()},
+ * {@link Auteur#getPrenom()} et {@link MotCle#getMot()}) et formes de
+ * recherche (en minuscules, avec ou sans accents).
+ * <p>
+ * 
+ * Par défaut, ces textes sont des chaînes ordinaires, dans le tas. Le mode
+ * hors tas, à activer avant toute création, les range à la place en UTF-8 dans
+ * un fichier temporaire projeté en mémoire, par segments de
+ * {@value #TAILLE_SEGMENT} octets : les objets du catalogue n'en gardent que la
+ * position, les accesseurs décodent le texte à chaque appel, et les recherches
+ * comparent directement les octets projetés. Un texte saisi déjà en minuscules
+ * n'est rangé qu'une fois. Le ramasse-miettes n'a alors plus à parcourir ni à
+ * déplacer ces textes, et le système peut décharger les pages peu consultées.
+ * Le fichier ne fait que grandir : les textes des éléments supprimés n'y sont
+ * pas récupérés.
+ * <p>
+ * 
+ * Les clés (formes repliées qui identifient les éléments dans les registres)
+ * restent dans le tas, puisque les tables de hachage des registres les
+ * comparent à chaque création et à chaque get.
+ */
+public final class Textes {
+
+	/**
+	 * Taille d'un segment projeté ; un texte ne peut pas dépasser cette taille.
+	 */
+	static final int TAILLE_SEGMENT = 1 << 26;
+
+	/**
+	 * Position renvoyée pour un texte gardé dans le tas.
+	 */
+	static final long DANS_LE_TAS = -1;
+
+	private static FileChannel canal;
+
+	/**
+	 * Segments projetés, null tant que le mode hors tas n'est pas activé.
+	 */
+	private static volatile MappedByteBuffer[] segments;
+
+	/**
+	 * Position d'écriture dans le dernier segment.
+	 */
+	private static int position;
+
+	private Textes() {
+	}
+
+	/**
+	 * Active le mode hors tas pour les livres, auteurs et mots clés créés
+	 * ensuite.
+	 * 
+	 * @param repertoire Répertoire où créer le fichier temporaire (supprimé à
+	 *                   l'arrêt du programme).
+	 * @throws IOException           en cas d'erreur de création du fichier.
+	 * @throws IllegalStateException si le catalogue par défaut n'est pas vide ou
+	 *                               si d'autres catalogues ont été créés.
+	 */
+	public static synchronized void horsTas(Path repertoire) throws IOException {
+		if (segments != null)
+			return;
+		if (!Catalogue.defaut().estVide() || Catalogue.autresCrees())
+			throw new IllegalStateException("le mode hors tas doit être activé avant toute création");
+		Path fichier = Files.createTempFile(repertoire, "liborga", ".textes");
+		fichier.toFile().deleteOnExit();
+		canal = FileChannel.open(fichier, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segments = new MappedByteBuffer[] { canal.map(FileChannel.MapMode.READ_WRITE, 0, TAILLE_SEGMENT) };
+		position = 0;
+	}
+
+	/**
+	 * @return vrai si le mode hors tas est activé.
+	 */
+	public static boolean estHorsTas() {
+		return segments != null;
+	}
+
+	// Écriture et lecture -------------------------------------------------
+
+	/**
+	 * Range un texte hors du tas si ce mode est activé.
+	 * 
+	 * @param texte Texte à ranger.
+	 * @return position du texte, ou {@link #DANS_LE_TAS} si le mode hors tas
+	 *         n'est pas activé (le texte doit alors être gardé tel quel).
+	 */
+	static long ranger(String texte) {
+		if (segments == null)
+			return DANS_LE_TAS;
+		byte[] octets = texte.getBytes(StandardCharsets.UTF_8);
+		if (octets.length + 4 > TAILLE_SEGMENT)
+			throw new IllegalArgumentException("texte trop long : " + octets.length + " octets");
+		synchronized (Textes.class) {
+			MappedByteBuffer[] s = segments;
+			if (position + 4 + octets.length > TAILLE_SEGMENT) {
+				MappedByteBuffer[] ns = new MappedByteBuffer[s.length + 1];
+				System.arraycopy(s, 0, ns, 0, s.length);
+				try {
+					ns[s.length] = canal.map(FileChannel.MapMode.READ_WRITE, (long) s.length * TAILLE_SEGMENT,
+							TAILLE_SEGMENT);
+				} catch (IOException e) {
+					throw new IllegalStateException("extension du stockage hors tas impossible", e);
+				}
+				segments = s = ns;
+				position = 0;
+			}
+			ByteBuffer b = s[s.length - 1].duplicate();
+			b.position(position);
+			b.putInt(octets.length);
+			b.put(octets);
+			long ref = (long) (s.length - 1) * TAILLE_SEGMENT + position;
+			position = b.position();
+			return ref;
+		}
+	}
+
+	/**
+	 * @param ref Position d'un texte rangé hors du tas.
+	 * @return le texte.
+	 */
+	static String lire(long ref) {
+		ByteBuffer b = segments[(int) (ref / TAILLE_SEGMENT)].duplicate();
+		b.position((int) (ref % TAILLE_SEGMENT));
+		byte[] octets = new byte[b.getInt()];
+		b.get(octets);
+		return new String(octets, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Recherche un motif dans un texte rangé hors du tas, octet par octet (en
+	 * UTF-8, un texte contient un motif si et seulement si ses octets
+	 * contiennent ceux du motif).
+	 * 
+	 * @param ref   Position du texte.
+	 * @param motif Motif recherché.
+	 * @return vrai si le texte contient le motif.
+	 */
+	static boolean contient(long ref, Motif motif) {
+		ByteBuffer b = segments[(int) (ref / TAILLE_SEGMENT)];
+		int debut = (int) (ref % TAILLE_SEGMENT);
+		int longueur = b.getInt(debut);
+		debut += 4;
+		byte[] m = motif.OCTETS;
+		if (m.length == 0)
+			return true;
+		byte premier = m[0];
+		for (int i = debut, fin = debut + longueur - m.length; i <= fin; i++) {
+			if (b.get(i) != premier)
+				continue;
+			int j = 1;
+			while (j < m.length && b.get(i + j) == m[j])
+				j++;
+			if (j == m.length)
+				return true;
+		}
+		return false;
+	}
+
+	// Motifs --------------------------------------------------------------
+
+	/**
+	 * Motif de recherche, sous forme de chaîne normalisée selon le mode de
+	 * recherche et, en mode hors tas, d'octets UTF-8 calculés une fois pour
+	 * toute la recherche.
+	 */
+	static final class Motif {
+
+		final ModeRecherche MODE;
+
+		final String TEXTE;
+
+		final byte[] OCTETS;
+
+		/**
+		 * @param saisie Motif tel que saisi.
+		 * @param mode   Mode de recherche.
+		 */
+		Motif(String saisie, ModeRecherche mode) {
+			this.MODE = mode;
+			this.TEXTE = mode.normaliser(saisie);
+			this.OCTETS = estHorsTas() ? this.TEXTE.getBytes(StandardCharsets.UTF_8) : null;
+		}
+
+		/**
+		 * @param surLeTas Texte gardé dans le tas, ou null.
+		 * @param horsTas  Position du texte hors du tas si surLeTas est null.
+		 * @return vrai si le texte contient le motif.
+		 */
+		boolean trouveDans(String surLeTas, long horsTas) {
+			return surLeTas != null ? surLeTas.contains(TEXTE) : contient(horsTas, this);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package liborga;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Comptage des échecs des programmes de test (les classes Test...), qui
+ * peuvent vérifier depuis plusieurs threads à la fois.
+ */
+final class Verifications {
+
+	private static final AtomicInteger ECHECS = new AtomicInteger();
+
+	private Verifications() {
+	}
+
+	/**
+	 * Compte et affiche un échec si une condition n'est pas remplie.
+	 * 
+	 * @param condition Condition attendue.
+	 * @param message   Description de la condition.
+	 */
+	static void verifier(boolean condition, String message) {
+		if (!condition) {
+			ECHECS.incrementAndGet();
+			System.out.println("Échec : " + message);
+		}
+	}
+
+	/**
+	 * Affiche le bilan d'un programme de test, et l'arrête avec le code 1 s'il y
+	 * a eu des échecs.
+	 * 
+	 * @param nom Nom du test.
+	 */
+	static void terminer(String nom) {
+		int n = ECHECS.get();
+		System.out.println(n == 0 ? nom + " : OK" : nom + " : " + n + " échec(s)");
+		if (n > 0)
+			System.exit(1);
+	}
+}
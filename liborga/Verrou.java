@@ -0,0 +1,57 @@
+package liborga;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Verrou d'un service optionnel d'un catalogue (autocomplétion, recherches,
+ * recommandation).
+ * <p>
+ * 
+ * Les recherches ne modifient pas les structures du service : elles se font
+ * en même temps, sans s'attendre. Une modification du catalogue (ou une
+ * activation) attend la fin des recherches en cours et les suspend le temps
+ * de mettre à jour les structures.
+ */
+final class Verrou {
+
+	private final ReentrantReadWriteLock VERROU = new ReentrantReadWriteLock();
+
+	private final Lock LECTURE = VERROU.readLock();
+
+	private final Lock ECRITURE = VERROU.writeLock();
+
+	Verrou() {
+	}
+
+	/**
+	 * Exécute une recherche, en même temps que les autres recherches.
+	 * 
+	 * @param <T>       Type du résultat.
+	 * @param recherche Recherche, qui ne doit pas modifier les structures.
+	 * @return résultat de la recherche.
+	 */
+	<T> T lire(Supplier<T> recherche) {
+		LECTURE.lock();
+		try {
+			return recherche.get();
+		} finally {
+			LECTURE.unlock();
+		}
+	}
+
+	/**
+	 * Exécute une modification des structures, seule.
+	 * 
+	 * @param modification Modification.
+	 */
+	void ecrire(Runnable modification) {
+		ECRITURE.lock();
+		try {
+			modification.run();
+		} finally {
+			ECRITURE.unlock();
+		}
+	}
+}
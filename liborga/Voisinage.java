@@ -0,0 +1,570 @@
+package liborga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Voisinage des livres d'après leurs mots clés et leur auteur, pour proposer
+ * des livres semblables à un livre donné.
+ * <p>
+ * 
+ * Chaque livre garde le tableau trié des numéros de ses mots clés, et chaque
+ * mot clé (comme chaque auteur) la liste triée de ses livres ; pour chaque
+ * paire de mots clés, on compte les livres qui portent les deux. Tout est tenu
+ * à jour à chaque ajout ou retrait.
+ * <p>
+ * 
+ * La ressemblance de deux livres est l'indice de Jaccard de leurs mots clés
+ * (nombre de mots clés communs sur nombre de mots clés distincts), augmenté de
+ * {@value #BONUS_AUTEUR} s'ils ont le même auteur. Les candidats sont les
+ * livres des mots clés du livre, des plus rares aux plus répandus, dans la
+ * limite de {@value #CANDIDATS_MAX} : un mot clé porté par une grande partie du
+ * catalogue ne fournit que ses premiers livres, au lieu de rendre le calcul
+ * proportionnel à la taille du catalogue. Viennent ensuite les autres livres
+ * de l'auteur, dans leur propre limite de {@value #CANDIDATS_AUTEUR} : un
+ * auteur très prolifique ne prend pas la place des livres qui partagent les
+ * mots clés. Le parcours s'arrête plus tôt dès qu'aucun candidat restant ne
+ * peut entrer parmi les meilleurs : un livre atteint seulement par les
+ * derniers mots clés en partage peu avec le livre.
+ * <p>
+ * 
+ * Les {@value #VOISINS} plus proches voisins d'un livre sont gardés une fois
+ * calculés. {@link #recalculer()} les calcule pour tous les livres, en
+ * parallèle ; entre deux recalculs, seuls les livres dont les mots clés ont
+ * changé sont recalculés (à la demande), et les voisins des autres peuvent
+ * tarder à refléter ces changements.
+ * <p>
+ * 
+ * Cette classe n'est pas synchronisée : {@link #semblables} et
+ * {@link #associes} ne modifient que les voisins gardés, sous un verrou qui
+ * leur est propre, et peuvent être appelées par plusieurs threads à la fois,
+ * mais pas pendant une modification (voir {@link Recommandation}).
+ * 
+ * @param <L> Type des livres.
+ * @param <M> Type des mots clés.
+ */
+final class Voisinage<L, M> {
+
+	/**
+	 * Nombre de voisins gardés pour chaque livre.
+	 */
+	static final int VOISINS = 20;
+
+	/**
+	 * Nombre maximal de candidats pris parmi les livres des mots clés d'un
+	 * livre.
+	 */
+	static final int CANDIDATS_MAX = 1024;
+
+	/**
+	 * Nombre maximal de candidats pris ensuite parmi les autres livres de
+	 * l'auteur.
+	 */
+	static final int CANDIDATS_AUTEUR = 256;
+
+	/**
+	 * Ressemblance ajoutée entre deux livres du même auteur.
+	 */
+	static final double BONUS_AUTEUR = 0.25;
+
+	/**
+	 * Nombre de livres recalculés par une même tâche.
+	 */
+	private static final int TAILLE_SEGMENT = 1 << 12;
+
+	private static final int[] AUCUN = new int[0];
+
+	/**
+	 * Liste triée de numéros de livres.
+	 */
+	private static final class Liste {
+
+		int[] ids = new int[2];
+
+		int taille;
+
+		void ajouter(int id) {
+			int p = taille > 0 && ids[taille - 1] < id ? -taille - 1 : Arrays.binarySearch(ids, 0, taille, id);
+			if (p >= 0)
+				return;
+			p = -p - 1;
+			if (taille == ids.length)
+				ids = Arrays.copyOf(ids, 2 * taille);
+			System.arraycopy(ids, p, ids, p + 1, taille - p);
+			ids[p] = id;
+			taille++;
+		}
+
+		void retirer(int id) {
+			int p = Arrays.binarySearch(ids, 0, taille, id);
+			if (p < 0)
+				return;
+			System.arraycopy(ids, p + 1, ids, p, taille - p - 1);
+			taille--;
+		}
+
+		void compacter() {
+			if (ids.length > taille)
+				ids = Arrays.copyOf(ids, Math.max(2, taille));
+		}
+	}
+
+	/**
+	 * Marquage des candidats déjà comparés, réutilisé d'un calcul à l'autre.
+	 */
+	private static final class Marques {
+
+		private int[] tours = AUCUN;
+
+		private int tour;
+
+		void nouveauTour(int taille) {
+			if (tours.length < taille)
+				tours = new int[taille];
+			if (++tour == 0) {
+				Arrays.fill(tours, 0);
+				tour = 1;
+			}
+		}
+
+		/**
+		 * @return vrai si le numéro n'était pas encore marqué pendant ce tour.
+		 */
+		boolean marquer(int id) {
+			if (tours[id] == tour)
+				return false;
+			tours[id] = tour;
+			return true;
+		}
+	}
+
+	/**
+	 * Élément candidat, avec son score.
+	 */
+	private static final class Proche {
+
+		final int NUMERO;
+
+		final double SCORE;
+
+		Proche(int numero, double score) {
+			this.NUMERO = numero;
+			this.SCORE = score;
+		}
+	}
+
+	/**
+	 * Le moins proche en tête ; à score égal, le plus grand numéro.
+	 */
+	private static final Comparator<Proche> ORDRE = (a, b) -> a.SCORE != b.SCORE ? Double.compare(a.SCORE, b.SCORE)
+			: Integer.compare(b.NUMERO, a.NUMERO);
+
+	private final IntFunction<L> LIVRES;
+
+	private final IntFunction<M> MOTS_CLES;
+
+	/**
+	 * Livres présents (ajoutés et pas encore retirés).
+	 */
+	private final BitSet PRESENTS = new BitSet();
+
+	/**
+	 * Livres dont les voisins gardés ne tiennent pas compte des derniers
+	 * changements de leurs mots clés.
+	 */
+	private final BitSet PERIMES = new BitSet();
+
+	/**
+	 * Numéros triés des mots clés de chaque livre, par numéro de livre.
+	 */
+	private int[][] motsCles = new int[64][];
+
+	/**
+	 * Numéro de l'auteur de chaque livre, par numéro de livre.
+	 */
+	private int[] auteurs = new int[64];
+
+	/**
+	 * Voisins gardés de chaque livre, du plus au moins proche.
+	 */
+	private int[][] voisins = new int[64][];
+
+	/**
+	 * Nombre d'ajouts de livres faits jusqu'ici.
+	 */
+	private int horloge;
+
+	/**
+	 * Valeur de {@link #horloge} à l'ajout de chaque livre, et au calcul de ses
+	 * voisins gardés : un voisin ajouté après le calcul porte un numéro
+	 * réattribué (voir {@link Table}) et n'est plus le livre retenu.
+	 */
+	private int[] ajouts = new int[64], calculs = new int[64];
+
+	private final Map<Integer, Liste> PAR_MOT = new HashMap<>();
+
+	private final Map<Integer, Liste> PAR_AUTEUR = new HashMap<>();
+
+	/**
+	 * Pour chaque mot clé, nombre de livres qu'il partage avec chacun des
+	 * autres (chaque paire est comptée dans les deux sens).
+	 */
+	private final Map<Integer, Map<Integer, int[]>> COOCCURRENCES = new HashMap<>();
+
+	/**
+	 * Marquage de chaque thread qui calcule des voisins à la demande.
+	 */
+	private final ThreadLocal<Marques> MARQUES = ThreadLocal.withInitial(Marques::new);
+
+	/**
+	 * Verrou des voisins gardés et de {@link #PERIMES}, que les recherches
+	 * simultanées mettent à jour.
+	 */
+	private final Object GARDES = new Object();
+
+	/**
+	 * @param livres   Accès à un livre par son numéro.
+	 * @param motsCles Accès à un mot clé par son numéro.
+	 */
+	Voisinage(IntFunction<L> livres, IntFunction<M> motsCles) {
+		this.LIVRES = livres;
+		this.MOTS_CLES = motsCles;
+	}
+
+	// Modification --------------------------------------------------------
+
+	/**
+	 * Ajoute un livre, sans mot clé (sans effet s'il est déjà présent).
+	 * 
+	 * @param livre  Numéro du livre.
+	 * @param auteur Numéro de son auteur.
+	 */
+	void ajouter(int livre, int auteur) {
+		if (PRESENTS.get(livre))
+			return;
+		reserver(livre);
+		PRESENTS.set(livre);
+		PERIMES.set(livre);
+		motsCles[livre] = AUCUN;
+		auteurs[livre] = auteur;
+		ajouts[livre] = ++horloge;
+		PAR_AUTEUR.computeIfAbsent(auteur, k -> new Liste()).ajouter(livre);
+	}
+
+	/**
+	 * Retire un livre et tous ses mots clés (sans effet s'il est absent).
+	 * 
+	 * @param livre Numéro du livre.
+	 */
+	void retirer(int livre) {
+		if (!PRESENTS.get(livre))
+			return;
+		int[] mots = motsCles[livre];
+		for (int i = mots.length - 1; i >= 0; i--)
+			retirerMotCle(livre, mots[i]);
+		retirerDe(PAR_AUTEUR, auteurs[livre], livre);
+		PRESENTS.clear(livre);
+		PERIMES.clear(livre);
+		motsCles[livre] = null;
+		voisins[livre] = null;
+	}
+
+	/**
+	 * Ajoute un mot clé à un livre présent (sans effet s'il l'a déjà).
+	 * 
+	 * @param livre Numéro du livre.
+	 * @param mot   Numéro du mot clé.
+	 */
+	void ajouterMotCle(int livre, int mot) {
+		if (!PRESENTS.get(livre))
+			return;
+		int[] ids = motsCles[livre];
+		int p = Arrays.binarySearch(ids, mot);
+		if (p >= 0)
+			return;
+		for (int autre : ids) {
+			compter(mot, autre, 1);
+			compter(autre, mot, 1);
+		}
+		p = -p - 1;
+		int[] r = new int[ids.length + 1];
+		System.arraycopy(ids, 0, r, 0, p);
+		r[p] = mot;
+		System.arraycopy(ids, p, r, p + 1, ids.length - p);
+		motsCles[livre] = r;
+		PAR_MOT.computeIfAbsent(mot, k -> new Liste()).ajouter(livre);
+		PERIMES.set(livre);
+	}
+
+	/**
+	 * Retire un mot clé d'un livre (sans effet s'il ne l'a pas).
+	 * 
+	 * @param livre Numéro du livre.
+	 * @param mot   Numéro du mot clé.
+	 */
+	void retirerMotCle(int livre, int mot) {
+		int[] ids = livre < motsCles.length ? motsCles[livre] : null;
+		int p = ids == null ? -1 : Arrays.binarySearch(ids, mot);
+		if (p < 0)
+			return;
+		int[] r = new int[ids.length - 1];
+		System.arraycopy(ids, 0, r, 0, p);
+		System.arraycopy(ids, p + 1, r, p, r.length - p);
+		motsCles[livre] = r;
+		for (int autre : r) {
+			compter(mot, autre, -1);
+			compter(autre, mot, -1);
+		}
+		retirerDe(PAR_MOT, mot, livre);
+		PERIMES.set(livre);
+	}
+
+	private void compter(int mot, int autre, int sens) {
+		Map<Integer, int[]> m = COOCCURRENCES.get(mot);
+		if (sens > 0) {
+			if (m == null)
+				COOCCURRENCES.put(mot, m = new HashMap<>());
+			m.computeIfAbsent(autre, k -> new int[1])[0]++;
+			return;
+		}
+		int[] n = m == null ? null : m.get(autre);
+		if (n == null || --n[0] > 0)
+			return;
+		m.remove(autre);
+		if (m.isEmpty())
+			COOCCURRENCES.remove(mot);
+	}
+
+	private static void retirerDe(Map<Integer, Liste> listes, int cle, int livre) {
+		Liste l = listes.get(cle);
+		if (l == null)
+			return;
+		l.retirer(livre);
+		if (l.taille == 0)
+			listes.remove(cle);
+	}
+
+	private void reserver(int livre) {
+		if (livre >= motsCles.length) {
+			int n = Math.max(livre + 1, 2 * motsCles.length);
+			motsCles = Arrays.copyOf(motsCles, n);
+			auteurs = Arrays.copyOf(auteurs, n);
+			voisins = Arrays.copyOf(voisins, n);
+			ajouts = Arrays.copyOf(ajouts, n);
+			calculs = Arrays.copyOf(calculs, n);
+		}
+	}
+
+	// Recherche -----------------------------------------------------------
+
+	/**
+	 * Renvoie les livres les plus semblables à un livre.
+	 * 
+	 * @param livre  Numéro du livre.
+	 * @param nombre Nombre maximal de livres renvoyés.
+	 * @return livres partageant au moins un mot clé ou l'auteur du livre, du
+	 *         plus au moins semblable (puis par numéro).
+	 */
+	List<L> semblables(int livre, int nombre) {
+		if (nombre <= 0 || !PRESENTS.get(livre))
+			return Collections.emptyList();
+		int[] r;
+		int calcul;
+		synchronized (GARDES) {
+			r = PERIMES.get(livre) ? null : voisins[livre];
+			calcul = calculs[livre];
+		}
+		if (r == null || nombre > VOISINS || !presents(r, nombre, calcul)) {
+			r = calculer(livre, Math.max(nombre, VOISINS), MARQUES.get());
+			int[] gardes = r.length > VOISINS ? Arrays.copyOf(r, VOISINS) : r;
+			synchronized (GARDES) {
+				voisins[livre] = gardes;
+				calculs[livre] = horloge;
+				PERIMES.clear(livre);
+			}
+		}
+		List<L> l = new ArrayList<>(Math.min(nombre, r.length));
+		for (int i = 0; i < r.length && l.size() < nombre; i++) {
+			L e = LIVRES.apply(r[i]);
+			if (e != null)
+				l.add(e);
+		}
+		return l;
+	}
+
+	/**
+	 * @param calcul Valeur de {@link #horloge} au calcul des voisins gardés.
+	 * @return vrai si les premiers voisins gardés sont tous encore présents,
+	 *         sous le même numéro.
+	 */
+	private boolean presents(int[] gardes, int nombre, int calcul) {
+		for (int i = 0; i < gardes.length && i < nombre; i++)
+			if (!PRESENTS.get(gardes[i]) || ajouts[gardes[i]] - calcul > 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Renvoie les mots clés le plus souvent portés avec un mot clé, classés par
+	 * indice de Jaccard de leurs livres.
+	 * 
+	 * @param mot    Numéro du mot clé.
+	 * @param nombre Nombre maximal de mots clés renvoyés.
+	 * @return mots clés partageant au moins un livre avec celui-ci, du plus au
+	 *         moins associé (puis par numéro).
+	 */
+	List<M> associes(int mot, int nombre) {
+		Map<Integer, int[]> m = COOCCURRENCES.get(mot);
+		if (nombre <= 0 || m == null)
+			return Collections.emptyList();
+		int n = PAR_MOT.get(mot).taille;
+		PriorityQueue<Proche> tas = new PriorityQueue<>(Math.min(nombre, 256), ORDRE);
+		for (Map.Entry<Integer, int[]> e : m.entrySet()) {
+			int communs = e.getValue()[0];
+			double jaccard = (double) communs / (n + PAR_MOT.get(e.getKey()).taille - communs);
+			retenir(tas, nombre, e.getKey(), jaccard);
+		}
+		List<M> r = new ArrayList<>(tas.size());
+		for (int id : trier(tas)) {
+			M e = MOTS_CLES.apply(id);
+			if (e != null)
+				r.add(e);
+		}
+		return r;
+	}
+
+	/**
+	 * Calcule les voisins d'un livre présent.
+	 * 
+	 * @param marques Marquage propre au thread appelant.
+	 * @return numéros des voisins, du plus au moins proche.
+	 */
+	private int[] calculer(int livre, int nombre, Marques marques) {
+		int[] mots = motsCles[livre];
+		Liste[] listes = new Liste[mots.length];
+		for (int i = 0; i < mots.length; i++)
+			listes[i] = PAR_MOT.get(mots[i]);
+		Arrays.sort(listes, Comparator.comparingInt(l -> l.taille));
+		marques.nouveauTour(motsCles.length);
+		marques.marquer(livre);
+		PriorityQueue<Proche> tas = new PriorityQueue<>(Math.min(nombre, 256), ORDRE);
+		int reste = CANDIDATS_MAX;
+		for (int j = 0; j < listes.length && reste > 0; j++) {
+			Liste l = listes[j];
+			// un candidat vu pour la première fois dans la j-ième liste partage au plus
+			// mots.length - j mots clés avec le livre : sa ressemblance ne dépasse pas cette
+			// borne (bonus compris s'il est de l'auteur)
+			double borne = (double) (mots.length - j) / mots.length + BONUS_AUTEUR;
+			for (int i = 0; i < l.taille && reste > 0; i++) {
+				int autre = l.ids[i];
+				if (!marques.marquer(autre))
+					continue;
+				if (exclu(tas, nombre, borne, autre))
+					return trier(tas); // ni ce candidat ni les suivants ne peuvent entrer
+				reste--;
+				retenir(tas, nombre, autre, ressemblance(livre, autre));
+			}
+		}
+		// les livres de l'auteur pas encore vus ne partagent aucun mot clé avec le livre si
+		// toutes les listes ont été parcourues : ils valent alors tous le bonus
+		double borne = reste > 0 ? BONUS_AUTEUR : 1 + BONUS_AUTEUR;
+		Liste l = PAR_AUTEUR.get(auteurs[livre]);
+		reste = CANDIDATS_AUTEUR;
+		for (int i = 0; i < l.taille && reste > 0; i++) {
+			int autre = l.ids[i];
+			if (!marques.marquer(autre))
+				continue;
+			if (exclu(tas, nombre, borne, autre))
+				break; // la liste est triée : les suivants ont un plus grand numéro
+			reste--;
+			retenir(tas, nombre, autre, ressemblance(livre, autre));
+		}
+		return trier(tas);
+	}
+
+	/**
+	 * @param borne Ressemblance maximale du candidat.
+	 * @return vrai si les meilleurs sont au complet et qu'un candidat de cette
+	 *         ressemblance (au plus) n'y entrerait pas.
+	 */
+	private static boolean exclu(PriorityQueue<Proche> tas, int nombre, double borne, int autre) {
+		Proche dernier = tas.size() == nombre ? tas.peek() : null;
+		return dernier != null && (dernier.SCORE > borne || dernier.SCORE == borne && dernier.NUMERO < autre);
+	}
+
+	private double ressemblance(int livre, int autre) {
+		int[] a = motsCles[livre], b = motsCles[autre];
+		int communs = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				communs++;
+				i++;
+				j++;
+			}
+		}
+		double s = communs == 0 ? 0 : (double) communs / (a.length + b.length - communs);
+		return auteurs[livre] == auteurs[autre] ? s + BONUS_AUTEUR : s;
+	}
+
+	private static void retenir(PriorityQueue<Proche> tas, int nombre, int numero, double score) {
+		if (tas.size() == nombre) {
+			Proche dernier = tas.peek();
+			if (score < dernier.SCORE || score == dernier.SCORE && numero > dernier.NUMERO)
+				return;
+			tas.poll();
+		}
+		tas.add(new Proche(numero, score));
+	}
+
+	private static int[] trier(PriorityQueue<Proche> tas) {
+		Proche[] proches = tas.toArray(new Proche[0]);
+		Arrays.sort(proches, ORDRE.reversed());
+		int[] r = new int[proches.length];
+		for (int i = 0; i < r.length; i++)
+			r[i] = proches[i].NUMERO;
+		return r;
+	}
+
+	// Recalcul ------------------------------------------------------------
+
+	/**
+	 * Recalcule les voisins de tous les livres, par segments de
+	 * {@value #TAILLE_SEGMENT} numéros répartis entre les threads du pool commun
+	 * (au-delà de {@link Table#SEUIL_PARALLELE} livres), et resserre les listes
+	 * de livres à leur taille.
+	 */
+	void recalculer() {
+		int n = motsCles.length;
+		int[][] nouveaux = new int[n][];
+		ThreadLocal<Marques> marques = ThreadLocal.withInitial(Marques::new);
+		IntStream segments = IntStream.range(0, (n + TAILLE_SEGMENT - 1) / TAILLE_SEGMENT);
+		if (PRESENTS.cardinality() > Table.SEUIL_PARALLELE && Table.parallele())
+			segments = segments.parallel();
+		segments.forEach(s -> {
+			Marques m = marques.get();
+			for (int i = s * TAILLE_SEGMENT; i < n && i < (s + 1) * TAILLE_SEGMENT; i++)
+				if (PRESENTS.get(i))
+					nouveaux[i] = calculer(i, VOISINS, m);
+		});
+		voisins = nouveaux;
+		Arrays.fill(calculs, horloge);
+		PERIMES.clear();
+		for (Liste l : PAR_MOT.values())
+			l.compacter();
+		for (Liste l : PAR_AUTEUR.values())
+			l.compacter();
+	}
+}